@@ -0,0 +1,92 @@
+package org.parking.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parking.service.ActivePermit;
+import org.parking.service.ActivePermitIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ActivePermitIndex lookups the way a plate reader camera makes them. The index is filled directly rather than from a
+ * database, since only the in-memory lookup is being measured. Half the reads are for plates with no permit.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivePermitIndexBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class IndexState {
+        @Param({"1000000"})
+        public int plates;
+
+        ActivePermitIndex index;
+        String[] reads;
+        String[] lotNames;
+        long now;
+
+        @Setup
+        public void setUp() {
+            index = new ActivePermitIndex(null);
+            now = System.currentTimeMillis() / 1000;
+            lotNames = new String[DataGenerator.ZONES.length];
+            for (int i = 0; i < lotNames.length; i++) {
+                lotNames[i] = DataGenerator.lotName(i);
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < plates; i++) {
+                List<ActivePermit> permits = new ArrayList<>(2);
+                int zone = random.nextInt(DataGenerator.ZONES.length);
+                permits.add(new ActivePermit(DataGenerator.ZONES[zone], lotNames[zone], "regular", now + 86400));
+                if (i % 4 == 0) {
+                    permits.add(new ActivePermit(DataGenerator.ZONES[zone], lotNames[(zone + 1) % lotNames.length],
+                            "regular", now + 86400));
+                }
+                index.put(plate(i), permits);
+            }
+            // Reads are generated up front so the benchmark measures the lookup, not building plate strings.
+            reads = new String[1 << 16];
+            for (int i = 0; i < reads.length; i++) {
+                reads[i] = plate(random.nextInt(plates * 2));
+            }
+        }
+
+        private static String plate(int i) {
+            return "P" + i;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean isPermitted(IndexState state) {
+        return lookup(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean isPermittedConcurrent(IndexState state) {
+        return lookup(state);
+    }
+
+    private static boolean lookup(IndexState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String plate = state.reads[random.nextInt(state.reads.length)];
+        return state.index.isPermitted(plate, state.lotNames[random.nextInt(state.lotNames.length)], state.now);
+    }
+}
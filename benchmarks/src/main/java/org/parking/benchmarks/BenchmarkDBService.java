@@ -0,0 +1,44 @@
+package org.parking.benchmarks;
+
+import org.parking.service.DBService;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DBService that connects to the database given on the command line instead of the one configured in DBServiceImpl.
+ */
+public class BenchmarkDBService implements DBService {
+    private final String url;
+    private final String user;
+    private final String password;
+
+    public BenchmarkDBService(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    public Connection connectAndReturnConnection() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    public void close(Connection connection, Statement statement, ResultSet results) {
+        try {
+            if (results != null) {
+                results.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            System.out.println("Error closing benchmark resources: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.parking.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parking.model.Citation;
+import org.parking.model.Vehicle;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CitationsServiceImpl hot paths: looking a citation up, paging through them, issuing one and paying one. Issuing and
+ * paying write to the database, so later iterations run against slightly more citations and fewer DUE ones.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CitationsServiceBenchmark {
+
+    @Benchmark
+    public Citation getByNumber(ParkingState state) throws SQLException {
+        return state.citationsService.getByNumber(1 + ThreadLocalRandom.current().nextInt(state.data.getCitations()));
+    }
+
+    @Benchmark
+    public List<Citation> getPage(ParkingState state) throws SQLException {
+        return state.citationsService.getPage(ThreadLocalRandom.current().nextInt(state.data.getCitations()), 100);
+    }
+
+    @Benchmark
+    public void createCitation(ParkingState state) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Vehicle vehicle = new Vehicle(DataGenerator.license(random.nextInt(state.data.getVehicles())), "Model", "Color", "Maker", 2020);
+        Citation citation = new Citation(0, vehicle, DataGenerator.lotName(random.nextInt(state.data.getLots())),
+                "No permits", 40.0, "DUE", new Date(System.currentTimeMillis()), Time.valueOf("12:00:00"));
+        state.citationsService.createCitation(citation, false);
+    }
+
+    @Benchmark
+    public boolean payCitation(ParkingState state) {
+        return state.citationsService.payCitation(1 + ThreadLocalRandom.current().nextInt(state.data.getCitations()));
+    }
+}
@@ -0,0 +1,207 @@
+package org.parking.benchmarks;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.Random;
+
+/**
+ * Fills an empty Parking schema with a synthetic data set sized from the number of citations. Keys are derived from
+ * row indexes (driver 42 is always "D0000042") so benchmarks can pick existing keys at random without reading them
+ * back. The same seed always produces the same data.
+ */
+public class DataGenerator {
+    static final String[] ZONES = {"A", "B", "C", "D", "V"};
+    static final String[] SPACE_TYPES = {"regular", "electric", "handicap", "compact car"};
+    static final String[] DRIVER_STATUSES = {"S", "E", "V"};
+    static final String[] PAYMENT_STATUSES = {"DUE", "PAID", "APPEALED"};
+    static final int SPACES_PER_ZONE = 500;
+    static final long FIRST_CITATION_DAY = Date.valueOf("2021-01-01").getTime();
+    static final int CITATION_DAYS = 3 * 365;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int BATCH_SIZE = 5000;
+
+    private final int citations;
+    private final int lots;
+    private final int drivers;
+    private final int vehicles;
+    private final long seed;
+
+    /**
+     * @param citations Number of citations to generate. Drivers, vehicles and permits scale with it.
+     * @param seed      Seed for every random choice, so runs are repeatable.
+     */
+    public DataGenerator(int citations, long seed) {
+        this.citations = citations;
+        this.lots = 20;
+        this.drivers = Math.max(10, citations / 5);
+        this.vehicles = Math.max(10, citations / 4);
+        this.seed = seed;
+    }
+
+    /** generate inserts every row on the given connection, committing once per batch. */
+    public void generate(Connection conn) throws SQLException {
+        Random random = new Random(seed);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            insertLotsZonesAndSpaces(conn, random);
+            insertDrivers(conn, random);
+            insertVehicles(conn, random);
+            insertPermits(conn, random);
+            insertCitations(conn, random);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void insertLotsZonesAndSpaces(Connection conn, Random random) throws SQLException {
+        try (PreparedStatement lot = conn.prepareStatement("INSERT INTO ParkingLots (name, address) VALUES (?, ?)");
+             PreparedStatement zone = conn.prepareStatement("INSERT INTO Zones (id, lotName) VALUES (?, ?)");
+             PreparedStatement space = conn.prepareStatement("INSERT INTO Spaces (number, type, status, zoneID, lotName) VALUES (?, ?, ?, ?, ?)")) {
+            int pending = 0;
+            for (int l = 0; l < lots; l++) {
+                lot.setString(1, lotName(l));
+                lot.setString(2, (100 + l) + " Campus Drive");
+                lot.executeUpdate();
+                for (int z = 0; z < ZONES.length; z++) {
+                    zone.setString(1, ZONES[z]);
+                    zone.setString(2, lotName(l));
+                    zone.executeUpdate();
+                    for (int n = 1; n <= SPACES_PER_ZONE; n++) {
+                        space.setInt(1, z * SPACES_PER_ZONE + n);
+                        space.setString(2, SPACE_TYPES[random.nextInt(SPACE_TYPES.length)]);
+                        space.setBoolean(3, random.nextInt(4) != 0);
+                        space.setString(4, ZONES[z]);
+                        space.setString(5, lotName(l));
+                        space.addBatch();
+                        pending = flushIfFull(conn, space, pending + 1);
+                    }
+                }
+            }
+            flush(conn, space);
+        }
+    }
+
+    private void insertDrivers(Connection conn, Random random) throws SQLException {
+        try (PreparedStatement pstate = conn.prepareStatement("INSERT INTO Drivers (id, name, status) VALUES (?, ?, ?)")) {
+            int pending = 0;
+            for (int i = 0; i < drivers; i++) {
+                pstate.setString(1, driverId(i));
+                pstate.setString(2, "Driver " + i);
+                pstate.setString(3, DRIVER_STATUSES[random.nextInt(DRIVER_STATUSES.length)]);
+                pstate.addBatch();
+                pending = flushIfFull(conn, pstate, pending + 1);
+            }
+            flush(conn, pstate);
+        }
+    }
+
+    private void insertVehicles(Connection conn, Random random) throws SQLException {
+        try (PreparedStatement pstate = conn.prepareStatement("INSERT INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)")) {
+            int pending = 0;
+            for (int i = 0; i < vehicles; i++) {
+                pstate.setString(1, license(i));
+                pstate.setString(2, "Model " + random.nextInt(50));
+                pstate.setString(3, "Color " + random.nextInt(12));
+                pstate.setString(4, "Maker " + random.nextInt(20));
+                pstate.setInt(5, 2000 + random.nextInt(24));
+                pstate.addBatch();
+                pending = flushIfFull(conn, pstate, pending + 1);
+            }
+            flush(conn, pstate);
+        }
+    }
+
+    // insertPermits gives every vehicle one permit. Permit i belongs to driver i % drivers so most drivers hold one or
+    // two permits.
+    private void insertPermits(Connection conn, Random random) throws SQLException {
+        try (PreparedStatement pstate = conn.prepareStatement("INSERT INTO Permits (permitID, permitType, zoneID, associatedID, carLicenseNum, spaceType, startDate, expirationDate, expirationTime) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            int pending = 0;
+            for (int i = 0; i < vehicles; i++) {
+                long start = FIRST_CITATION_DAY + random.nextInt(CITATION_DAYS) * DAY_MILLIS;
+                pstate.setString(1, permitId(i));
+                pstate.setString(2, "Commuter");
+                pstate.setString(3, ZONES[random.nextInt(ZONES.length)]);
+                pstate.setString(4, driverId(i % drivers));
+                pstate.setString(5, license(i));
+                pstate.setString(6, SPACE_TYPES[random.nextInt(SPACE_TYPES.length)]);
+                pstate.setDate(7, new Date(start));
+                pstate.setDate(8, new Date(start + 365 * DAY_MILLIS));
+                pstate.setTime(9, Time.valueOf("23:59:59"));
+                pstate.addBatch();
+                pending = flushIfFull(conn, pstate, pending + 1);
+            }
+            flush(conn, pstate);
+        }
+    }
+
+    private void insertCitations(Connection conn, Random random) throws SQLException {
+        try (PreparedStatement pstate = conn.prepareStatement("INSERT INTO Citations (licenseNum, lotName, category, fee, paymentStatus, citationDate, citationTime) VALUES (?,?,?,?,?,?,?)")) {
+            int pending = 0;
+            for (int i = 0; i < citations; i++) {
+                pstate.setString(1, license(random.nextInt(vehicles)));
+                pstate.setString(2, lotName(random.nextInt(lots)));
+                pstate.setString(3, random.nextBoolean() ? "No permits" : "Expired permit");
+                pstate.setDouble(4, random.nextBoolean() ? 40 : 30);
+                pstate.setString(5, PAYMENT_STATUSES[random.nextInt(PAYMENT_STATUSES.length)]);
+                pstate.setDate(6, new Date(FIRST_CITATION_DAY + random.nextInt(CITATION_DAYS) * DAY_MILLIS));
+                pstate.setTime(7, new Time(random.nextInt(24 * 60 * 60) * 1000L));
+                pstate.addBatch();
+                pending = flushIfFull(conn, pstate, pending + 1);
+                if ((i + 1) % 100000 == 0) {
+                    System.out.println("Generated " + (i + 1) + " citations");
+                }
+            }
+            flush(conn, pstate);
+        }
+    }
+
+    private static int flushIfFull(Connection conn, PreparedStatement pstate, int pending) throws SQLException {
+        if (pending < BATCH_SIZE) {
+            return pending;
+        }
+        flush(conn, pstate);
+        return 0;
+    }
+
+    private static void flush(Connection conn, PreparedStatement pstate) throws SQLException {
+        pstate.executeBatch();
+        conn.commit();
+    }
+
+    public int getCitations() {
+        return citations;
+    }
+
+    public int getLots() {
+        return lots;
+    }
+
+    public int getDrivers() {
+        return drivers;
+    }
+
+    public int getVehicles() {
+        return vehicles;
+    }
+
+    public static String lotName(int i) {
+        return "Lot " + (i + 1);
+    }
+
+    public static String driverId(int i) {
+        return String.format("D%07d", i);
+    }
+
+    public static String license(int i) {
+        return String.format("LIC%07d", i);
+    }
+
+    public static String permitId(int i) {
+        return String.format("P%07d", i);
+    }
+}
@@ -0,0 +1,100 @@
+package org.parking.benchmarks;
+
+import org.parking.service.PooledDBServiceImpl;
+import org.parking.service.SchemaMigrationServiceImpl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database running in MariaDB compatibility mode, used by the JMH benchmarks in place of a MariaDB
+ * server. start creates the schema from h2-schema.sql, fills it with {@link DataGenerator}, builds the citation rollups
+ * and applies the shipped schema migrations, so the benchmarks run against the same indexes production has.
+ */
+public class EmbeddedDatabase {
+    static final String SCHEMA = "h2-schema.sql";
+    static final String ROLLUP_BACKFILL = "INSERT INTO CitationDailyRollups (lotName, citationDay, paymentStatus, citationCount, feeTotal) " +
+            "SELECT lotName, citationDate, paymentStatus, COUNT(*), SUM(fee) FROM Citations GROUP BY lotName, citationDate, paymentStatus";
+    static final String ROLLUP_TRIGGER = "CREATE TRIGGER CitationsRollup AFTER INSERT, UPDATE, DELETE ON Citations FOR EACH ROW CALL '" +
+            H2CitationRollupTrigger.class.getName() + "'";
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final BenchmarkDBService connectionFactory;
+    private final PooledDBServiceImpl dbService;
+    private final DataGenerator data;
+
+    private EmbeddedDatabase(BenchmarkDBService connectionFactory, DataGenerator data) {
+        this.connectionFactory = connectionFactory;
+        this.dbService = new PooledDBServiceImpl(connectionFactory);
+        this.data = data;
+    }
+
+    /** start creates a new, separately named database so several can live in one JVM. */
+    public static EmbeddedDatabase start(DataGenerator data) throws SQLException {
+        String url = "jdbc:h2:mem:parking" + NEXT_ID.incrementAndGet() + ";MODE=MariaDB;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1";
+        EmbeddedDatabase database = new EmbeddedDatabase(new BenchmarkDBService(url, "sa", ""), data);
+        Connection conn = database.connectionFactory.connectAndReturnConnection();
+        Statement statement = null;
+        try {
+            statement = conn.createStatement();
+            for (String sql : loadSchema()) {
+                statement.execute(sql);
+            }
+            data.generate(conn);
+            statement.execute(ROLLUP_BACKFILL);
+            statement.execute(ROLLUP_TRIGGER);
+        } finally {
+            database.connectionFactory.close(conn, statement, null);
+        }
+        new SchemaMigrationServiceImpl(database.dbService).migrate();
+        return database;
+    }
+
+    public PooledDBServiceImpl getDBService() {
+        return dbService;
+    }
+
+    public DataGenerator getData() {
+        return data;
+    }
+
+    /** shutdown closes the pooled connections and drops the database. */
+    public void shutdown() throws SQLException {
+        dbService.shutdown();
+        Connection conn = connectionFactory.connectAndReturnConnection();
+        Statement statement = null;
+        try {
+            statement = conn.createStatement();
+            statement.execute("SHUTDOWN");
+        } finally {
+            connectionFactory.close(conn, statement, null);
+        }
+    }
+
+    // loadSchema splits h2-schema.sql into statements on semicolons that end a line, skipping -- comment lines.
+    private static String[] loadSchema() throws SQLException {
+        InputStream in = EmbeddedDatabase.class.getClassLoader().getResourceAsStream(SCHEMA);
+        if (in == null) {
+            throw new SQLException(SCHEMA + " was not found on the classpath");
+        }
+        StringBuilder script = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().startsWith("--")) {
+                    script.append(line).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read " + SCHEMA, e);
+        }
+        return script.toString().trim().split(";\\s*(?:\n|$)");
+    }
+}
@@ -0,0 +1,63 @@
+package org.parking.benchmarks;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * H2 version of the CitationsRollup* triggers in sql/createDatabaseScript.sql. H2 triggers are Java classes, so this
+ * does what the MariaDB trigger bodies do: an insert adds the citation to its day's rollup row, a delete takes it out
+ * and removes the row once it is empty, and an update does both.
+ */
+public class H2CitationRollupTrigger implements Trigger {
+    // Column positions in the Citations rows H2 passes to fire.
+    private static final int CITATION_DATE = 1;
+    private static final int PAYMENT_STATUS = 3;
+    private static final int LOT_NAME = 4;
+    private static final int FEE = 6;
+
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (oldRow != null) {
+            apply(conn, oldRow, -1);
+        }
+        if (newRow != null) {
+            apply(conn, newRow, 1);
+        }
+    }
+
+    // apply moves the citation into (sign 1) or out of (sign -1) its rollup row, creating the row on first insert.
+    private static void apply(Connection conn, Object[] row, int sign) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement("UPDATE CitationDailyRollups SET citationCount = citationCount + ?, " +
+                "feeTotal = feeTotal + ? * ? WHERE lotName = ? AND citationDay = ? AND paymentStatus = ?")) {
+            update.setInt(1, sign);
+            update.setInt(2, sign);
+            update.setObject(3, row[FEE]);
+            update.setObject(4, row[LOT_NAME]);
+            update.setObject(5, row[CITATION_DATE]);
+            update.setObject(6, row[PAYMENT_STATUS]);
+            if (update.executeUpdate() > 0 && sign > 0) {
+                return;
+            }
+        }
+        if (sign < 0) {
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM CitationDailyRollups WHERE lotName = ? " +
+                    "AND citationDay = ? AND paymentStatus = ? AND citationCount = 0")) {
+                delete.setObject(1, row[LOT_NAME]);
+                delete.setObject(2, row[CITATION_DATE]);
+                delete.setObject(3, row[PAYMENT_STATUS]);
+                delete.executeUpdate();
+            }
+            return;
+        }
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO CitationDailyRollups (lotName, citationDay, paymentStatus, " +
+                "citationCount, feeTotal) VALUES (?, ?, ?, 1, ?)")) {
+            insert.setObject(1, row[LOT_NAME]);
+            insert.setObject(2, row[CITATION_DATE]);
+            insert.setObject(3, row[PAYMENT_STATUS]);
+            insert.setObject(4, row[FEE]);
+            insert.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.parking.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.parking.service.CachedSpaceServiceImpl;
+import org.parking.service.CitationsServiceImpl;
+import org.parking.service.DBService;
+import org.parking.service.DriversServiceImpl;
+import org.parking.service.PermitValidationServiceImpl;
+import org.parking.service.PermitsServiceImpl;
+import org.parking.service.ReferenceDataCache;
+import org.parking.service.ReportsServiceImpl;
+import org.parking.service.SpaceServiceImpl;
+import org.parking.service.VehicleServiceImpl;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.SQLException;
+
+/**
+ * Shared JMH state: one embedded database per trial, filled to the requested number of citations, and the service
+ * implementations wired to it the way Main wires them. Service logging is discarded for the whole trial so it does not
+ * end up in the measurements.
+ */
+@State(Scope.Benchmark)
+public class ParkingState {
+    @Param({"100000"})
+    public int citations;
+
+    EmbeddedDatabase database;
+    DataGenerator data;
+    CitationsServiceImpl citationsService;
+    PermitsServiceImpl permitsService;
+    PermitValidationServiceImpl permitValidationService;
+    ReportsServiceImpl reportsService;
+    SpaceServiceImpl spaceService;
+    CachedSpaceServiceImpl cachedSpaceService;
+    VehicleServiceImpl vehicleService;
+    DriversServiceImpl driversService;
+
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        database = EmbeddedDatabase.start(new DataGenerator(citations, 42));
+        data = database.getData();
+        DBService dbService = database.getDBService();
+        citationsService = new CitationsServiceImpl(dbService);
+        permitsService = new PermitsServiceImpl(dbService);
+        permitValidationService = new PermitValidationServiceImpl(dbService);
+        reportsService = new ReportsServiceImpl(dbService);
+        spaceService = new SpaceServiceImpl(dbService);
+        cachedSpaceService = new CachedSpaceServiceImpl(spaceService, new ReferenceDataCache(60000, 100000));
+        vehicleService = new VehicleServiceImpl(dbService);
+        driversService = new DriversServiceImpl(dbService);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try {
+            database.shutdown();
+        } finally {
+            System.setOut(console);
+        }
+    }
+}
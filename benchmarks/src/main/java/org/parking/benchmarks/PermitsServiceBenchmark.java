@@ -0,0 +1,54 @@
+package org.parking.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parking.model.Permit;
+import org.parking.service.PermitValidationResult;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** PermitsServiceImpl lookups and the PermitValidationServiceImpl check run for every plate read. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermitsServiceBenchmark {
+
+    @Benchmark
+    public Collection<Permit> getPermitInfo(ParkingState state) throws SQLException {
+        return state.permitsService.getPermitInfo(DataGenerator.permitId(ThreadLocalRandom.current().nextInt(state.data.getVehicles())));
+    }
+
+    @Benchmark
+    public int getPermitsNumberForDriver(ParkingState state) throws SQLException {
+        return state.permitsService.getPermitsNumberForDriver(DataGenerator.driverId(ThreadLocalRandom.current().nextInt(state.data.getDrivers())));
+    }
+
+    @Benchmark
+    public int getVehicleNumberofPermit(ParkingState state) throws SQLException {
+        return state.permitsService.getVehicleNumberofPermit(DataGenerator.permitId(ThreadLocalRandom.current().nextInt(state.data.getVehicles())));
+    }
+
+    @Benchmark
+    public Collection<Permit> getPermitPerCarLicense(ParkingState state) throws SQLException {
+        return state.permitsService.getPermitPerCarLicense(DataGenerator.license(ThreadLocalRandom.current().nextInt(state.data.getVehicles())));
+    }
+
+    @Benchmark
+    public PermitValidationResult validate(ParkingState state) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return state.permitValidationService.validate(DataGenerator.license(random.nextInt(state.data.getVehicles())),
+                DataGenerator.lotName(random.nextInt(state.data.getLots())), Date.valueOf("2023-06-01"), Time.valueOf("12:00:00"), null);
+    }
+}
@@ -0,0 +1,201 @@
+package org.parking.benchmarks;
+
+import org.parking.service.CitationsServiceImpl;
+import org.parking.service.DBService;
+import org.parking.service.DriversServiceImpl;
+import org.parking.service.PermitValidationServiceImpl;
+import org.parking.service.PermitsServiceImpl;
+import org.parking.service.PooledDBServiceImpl;
+import org.parking.service.ReportsServiceImpl;
+import org.parking.service.SchemaMigrationServiceImpl;
+import org.parking.service.VehicleServiceImpl;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the latency of the service read queries before and after the schema migrations are applied.
+ *
+ * Usage: QueryLatencyBenchmark <jdbcUrl> <user> <password> [citations] [iterations]
+ *
+ * The database must have been created from sql/createDatabaseScript.sql and have no migrations applied. If it has
+ * fewer citations than requested it is filled by {@link DataGenerator} first, which takes several minutes for the
+ * default of 1,000,000 citations. Every query runs through the real service implementation on a pooled connection,
+ * so the numbers include what the application pays per call. Service logging is discarded while timing.
+ */
+public class QueryLatencyBenchmark {
+    static final int DEFAULT_CITATIONS = 1000000;
+    static final int DEFAULT_ITERATIONS = 50;
+    static final int WARMUP_ITERATIONS = 5;
+
+    private final DataGenerator data;
+    private final int iterations;
+    private final Map<String, BenchmarkQuery> queries = new LinkedHashMap<>();
+
+    QueryLatencyBenchmark(DBService dbService, DataGenerator data, int iterations) {
+        this.data = data;
+        this.iterations = iterations;
+        PermitsServiceImpl permits = new PermitsServiceImpl(dbService);
+        ReportsServiceImpl reports = new ReportsServiceImpl(dbService);
+        CitationsServiceImpl citations = new CitationsServiceImpl(dbService);
+        VehicleServiceImpl vehicles = new VehicleServiceImpl(dbService);
+        DriversServiceImpl drivers = new DriversServiceImpl(dbService);
+        PermitValidationServiceImpl validation = new PermitValidationServiceImpl(dbService);
+
+        queries.put("PermitsServiceImpl.getPermitInfo", r -> permits.getPermitInfo(DataGenerator.permitId(r.nextInt(data.getVehicles()))));
+        queries.put("PermitsServiceImpl.getVehicleNumberofPermit", r -> permits.getVehicleNumberofPermit(DataGenerator.permitId(r.nextInt(data.getVehicles()))));
+        queries.put("PermitsServiceImpl.getPermitsNumberForDriver", r -> permits.getPermitsNumberForDriver(DataGenerator.driverId(r.nextInt(data.getDrivers()))));
+        queries.put("PermitsServiceImpl.getPermitPerCarLicense", r -> permits.getPermitPerCarLicense(DataGenerator.license(r.nextInt(data.getVehicles()))));
+        queries.put("PermitValidationServiceImpl.validate", r -> validation.validate(DataGenerator.license(r.nextInt(data.getVehicles())),
+                DataGenerator.lotName(r.nextInt(data.getLots())), Date.valueOf("2023-06-01"), Time.valueOf("12:00:00"), null));
+        queries.put("ReportsServiceImpl.getPermitForDriver", r -> reports.getPermitForDriver(DataGenerator.driverId(r.nextInt(data.getDrivers()))));
+        queries.put("ReportsServiceImpl.generateViolatedCarNumber", r -> reports.generateViolatedCarNumber());
+        queries.put("ReportsServiceImpl.generateCitationReport", r -> reports.generateCitationReport(DataGenerator.lotName(r.nextInt(data.getLots())),
+                Date.valueOf("2022-01-01"), Date.valueOf("2022-12-31")));
+        queries.put("ReportsServiceImpl.generateExployeesofZone", r -> reports.generateExployeesofZone(DataGenerator.ZONES[r.nextInt(DataGenerator.ZONES.length)]));
+        queries.put("ReportsServiceImpl.getAvailableSpaceinParkingLot", r -> reports.getAvailableSpaceinParkingLot(DataGenerator.lotName(r.nextInt(data.getLots())),
+                DataGenerator.SPACE_TYPES[r.nextInt(DataGenerator.SPACE_TYPES.length)]));
+        queries.put("CitationsServiceImpl.getByNumber", r -> citations.getByNumber(1 + r.nextInt(data.getCitations())));
+        queries.put("CitationsServiceImpl.getPage", r -> citations.getPage(r.nextInt(data.getCitations()), 100));
+        queries.put("VehicleServiceImpl.getByLicense", r -> vehicles.getByLicense(DataGenerator.license(r.nextInt(data.getVehicles()))));
+        queries.put("DriversServiceImpl.getById", r -> drivers.getById(DataGenerator.driverId(r.nextInt(data.getDrivers()))));
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 3) {
+            System.out.println("Usage: QueryLatencyBenchmark <jdbcUrl> <user> <password> [citations] [iterations]");
+            return;
+        }
+        int citations = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_CITATIONS;
+        int iterations = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_ITERATIONS;
+        BenchmarkDBService connectionFactory = new BenchmarkDBService(args[0], args[1], args[2]);
+        PooledDBServiceImpl dbService = new PooledDBServiceImpl(connectionFactory);
+        try {
+            SchemaMigrationServiceImpl migrations = new SchemaMigrationServiceImpl(dbService);
+            if (migrations.getCurrentVersion() != 0) {
+                System.out.println("Migrations are already applied, so there is no baseline to compare against. "
+                        + "Recreate the database from sql/createDatabaseScript.sql and run again.");
+                return;
+            }
+            DataGenerator data = new DataGenerator(citations, 42);
+            ensureData(connectionFactory, data);
+
+            QueryLatencyBenchmark benchmark = new QueryLatencyBenchmark(dbService, data, iterations);
+            Map<String, double[]> before = benchmark.measureAll();
+            System.out.println("Applying migrations");
+            migrations.migrate();
+            Map<String, double[]> after = benchmark.measureAll();
+            printReport(before, after, iterations);
+        } finally {
+            dbService.shutdown();
+        }
+    }
+
+    private static void ensureData(DBService connectionFactory, DataGenerator data) throws SQLException {
+        Connection conn = connectionFactory.connectAndReturnConnection();
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        try {
+            pstate = conn.prepareStatement("SELECT COUNT(*) FROM Citations");
+            results = pstate.executeQuery();
+            results.next();
+            int existing = results.getInt(1);
+            if (existing >= data.getCitations()) {
+                System.out.println("Using the existing " + existing + " citations");
+                return;
+            }
+            if (existing > 0) {
+                throw new SQLException("Citations has " + existing + " rows, fewer than the " + data.getCitations()
+                        + " requested. Recreate the database so the generated keys line up.");
+            }
+            System.out.println("Generating " + data.getCitations() + " citations");
+            data.generate(conn);
+        } finally {
+            connectionFactory.close(conn, pstate, results);
+        }
+    }
+
+    // measureAll times every query with the same random keys so before and after runs are comparable. It returns
+    // the p50, p95, p99 and mean latency in milliseconds for each query.
+    Map<String, double[]> measureAll() throws SQLException {
+        Map<String, double[]> stats = new LinkedHashMap<>();
+        PrintStream console = System.out;
+        try {
+            for (Map.Entry<String, BenchmarkQuery> query : queries.entrySet()) {
+                console.println("Measuring " + query.getKey());
+                System.setOut(new PrintStream(new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                    }
+                }));
+                Random random = new Random(7);
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    query.getValue().run(random);
+                }
+                long[] nanos = new long[iterations];
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    query.getValue().run(random);
+                    nanos[i] = System.nanoTime() - start;
+                }
+                System.setOut(console);
+                stats.put(query.getKey(), summarize(nanos));
+            }
+        } finally {
+            System.setOut(console);
+        }
+        return stats;
+    }
+
+    static double[] summarize(long[] nanos) {
+        long[] sorted = Arrays.copyOf(nanos, nanos.length);
+        Arrays.sort(sorted);
+        double total = 0;
+        for (long n : sorted) {
+            total += n;
+        }
+        return new double[]{
+                percentile(sorted, 0.50) / 1e6,
+                percentile(sorted, 0.95) / 1e6,
+                percentile(sorted, 0.99) / 1e6,
+                total / sorted.length / 1e6
+        };
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static void printReport(Map<String, double[]> before, Map<String, double[]> after, int iterations) {
+        System.out.println();
+        System.out.println("Latency in ms over " + iterations + " calls per query (p50 / p95 / p99 / mean)");
+        System.out.printf("%-52s %-36s %-36s %8s%n", "Query", "Before migrations", "After migrations", "Speedup");
+        List<String> names = new ArrayList<>(before.keySet());
+        for (String name : names) {
+            double[] b = before.get(name);
+            double[] a = after.get(name);
+            System.out.printf("%-52s %-36s %-36s %7.1fx%n", name, format(b), format(a), b[0] / Math.max(a[0], 1e-6));
+        }
+    }
+
+    private static String format(double[] stats) {
+        return String.format("%.2f / %.2f / %.2f / %.2f", stats[0], stats[1], stats[2], stats[3]);
+    }
+
+    interface BenchmarkQuery {
+        void run(Random random) throws SQLException;
+    }
+}
@@ -0,0 +1,65 @@
+package org.parking.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parking.model.CitationRollup;
+import org.parking.model.Permit;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReportsServiceImpl reports. The monthly rollup report is not covered because H2 has no DATE_SUB, which its query
+ * uses to find the first day of the month; the daily report reads the same rollup rows.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportsServiceBenchmark {
+    private static final Date YEAR_START = Date.valueOf("2022-01-01");
+    private static final Date YEAR_END = Date.valueOf("2022-12-31");
+
+    @Benchmark
+    public int generateCitationReport(ParkingState state) throws SQLException {
+        return state.reportsService.generateCitationReport(DataGenerator.lotName(ThreadLocalRandom.current().nextInt(state.data.getLots())),
+                YEAR_START, YEAR_END);
+    }
+
+    @Benchmark
+    public Collection<CitationRollup> generateDailyCitationRollupReport(ParkingState state) throws SQLException {
+        return state.reportsService.generateCitationRollupReport(DataGenerator.lotName(ThreadLocalRandom.current().nextInt(state.data.getLots())),
+                YEAR_START, YEAR_END, false);
+    }
+
+    @Benchmark
+    public int generateViolatedCarNumber(ParkingState state) throws SQLException {
+        return state.reportsService.generateViolatedCarNumber();
+    }
+
+    @Benchmark
+    public int generateExployeesofZone(ParkingState state) throws SQLException {
+        return state.reportsService.generateExployeesofZone(DataGenerator.ZONES[ThreadLocalRandom.current().nextInt(DataGenerator.ZONES.length)]);
+    }
+
+    @Benchmark
+    public Collection<Permit> getPermitForDriver(ParkingState state) throws SQLException {
+        return state.reportsService.getPermitForDriver(DataGenerator.driverId(ThreadLocalRandom.current().nextInt(state.data.getDrivers())));
+    }
+
+    @Benchmark
+    public int getAvailableSpaceinParkingLot(ParkingState state) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return state.reportsService.getAvailableSpaceinParkingLot(DataGenerator.lotName(random.nextInt(state.data.getLots())),
+                DataGenerator.SPACE_TYPES[random.nextInt(DataGenerator.SPACE_TYPES.length)]);
+    }
+}
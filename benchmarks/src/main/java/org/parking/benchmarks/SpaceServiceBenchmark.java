@@ -0,0 +1,55 @@
+package org.parking.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parking.model.Space;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** SpaceServiceImpl lookups and occupancy updates, with and without the CachedSpaceServiceImpl decorator in front. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpaceServiceBenchmark {
+
+    @Benchmark
+    public Space getSpace(ParkingState state) {
+        return randomSpace(state, false);
+    }
+
+    @Benchmark
+    public Space cachedGetSpace(ParkingState state) {
+        return randomSpace(state, true);
+    }
+
+    @Benchmark
+    public List<Space> getPage(ParkingState state) {
+        Space after = randomSpace(state, true);
+        return state.spaceService.getPage(after, 100);
+    }
+
+    // occupySpace reads a space and flips its status, the way a driver entering or leaving a space does.
+    @Benchmark
+    public boolean occupySpace(ParkingState state) {
+        Space space = randomSpace(state, false);
+        Space updated = new Space(space.getNumber(), space.getType(), !space.getStatus(), space.getZoneID(), space.getLotName());
+        return state.spaceService.updateSpace(space, updated);
+    }
+
+    private static Space randomSpace(ParkingState state, boolean cached) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int zone = random.nextInt(DataGenerator.ZONES.length);
+        int number = zone * DataGenerator.SPACES_PER_ZONE + 1 + random.nextInt(DataGenerator.SPACES_PER_ZONE);
+        String lotName = DataGenerator.lotName(random.nextInt(state.data.getLots()));
+        return (cached ? state.cachedSpaceService : state.spaceService).getSpace(number, DataGenerator.ZONES[zone], lotName);
+    }
+}
@@ -0,0 +1,45 @@
+package org.parking.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parking.model.Driver;
+import org.parking.model.Vehicle;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** VehicleServiceImpl and DriversServiceImpl lookups by key and keyset pages. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VehicleDriverServiceBenchmark {
+
+    @Benchmark
+    public Vehicle getVehicleByLicense(ParkingState state) throws SQLException {
+        return state.vehicleService.getByLicense(DataGenerator.license(ThreadLocalRandom.current().nextInt(state.data.getVehicles())));
+    }
+
+    @Benchmark
+    public List<Vehicle> getVehiclePage(ParkingState state) throws SQLException {
+        return state.vehicleService.getPage(DataGenerator.license(ThreadLocalRandom.current().nextInt(state.data.getVehicles())), 100);
+    }
+
+    @Benchmark
+    public Driver getDriverById(ParkingState state) throws SQLException {
+        return state.driversService.getById(DataGenerator.driverId(ThreadLocalRandom.current().nextInt(state.data.getDrivers())));
+    }
+
+    @Benchmark
+    public List<Driver> getDriverPage(ParkingState state) throws SQLException {
+        return state.driversService.getPage(DataGenerator.driverId(ThreadLocalRandom.current().nextInt(state.data.getDrivers())), 100);
+    }
+}
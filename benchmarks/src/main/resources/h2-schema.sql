@@ -0,0 +1,94 @@
+-- sql/createDatabaseScript.sql translated for the in-memory H2 database the JMH benchmarks run against. Tables, keys
+-- and columns match the MariaDB schema with two differences H2 forces on us:
+--   * H2 only allows foreign keys to unique columns, and neither Zones (id) nor Zones (lotName) is unique on its own.
+--     Spaces references the Zones primary key instead and the Permits zoneID foreign key is left out.
+--   * there are no CitationDailyRollups triggers here. EmbeddedDatabase fills the rollups in one statement once the
+--     generated data is loaded and then installs H2CitationRollupTrigger, which is much faster than rolling up every
+--     generated citation one row at a time.
+-- Keep this file in step with createDatabaseScript.sql when the schema changes.
+
+CREATE TABLE Drivers
+(
+	id			VARCHAR(255) PRIMARY KEY NOT NULL,
+	name		VARCHAR(255) NOT NULL,
+	status		VARCHAR(1) NOT NULL
+);
+
+CREATE TABLE ParkingLots
+(
+  name    varchar(255) PRIMARY KEY NOT NULL,
+  address varchar(255) NOT NULL
+);
+
+CREATE TABLE Zones
+(
+	id		VARCHAR(255) NOT NULL,
+	lotName	VARCHAR(255) NOT NULL,
+	FOREIGN KEY (lotName) REFERENCES ParkingLots (name)
+		ON UPDATE CASCADE,
+	PRIMARY KEY(id, lotName)
+);
+
+CREATE TABLE Spaces
+(
+  number                integer NOT NULL,
+  type                  varchar(11) DEFAULT 'regular',
+  status                boolean NOT NULL,
+  zoneID                varchar(255) NOT NULL,
+  lotName               varchar(255) NOT NULL,
+  FOREIGN KEY (zoneID, lotName) REFERENCES Zones (id, lotName) ON UPDATE CASCADE,
+  PRIMARY KEY (number, zoneID, lotName)
+);
+
+CREATE TABLE Vehicles
+(
+  carLicenseNumber       varchar(255) PRIMARY KEY NOT NULL,
+  model                  varchar(255) NOT NULL,
+  color                  varchar(255) NOT NULL,
+  manufacturer           varchar(255) NOT NULL,
+  year                   integer
+);
+
+CREATE TABLE Permits
+(
+  id                         integer PRIMARY KEY AUTO_INCREMENT NOT NULL,
+  permitID                   varchar(10) NOT NULL,
+  permitType                 varchar(20) NOT NULL,
+  zoneID                     varchar(255) NOT NULL,
+  associatedID               varchar(255) NOT NULL,
+  carLicenseNum              varchar(255),
+  spaceType                  varchar(11) NOT NULL,
+  startDate                  date NOT NULL,
+  expirationDate             date NOT NULL,
+  expirationTime             time NOT NULL,
+
+  FOREIGN KEY (carLicenseNum) REFERENCES Vehicles (carLicenseNumber) ON UPDATE CASCADE,
+  FOREIGN KEY (associatedID)  REFERENCES Drivers (id) ON UPDATE CASCADE
+);
+
+CREATE TABLE Citations
+(
+  citationNum                  integer PRIMARY KEY AUTO_INCREMENT NOT NULL,
+  citationDate                 date NOT NULL,
+  citationTime                 time NOT NULL,
+  paymentStatus                varchar(8) NOT NULL,
+  lotName                      varchar(255) NOT NULL,
+  category                     varchar(255) NOT NULL,
+  fee                          decimal(4,2) NOT NULL,
+  licenseNum                   varchar(255) NOT NULL,
+
+  FOREIGN KEY (licenseNum)     REFERENCES Vehicles (carLicenseNumber) ON UPDATE CASCADE,
+  FOREIGN KEY (lotName)        REFERENCES ParkingLots (name) ON UPDATE CASCADE
+);
+
+CREATE TABLE CitationDailyRollups
+(
+  lotName                      varchar(255) NOT NULL,
+  citationDay                  date NOT NULL,
+  paymentStatus                varchar(8) NOT NULL,
+  citationCount                integer NOT NULL,
+  feeTotal                     decimal(12,2) NOT NULL,
+
+  PRIMARY KEY (lotName, citationDay, paymentStatus),
+  FOREIGN KEY (lotName)        REFERENCES ParkingLots (name) ON UPDATE CASCADE
+);
@@ -83,4 +83,47 @@ CREATE TABLE Citations
 
   Foreign KEY (licenseNum)	   REFERENCES vehicles (carLicenseNumber) ON UPDATE CASCADE,
   FOREIGN KEY (lotName)        REFERENCES ParkingLots (name) ON UPDATE CASCADE
-);
\ No newline at end of file
+);
+
+-- Daily citation totals per lot and payment status, kept up to date by the triggers below so citation reports read
+-- one row per day instead of scanning Citations. Renaming a lot cascades here the same way it cascades to Citations.
+CREATE TABLE CitationDailyRollups
+(
+  lotName                      varchar(255) NOT NULL,
+  citationDay                  date NOT NULL,
+  paymentStatus                varchar(8) NOT NULL,
+  citationCount                integer NOT NULL,
+  feeTotal                     decimal(12,2) NOT NULL,
+
+  PRIMARY KEY (lotName, citationDay, paymentStatus),
+  FOREIGN KEY (lotName)        REFERENCES ParkingLots (name) ON UPDATE CASCADE
+);
+
+CREATE TRIGGER CitationsRollupInsert AFTER INSERT ON Citations FOR EACH ROW
+  INSERT INTO CitationDailyRollups (lotName, citationDay, paymentStatus, citationCount, feeTotal)
+  VALUES (NEW.lotName, NEW.citationDate, NEW.paymentStatus, 1, NEW.fee)
+  ON DUPLICATE KEY UPDATE citationCount = citationCount + 1, feeTotal = feeTotal + NEW.fee;
+
+-- A rollup row is removed when its last citation leaves it, so an empty row never holds a reference to its lot.
+DELIMITER //
+CREATE TRIGGER CitationsRollupDelete AFTER DELETE ON Citations FOR EACH ROW BEGIN
+  UPDATE CitationDailyRollups SET citationCount = citationCount - 1, feeTotal = feeTotal - OLD.fee
+  WHERE lotName = OLD.lotName AND citationDay = OLD.citationDate AND paymentStatus = OLD.paymentStatus;
+  DELETE FROM CitationDailyRollups
+  WHERE lotName = OLD.lotName AND citationDay = OLD.citationDate AND paymentStatus = OLD.paymentStatus AND citationCount = 0;
+END//
+
+-- An update moves the citation out of its old rollup row and into its new one, covering paying, appealing and
+-- editing a citation.
+CREATE TRIGGER CitationsRollupUpdateRemove AFTER UPDATE ON Citations FOR EACH ROW BEGIN
+  UPDATE CitationDailyRollups SET citationCount = citationCount - 1, feeTotal = feeTotal - OLD.fee
+  WHERE lotName = OLD.lotName AND citationDay = OLD.citationDate AND paymentStatus = OLD.paymentStatus;
+  DELETE FROM CitationDailyRollups
+  WHERE lotName = OLD.lotName AND citationDay = OLD.citationDate AND paymentStatus = OLD.paymentStatus AND citationCount = 0;
+END//
+DELIMITER ;
+
+CREATE TRIGGER CitationsRollupUpdateAdd AFTER UPDATE ON Citations FOR EACH ROW FOLLOWS CitationsRollupUpdateRemove
+  INSERT INTO CitationDailyRollups (lotName, citationDay, paymentStatus, citationCount, feeTotal)
+  VALUES (NEW.lotName, NEW.citationDate, NEW.paymentStatus, 1, NEW.fee)
+  ON DUPLICATE KEY UPDATE citationCount = citationCount + 1, feeTotal = feeTotal + NEW.fee;
@@ -3,6 +3,20 @@ package org.parking;
 import org.parking.menus.UserInterfaceImpl;
 import org.parking.service.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class Main {
     public static void main(String[] args) {
         try {
@@ -11,15 +25,96 @@ public class Main {
             e.printStackTrace();
         }
         // Instantiate all services for dependency injection
-        DBService dbService = new DBServiceImpl();
-        CitationsService citationsService = new CitationsServiceImpl(dbService);
+        // With -Dparking.db.recordBorrowSites=true, leaked connections are reported with where they were borrowed.
+        PooledDBServiceImpl dbService = new PooledDBServiceImpl(new DBServiceImpl(),
+                Boolean.getBoolean("parking.db.recordBorrowSites"));
+        // Bring the schema up to date before anything queries it. "--migrate" does only this and exits.
+        SchemaMigrationService schemaMigrationService = new SchemaMigrationServiceImpl(dbService);
+        try {
+            schemaMigrationService.migrate();
+        } catch (SQLException e) {
+            System.out.println("Schema migration failed: " + e.getMessage());
+        }
+        if (args.length > 0 && "--migrate".equals(args[0])) {
+            dbService.shutdown();
+            return;
+        }
+        if (args.length > 0 && "--import".equals(args[0])) {
+            runImport(new BulkImportServiceImpl(dbService), args);
+            dbService.shutdown();
+            return;
+        }
+        if (args.length > 0 && "--reconcile".equals(args[0])) {
+            runReconcile(new PaymentReconciliationServiceImpl(dbService, new CitationsServiceImpl(dbService)), args);
+            dbService.shutdown();
+            return;
+        }
+        // Most plates looked up in visitor lots were never registered. A bloom filter of the known licenses answers
+        // those lookups without a query. It is left out if the licenses can't be loaded.
+        LicenseBloomFilter knownLicenses = loadLicenseFilter(new VehicleServiceImpl(dbService));
+        // Citation numbers are handed out from blocks reserved for this device, so a ticket's number is known before it
+        // is saved.
+        CitationNumberAllocator citationNumbers = new CitationNumberAllocator(dbService,
+                System.getProperty("parking.deviceID", "server"), Integer.getInteger("parking.citationBlockSize", 100));
+        CitationsService citationsService = new CitationsServiceImpl(dbService, citationNumbers);
+        // With -Dparking.citationLog=<file>, new citations are acknowledged once they are in a local log and written
+        // to the database in the background.
+        WriteBehindCitationsServiceImpl writeBehindCitations = openCitationLog(citationsService, citationNumbers);
+        if (writeBehindCitations != null) {
+            citationsService = writeBehindCitations;
+        }
         VehicleService vehicleService = new VehicleServiceImpl(dbService);
-        PermitsService permitsService = new PermitsServiceImpl(dbService);
-        ZoneService zonesService = new ZoneServiceImpl(dbService);
+        PermitValidationService permitValidationService = new PermitValidationServiceImpl(dbService);
+        if (knownLicenses != null) {
+            citationsService = new FilteredCitationsServiceImpl(citationsService, knownLicenses);
+            vehicleService = new FilteredVehicleServiceImpl(vehicleService, knownLicenses);
+            permitValidationService = new FilteredPermitValidationServiceImpl(permitValidationService, knownLicenses);
+        }
+        // Camera plate reads are checked against an in-memory index of active permits, kept current by every permit
+        // change and expiry.
+        ActivePermitIndex activePermitIndex = new ActivePermitIndex(dbService);
+        try {
+            activePermitIndex.load();
+        } catch (SQLException e) {
+            System.out.println("Active permit index starts empty: " + e.getMessage());
+        }
+        if (args.length > 0 && "--ingest".equals(args[0])) {
+            runIngest(new PlateReadPipeline(activePermitIndex, permitValidationService, vehicleService,
+                    citationsService), args);
+            if (writeBehindCitations != null) {
+                writeBehindCitations.shutdown();
+            }
+            dbService.shutdown();
+            return;
+        }
+        // Quotas are checked and permits written in one transaction; per-driver permit counts are cached for the menus.
+        PermitsServiceImpl quotaPermitsService = new PermitsServiceImpl(dbService);
+        PermitsService permitsService = new IndexedPermitsServiceImpl(quotaPermitsService, activePermitIndex);
+        // Permits are marked expired in the background the moment they lapse, which frees the driver's permit quota.
+        PermitExpiryScheduler permitExpiryScheduler = new PermitExpiryScheduler(dbService, activePermitIndex,
+                quotaPermitsService);
+        // Lots, zones and spaces change rarely, so reads are served from memory for a few minutes at a time.
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(5 * 60 * 1000, 1000);
+        ZoneService zonesService = new CachedZoneServiceImpl(new ZoneServiceImpl(dbService), referenceDataCache);
         ReportsService reportsService = new ReportsServiceImpl(dbService);
-        ParkingLotService parkingLotService = new ParkingLotServiceImpl(dbService);
+        ParkingLotService parkingLotService = new CachedParkingLotServiceImpl(new ParkingLotServiceImpl(dbService), referenceDataCache);
         DriversService driversService = new DriversServiceImpl(dbService);
-        SpaceService spaceService = new SpaceServiceImpl(dbService);
+        // Every change to a space is published to the occupancy bus, which keeps live free-space counts per lot for
+        // the entrance signs.
+        OccupancyEventBus occupancyEventBus = new OccupancyEventBus();
+        // The history of every space's status is also kept on disk for hourly utilization reports.
+        OccupancyTimeSeriesStore occupancyTimeSeriesStore = new OccupancyTimeSeriesStore(Paths.get("occupancy-history"));
+        SpaceService uncachedSpaceService = new SpaceServiceImpl(dbService, occupancyEventBus, occupancyTimeSeriesStore);
+        CachedSpaceServiceImpl spaceService = new CachedSpaceServiceImpl(uncachedSpaceService, referenceDataCache);
+        occupancyEventBus.seed(spaceService);
+        occupancyTimeSeriesStore.seed(spaceService);
+        // Free spaces are handed out from memory so two kiosks never get the same one; claims are saved in the background.
+        // space-search.properties, if present, sets the alternate zones and lot priority for permit holders. Claims are
+        // written without the cache, which would otherwise be cleared for lots and zones too on every claim; only the
+        // claimed space is evicted so the menus don't read its old status.
+        SpaceAvailabilityIndex spaceAvailabilityIndex = new SpaceAvailabilityIndex(uncachedSpaceService,
+                loadSpaceSearchRules(Paths.get("space-search.properties")), spaceService::invalidate);
+        spaceAvailabilityIndex.load();
         UserInterfaceImpl UserInterfaceImpl = new UserInterfaceImpl(dbService,
                                                                     citationsService,
                                                                     vehicleService,
@@ -28,8 +123,153 @@ public class Main {
                                                                     driversService,
                                                                     reportsService,
                                                                     parkingLotService,
-                                                                    spaceService);
+                                                                    spaceService,
+                                                                    permitValidationService,
+                                                                    spaceAvailabilityIndex);
         UserInterfaceImpl.callInterface();
+        permitExpiryScheduler.shutdown();
+        spaceAvailabilityIndex.shutdown();
+        occupancyEventBus.shutdown();
+        occupancyTimeSeriesStore.shutdown();
+        if (writeBehindCitations != null) {
+            writeBehindCitations.shutdown();
+        }
+        dbService.shutdown();
+
+    }
 
+    // loadLicenseFilter sizes the license filter from the parking.licenseFilter.expectedLicenses system property
+    // (1,000,000 by default) and either parking.licenseFilter.maxBytes or parking.licenseFilter.falsePositiveRate
+    // (0.01 by default), then fills it from the Vehicles table. Returns null if the table can't be read, so lookups are
+    // never answered from an incomplete filter.
+    private static LicenseBloomFilter loadLicenseFilter(VehicleService vehicleService) {
+        long expectedLicenses = Long.getLong("parking.licenseFilter.expectedLicenses", 1000000L);
+        Long maxBytes = Long.getLong("parking.licenseFilter.maxBytes");
+        LicenseBloomFilter filter;
+        try {
+            filter = maxBytes != null ? LicenseBloomFilter.forMemory(expectedLicenses, maxBytes)
+                    : LicenseBloomFilter.forFalsePositiveRate(expectedLicenses,
+                    Double.parseDouble(System.getProperty("parking.licenseFilter.falsePositiveRate", "0.01")));
+        } catch (IllegalArgumentException e) {
+            System.out.println("License filter disabled: " + e.getMessage());
+            return null;
+        }
+        try {
+            filter.load(vehicleService);
+        } catch (SQLException e) {
+            System.out.println("License filter disabled, vehicle licenses could not be loaded: " + e.getMessage());
+            return null;
+        }
+        return filter;
+    }
+
+    // openCitationLog opens the citation log named by the parking.citationLog system property, sized by
+    // parking.citationLog.capacityBytes (16 MiB by default). Citations the database refuses are written next to it
+    // with a .rejected suffix. Returns null, so citations are written directly, if the property is unset or the log
+    // can't be opened.
+    private static WriteBehindCitationsServiceImpl openCitationLog(CitationsService citationsService,
+                                                                   CitationNumberAllocator citationNumbers) {
+        String file = System.getProperty("parking.citationLog");
+        if (file == null) {
+            return null;
+        }
+        try {
+            CitationWriteBehindLog log = new CitationWriteBehindLog(Paths.get(file),
+                    Integer.getInteger("parking.citationLog.capacityBytes", 16 * 1024 * 1024));
+            return new WriteBehindCitationsServiceImpl(citationsService, citationNumbers, log, Paths.get(file + ".rejected"));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Citation log disabled, citations are written directly: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static SpaceSearchRules loadSpaceSearchRules(Path file) {
+        if (!Files.exists(file)) {
+            return SpaceSearchRules.none();
+        }
+        try {
+            return SpaceSearchRules.load(file);
+        } catch (IOException e) {
+            System.out.println("Could not read " + file + ", permit holders will only be given spaces in their own zone: "
+                    + e.getMessage());
+            return SpaceSearchRules.none();
+        }
+    }
+
+    // runIngest handles "--ingest <file>" and "--ingest port=<port>". A file is read to the end, one
+    // "plate,lotName,yyyy-MM-ddTHH:mm:ss" read per line. A port is listened on at the loopback address and each
+    // connection is read the same way, one after another, until the process is stopped.
+    private static void runIngest(PlateReadPipeline pipeline, String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: --ingest <file> | --ingest port=<port>");
+            return;
+        }
+        try {
+            if (args[1].startsWith("port=")) {
+                try (ServerSocket server = new ServerSocket(Integer.parseInt(args[1].substring("port=".length())), 50,
+                        InetAddress.getLoopbackAddress())) {
+                    System.out.println("Listening for plate reads on " + server.getLocalSocketAddress());
+                    while (true) {
+                        try (Socket socket = server.accept();
+                             BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                            pipeline.ingest(input);
+                        }
+                        System.out.println(pipeline.getMetrics().summary(System.currentTimeMillis()));
+                    }
+                }
+            }
+            try (BufferedReader input = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+                pipeline.ingest(input);
+            }
+            pipeline.close();
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Ingest stopped: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println(pipeline.getMetrics().summary(System.currentTimeMillis()));
+    }
+
+    // runReconcile handles "--reconcile <file>", a bank settlement file of "citationNumber,license,amount" lines.
+    // Payments that don't match a DUE citation are listed in <file>.mismatches.
+    private static void runReconcile(PaymentReconciliationService reconciliationService, String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: --reconcile <file>");
+            return;
+        }
+        try {
+            reconciliationService.reconcile(Paths.get(args[1]));
+        } catch (SQLException | IOException e) {
+            System.out.println("Reconciliation stopped: " + e.getMessage());
+            System.out.println("Run the same command again, citations already paid are not paid twice");
+        }
+    }
+
+    // runImport handles "--import drivers=<file> vehicles=<file> permits=<file>". Any of the files may be left out;
+    // the ones given are always imported drivers first, then vehicles, then permits so permits can refer to both.
+    private static void runImport(BulkImportService bulkImportService, String[] args) {
+        Map<String, Path> files = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] parts = args[i].split("=", 2);
+            if (parts.length != 2 || !(parts[0].equals("drivers") || parts[0].equals("vehicles") || parts[0].equals("permits"))) {
+                System.out.println("Usage: --import drivers=<file> vehicles=<file> permits=<file>");
+                return;
+            }
+            files.put(parts[0], Paths.get(parts[1]));
+        }
+        try {
+            if (files.containsKey("drivers")) {
+                bulkImportService.importDrivers(files.get("drivers"));
+            }
+            if (files.containsKey("vehicles")) {
+                bulkImportService.importVehicles(files.get("vehicles"));
+            }
+            if (files.containsKey("permits")) {
+                bulkImportService.importPermits(files.get("permits"));
+            }
+        } catch (SQLException | IOException e) {
+            System.out.println("Import stopped: " + e.getMessage());
+            System.out.println("Run the same command again to resume from the last checkpoint");
+        }
     }
-}
\ No newline at end of file
+}
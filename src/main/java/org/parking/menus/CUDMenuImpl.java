@@ -4,6 +4,7 @@ import org.parking.service.Constants;
 import org.parking.service.DriversService;
 import org.parking.service.ParkingLotService;
 import org.parking.service.PermitsService;
+import org.parking.service.SpaceAvailabilityIndex;
 import org.parking.service.SpaceService;
 import org.parking.service.VehicleService;
 import org.parking.service.ZoneService;
@@ -25,13 +26,14 @@ public class CUDMenuImpl implements CUDMenu {
                        VehicleService vehicleService,
                        ParkingLotService parkingLotService,
                        ZoneService zoneService,
-                       SpaceService spaceService) {
+                       SpaceService spaceService,
+                       SpaceAvailabilityIndex spaceAvailabilityIndex) {
         this.permitsMenu    = new PermitsMenuImpl(permitsService, driversService, vehicleService);
         this.driverMenu     = new DriverMenuImpl(driversService);
         this.vehicleMenu    = new VehicleMenuImpl(vehicleService);
         this.parkingLotMenu = new ParkingLotMenuImpl(parkingLotService);
         this.zoneMenu       = new ZoneMenuImpl(zoneService, parkingLotService);
-        this.spaceMenu      = new SpaceMenuImpl(spaceService);
+        this.spaceMenu      = new SpaceMenuImpl(spaceService, spaceAvailabilityIndex);
     }
     public void callInterface(){
         int option = 0;
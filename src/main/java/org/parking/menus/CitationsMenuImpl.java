@@ -1,32 +1,25 @@
 package org.parking.menus;
 
 import org.parking.model.Citation;
-import org.parking.model.Permit;
 import org.parking.model.Vehicle;
-import org.parking.model.Zone;
 import org.parking.service.*;
 
 import java.sql.Date;
 import java.sql.SQLException;
 import java.sql.Time;
-import java.util.Collection;
 import java.util.InputMismatchException;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.UUID;
 
 public class CitationsMenuImpl implements CitationsMenu{
     private final CitationsService citationsService;
-    private final VehicleService vehiclesService;
+    private final PermitValidationService permitValidationService;
 
-    private final PermitsService permitsService;
-    private final ZoneService zonesService;
 
-
-    public CitationsMenuImpl(CitationsService citationsService, VehicleService vehicleService, PermitsService permitsService, ZoneService zoneService) {
+    public CitationsMenuImpl(CitationsService citationsService, PermitValidationService permitValidationService) {
         this.citationsService = citationsService;
-        this.vehiclesService = vehicleService;
-        this.permitsService = permitsService;
-        this.zonesService = zoneService;
+        this.permitValidationService = permitValidationService;
     }
 
     /**
@@ -78,41 +71,32 @@ public class CitationsMenuImpl implements CitationsMenu{
     /** createCitationOption is an internal method used by the citations menu which builds and persists a citation based on user input.
      * It will check if a vehicle currently exists for the license in the citation and if it does it will verify that vehicles permit is valid.
      * If the permit is expired or if the citation is for a lot that does not belong to the permit then it will log a violation.
+     * A failed save can be retried with the same request key, so a citation whose first save did commit is not created twice.
      */
     private void createCitationOption(Scanner scan) {
         Citation citationToCreate;
         citationToCreate = buildCitationFromInput(scan);
-        try {
-            // Check if vehicle exists by calling getByLicense
-            boolean createVehicle = false;
-            Vehicle vehicle = vehiclesService.getByLicense(citationToCreate.getVehicle().getLicense());
-            if (vehicle == null) {
-                // The vehicle doesn't exist in the db, so we need to create it
-                createVehicle = true;
-            } else {
-                // We found a vehicle, so we need to check if it has a valid permit
-               Collection<Permit> foundPermits = permitsService.getPermitPerCarLicense(vehicle.getLicense());
-                for (Permit p : foundPermits) {
-                    if ((citationToCreate.getCitationDate().compareTo(p.getExpirationDate()) == 0 && citationToCreate.getCitationTime().after(p.getExpirationTime())) || citationToCreate.getCitationDate().after(p.getExpirationDate()) ) {
-                        // Citation date is same as expiration date but citation time is after permit expiration time or citation date is after permit expiration date.
-                        System.out.println("VIOLATION DETECTED: This vehicle's permit " + p.getPermitID() + " is expired.");
-                    }
-                    // Get the zone from the permit
-                    String permitZoneID = p.getZoneID();
-                    String cLotName = citationToCreate.getLotName();
-                    Collection<Zone> foundZones = zonesService.getZonesById(permitZoneID);
-                    for (Zone z : foundZones) {
-                        if (!cLotName.equals(z.getLotName())) {
-                            // The vehicle's permit does not match the lot where the citation took place.
-                            System.out.println("VIOLATION DETECTED: This vehicle's permit " + p.getPermitID() + " is for Lot Name "+ z.getLotName() + " but this vehicles citation is for Lot Name " + cLotName + ".");
-                        }
-                    }
+        String requestKey = UUID.randomUUID().toString();
+        String input;
+        do {
+            try {
+                // Look up the vehicle and check all of its permits in one query
+                PermitValidationResult validation = permitValidationService.validate(citationToCreate.getVehicle().getLicense(),
+                        citationToCreate.getLotName(), citationToCreate.getCitationDate(), citationToCreate.getCitationTime(), null);
+                for (PermitViolation violation : validation.getViolations()) {
+                    System.out.println(violation);
                 }
+                // The vehicle doesn't exist in the db, so we need to create it along with the citation
+                boolean createVehicle = !validation.isVehicleRegistered();
+                int number = citationsService.createCitation(citationToCreate, createVehicle, requestKey);
+                System.out.println("Citation number: " + number);
+                return;
+            } catch (SQLException e) {
+                System.out.println(Constants.LogTryAgain);
             }
-            citationsService.createCitation(citationToCreate, createVehicle);
-        } catch (SQLException e) {
-            System.out.println(Constants.LogTryAgain);
-        }
+            System.out.println("Retry saving this citation? (y/n)");
+            input = scan.nextLine().trim().toLowerCase();
+        } while (input.equals("y"));
     }
 
     /**updateCitationOption is an internal method used by the citations menu which will prompt the user for a citation number and verify that citation exists.
@@ -148,18 +132,14 @@ public class CitationsMenuImpl implements CitationsMenu{
         }
     }
 
-    /** getAllCitationsOption is an internal method used by the citations menu which will fetch all citations from the database and
-     * print their corresponding fields.
+    /** getAllCitationsOption is an internal method used by the citations menu which will stream all citations from the database and
+     * print their corresponding fields as they are read, so the whole table is never held in memory.
      */
     private void getAllCitationsOption() {
         try {
-            Collection<Citation> citations = citationsService.getAll();
-            if (citations == null) {
+            int count = citationsService.forEach(citation -> System.out.println(citation));
+            if (count == 0) {
                 System.out.println("No citations found\n");
-            } else {
-                for (Citation citation : citations) {
-                    System.out.println(citation);
-                }
             }
 
         } catch (SQLException e) {
@@ -30,6 +30,7 @@ public class ReportsMenuImpl implements ReportsMenu {
                     "Return the number of employees having permits for a given parking zone.",
                     "Return permit information given an ID or phone number.",
                     "Return an available space number given a space type in a given parking lot.",
+                    "Generate daily or monthly citation counts and fees by payment status for a lot in a given time range",
 
             };
 
@@ -91,6 +92,11 @@ public class ReportsMenuImpl implements ReportsMenu {
                     reportAvailableSpaceInLotMenu(scan);
                     break;
 
+                // Generate daily or monthly citation counts and fees for a lot between two dates
+                case 8:
+                    citationRollupReportMenu(scan);
+                    break;
+
                 // Return to the main menu
                 case 0:
                     System.out.println("Returning to main menu");
@@ -227,6 +233,75 @@ public class ReportsMenuImpl implements ReportsMenu {
 
     }
 
+    /***************************************************************************
+     * User interface for generating citation counts and fee totals per day or
+     * per month for a lot and time range, broken down by payment status.
+     ****************************************************************************/
+    private void citationRollupReportMenu(Scanner scan) {
+        // Get the parking lot from the user
+        ParkingLot parkingLot = null;
+        while (parkingLot == null) {
+            System.out.print("Enter the parking lot name: ");
+            parkingLot = parkingLotService.getParkingLot(scan.nextLine());
+            if (parkingLot == null) {
+                System.out.println("No Parking Lot Found with that Name.");
+            }
+        }
+
+        // Get the date range, the end date must not be before the start date
+        Date startDate = null;
+        while (startDate == null) {
+            System.out.print("Start Date (yyyy-MM-dd): ");
+            try {
+                startDate = Date.valueOf(scan.nextLine());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid date format. Please use yyyy-MM-dd.");
+            }
+        }
+        Date endDate = null;
+        while (endDate == null) {
+            System.out.print("End Date (yyyy-MM-dd): ");
+            try {
+                endDate = Date.valueOf(scan.nextLine());
+                if (endDate.before(startDate)) {
+                    System.out.println("The end date is before the start date");
+                    endDate = null;
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid date format. Please use yyyy-MM-dd.");
+            }
+        }
+
+        // Get the period to group by
+        String period = "";
+        while (!period.equals("D") && !period.equals("M")) {
+            System.out.print("Group by (D)ay or (M)onth: ");
+            period = scan.nextLine().trim().toUpperCase();
+        }
+
+        // Generate Report
+        try {
+            Collection<CitationRollup> rollups = reportsService.generateCitationRollupReport(parkingLot.getName(),
+                    startDate, endDate, period.equals("M"));
+
+            System.out.printf("--------------------------------------------------------%n");
+            System.out.printf(" Citations by " + (period.equals("M") ? "Month" : "Day") + " - " + parkingLot.getName() + " %n");
+            System.out.printf("--------------------------------------------------------%n");
+            if (rollups.isEmpty()) {
+                System.out.println("No Citations Found.");
+            }
+            for (CitationRollup rollup : rollups) {
+                System.out.printf("%-12s %-10s %6d %10.2f %n", rollup.getPeriod(), rollup.getPaymentStatus(),
+                        rollup.getCitationCount(), rollup.getFeeTotal());
+            }
+            System.out.println();
+
+        } catch (SQLException e) {
+            // Output SQL Exception
+            System.out.println("SQL Error: " + e.getMessage());
+        }
+    }
+
     /***************************************************************************
      * Return the list of zones for each lot as tuple pairs (lot, zone).
      ****************************************************************************/
@@ -309,7 +384,10 @@ public class ReportsMenuImpl implements ReportsMenu {
 
             // Verify if the zone exists
             Collection<Zone> zones = zoneService.getZonesById(zoneId);
-            if (zones.isEmpty()) {
+            if (zones == null) {
+                System.out.println(Constants.LogTryAgain);
+                return;
+            } else if (zones.isEmpty()) {
                 System.out.println("No Zone Found with that Id.");
             } else {
                 validInput = true;
@@ -3,6 +3,7 @@ package org.parking.menus;
 import java.util.Scanner;
 
 import org.parking.model.Space;
+import org.parking.service.SpaceAvailabilityIndex;
 import org.parking.service.SpaceService;
 
 /**
@@ -15,13 +16,21 @@ public class SpaceMenuImpl implements SpaceMenu {
      */
     private final SpaceService spaceService;
 
+    /**
+     * Hands out free spaces. It is reloaded after spaces are created, updated or deleted here.
+     */
+    private final SpaceAvailabilityIndex spaceAvailabilityIndex;
+
     /**
      * Array of the menu options for spaces.
      */
     public String[] options = {
             "Enter Space information",
             "Update Space Information",
-            "Delete Space information"
+            "Delete Space information",
+            "Assign a free space",
+            "Release a space",
+            "Assign a space for a permit zone"
     };
 
     /**
@@ -31,9 +40,11 @@ public class SpaceMenuImpl implements SpaceMenu {
      * @param spaceService The org.parking.service that performs the create, update and delete
      *                     database
      *                     interactions.
+     * @param spaceAvailabilityIndex The index that assigns and releases spaces.
      */
-    public SpaceMenuImpl(SpaceService spaceService) {
+    public SpaceMenuImpl(SpaceService spaceService, SpaceAvailabilityIndex spaceAvailabilityIndex) {
         this.spaceService = spaceService;
+        this.spaceAvailabilityIndex = spaceAvailabilityIndex;
     }
 
     /**
@@ -73,6 +84,18 @@ public class SpaceMenuImpl implements SpaceMenu {
                 case "3":
                     deleteSpace(scan);
                     break;
+                // Assign a free space
+                case "4":
+                    assignFreeSpace(scan);
+                    break;
+                // Release a space
+                case "5":
+                    releaseSpace(scan);
+                    break;
+                // Assign a space for a permit zone
+                case "6":
+                    assignPermitSpace(scan);
+                    break;
                 // Return to the main menu
                 case "0":
                     System.out.println("Returning to main menu");
@@ -142,6 +165,7 @@ public class SpaceMenuImpl implements SpaceMenu {
 
             if (spaceService.createSpace(space)) {
                 System.out.println("Space was successfully created. Returning to menu.");
+                spaceAvailabilityIndex.load();
             } else {
                 System.out.println("There was an error creating the Space. Please try again.");
             }
@@ -253,6 +277,7 @@ public class SpaceMenuImpl implements SpaceMenu {
                         Space updatedSpace = new Space(number, type, status, zoneID, lotName);
                         if (spaceService.updateSpace(originalSpace, updatedSpace)) {
                             System.out.println("Space was successfully updated. Returning to Space menu.");
+                            spaceAvailabilityIndex.load();
                         } else {
                             System.out.println("There was an error updating the Space. Please try again.");
                         }
@@ -313,12 +338,116 @@ public class SpaceMenuImpl implements SpaceMenu {
 
             if (spaceService.deleteSpace(space)) {
                 System.out.println("Space was successfully deleted. Returning to Space menu.");
+                spaceAvailabilityIndex.load();
             } else {
                 System.out.println("There was an error deleting the Space. Please try again.");
             }
         }
     }
 
+    /**
+     * Handles the user interaction for assigning a free space.
+     * The user will be prompted for the lot name and the type of space.
+     * The space is marked in use as soon as it is assigned, so no one else
+     * can be given the same space.
+     *
+     * @param scan Scanner that reads input.
+     */
+    public void assignFreeSpace(Scanner scan) {
+        String lotName, type;
+
+        System.out.println("What parking lot do you want a space in?");
+        lotName = enterSpaceLotName(scan);
+        if (lotName == null) {
+            System.out.println("Returning to the menu.");
+            return;
+        }
+
+        type = enterSpaceType(scan);
+        if (type == null) {
+            System.out.println("Returning to the menu.");
+            return;
+        }
+
+        Space space = spaceAvailabilityIndex.claim(lotName, type);
+        if (space == null) {
+            System.out.println("There are no free " + type + " spaces in " + lotName + ". Returning to Space menu.");
+        } else {
+            System.out.println("Assigned space " + space.getNumber() + " in zone " + space.getZoneID() + " of " + lotName
+                    + ". Returning to Space menu.");
+        }
+    }
+
+    /**
+     * Handles the user interaction for assigning a space to a permit holder.
+     * The user will be prompted for the permit's zone ID and the type of space.
+     * If the zone is full, the space may be in one of its alternate zones or in
+     * another lot.
+     *
+     * @param scan Scanner that reads input.
+     */
+    public void assignPermitSpace(Scanner scan) {
+        String zoneID, type;
+
+        System.out.println("What zone is the permit for?");
+        zoneID = enterSpaceZoneID(scan);
+        if (zoneID == null) {
+            System.out.println("Returning to the menu.");
+            return;
+        }
+
+        type = enterSpaceType(scan);
+        if (type == null) {
+            System.out.println("Returning to the menu.");
+            return;
+        }
+
+        Space space = spaceAvailabilityIndex.claimBestFit(zoneID, type);
+        if (space == null) {
+            System.out.println("There are no free " + type + " spaces for zone " + zoneID + ". Returning to Space menu.");
+        } else {
+            System.out.println("Assigned space " + space.getNumber() + " in zone " + space.getZoneID() + " of "
+                    + space.getLotName() + ". Returning to Space menu.");
+        }
+    }
+
+    /**
+     * Handles the user interaction for releasing a space that was in use.
+     * The user will be prompted for the space's lot name, zone ID and number.
+     *
+     * @param scan Scanner that reads input.
+     */
+    public void releaseSpace(Scanner scan) {
+        int number;
+        String zoneID, lotName;
+
+        System.out.println("What parking lot is the space in that you want to release?");
+        lotName = enterSpaceLotName(scan);
+        if (lotName == null) {
+            System.out.println("There was an error while entering the lotName");
+            return;
+        }
+
+        System.out.println("What zone is the space in?");
+        zoneID = enterSpaceZoneID(scan);
+        if (zoneID == null) {
+            System.out.println("There was an error while entering the zoneID");
+            return;
+        }
+
+        number = enterSpaceNumber(scan);
+        if (number < 1) {
+            System.out.println("There was an error while entering the number");
+            return;
+        }
+
+        if (spaceAvailabilityIndex.release(lotName, zoneID, number)) {
+            System.out.println("Space was released. Returning to Space menu.");
+        } else {
+            System.out.println("That space does not exist or is already free. Returning to Space menu.");
+        }
+    }
+
     /**
      * Handles the user interaction for entering a space's lot name.
      * Accepts any string, expect for an empty line. If the line
@@ -19,8 +19,10 @@ public class UserInterfaceImpl implements UserInterface {
                              DriversService driversService,
                              ReportsService reportsService,
                              ParkingLotService parkingLotService,
-                             SpaceService spaceService) {
-        citationsMenuImpl = new CitationsMenuImpl(citationsService, vehicleService, permitsService, zoneService);
+                             SpaceService spaceService,
+                             PermitValidationService permitValidationService,
+                             SpaceAvailabilityIndex spaceAvailabilityIndex) {
+        citationsMenuImpl = new CitationsMenuImpl(citationsService, permitValidationService);
         maintainPermitsAndVehicleMenuImpl = new MaintainPermitsAndVehicleMenuImpl(driversService, vehicleService, permitsService);
         reportsMenuImpl = new ReportsMenuImpl(reportsService, citationsService, parkingLotService, zoneService);
         informationProcessMenuImpl = new InformationProcessMenuImpl(
@@ -29,7 +31,8 @@ public class UserInterfaceImpl implements UserInterface {
                         vehicleService,
                         parkingLotService,
                         zoneService,
-                        spaceService),
+                        spaceService,
+                        spaceAvailabilityIndex),
                 citationsService, spaceService, zoneService);
     }
 
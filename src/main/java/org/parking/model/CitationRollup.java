@@ -0,0 +1,69 @@
+package org.parking.model;
+
+import java.sql.Date;
+
+/**
+ * Citation totals for one lot, payment status and period. The period is a day, or the first day of the month for
+ * monthly rollups.
+ */
+public class CitationRollup {
+    private String lotName;
+    private Date period;
+    private String paymentStatus;
+    private int citationCount;
+    private double feeTotal;
+
+    public CitationRollup(String lotName, Date period, String paymentStatus, int citationCount, double feeTotal) {
+        this.lotName = lotName;
+        this.period = period;
+        this.paymentStatus = paymentStatus;
+        this.citationCount = citationCount;
+        this.feeTotal = feeTotal;
+    }
+
+    public String getLotName() {
+        return lotName;
+    }
+
+    public void setLotName(String lotName) {
+        this.lotName = lotName;
+    }
+
+    public Date getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(Date period) {
+        this.period = period;
+    }
+
+    public String getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public void setPaymentStatus(String paymentStatus) {
+        this.paymentStatus = paymentStatus;
+    }
+
+    public int getCitationCount() {
+        return citationCount;
+    }
+
+    public void setCitationCount(int citationCount) {
+        this.citationCount = citationCount;
+    }
+
+    public double getFeeTotal() {
+        return feeTotal;
+    }
+
+    public void setFeeTotal(double feeTotal) {
+        this.feeTotal = feeTotal;
+    }
+
+    @Override
+    public String toString() {
+        return "Lot: " + this.lotName + "\nPeriod: " + this.period + "\nPayment Status: " + this.paymentStatus
+                + "\nCitations: " + this.citationCount + "\nFees: " + this.feeTotal + "\n";
+    }
+}
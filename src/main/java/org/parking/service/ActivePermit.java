@@ -0,0 +1,46 @@
+package org.parking.service;
+
+/**
+ * One lot a vehicle's permit is valid in, as held by the {@link ActivePermitIndex}.
+ */
+public class ActivePermit {
+    private final String zoneID;
+    private final String lotName;
+    private final String spaceType;
+    private final long expiresAt;
+
+    /**
+     * @param zoneID    The permit's zone.
+     * @param lotName   A lot the zone is in, null if the zone is in no lot.
+     * @param spaceType The type of space the permit allows.
+     * @param expiresAt The permit's expirationDate and expirationTime in seconds since the epoch.
+     */
+    public ActivePermit(String zoneID, String lotName, String spaceType, long expiresAt) {
+        this.zoneID = zoneID;
+        this.lotName = lotName;
+        this.spaceType = spaceType;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getZoneID() {
+        return zoneID;
+    }
+
+    public String getLotName() {
+        return lotName;
+    }
+
+    public String getSpaceType() {
+        return spaceType;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "zone " + zoneID + (lotName == null ? "" : " in " + lotName) + ", " + spaceType + ", expires at "
+                + expiresAt;
+    }
+}
@@ -0,0 +1,377 @@
+package org.parking.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memory-resident index from license plate to the lots its unexpired permits are valid in, so license plate reader
+ * cameras can check thousands of reads a second without touching the database.
+ *
+ * Plates are normalized to upper case letters and digits, so "van-9910" and "VAN 9910" find the same vehicle. Each
+ * plate maps to an immutable array of longs, one per lot a permit is valid in. A long holds the expiry as unsigned
+ * epoch seconds in its high 32 bits and the zone, lot and space type as codes into small dictionaries in its low 32
+ * bits. Reads are a {@link ConcurrentHashMap} lookup and a scan of a few longs, with no locks and no allocation for a
+ * normalized plate. Writers build a new array and swap it in, so readers always see a plate's permits as a whole.
+ * Permits stored under different spellings of the same plate, such as "AB-1" and "AB 1", share one entry, so the
+ * index remembers every spelling it has read for each plate and refreshes them together. A permit whose zone, lot or
+ * space type no longer fits in its dictionary is left out, so reads for it fall back to the database.
+ *
+ * The index is loaded once with {@link #load()} and then kept current: {@link IndexedPermitsServiceImpl} refreshes
+ * the plates touched by each permit change, and the {@link PermitExpiryScheduler} tells it when permits expire.
+ */
+public class ActivePermitIndex implements PermitExpiryListener {
+    static final String ACTIVE_PERMITS_QUERY = "SELECT Permits.carLicenseNum, Permits.zoneID, Permits.spaceType, " +
+            "Permits.expirationDate, Permits.expirationTime, Zones.lotName " +
+            "FROM Permits LEFT JOIN Zones ON Zones.id = Permits.zoneID " +
+            "WHERE Permits.expired = FALSE AND Permits.carLicenseNum IS NOT NULL";
+    // Filled with one placeholder per spelling of the plate.
+    static final String PLATE_QUERY = ACTIVE_PERMITS_QUERY + " AND Permits.carLicenseNum IN (%s)";
+    static final String PERMIT_PLATES_QUERY = "SELECT DISTINCT carLicenseNum FROM Permits WHERE permitID = ? " +
+            "AND carLicenseNum IS NOT NULL";
+
+    private static final int ZONE_BITS = 12;
+    private static final int LOT_BITS = 12;
+    private static final int TYPE_BITS = 8;
+    private static final long[] NONE = new long[0];
+    // Returned by pack for a permit that can't be encoded. No permit packs to it, since no dictionary hands out its
+    // all-ones code.
+    private static final long UNINDEXED = -1L;
+
+    private final DBService dbService;
+    private final ZoneId zone;
+    // Code 0 in each dictionary stands for null.
+    private final Dictionary zones = new Dictionary(ZONE_BITS);
+    private final Dictionary lots = new Dictionary(LOT_BITS);
+    private final Dictionary types = new Dictionary(TYPE_BITS);
+    private volatile ConcurrentHashMap<String, long[]> permitsByPlate = new ConcurrentHashMap<>();
+    // The spellings of each normalized plate found in Permits.carLicenseNum. Only used by writers, guarded by this.
+    private Map<String, Set<String>> spellings = new HashMap<>();
+
+    public ActivePermitIndex(DBService dbService) {
+        this(dbService, ZoneId.systemDefault());
+    }
+
+    /**
+     * @param dbService DBService used to obtain connections.
+     * @param zone      Time zone of the permits' expiration dates and times.
+     */
+    public ActivePermitIndex(DBService dbService, ZoneId zone) {
+        this.dbService = dbService;
+        this.zone = zone;
+    }
+
+    /***************************************************************************
+     * Replace the index with every unexpired permit that has a vehicle,
+     * streamed from the database. Returns the number of plates indexed.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT Permits.carLicenseNum, Permits.zoneID,
+     * Permits.spaceType, Permits.expirationDate, Permits.expirationTime,
+     * Zones.lotName FROM Permits LEFT JOIN Zones ON Zones.id = Permits.zoneID
+     * WHERE Permits.expired = FALSE AND Permits.carLicenseNum IS NOT NULL"
+     ****************************************************************************/
+    public synchronized int load() throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        ConcurrentHashMap<String, long[]> loaded = new ConcurrentHashMap<>();
+        Map<String, Set<String>> loadedSpellings = new HashMap<>();
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement(ACTIVE_PERMITS_QUERY);
+            pstate.setFetchSize(DBService.STREAM_FETCH_SIZE);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                String carLicenseNum = results.getString("carLicenseNum");
+                String plate = normalize(carLicenseNum);
+                long permit = pack(results);
+                if (permit == UNINDEXED) {
+                    continue;
+                }
+                loaded.merge(plate, new long[]{permit}, ActivePermitIndex::concat);
+                loadedSpellings.computeIfAbsent(plate, p -> new LinkedHashSet<>()).add(carLicenseNum);
+            }
+        } catch (SQLException e) {
+            System.out.println("Error loading the active permit index");
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        permitsByPlate = loaded;
+        spellings = loadedSpellings;
+        System.out.println("Indexed active permits for " + loaded.size() + " plates");
+        return loaded.size();
+    }
+
+    /***************************************************************************
+     * Re-read the unexpired permits of one vehicle and replace its entry. The
+     * permits of every other spelling of the plate seen so far are read with
+     * it, so they are merged rather than overwritten.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: ACTIVE_PERMITS_QUERY + " AND Permits.carLicenseNum IN
+     * (?, ...)"
+     ****************************************************************************/
+    public synchronized void refreshPlate(String carLicenseNum) throws SQLException {
+        String plate = normalize(carLicenseNum);
+        Set<String> known = new LinkedHashSet<>(spellings.getOrDefault(plate, Collections.<String>emptySet()));
+        known.add(carLicenseNum);
+        Set<String> found = new LinkedHashSet<>();
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        long[] permits = NONE;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement(String.format(PLATE_QUERY, String.join(",", Collections.nCopies(known.size(), "?"))));
+            int index = 1;
+            for (String spelling : known) {
+                pstate.setString(index++, spelling);
+            }
+            results = pstate.executeQuery();
+            while (results.next()) {
+                long permit = pack(results);
+                if (permit != UNINDEXED) {
+                    permits = concat(permits, new long[]{permit});
+                    found.add(results.getString("carLicenseNum"));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error refreshing the active permits of " + carLicenseNum);
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        if (permits.length == 0) {
+            permitsByPlate.remove(plate);
+            spellings.remove(plate);
+        } else {
+            permitsByPlate.put(plate, permits);
+            spellings.put(plate, found);
+        }
+    }
+
+    /***************************************************************************
+     * Refresh every vehicle on a permit.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT DISTINCT carLicenseNum FROM Permits WHERE
+     * permitID = ? AND carLicenseNum IS NOT NULL"
+     ****************************************************************************/
+    public void refreshPermit(String permitID) throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        Set<String> plates = new LinkedHashSet<>();
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement(PERMIT_PLATES_QUERY);
+            pstate.setString(1, permitID);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                plates.add(results.getString("carLicenseNum"));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error reading the vehicles of permit " + permitID);
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        for (String plate : plates) {
+            refreshPlate(plate);
+        }
+    }
+
+    /** put replaces the permits of a plate without reading the database. An empty collection removes the plate. */
+    public synchronized void put(String plate, Collection<ActivePermit> permits) {
+        long[] packed = NONE;
+        for (ActivePermit permit : permits) {
+            long code = pack(permit.getZoneID(), permit.getLotName(), permit.getSpaceType(), permit.getExpiresAt());
+            if (code != UNINDEXED) {
+                packed = concat(packed, new long[]{code});
+            }
+        }
+        String normalized = normalize(plate);
+        if (packed.length == 0) {
+            permitsByPlate.remove(normalized);
+            spellings.remove(normalized);
+        } else {
+            permitsByPlate.put(normalized, packed);
+            spellings.put(normalized, new LinkedHashSet<>(Collections.singleton(plate)));
+        }
+    }
+
+    /**
+     * isPermitted returns true if the plate has a permit valid in the lot that has not expired at epochSecond. This
+     * is the check a camera read makes, so it takes no locks and allocates nothing once the plate is normalized.
+     */
+    public boolean isPermitted(String plate, String lotName, long epochSecond) {
+        long[] permits = permitsByPlate.get(normalize(plate));
+        if (permits == null) {
+            return false;
+        }
+        int lot = lots.find(lotName);
+        if (lot <= 0) {
+            return false;
+        }
+        for (long permit : permits) {
+            if (((int) permit >>> TYPE_BITS & ((1 << LOT_BITS) - 1)) == lot && permit >>> 32 >= epochSecond) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** isPermitted checks a read whose time is in the index's time zone. */
+    public boolean isPermitted(String plate, String lotName, LocalDateTime seenAt) {
+        return isPermitted(plate, lotName, seenAt.atZone(zone).toEpochSecond());
+    }
+
+    /** getActivePermits returns every indexed permit of the plate, one per lot it is valid in. */
+    public List<ActivePermit> getActivePermits(String plate) {
+        long[] permits = permitsByPlate.get(normalize(plate));
+        if (permits == null) {
+            return new ArrayList<>();
+        }
+        List<ActivePermit> active = new ArrayList<>(permits.length);
+        for (long permit : permits) {
+            int codes = (int) permit;
+            active.add(new ActivePermit(zones.name(codes >>> (LOT_BITS + TYPE_BITS)),
+                    lots.name(codes >>> TYPE_BITS & ((1 << LOT_BITS) - 1)),
+                    types.name(codes & ((1 << TYPE_BITS) - 1)), permit >>> 32));
+        }
+        return active;
+    }
+
+    /** size returns the number of plates in the index. */
+    public int size() {
+        return permitsByPlate.size();
+    }
+
+    @Override
+    public void permitExpired(String permitID, String associatedID) {
+        try {
+            refreshPermit(permitID);
+        } catch (SQLException e) {
+            // Expired permits fail the expiry check in isPermitted, so a stale entry can't let a vehicle through.
+            System.out.println("Active permit index keeps expired permit " + permitID + " until the next refresh");
+        }
+    }
+
+    /**
+     * normalize upper cases a plate and drops everything but letters and digits. A plate that is already normalized
+     * is returned as is.
+     */
+    static String normalize(String plate) {
+        int length = plate.length();
+        int i = 0;
+        while (i < length && isPlateChar(plate.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return plate;
+        }
+        StringBuilder normalized = new StringBuilder(length);
+        for (int j = 0; j < length; j++) {
+            char c = Character.toUpperCase(plate.charAt(j));
+            if (isPlateChar(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isPlateChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private long pack(ResultSet results) throws SQLException {
+        long expiresAt = results.getDate("expirationDate").toLocalDate()
+                .atTime(results.getTime("expirationTime").toLocalTime()).atZone(zone).toEpochSecond();
+        return pack(results.getString("zoneID"), results.getString("lotName"), results.getString("spaceType"), expiresAt);
+    }
+
+    private long pack(String zoneID, String lotName, String spaceType, long expiresAt) {
+        int zoneCode = zones.code(zoneID);
+        int lotCode = lots.code(lotName);
+        int typeCode = types.code(spaceType);
+        if (zoneCode < 0 || lotCode < 0 || typeCode < 0) {
+            System.out.println("Active permit index is full, permits in zone " + zoneID + " of " + lotName
+                    + " are checked against the database");
+            return UNINDEXED;
+        }
+        int codes = zoneCode << (LOT_BITS + TYPE_BITS) | lotCode << TYPE_BITS | typeCode;
+        // Unsigned 32 bit seconds last until 2106.
+        return Math.min(Math.max(expiresAt, 0), 0xffffffffL) << 32 | (codes & 0xffffffffL);
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] joined = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, joined, a.length, b.length);
+        return joined;
+    }
+
+    /**
+     * Two-way mapping between names and small integer codes. Codes are never reused, so a long packed with a code
+     * stays readable for the life of the index.
+     */
+    private static final class Dictionary {
+        private final int limit;
+        private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] names = new String[]{null};
+
+        Dictionary(int bits) {
+            // The all-ones code is never handed out, see UNINDEXED.
+            this.limit = (1 << bits) - 1;
+        }
+
+        // find returns the code of name, 0 for null and -1 if it has none.
+        int find(String name) {
+            if (name == null) {
+                return 0;
+            }
+            Integer code = codes.get(name);
+            return code == null ? -1 : code;
+        }
+
+        // code returns the code of name, adding it if it has none, or -1 if the dictionary is full.
+        synchronized int code(String name) {
+            int code = find(name);
+            if (code >= 0 || names.length == limit) {
+                return code;
+            }
+            String[] grown = Arrays.copyOf(names, names.length + 1);
+            grown[names.length] = name;
+            names = grown;
+            codes.put(name, names.length - 1);
+            return names.length - 1;
+        }
+
+        String name(int code) {
+            return names[code];
+        }
+    }
+}
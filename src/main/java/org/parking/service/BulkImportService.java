@@ -0,0 +1,21 @@
+package org.parking.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/***************************************************************************
+ * Bulk loading of Drivers, Vehicles and Permits from CSV or JSON Lines
+ * files. Files are streamed record by record and written in batched
+ * transactions. Each import keeps a checkpoint next to the input file so an
+ * interrupted import can be re-run and resumes after the last committed
+ * record. Rejected records are written to a .rejects file next to the input.
+ * -------------------------------------------------------------------------
+ * Each function throws SQLException if the database cannot be reached and
+ * IOException if the input, checkpoint or rejects file cannot be used.
+ ****************************************************************************/
+public interface BulkImportService {
+    public ImportResult importDrivers(Path file) throws SQLException, IOException;
+    public ImportResult importVehicles(Path file) throws SQLException, IOException;
+    public ImportResult importPermits(Path file) throws SQLException, IOException;
+}
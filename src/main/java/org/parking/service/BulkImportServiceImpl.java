@@ -0,0 +1,410 @@
+package org.parking.service;
+
+import org.parking.service.ImportRecordReader.ImportRecord;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams import files into the database in batched transactions. Referential integrity is checked against in-memory
+ * sets of the existing driver ids, vehicle licenses and zone ids, loaded once per service and kept up to date as
+ * records are imported, so a permit file can refer to drivers and vehicles imported earlier in the same run. Only
+ * these keys are held in memory; the records themselves are read and written one batch at a time.
+ */
+public class BulkImportServiceImpl implements BulkImportService {
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    static final String REJECTS_SUFFIX = ".rejects";
+    private static final int KEY_FETCH_SIZE = 1000;
+    private static final Set<String> DRIVER_STATUSES = new HashSet<>(Arrays.asList("E", "S", "V"));
+
+    private final DBService dbService;
+    private final int batchSize;
+    private Set<String> driverIds;
+    private Set<String> vehicleLicenses;
+    private Set<String> zoneIds;
+
+    public BulkImportServiceImpl(DBService dbService) {
+        this(dbService, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param dbService DBService used to obtain connections.
+     * @param batchSize Number of records written per batch and per transaction.
+     */
+    public BulkImportServiceImpl(DBService dbService, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.dbService = dbService;
+        this.batchSize = batchSize;
+    }
+
+    /** importDrivers loads a file with the columns id, name and status. Drivers whose id already exists are rejected. */
+    public ImportResult importDrivers(Path file) throws SQLException, IOException {
+        return importFile(file, new DriverImport());
+    }
+
+    /** importVehicles loads a file with the columns carLicenseNumber, model, color, manufacturer and year. Vehicles
+     * whose license already exists are rejected.
+     */
+    public ImportResult importVehicles(Path file) throws SQLException, IOException {
+        return importFile(file, new VehicleImport());
+    }
+
+    /** importPermits loads a file with the columns permitID, permitType, zoneID, associatedID, carLicenseNum,
+     * spaceType, startDate, expirationDate and expirationTime. Permits are rejected if their zone, driver or vehicle
+     * does not exist. carLicenseNum may be empty.
+     */
+    public ImportResult importPermits(Path file) throws SQLException, IOException {
+        return importFile(file, new PermitImport());
+    }
+
+    // importFile streams the records of one file through the given entity import. The checkpoint holds the number of
+    // the last record whose batch was committed, and is removed once the whole file has been imported.
+    private ImportResult importFile(Path file, EntityImport entity) throws SQLException, IOException {
+        loadIndexes();
+        Path checkpoint = sibling(file, CHECKPOINT_SUFFIX);
+        long resumeAfter = readCheckpoint(checkpoint);
+        if (resumeAfter > 0) {
+            System.out.println("Resuming import of " + file + " after record " + resumeAfter);
+        }
+        ImportResult result = new ImportResult(file.getFileName().toString());
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        try (ImportRecordReader reader = ImportRecordReader.open(file);
+             BufferedWriter rejects = Files.newBufferedWriter(sibling(file, REJECTS_SUFFIX), StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            pstate = conn.prepareStatement(entity.sql);
+            List<ImportRecord> batch = new ArrayList<>(batchSize);
+            long lastRecord = resumeAfter;
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                if (record.getNumber() <= resumeAfter) {
+                    result.addSkipped();
+                    continue;
+                }
+                lastRecord = record.getNumber();
+                String problem = record.getParseError() != null ? record.getParseError() : validate(entity, record);
+                if (problem != null) {
+                    reject(rejects, result, record, problem);
+                    continue;
+                }
+                entity.bind(pstate, record);
+                pstate.addBatch();
+                entity.reserve(record);
+                batch.add(record);
+                if (batch.size() >= batchSize) {
+                    flush(conn, pstate, entity, batch, result, rejects);
+                    writeCheckpoint(checkpoint, lastRecord);
+                }
+            }
+            flush(conn, pstate, entity, batch, result, rejects);
+            conn.setAutoCommit(true);
+            Files.deleteIfExists(checkpoint);
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, null);
+            }
+        }
+        System.out.println(result);
+        return result;
+    }
+
+    // flush commits the pending batch. If the batch fails it is rolled back and its records are retried one at a time
+    // so a single bad record does not reject the rest.
+    private void flush(Connection conn, PreparedStatement pstate, EntityImport entity, List<ImportRecord> batch,
+                       ImportResult result, BufferedWriter rejects) throws SQLException, IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            pstate.executeBatch();
+            conn.commit();
+            for (int i = 0; i < batch.size(); i++) {
+                result.addImported();
+            }
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+            System.out.println("Import batch is being rolled back and retried one record at a time");
+            conn.rollback();
+            pstate.clearBatch();
+            for (ImportRecord record : batch) {
+                try {
+                    entity.bind(pstate, record);
+                    pstate.executeUpdate();
+                    conn.commit();
+                    result.addImported();
+                } catch (SQLException rowEx) {
+                    conn.rollback();
+                    entity.release(record);
+                    reject(rejects, result, record, rowEx.getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private String validate(EntityImport entity, ImportRecord record) {
+        try {
+            return entity.validate(record);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static void reject(BufferedWriter rejects, ImportResult result, ImportRecord record, String problem) throws IOException {
+        result.addRejected();
+        rejects.write("record " + record.getNumber() + " (line " + record.getLineNumber() + "): " + problem);
+        rejects.newLine();
+    }
+
+    // loadIndexes reads the keys that imported records may refer to. They are loaded on first use only, after that
+    // the imports keep them current.
+    private void loadIndexes() throws SQLException {
+        if (driverIds != null) {
+            return;
+        }
+        Connection conn = null;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            driverIds = loadKeys(conn, "SELECT id FROM Drivers");
+            vehicleLicenses = loadKeys(conn, "SELECT carLicenseNumber FROM Vehicles");
+            zoneIds = loadKeys(conn, "SELECT DISTINCT id FROM Zones");
+        } catch (SQLException e) {
+            System.out.println("Error loading import indexes");
+            driverIds = null;
+            throw e;
+        } finally {
+            if (conn != null) {
+                dbService.close(conn, null, null);
+            }
+        }
+    }
+
+    private Set<String> loadKeys(Connection conn, String sql) throws SQLException {
+        Set<String> keys = new HashSet<>();
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        try {
+            pstate = conn.prepareStatement(sql);
+            pstate.setFetchSize(KEY_FETCH_SIZE);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                keys.add(results.getString(1));
+            }
+        } finally {
+            dbService.close(null, pstate, results);
+        }
+        return keys;
+    }
+
+    static Path sibling(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName().toString() + suffix);
+    }
+
+    static long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        String content = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim();
+        try {
+            return content.isEmpty() ? 0 : Long.parseLong(content);
+        } catch (NumberFormatException e) {
+            throw new IOException("Checkpoint " + checkpoint + " is not a record number: " + content);
+        }
+    }
+
+    // writeCheckpoint replaces the checkpoint through a temporary file so a crash never leaves it half written.
+    static void writeCheckpoint(Path checkpoint, long lastRecord) throws IOException {
+        Path temp = sibling(checkpoint, ".tmp");
+        Files.write(temp, Long.toString(lastRecord).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String required(ImportRecord record, String field, int maxLength) {
+        String value = record.get(field);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + field);
+        }
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " is longer than " + maxLength + " characters");
+        }
+        return value;
+    }
+
+    private static Date date(ImportRecord record, String field) {
+        try {
+            return Date.valueOf(required(record, field, 10));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(field + " must be a date in the format yyyy-mm-dd");
+        }
+    }
+
+    private static Time time(ImportRecord record, String field) {
+        try {
+            return Time.valueOf(required(record, field, 8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(field + " must be a time in the format hh:mm:ss");
+        }
+    }
+
+    /**
+     * Validation, parameter binding and index maintenance for one table. validate returns a reason to reject the
+     * record or null if it can be imported; reserve and release add and remove its key from the in-memory index.
+     */
+    private abstract static class EntityImport {
+        private final String sql;
+
+        EntityImport(String sql) {
+            this.sql = sql;
+        }
+
+        abstract String validate(ImportRecord record);
+
+        abstract void bind(PreparedStatement pstate, ImportRecord record) throws SQLException;
+
+        void reserve(ImportRecord record) {
+        }
+
+        void release(ImportRecord record) {
+        }
+    }
+
+    private final class DriverImport extends EntityImport {
+        DriverImport() {
+            super("INSERT INTO Drivers (id, name, status) VALUES (?, ?, ?)");
+        }
+
+        String validate(ImportRecord record) {
+            String id = required(record, "id", 255);
+            required(record, "name", 255);
+            if (!DRIVER_STATUSES.contains(required(record, "status", 1))) {
+                return "status must be one of E, S or V";
+            }
+            return driverIds.contains(id) ? "driver " + id + " already exists" : null;
+        }
+
+        void bind(PreparedStatement pstate, ImportRecord record) throws SQLException {
+            pstate.setString(1, record.get("id"));
+            pstate.setString(2, record.get("name"));
+            pstate.setString(3, record.get("status"));
+        }
+
+        void reserve(ImportRecord record) {
+            driverIds.add(record.get("id"));
+        }
+
+        void release(ImportRecord record) {
+            driverIds.remove(record.get("id"));
+        }
+    }
+
+    private final class VehicleImport extends EntityImport {
+        VehicleImport() {
+            super("INSERT INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)");
+        }
+
+        String validate(ImportRecord record) {
+            String license = required(record, "carLicenseNumber", 255);
+            required(record, "model", 255);
+            required(record, "color", 255);
+            required(record, "manufacturer", 255);
+            String year = record.get("year");
+            if (year != null) {
+                try {
+                    Integer.parseInt(year);
+                } catch (NumberFormatException e) {
+                    return "year must be a number";
+                }
+            }
+            return vehicleLicenses.contains(license) ? "vehicle " + license + " already exists" : null;
+        }
+
+        void bind(PreparedStatement pstate, ImportRecord record) throws SQLException {
+            pstate.setString(1, record.get("carLicenseNumber"));
+            pstate.setString(2, record.get("model"));
+            pstate.setString(3, record.get("color"));
+            pstate.setString(4, record.get("manufacturer"));
+            String year = record.get("year");
+            if (year == null) {
+                pstate.setNull(5, Types.INTEGER);
+            } else {
+                pstate.setInt(5, Integer.parseInt(year));
+            }
+        }
+
+        void reserve(ImportRecord record) {
+            vehicleLicenses.add(record.get("carLicenseNumber"));
+        }
+
+        void release(ImportRecord record) {
+            vehicleLicenses.remove(record.get("carLicenseNumber"));
+        }
+    }
+
+    private final class PermitImport extends EntityImport {
+        PermitImport() {
+            super("INSERT INTO Permits (permitID, permitType, zoneID, associatedID, carLicenseNum, spaceType, startDate, expirationDate, expirationTime) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+
+        String validate(ImportRecord record) {
+            required(record, "permitID", 10);
+            required(record, "permitType", 20);
+            String zoneID = required(record, "zoneID", 255);
+            String driverID = required(record, "associatedID", 255);
+            String license = record.get("carLicenseNum");
+            required(record, "spaceType", 11);
+            Date startDate = date(record, "startDate");
+            Date expirationDate = date(record, "expirationDate");
+            time(record, "expirationTime");
+            if (expirationDate.before(startDate)) {
+                return "expirationDate is before startDate";
+            }
+            if (!driverIds.contains(driverID)) {
+                return "driver " + driverID + " does not exist";
+            }
+            if (license != null && !vehicleLicenses.contains(license)) {
+                return "vehicle " + license + " does not exist";
+            }
+            if (!zoneIds.contains(zoneID)) {
+                return "zone " + zoneID + " does not exist";
+            }
+            return null;
+        }
+
+        void bind(PreparedStatement pstate, ImportRecord record) throws SQLException {
+            pstate.setString(1, record.get("permitID"));
+            pstate.setString(2, record.get("permitType"));
+            pstate.setString(3, record.get("zoneID"));
+            pstate.setString(4, record.get("associatedID"));
+            pstate.setString(5, record.get("carLicenseNum"));
+            pstate.setString(6, record.get("spaceType"));
+            pstate.setDate(7, Date.valueOf(record.get("startDate")));
+            pstate.setDate(8, Date.valueOf(record.get("expirationDate")));
+            pstate.setTime(9, Time.valueOf(record.get("expirationTime")));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.parking.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.parking.model.ParkingLot;
+
+/**
+ * ParkingLotService decorator that serves reads from a {@link ReferenceDataCache} and clears the cache on every
+ * create, update and delete. Parking lots are mutable, so callers always receive copies of the cached values.
+ */
+public class CachedParkingLotServiceImpl implements ParkingLotService {
+    private final ParkingLotService delegate;
+    private final ReferenceDataCache cache;
+
+    /**
+     * @param delegate The service used to load parking lots on a cache miss and to perform writes.
+     * @param cache    The cache shared with the zone and space decorators.
+     */
+    public CachedParkingLotServiceImpl(ParkingLotService delegate, ReferenceDataCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Collection<ParkingLot> getAll() {
+        Collection<ParkingLot> lots = cache.getOrLoad("lots:all", () -> copy(delegate.getAll()));
+        return copy(lots);
+    }
+
+    @Override
+    public ParkingLot getParkingLot(String name) {
+        ParkingLot lot = cache.getOrLoad("lots:name:" + name, () -> copy(delegate.getParkingLot(name)));
+        return copy(lot);
+    }
+
+    @Override
+    public boolean createParkingLot(ParkingLot lot) {
+        try {
+            return delegate.createParkingLot(lot);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean updateParkingLot(String name, ParkingLot lot) {
+        try {
+            return delegate.updateParkingLot(name, lot);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean deleteParkingLot(String name) {
+        try {
+            return delegate.deleteParkingLot(name);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    private static ParkingLot copy(ParkingLot lot) {
+        return lot == null ? null : new ParkingLot(lot.getName(), lot.getAddress());
+    }
+
+    private static Collection<ParkingLot> copy(Collection<ParkingLot> lots) {
+        if (lots == null) {
+            return null;
+        }
+        Collection<ParkingLot> copies = new ArrayList<>(lots.size());
+        for (ParkingLot lot : lots) {
+            copies.add(copy(lot));
+        }
+        return copies;
+    }
+}
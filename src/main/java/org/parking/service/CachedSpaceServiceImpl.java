@@ -0,0 +1,110 @@
+package org.parking.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.parking.model.Space;
+
+/**
+ * SpaceService decorator that serves reads from a {@link ReferenceDataCache} and clears the cache on every create,
+ * update, delete and type change. Space status changes more often than lots and zones, so the cache's time to live
+ * bounds how stale a read can be when spaces are updated outside this process.
+ */
+public class CachedSpaceServiceImpl implements SpaceService {
+    private final SpaceService delegate;
+    private final ReferenceDataCache cache;
+
+    /**
+     * @param delegate The service used to load spaces on a cache miss and to perform writes.
+     * @param cache    The cache shared with the parking lot and zone decorators.
+     */
+    public CachedSpaceServiceImpl(SpaceService delegate, ReferenceDataCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Collection<Space> getAll() {
+        // Spaces are immutable, so only the collection needs to be copied.
+        Collection<Space> spaces = cache.getOrLoad("spaces:all", () -> {
+            Collection<Space> loaded = delegate.getAll();
+            return loaded == null ? null : new ArrayList<>(loaded);
+        });
+        return spaces == null ? null : new ArrayList<>(spaces);
+    }
+
+    // Pages and scans exist for reading past what fits in memory, so they always go to the database.
+    @Override
+    public List<Space> getPage(Space after, int limit) {
+        return delegate.getPage(after, limit);
+    }
+
+    @Override
+    public int forEach(Consumer<Space> action) {
+        return delegate.forEach(action);
+    }
+
+    @Override
+    public Space getSpace(int number, String zoneID, String lotName) {
+        return cache.getOrLoad(spaceKey(number, zoneID, lotName), () -> delegate.getSpace(number, zoneID, lotName));
+    }
+
+    /**
+     * invalidate drops the cached copies of one space, for a status change written without this decorator, such as
+     * a claim saved by the {@link SpaceAvailabilityIndex}. Lots and zones stay cached.
+     */
+    public void invalidate(Space space) {
+        cache.invalidate("spaces:all", spaceKey(space.getNumber(), space.getZoneID(), space.getLotName()));
+    }
+
+    private static String spaceKey(int number, String zoneID, String lotName) {
+        return "spaces:space:" + number + "\u0000" + zoneID + "\u0000" + lotName;
+    }
+
+    @Override
+    public boolean createSpace(Space space) {
+        try {
+            return delegate.createSpace(space);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean updateSpace(Space originalSpace, Space updatedSpace) {
+        try {
+            return delegate.updateSpace(originalSpace, updatedSpace);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public Space reserveSpace(String lotName, String spaceType) {
+        try {
+            return delegate.reserveSpace(lotName, spaceType);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean deleteSpace(Space space) {
+        try {
+            return delegate.deleteSpace(space);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean assignTypeOfASpace(String lotName, String zoneID, int number, String type) {
+        try {
+            return delegate.assignTypeOfASpace(lotName, zoneID, number, type);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+}
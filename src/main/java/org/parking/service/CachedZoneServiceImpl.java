@@ -0,0 +1,105 @@
+package org.parking.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.parking.model.Zone;
+
+/**
+ * ZoneService decorator that serves reads from a {@link ReferenceDataCache} and clears the cache on every
+ * operation that writes zones or parking lots. Zones are mutable, so callers always receive copies of the cached
+ * values.
+ */
+public class CachedZoneServiceImpl implements ZoneService {
+    private final ZoneService delegate;
+    private final ReferenceDataCache cache;
+
+    /**
+     * @param delegate The service used to load zones on a cache miss and to perform writes.
+     * @param cache    The cache shared with the parking lot and space decorators.
+     */
+    public CachedZoneServiceImpl(ZoneService delegate, ReferenceDataCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Collection<Zone> getAll() {
+        return copy(cache.getOrLoad("zones:all", () -> copy(delegate.getAll())));
+    }
+
+    @Override
+    public Zone getZone(String id, String lotName) {
+        return copy(cache.getOrLoad("zones:zone:" + id + "\u0000" + lotName, () -> copy(delegate.getZone(id, lotName))));
+    }
+
+    @Override
+    public Collection<Zone> getZonesById(String id) {
+        return copy(cache.getOrLoad("zones:id:" + id, () -> copy(delegate.getZonesById(id))));
+    }
+
+    @Override
+    public Collection<Zone> getZonesByLotName(String lotName) {
+        return copy(cache.getOrLoad("zones:lot:" + lotName, () -> copy(delegate.getZonesByLotName(lotName))));
+    }
+
+    @Override
+    public boolean createZone(Zone zone) {
+        try {
+            return delegate.createZone(zone);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean updateZone(Zone originalZone, Zone updatedZone) {
+        try {
+            return delegate.updateZone(originalZone, updatedZone);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean deleteZone(Zone zone) {
+        try {
+            return delegate.deleteZone(zone);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean assignZoneToParkingLot(String oldLot, String zoneID, String newLot) {
+        try {
+            return delegate.assignZoneToParkingLot(oldLot, zoneID, newLot);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean createLotAndZone(String address, String lotName, String zoneID) {
+        try {
+            return delegate.createLotAndZone(address, lotName, zoneID);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    private static Zone copy(Zone zone) {
+        return zone == null ? null : new Zone(zone.getId(), zone.getLotName());
+    }
+
+    private static Collection<Zone> copy(Collection<Zone> zones) {
+        if (zones == null) {
+            return null;
+        }
+        Collection<Zone> copies = new ArrayList<>(zones.size());
+        for (Zone zone : zones) {
+            copies.add(copy(zone));
+        }
+        return copies;
+    }
+}
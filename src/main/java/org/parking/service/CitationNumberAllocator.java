@@ -0,0 +1,132 @@
+package org.parking.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Hands out citation numbers from blocks reserved in the database, so a number is known before the citation is saved
+ * and most citations need no round trip to get one. A block is a range of consecutive numbers recorded against the
+ * device it was reserved for in CitationNumberBlocks; no other device is ever given a number in it.
+ *
+ * Numbers left in a block when the process stops are never used, so citation numbers can have gaps but are never
+ * issued twice. A device that issues tickets offline should be given a block large enough for its shift.
+ */
+public class CitationNumberAllocator {
+    static final int DEFAULT_BLOCK_SIZE = 100;
+    static final String DEFAULT_DEVICE_ID = "server";
+    // The sequence row is locked for the rest of the reservation. Numbers already taken in Citations, for example by
+    // rows inserted before the sequence existed, are skipped.
+    static final String NEXT_NUMBER_QUERY = "SELECT GREATEST(nextNumber, (SELECT COALESCE(MAX(citationNum), 0) + 1 FROM Citations)) AS nextNumber " +
+            "FROM CitationNumberSequence WHERE id = 1 FOR UPDATE";
+    static final String ADVANCE_SQL = "UPDATE CitationNumberSequence SET nextNumber = ? WHERE id = 1";
+    static final String RECORD_BLOCK_SQL = "INSERT INTO CitationNumberBlocks (firstNumber, lastNumber, deviceID) VALUES (?, ?, ?)";
+
+    private final DBService dbService;
+    private final String deviceID;
+    private final int blockSize;
+    // The block numbers are currently handed out from, guarded by this allocator. Empty until the first reservation.
+    private int nextNumber = 1;
+    private int lastNumber = 0;
+
+    public CitationNumberAllocator(DBService dbService) {
+        this(dbService, DEFAULT_DEVICE_ID, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param dbService DBService used to reserve blocks.
+     * @param deviceID  Name the blocks this allocator reserves are recorded under.
+     * @param blockSize Number of citation numbers reserved at a time.
+     */
+    public CitationNumberAllocator(DBService dbService, String deviceID, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.dbService = dbService;
+        this.deviceID = deviceID;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * next returns an unused citation number, reserving a new block first if the current one is used up. It only
+     * throws if a block has to be reserved and that fails.
+     */
+    public synchronized int next() throws SQLException {
+        if (nextNumber > lastNumber) {
+            CitationNumberBlock block = reserveBlock(deviceID, blockSize);
+            nextNumber = block.getFirstNumber();
+            lastNumber = block.getLastNumber();
+        }
+        return nextNumber++;
+    }
+
+    /** getRemaining returns how many numbers are left in the current block. */
+    public synchronized int getRemaining() {
+        return lastNumber - nextNumber + 1;
+    }
+
+    /***************************************************************************
+     * Reserve the next size citation numbers for a device in one transaction:
+     * the sequence row is locked and read, moved past the block, and the block
+     * is recorded against the device. Handhelds call this before going offline
+     * and number their tickets from the block without contacting the server.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT GREATEST(nextNumber, ...) AS nextNumber FROM
+     * CitationNumberSequence WHERE id = 1 FOR UPDATE"
+     ****************************************************************************/
+    public CitationNumberBlock reserveBlock(String deviceID, int size) throws SQLException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            pstate = conn.prepareStatement(NEXT_NUMBER_QUERY);
+            results = pstate.executeQuery();
+            if (!results.next()) {
+                throw new SQLException("CitationNumberSequence has no row, run --migrate");
+            }
+            int first = results.getInt("nextNumber");
+            int last = first + size - 1;
+            dbService.close(null, pstate, results);
+            results = null;
+            pstate = null;
+
+            pstate = conn.prepareStatement(ADVANCE_SQL);
+            pstate.setInt(1, last + 1);
+            pstate.executeUpdate();
+            dbService.close(null, pstate, null);
+            pstate = null;
+
+            pstate = conn.prepareStatement(RECORD_BLOCK_SQL);
+            pstate.setInt(1, first);
+            pstate.setInt(2, last);
+            pstate.setString(3, deviceID);
+            pstate.executeUpdate();
+            conn.commit();
+            conn.setAutoCommit(true);
+            return new CitationNumberBlock(deviceID, first, last);
+        } catch (SQLException e) {
+            System.out.println("Error reserving citation numbers for " + deviceID);
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException rollbackEx) {
+                System.out.println("Error: " + rollbackEx.getMessage());
+                throw rollbackEx;
+            }
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.parking.service;
+
+/**
+ * A range of citation numbers reserved for one device by {@link CitationNumberAllocator#reserveBlock(String, int)}.
+ */
+public class CitationNumberBlock {
+    private final String deviceID;
+    private final int firstNumber;
+    private final int lastNumber;
+
+    public CitationNumberBlock(String deviceID, int firstNumber, int lastNumber) {
+        this.deviceID = deviceID;
+        this.firstNumber = firstNumber;
+        this.lastNumber = lastNumber;
+    }
+
+    public String getDeviceID() {
+        return deviceID;
+    }
+
+    public int getFirstNumber() {
+        return firstNumber;
+    }
+
+    /** getLastNumber returns the last number in the block, inclusive. */
+    public int getLastNumber() {
+        return lastNumber;
+    }
+
+    public int size() {
+        return lastNumber - firstNumber + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "Citations " + firstNumber + " to " + lastNumber + " for " + deviceID;
+    }
+}
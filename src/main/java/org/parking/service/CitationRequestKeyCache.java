@@ -0,0 +1,41 @@
+package org.parking.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU map from the request key a citation was created with to the citation's number, so a retried request
+ * is answered from memory instead of with another insert. It only remembers the most recent keys; a key that has
+ * been evicted is looked up again by its unique index in Citations.
+ */
+final class CitationRequestKeyCache {
+    static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private final LinkedHashMap<String, Integer> numbers;
+
+    CitationRequestKeyCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        // Access ordered so the least recently used key is evicted first.
+        this.numbers = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /** get returns the number of the citation created with requestKey, or null if it is not remembered. */
+    synchronized Integer get(String requestKey) {
+        return numbers.get(requestKey);
+    }
+
+    synchronized void put(String requestKey, int number) {
+        numbers.put(requestKey, number);
+    }
+
+    synchronized int size() {
+        return numbers.size();
+    }
+}
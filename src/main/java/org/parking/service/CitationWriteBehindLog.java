@@ -0,0 +1,315 @@
+package org.parking.service;
+
+import org.parking.model.Citation;
+import org.parking.model.Vehicle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Local log of citations that have been issued but not yet written to the database, kept in a memory-mapped file of
+ * fixed capacity so an append costs a memory copy and an msync rather than a database round trip.
+ *
+ * The file starts with a header of the magic number, the generation and the offset up to which records have been
+ * drained. Each record is its payload length, a CRC32 of the generation and payload, and the payload: the
+ * citation's request key, its number and its fields. Once more than half of the log has been drained, the records
+ * still pending are copied to the front under the next generation and appends carry on after them. Records from an
+ * older generation, and a record torn by a crash, fail their checksum, so reopening the file finds exactly the records
+ * that were appended and not drained.
+ */
+public class CitationWriteBehindLog implements Closeable {
+    static final int DEFAULT_CAPACITY_BYTES = 16 * 1024 * 1024;
+    static final int HEADER_BYTES = 16;
+
+    private static final int MAGIC = 0x43574c31; // "CWL1"
+    private static final int GENERATION_OFFSET = 4;
+    private static final int DRAINED_OFFSET = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    // All guarded by this log.
+    private int generation;
+    private int drainedOffset;
+    private int writeOffset;
+    private int pending;
+
+    public CitationWriteBehindLog(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY_BYTES);
+    }
+
+    /**
+     * Opens the log, creating the file if it does not exist, and finds the records still to be drained.
+     *
+     * @param file          File the log is kept in.
+     * @param capacityBytes Size of the file. Appends are refused once it is full until the drained records are reused.
+     */
+    public CitationWriteBehindLog(Path file, int capacityBytes) throws IOException {
+        if (capacityBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("capacityBytes must be larger than the " + HEADER_BYTES + " byte header");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.capacity = capacityBytes;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(GENERATION_OFFSET, 0);
+            buffer.putInt(DRAINED_OFFSET, HEADER_BYTES);
+            buffer.force();
+        }
+        this.generation = buffer.getInt(GENERATION_OFFSET);
+        this.drainedOffset = buffer.getInt(DRAINED_OFFSET);
+        if (drainedOffset < HEADER_BYTES || drainedOffset > capacity) {
+            throw new IOException("Citation log " + file + " has a corrupt header");
+        }
+        recover();
+    }
+
+    // recover walks the records after the drained offset and stops at the first one whose checksum does not match,
+    // which is where the next append goes.
+    private void recover() {
+        int offset = drainedOffset;
+        int count = 0;
+        while (true) {
+            int end = recordEnd(offset);
+            if (end < 0) {
+                break;
+            }
+            offset = end;
+            count++;
+        }
+        writeOffset = offset;
+        pending = count;
+        if (count > 0) {
+            System.out.println("Citation log has " + count + " citation(s) still to be written");
+        }
+    }
+
+    // recordEnd returns the offset just past a valid record at offset, or -1 if there is none.
+    private int recordEnd(int offset) {
+        if (offset + RECORD_HEADER_BYTES > capacity) {
+            return -1;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > capacity - offset - RECORD_HEADER_BYTES) {
+            return -1;
+        }
+        byte[] payload = new byte[length];
+        readBytes(offset + RECORD_HEADER_BYTES, payload);
+        if (checksum(generation, payload) != buffer.getInt(offset + 4)) {
+            return -1;
+        }
+        return offset + RECORD_HEADER_BYTES + length;
+    }
+
+    /**
+     * append writes a citation and the request key it will be inserted with, and forces it to disk before returning.
+     * Returns false, and writes nothing, if the log has no room for it.
+     */
+    public synchronized boolean append(Citation citation, String requestKey) throws IOException {
+        byte[] payload = encode(citation, requestKey);
+        if (writeOffset + RECORD_HEADER_BYTES + payload.length > capacity) {
+            return false;
+        }
+        buffer.putInt(writeOffset + 4, checksum(generation, payload));
+        writeBytes(writeOffset + RECORD_HEADER_BYTES, payload);
+        // The length goes last so a record is never seen with a length but not yet its payload.
+        buffer.putInt(writeOffset, payload.length);
+        buffer.force();
+        writeOffset += RECORD_HEADER_BYTES + payload.length;
+        pending++;
+        return true;
+    }
+
+    /**
+     * readPending returns up to max of the oldest records not yet drained, in the order they were appended. The same
+     * records are returned again until {@link #markDrained(PendingCitation)} moves past them.
+     */
+    public synchronized List<PendingCitation> readPending(int max) throws IOException {
+        List<PendingCitation> records = new ArrayList<>();
+        int offset = drainedOffset;
+        while (records.size() < max && offset < writeOffset) {
+            int length = buffer.getInt(offset);
+            byte[] payload = new byte[length];
+            readBytes(offset + RECORD_HEADER_BYTES, payload);
+            offset += RECORD_HEADER_BYTES + length;
+            records.add(decode(payload, offset));
+        }
+        return records;
+    }
+
+    /**
+     * markDrained records that every record up to and including last has been written to the database. Once more
+     * than half of the log has been drained, the pending records are moved to the front, so a drainer that keeps up
+     * with appends never lets the log fill even if it is never completely empty.
+     */
+    public synchronized void markDrained(PendingCitation last) {
+        int offset = last.endOffset;
+        if (offset <= drainedOffset || offset > writeOffset) {
+            return;
+        }
+        int drained = 0;
+        for (int at = drainedOffset; at < offset; at += RECORD_HEADER_BYTES + buffer.getInt(at)) {
+            drained++;
+        }
+        pending -= drained;
+        drainedOffset = offset;
+        // The pending records fit in front of drainedOffset, so copying them never overwrites one not yet copied.
+        if (drainedOffset > capacity / 2 && writeOffset - drainedOffset <= drainedOffset - HEADER_BYTES) {
+            compact();
+        }
+        // The generation and drained offset share the header's first sector, so they reach the disk together.
+        buffer.putInt(DRAINED_OFFSET, drainedOffset);
+        buffer.force();
+    }
+
+    // compact copies the pending records to the front of the log, checksummed for the next generation, and then moves
+    // the header to that generation. Until the header moves, a crash reopens the old generation, whose records behind
+    // drainedOffset have not been touched.
+    private void compact() {
+        int nextGeneration = generation + 1;
+        int to = HEADER_BYTES;
+        for (int from = drainedOffset; from < writeOffset; ) {
+            int length = buffer.getInt(from);
+            byte[] payload = new byte[length];
+            readBytes(from + RECORD_HEADER_BYTES, payload);
+            buffer.putInt(to + 4, checksum(nextGeneration, payload));
+            writeBytes(to + RECORD_HEADER_BYTES, payload);
+            buffer.putInt(to, length);
+            from += RECORD_HEADER_BYTES + length;
+            to += RECORD_HEADER_BYTES + length;
+        }
+        buffer.force();
+        generation = nextGeneration;
+        buffer.putInt(GENERATION_OFFSET, generation);
+        drainedOffset = HEADER_BYTES;
+        writeOffset = to;
+    }
+
+    /** getPending returns the number of records appended and not yet drained. */
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    /** getUsedBytes returns how much of the log the pending records and the drained ones before them take up. */
+    public synchronized int getUsedBytes() {
+        return writeOffset;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void readBytes(int offset, byte[] into) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] = buffer.get(offset + i);
+        }
+    }
+
+    private void writeBytes(int offset, byte[] from) {
+        for (int i = 0; i < from.length; i++) {
+            buffer.put(offset + i, from[i]);
+        }
+    }
+
+    private static int checksum(int generation, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(generation >>> 24);
+        crc.update(generation >>> 16);
+        crc.update(generation >>> 8);
+        crc.update(generation);
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    static byte[] encode(Citation citation, String requestKey) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(160);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(requestKey);
+        out.writeInt(citation.getNumber());
+        Vehicle vehicle = citation.getVehicle();
+        writeNullable(out, vehicle.getLicense());
+        writeNullable(out, vehicle.getModel());
+        writeNullable(out, vehicle.getColor());
+        writeNullable(out, vehicle.getManufacturer());
+        out.writeInt(vehicle.getYear());
+        writeNullable(out, citation.getLotName());
+        writeNullable(out, citation.getCategory());
+        out.writeDouble(citation.getFee());
+        writeNullable(out, citation.getPaymentStatus());
+        writeNullable(out, citation.getCitationDate() == null ? null : citation.getCitationDate().toString());
+        writeNullable(out, citation.getCitationTime() == null ? null : citation.getCitationTime().toString());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static PendingCitation decode(byte[] payload, int endOffset) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String requestKey = in.readUTF();
+        int number = in.readInt();
+        Vehicle vehicle = new Vehicle(readNullable(in), readNullable(in), readNullable(in), readNullable(in), in.readInt());
+        String lotName = readNullable(in);
+        String category = readNullable(in);
+        double fee = in.readDouble();
+        String paymentStatus = readNullable(in);
+        String date = readNullable(in);
+        String time = readNullable(in);
+        Citation citation = new Citation(number, vehicle, lotName, category, fee, paymentStatus,
+                date == null ? null : Date.valueOf(date), time == null ? null : Time.valueOf(time));
+        return new PendingCitation(citation, requestKey, endOffset);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * A citation read back from the log, with the request key that makes its insert idempotent.
+     */
+    public static class PendingCitation {
+        private final Citation citation;
+        private final String requestKey;
+        private final int endOffset;
+
+        PendingCitation(Citation citation, String requestKey, int endOffset) {
+            this.citation = citation;
+            this.requestKey = requestKey;
+            this.endOffset = endOffset;
+        }
+
+        public Citation getCitation() {
+            return citation;
+        }
+
+        public String getRequestKey() {
+            return requestKey;
+        }
+    }
+}
@@ -4,13 +4,23 @@ import org.parking.model.Citation;
 
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface CitationsService {
     Collection<Citation> getAll() throws SQLException;
+    List<Citation> getPage(int afterNumber, int limit) throws SQLException;
+    int forEach(Consumer<Citation> action) throws SQLException;
     Citation getByNumber(int number) throws SQLException;
-    void createCitation(Citation citation, Boolean createVehicle) throws SQLException;
+    int createCitation(Citation citation, Boolean createVehicle) throws SQLException;
+    int createCitation(Citation citation, Boolean createVehicle, String requestKey) throws SQLException;
+    int[] createCitations(Collection<Citation> citations) throws SQLException;
+    int[] createCitations(Collection<Citation> citations, List<String> requestKeys) throws SQLException;
     void updateCitation(Citation citation) throws SQLException;
     void deleteCitationByNumber(int number) throws SQLException;
     boolean appealCitation(int number);
     boolean payCitation(int number);
+    Map<Integer, Boolean> appealCitations(Collection<Integer> numbers) throws SQLException;
+    Map<Integer, Boolean> payCitations(Collection<Integer> numbers) throws SQLException;
 }
@@ -6,12 +6,64 @@ import org.parking.model.Vehicle;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class CitationsServiceImpl implements CitationsService {
+    static final int DEFAULT_BATCH_SIZE = 500;
+    // MySQL error code for a duplicate entry in a unique index.
+    static final int DUPLICATE_ENTRY = 1062;
+    static final String INSERT_CITATION_SQL = "INSERT INTO Citations (citationNum, licenseNum, lotName, category, fee, paymentStatus, citationDate, citationTime) VALUES (?,?,?,?,?,?,?,?)";
+    static final String INSERT_REQUEST_CITATION_SQL = "INSERT INTO Citations (citationNum, licenseNum, lotName, category, fee, paymentStatus, citationDate, citationTime, requestKey) VALUES (?,?,?,?,?,?,?,?,?)";
+    static final String CITATION_NUMBER_BY_REQUEST_KEY_QUERY = "SELECT citationNum FROM Citations WHERE requestKey = ?";
+    // A locking read sees the latest committed row rather than the transaction's REPEATABLE READ snapshot.
+    static final String CITATION_NUMBER_BY_REQUEST_KEY_LOCKING_QUERY = CITATION_NUMBER_BY_REQUEST_KEY_QUERY + " LOCK IN SHARE MODE";
+    // Bulk status changes fill %s with one placeholder per citation number in the chunk.
+    static final String DUE_CITATIONS_QUERY = "SELECT citationNum FROM Citations WHERE paymentStatus='DUE' AND citationNum IN (%s) FOR UPDATE";
+    static final String SET_DUE_STATUS_SQL = "UPDATE Citations SET paymentStatus=? WHERE paymentStatus='DUE' AND citationNum IN (%s)";
+
     private final DBService dbService;
+    private final int batchSize;
+    private final CitationNumberAllocator numberAllocator;
+    private final CitationRequestKeyCache createdByRequestKey;
 
     public CitationsServiceImpl(DBService dbService) {
+        this(dbService, DEFAULT_BATCH_SIZE);
+    }
+
+    public CitationsServiceImpl(DBService dbService, int batchSize) {
+        this(dbService, batchSize, new CitationNumberAllocator(dbService));
+    }
+
+    public CitationsServiceImpl(DBService dbService, CitationNumberAllocator numberAllocator) {
+        this(dbService, DEFAULT_BATCH_SIZE, numberAllocator);
+    }
+
+    /**
+     * @param dbService       Database service that provides connections.
+     * @param batchSize       Number of citations written per batch and per transaction by createCitations, and
+     *                        changed per transaction by payCitations and appealCitations.
+     * @param numberAllocator Gives a number to every citation created without one.
+     */
+    public CitationsServiceImpl(DBService dbService, int batchSize, CitationNumberAllocator numberAllocator) {
+        this(dbService, batchSize, numberAllocator, CitationRequestKeyCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param dedupeCacheSize Number of recent request keys whose citation numbers are kept in memory for retries.
+     */
+    public CitationsServiceImpl(DBService dbService, int batchSize, CitationNumberAllocator numberAllocator,
+                                int dedupeCacheSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
         this.dbService = dbService;
+        this.batchSize = batchSize;
+        this.numberAllocator = numberAllocator;
+        this.createdByRequestKey = new CitationRequestKeyCache(dedupeCacheSize);
     }
 
     /** getAll will query the Citations table and return a collection of Citations that correspond to each row
@@ -62,6 +114,87 @@ public class CitationsServiceImpl implements CitationsService {
         return citations;
     }
 
+    /** getPage will return up to limit citations whose number is greater than afterNumber, ordered by number. Pass 0
+     * for the first page and the number of the last citation returned for each following page. Seeking on the primary
+     * key keeps every page as cheap as the first no matter how deep into the table it is. It returns an empty list
+     * once there are no more citations. If any SQLExceptions are encountered then it will throw a SQLException.
+     */
+    public List<Citation> getPage(int afterNumber, int limit) throws SQLException {
+        List<Citation> citations = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement("select * from Citations, Vehicles where Citations.licenseNum = Vehicles.carLicenseNumber AND citationNum > ? ORDER BY citationNum LIMIT ?");
+            pstate.setInt(1, afterNumber);
+            pstate.setInt(2, limit);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                citations.add(toCitation(results));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error executing getPage query");
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        return citations;
+    }
+
+    /** forEach will pass every citation to action in number order without loading the table into memory. Rows are read
+     * from an open cursor DBService.STREAM_FETCH_SIZE at a time and the cursor is closed when the scan finishes or
+     * action throws. It returns the number of citations visited. If any SQLExceptions are encountered then it will
+     * throw a SQLException.
+     */
+    public int forEach(Consumer<Citation> action) throws SQLException {
+        int count = 0;
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement("select * from Citations, Vehicles where Citations.licenseNum = Vehicles.carLicenseNumber ORDER BY citationNum");
+            pstate.setFetchSize(DBService.STREAM_FETCH_SIZE);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                action.accept(toCitation(results));
+                count++;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error executing forEach query");
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        return count;
+    }
+
+    private static Citation toCitation(ResultSet results) throws SQLException {
+        return new Citation(results.getInt("citationNum"),
+                new Vehicle(results.getString("carLicenseNumber"),
+                        results.getString("model"),
+                        results.getString("color"),
+                        results.getString("manufacturer"),
+                        results.getInt("year")
+                ),
+                results.getString("lotName"),
+                results.getString("category"),
+                results.getDouble("fee"),
+                results.getString("paymentStatus"),
+                results.getDate("citationDate"),
+                results.getTime("citationTime")
+        );
+    }
+
     /** getByNumber will query the Citations table and return a Citations that corresponds to the provided number.
      * If no items are found that match the provided number it will return null.
      * If any SQLExceptions are encountered then it will throw a SQLException.
@@ -107,21 +240,40 @@ public class CitationsServiceImpl implements CitationsService {
     }
 
     /** createCitation will create a handle creating a citation and a vehicle if createVehicle is set to true. It will do this in a transaction
-     * so that if the citation fails to create we are not left with an unnecessary vehicle.
+     * so that if the citation fails to create we are not left with an unnecessary vehicle. A citation without a number is
+     * given the next one from the number allocator before it is inserted, and the citation's number is returned.
+     */
+    public int createCitation(Citation citation, Boolean createVehicle) throws SQLException {
+        return createCitation(citation, createVehicle, null);
+    }
+
+    /** createCitation with a request key creates the citation at most once per key. A key seen recently is answered
+     * from memory without touching the database; otherwise the key is looked up in Citations before the insert, and
+     * the insert itself ignores a key that a concurrent request has just stored. Either way a repeated key returns
+     * the number of the citation created the first time and sets it on the citation, and nothing new is inserted.
      */
-    public void createCitation(Citation citation, Boolean createVehicle) throws SQLException {
+    public int createCitation(Citation citation, Boolean createVehicle, String requestKey) throws SQLException {
+        if (requestKey != null) {
+            Integer created = createdByRequestKey.get(requestKey);
+            if (created != null) {
+                citation.setNumber(created);
+                System.out.println("Citation " + created + " was already created for this request");
+                return created;
+            }
+        }
+        assignNumber(citation);
         Connection conn = null;
         PreparedStatement pstate = null;
         try {
             conn = dbService.connectAndReturnConnection();
             conn.setAutoCommit(false);
+            int existing = requestKey == null ? 0 : numberForRequestKey(conn, requestKey, false);
+            if (existing != 0) {
+                return alreadyCreated(conn, citation, requestKey, existing);
+            }
             if (createVehicle) {
                 pstate = conn.prepareStatement("INSERT INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)");
-                pstate.setString(1, citation.getVehicle().getLicense());
-                pstate.setString(2, citation.getVehicle().getModel());
-                pstate.setString(3, citation.getVehicle().getColor());
-                pstate.setString(4, citation.getVehicle().getManufacturer());
-                pstate.setInt(5, citation.getVehicle().getYear());
+                setVehicleParameters(pstate, citation);
                 int vRespCode = pstate.executeUpdate();
                 if (vRespCode > 0) {
                     System.out.println("Vehicle created");
@@ -129,22 +281,30 @@ public class CitationsServiceImpl implements CitationsService {
                     System.out.println("Vehicle was not created");
                 }
             }
-            pstate = conn.prepareStatement("INSERT INTO Citations (licenseNum, lotName, category, fee, paymentStatus, citationDate, citationTime) VALUES (?,?,?,?,?,?,?)");
-            pstate.setString(1, citation.getVehicle().getLicense());
-            pstate.setString(2, citation.getLotName());
-            pstate.setString(3, citation.getCategory());
-            pstate.setDouble(4, citation.getFee());
-            pstate.setString(5, citation.getPaymentStatus());
-            pstate.setDate(6, citation.getCitationDate());
-            pstate.setTime(7, citation.getCitationTime());
-            int respCode = pstate.executeUpdate();
+            pstate = conn.prepareStatement(requestKey == null ? INSERT_CITATION_SQL : INSERT_REQUEST_CITATION_SQL);
+            setCitationParameters(pstate, citation, requestKey);
+            int respCode;
+            try {
+                respCode = pstate.executeUpdate();
+            } catch (SQLException e) {
+                // Another request with the same key committed its citation between the lookup and this insert. The
+                // first lookup's snapshot predates it, so it has to be read again with a lock.
+                existing = e.getErrorCode() == DUPLICATE_ENTRY && requestKey != null ? numberForRequestKey(conn, requestKey, true) : 0;
+                if (existing == 0) {
+                    throw e;
+                }
+                return alreadyCreated(conn, citation, requestKey, existing);
+            }
             if (respCode > 0) {
-                System.out.println("Citation created");
+                System.out.println("Citation " + citation.getNumber() + " created");
             } else {
                 System.out.println("Citation was not created");
             }
             conn.commit();
             conn.setAutoCommit(true);
+            if (requestKey != null) {
+                createdByRequestKey.put(requestKey, citation.getNumber());
+            }
         } catch (SQLException e) {
             System.out.println("Error: " + e.getMessage());
             System.err.println("Transaction is being rolled back");
@@ -165,6 +325,194 @@ public class CitationsServiceImpl implements CitationsService {
 
             }
         }
+        return citation.getNumber();
+    }
+
+    // numberForRequestKey returns the number of the citation stored with requestKey, or 0 if there is none. A locking
+    // lookup also finds a citation committed after the transaction's snapshot was taken.
+    private int numberForRequestKey(Connection conn, String requestKey, boolean locking) throws SQLException {
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        try {
+            pstate = conn.prepareStatement(locking ? CITATION_NUMBER_BY_REQUEST_KEY_LOCKING_QUERY : CITATION_NUMBER_BY_REQUEST_KEY_QUERY);
+            pstate.setString(1, requestKey);
+            results = pstate.executeQuery();
+            return results.next() ? results.getInt("citationNum") : 0;
+        } finally {
+            dbService.close(null, pstate, results);
+        }
+    }
+
+    // alreadyCreated rolls back anything createCitation wrote for a request key that already has a citation, and
+    // answers with that citation's number.
+    private int alreadyCreated(Connection conn, Citation citation, String requestKey, int number) throws SQLException {
+        conn.rollback();
+        conn.setAutoCommit(true);
+        createdByRequestKey.put(requestKey, number);
+        citation.setNumber(number);
+        System.out.println("Citation " + number + " was already created for this request");
+        return number;
+    }
+
+    // assignNumber gives a citation the next number from the allocator unless it already has one.
+    private void assignNumber(Citation citation) throws SQLException {
+        if (citation.getNumber() == 0) {
+            citation.setNumber(numberAllocator.next());
+        }
+    }
+
+    /** createCitations will insert many citations on a single connection. Citations are written in chunks of batchSize,
+     * each chunk in its own transaction: the chunk's vehicles are inserted first with INSERT IGNORE so existing vehicles
+     * are left untouched, then its citations are sent as one JDBC batch. If a chunk fails it is rolled back and its rows
+     * are retried one at a time so a single bad row does not reject the rest. It returns one entry per citation in
+     * iteration order, 1 if the citation was created and Statement.EXECUTE_FAILED if it was not. Citations without a number
+     * are numbered first, so each citation's number can be read from it afterwards. If the connection cannot be opened,
+     * numbers cannot be reserved or a rollback fails then it will throw a SQLException.
+     */
+    public int[] createCitations(Collection<Citation> citations) throws SQLException {
+        return createCitations(citations, null);
+    }
+
+    /** createCitations with request keys works like createCitations but stores each citation's request key with it, one
+     * key per citation in iteration order. A citation whose key is already in the Citations table is not inserted again
+     * and is reported as created, so a batch that may already have been written can safely be sent again. A citation
+     * the database refuses with a constraint violation, such as an unknown lot or a number taken by another citation,
+     * is reported as not created. Any other error is thrown, so the caller can send the whole batch again later.
+     */
+    public int[] createCitations(Collection<Citation> citations, List<String> requestKeys) throws SQLException {
+        List<Citation> rows = new ArrayList<>(citations);
+        if (requestKeys != null && requestKeys.size() != rows.size()) {
+            throw new IllegalArgumentException("Expected one request key per citation");
+        }
+        int[] outcomes = new int[rows.size()];
+        if (rows.isEmpty()) {
+            return outcomes;
+        }
+        for (Citation citation : rows) {
+            assignNumber(citation);
+        }
+        Connection conn = null;
+        PreparedStatement vehicleState = null;
+        PreparedStatement citationState = null;
+        int created = 0;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            vehicleState = conn.prepareStatement("INSERT IGNORE INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)");
+            citationState = conn.prepareStatement(requestKeys == null ? INSERT_CITATION_SQL : INSERT_REQUEST_CITATION_SQL);
+            for (int start = 0; start < rows.size(); start += batchSize) {
+                int end = Math.min(start + batchSize, rows.size());
+                try {
+                    for (int i = start; i < end; i++) {
+                        setVehicleParameters(vehicleState, rows.get(i));
+                        vehicleState.addBatch();
+                        setCitationParameters(citationState, rows.get(i), requestKeys == null ? null : requestKeys.get(i));
+                        citationState.addBatch();
+                    }
+                    vehicleState.executeBatch();
+                    int[] counts = citationState.executeBatch();
+                    conn.commit();
+                    for (int i = start; i < end; i++) {
+                        int count = i - start < counts.length ? counts[i - start] : Statement.EXECUTE_FAILED;
+                        outcomes[i] = isCreated(count) ? 1 : Statement.EXECUTE_FAILED;
+                    }
+                } catch (SQLException e) {
+                    System.out.println("Error: " + e.getMessage());
+                    System.out.println("Citation batch is being rolled back and retried one row at a time");
+                    conn.rollback();
+                    vehicleState.clearBatch();
+                    citationState.clearBatch();
+                    for (int i = start; i < end; i++) {
+                        outcomes[i] = createCitationInBatch(conn, vehicleState, citationState, rows.get(i),
+                                requestKeys == null ? null : requestKeys.get(i));
+                    }
+                }
+            }
+            conn.setAutoCommit(true);
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(null, vehicleState, null);
+                dbService.close(conn, citationState, null);
+            }
+        }
+        for (int outcome : outcomes) {
+            if (outcome > 0) {
+                created++;
+            }
+        }
+        System.out.println(created + " of " + rows.size() + " citations created");
+        return outcomes;
+    }
+
+    // isCreated reads an update count from createCitations.
+    private static boolean isCreated(int count) {
+        return count > 0 || count == Statement.SUCCESS_NO_INFO;
+    }
+
+    // isConstraintViolation is true for errors that will recur however often the row is sent, SQLState class 23.
+    private static boolean isConstraintViolation(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("23"));
+    }
+
+    // createCitationInBatch writes a single citation and its vehicle in their own transaction using the statements
+    // prepared by createCitations. A rollback failure is thrown since the connection can no longer be trusted. With a
+    // request key, a duplicate entry counts as created only if the key is in the table, since the duplicate may
+    // instead be another citation's number, and errors other than constraint violations are thrown.
+    private int createCitationInBatch(Connection conn, PreparedStatement vehicleState, PreparedStatement citationState,
+                                      Citation citation, String requestKey) throws SQLException {
+        try {
+            setVehicleParameters(vehicleState, citation);
+            vehicleState.executeUpdate();
+            setCitationParameters(citationState, citation, requestKey);
+            int respCode = citationState.executeUpdate();
+            conn.commit();
+            return isCreated(respCode) ? 1 : Statement.EXECUTE_FAILED;
+        } catch (SQLException e) {
+            conn.rollback();
+            if (requestKey != null && !isConstraintViolation(e)) {
+                throw e;
+            }
+            if (requestKey != null && e.getErrorCode() == DUPLICATE_ENTRY) {
+                int existing = numberForRequestKey(conn, requestKey, true);
+                conn.rollback();
+                if (existing != 0) {
+                    System.out.println("Citation " + existing + " was already created for request " + requestKey);
+                    return 1;
+                }
+            }
+            System.out.println("Error creating citation for " + citation.getVehicle().getLicense() + ": " + e.getMessage());
+            return Statement.EXECUTE_FAILED;
+        }
+    }
+
+    private static void setVehicleParameters(PreparedStatement pstate, Citation citation) throws SQLException {
+        pstate.setString(1, citation.getVehicle().getLicense());
+        pstate.setString(2, citation.getVehicle().getModel());
+        pstate.setString(3, citation.getVehicle().getColor());
+        pstate.setString(4, citation.getVehicle().getManufacturer());
+        // A year of 0 means it isn't known, as for plates read by a camera.
+        if (citation.getVehicle().getYear() == 0) {
+            pstate.setNull(5, Types.INTEGER);
+        } else {
+            pstate.setInt(5, citation.getVehicle().getYear());
+        }
+    }
+
+    private static void setCitationParameters(PreparedStatement pstate, Citation citation, String requestKey) throws SQLException {
+        pstate.setInt(1, citation.getNumber());
+        pstate.setString(2, citation.getVehicle().getLicense());
+        pstate.setString(3, citation.getLotName());
+        pstate.setString(4, citation.getCategory());
+        pstate.setDouble(5, citation.getFee());
+        pstate.setString(6, citation.getPaymentStatus());
+        pstate.setDate(7, citation.getCitationDate());
+        pstate.setTime(8, citation.getCitationTime());
+        if (requestKey != null) {
+            pstate.setString(9, requestKey);
+        }
     }
 
 
@@ -244,7 +592,7 @@ public class CitationsServiceImpl implements CitationsService {
         int result = 0;
         try {
             conn = dbService.connectAndReturnConnection();
-            pstate = conn.prepareStatement("UPDATE Citations SET paymentStatus=\"APPEALED\" WHERE citationNum = ? AND paymentStatus=\"DUE\"");
+            pstate = conn.prepareStatement("UPDATE Citations SET paymentStatus='APPEALED' WHERE citationNum = ? AND paymentStatus='DUE'");
             pstate.setInt(1, number);
             result = pstate.executeUpdate();
         } catch (SQLException e) {
@@ -271,7 +619,7 @@ public class CitationsServiceImpl implements CitationsService {
         int result = 0;
         try {
             conn = dbService.connectAndReturnConnection();
-            pstate = conn.prepareStatement("UPDATE Citations SET paymentStatus=\"PAID\" WHERE citationNum = ? AND paymentStatus=\"DUE\"");
+            pstate = conn.prepareStatement("UPDATE Citations SET paymentStatus='PAID' WHERE citationNum = ? AND paymentStatus='DUE'");
             pstate.setInt(1, number);
             result = pstate.executeUpdate();
         } catch (SQLException e) {
@@ -286,4 +634,107 @@ public class CitationsServiceImpl implements CitationsService {
         }
         return result != 0;
     }
-}
\ No newline at end of file
+
+    /** appealCitations sets every DUE citation among numbers to APPEALED, see changeDueStatus. */
+    @Override
+    public Map<Integer, Boolean> appealCitations(Collection<Integer> numbers) throws SQLException {
+        return changeDueStatus(numbers, "APPEALED");
+    }
+
+    /** payCitations sets every DUE citation among numbers to PAID, see changeDueStatus. */
+    @Override
+    public Map<Integer, Boolean> payCitations(Collection<Integer> numbers) throws SQLException {
+        return changeDueStatus(numbers, "PAID");
+    }
+
+    /** changeDueStatus moves many citations from DUE to status on a single connection. Numbers are handled in chunks of
+     * batchSize, each chunk in its own transaction: the chunk's DUE rows are locked and read with one query, then all
+     * of them are updated with one statement, so a chunk costs two round trips however many citations it holds. Both
+     * statements always list batchSize numbers, repeating the last one to fill a short chunk, so each connection
+     * prepares one query and one update rather than a pair for every chunk length. If a
+     * chunk fails it is rolled back and its citations are reported unchanged while the remaining chunks carry on. It
+     * returns each distinct number in iteration order mapped to true if that citation was DUE and now has the new
+     * status, and false if it was not found, was not DUE or its chunk failed. If the connection cannot be opened or
+     * a rollback fails then it will throw a SQLException.
+     */
+    private Map<Integer, Boolean> changeDueStatus(Collection<Integer> numbers, String status) throws SQLException {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(numbers));
+        Map<Integer, Boolean> outcomes = new LinkedHashMap<>();
+        for (Integer number : distinct) {
+            outcomes.put(number, false);
+        }
+        if (distinct.isEmpty()) {
+            return outcomes;
+        }
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        int changed = 0;
+        String dueQuery = String.format(DUE_CITATIONS_QUERY, placeholders(batchSize));
+        String updateSql = String.format(SET_DUE_STATUS_SQL, placeholders(batchSize));
+        try {
+            conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            for (int start = 0; start < distinct.size(); start += batchSize) {
+                List<Integer> chunk = distinct.subList(start, Math.min(start + batchSize, distinct.size()));
+                try {
+                    pstate = conn.prepareStatement(dueQuery);
+                    setNumbers(pstate, 1, chunk, batchSize);
+                    results = pstate.executeQuery();
+                    List<Integer> due = new ArrayList<>();
+                    while (results.next()) {
+                        due.add(results.getInt("citationNum"));
+                    }
+                    dbService.close(null, pstate, results);
+                    results = null;
+                    pstate = null;
+                    if (!due.isEmpty()) {
+                        pstate = conn.prepareStatement(updateSql);
+                        pstate.setString(1, status);
+                        setNumbers(pstate, 2, due, batchSize);
+                        pstate.executeUpdate();
+                        dbService.close(null, pstate, null);
+                        pstate = null;
+                    }
+                    conn.commit();
+                    for (Integer number : due) {
+                        outcomes.put(number, true);
+                    }
+                    changed += due.size();
+                } catch (SQLException e) {
+                    System.out.println("Error: " + e.getMessage());
+                    System.out.println("Citation status batch is being rolled back");
+                    conn.rollback();
+                    dbService.close(null, pstate, results);
+                    results = null;
+                    pstate = null;
+                }
+            }
+            conn.setAutoCommit(true);
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        System.out.println(changed + " of " + distinct.size() + " citations set to " + status);
+        return outcomes;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        return sql.toString();
+    }
+
+    /** setNumbers binds count parameters from firstIndex, repeating the last of numbers once they run out. */
+    private static void setNumbers(PreparedStatement pstate, int firstIndex, List<Integer> numbers, int count)
+            throws SQLException {
+        for (int i = 0; i < count; i++) {
+            pstate.setInt(firstIndex + i, numbers.get(Math.min(i, numbers.size() - 1)));
+        }
+    }
+}
@@ -6,6 +6,10 @@ import java.sql.SQLException;
 import java.sql.Statement;
 
 public interface DBService {
+    // Rows fetched per round trip by the streaming forEach reads, so a cursor over a large table never holds more than
+    // this many rows in memory.
+    int STREAM_FETCH_SIZE = 500;
+
     Connection connectAndReturnConnection() throws SQLException;
     void close(Connection connection, Statement statement, ResultSet result);
 }
@@ -4,7 +4,10 @@ import java.sql.*;
 
 public class DBServiceImpl implements DBService {
     // TODO: Populate these before testing locally
-    static final String jdbcURL = "jdbc:mysql://localhost:3306/Parking";
+    // useServerPrepStmts makes the driver prepare statements on the server so the pooled statement cache can reuse them.
+    // rewriteBatchedStatements lets the driver send a JDBC batch of inserts as multi-row statements.
+    // useCursorFetch makes the driver honour setFetchSize and read large results in chunks instead of all at once.
+    static final String jdbcURL = "jdbc:mysql://localhost:3306/Parking?useServerPrepStmts=true&rewriteBatchedStatements=true&useCursorFetch=true";
     static final String user = "test";
     static final String password = "test123";
 
@@ -4,9 +4,12 @@ import org.parking.model.Driver;
 
 import java.sql.*;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 /***************************************************************************
- * CRUD operations for the Drivers table. Includes functions to read all,
+ * CRUD operations for the Drivers table. Includes functions to read all
+ * (whole, by page or streamed),
  * get by id, create, update, and delete drivers.
  * -------------------------------------------------------------------------
  * Each function throws SQLException if an SQL error occurs and prints any
@@ -16,6 +19,8 @@ import java.util.Collection;
  ****************************************************************************/
 public interface DriversService {
     public Collection<Driver> getAll() throws SQLException;
+    public List<Driver> getPage(String afterId, int limit) throws SQLException;
+    public int forEach(Consumer<Driver> action) throws SQLException;
     public Driver getById(String id) throws SQLException;
     public boolean update(Driver driver) throws SQLException;
     public boolean delete(String id) throws SQLException;
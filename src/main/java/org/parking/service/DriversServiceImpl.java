@@ -5,6 +5,8 @@ import org.parking.model.Driver;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class DriversServiceImpl implements DriversService {
     private final DBService dbService;
@@ -58,6 +60,87 @@ public class DriversServiceImpl implements DriversService {
         return drivers;
     }
 
+    /***************************************************************************
+     * Get up to limit drivers whose id sorts after afterId, ordered by
+     * id. Pass null for the first page and the id of the last
+     * driver returned for each following page. Returns an empty list once there
+     * are no more drivers.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT * FROM Drivers WHERE id > ? ORDER BY id LIMIT ?"
+     ****************************************************************************/
+    public List<Driver> getPage(String afterId, int limit) throws SQLException {
+        List<Driver> drivers = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement("SELECT * FROM Drivers WHERE id > ? ORDER BY id LIMIT ?");
+            pstate.setString(1, afterId == null ? "" : afterId);
+            pstate.setInt(2, limit);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                drivers.add(toDriver(results));
+            }
+        } catch (SQLException e) {
+            // Throw SQL Exception up to caller function
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+
+        return drivers;
+    }
+
+    /***************************************************************************
+     * Pass every driver to action in id order without loading the table
+     * into memory. Rows are read DBService.STREAM_FETCH_SIZE at a time and the
+     * cursor is closed when the scan finishes or action throws. Returns the
+     * number of drivers visited.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT * FROM Drivers ORDER BY id"
+     ****************************************************************************/
+    public int forEach(Consumer<Driver> action) throws SQLException {
+        int count = 0;
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement("SELECT * FROM Drivers ORDER BY id");
+            pstate.setFetchSize(DBService.STREAM_FETCH_SIZE);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                action.accept(toDriver(results));
+                count++;
+            }
+        } catch (SQLException e) {
+            // Throw SQL Exception up to caller function
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+
+        return count;
+    }
+
+    private static Driver toDriver(ResultSet results) throws SQLException {
+        return new Driver(results.getString("id"),
+                results.getString("name"),
+                results.getString("status")
+        );
+    }
+
     /***************************************************************************
      * Get a specific driver based on a given id. If none exist,
      * return null.
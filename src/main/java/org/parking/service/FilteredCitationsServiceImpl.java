@@ -0,0 +1,107 @@
+package org.parking.service;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.parking.model.Citation;
+
+/**
+ * CitationsService decorator that puts the license of every vehicle a citation may create into the
+ * {@link LicenseBloomFilter} before the citation is written, so vehicles created along with citations are known to
+ * the filtered vehicle and permit validation services.
+ */
+public class FilteredCitationsServiceImpl implements CitationsService {
+    private final CitationsService delegate;
+    private final LicenseBloomFilter knownLicenses;
+
+    public FilteredCitationsServiceImpl(CitationsService delegate, LicenseBloomFilter knownLicenses) {
+        this.delegate = delegate;
+        this.knownLicenses = knownLicenses;
+    }
+
+    @Override
+    public Collection<Citation> getAll() throws SQLException {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Citation> getPage(int afterNumber, int limit) throws SQLException {
+        return delegate.getPage(afterNumber, limit);
+    }
+
+    @Override
+    public int forEach(Consumer<Citation> action) throws SQLException {
+        return delegate.forEach(action);
+    }
+
+    @Override
+    public Citation getByNumber(int number) throws SQLException {
+        return delegate.getByNumber(number);
+    }
+
+    @Override
+    public int createCitation(Citation citation, Boolean createVehicle) throws SQLException {
+        if (createVehicle) {
+            knownLicenses.put(citation.getVehicle().getLicense());
+        }
+        return delegate.createCitation(citation, createVehicle);
+    }
+
+    @Override
+    public int createCitation(Citation citation, Boolean createVehicle, String requestKey) throws SQLException {
+        if (createVehicle) {
+            knownLicenses.put(citation.getVehicle().getLicense());
+        }
+        return delegate.createCitation(citation, createVehicle, requestKey);
+    }
+
+    @Override
+    public int[] createCitations(Collection<Citation> citations) throws SQLException {
+        // createCitations inserts any missing vehicle, and commits in chunks, so every license is put up front.
+        for (Citation citation : citations) {
+            knownLicenses.put(citation.getVehicle().getLicense());
+        }
+        return delegate.createCitations(citations);
+    }
+
+    @Override
+    public int[] createCitations(Collection<Citation> citations, List<String> requestKeys) throws SQLException {
+        for (Citation citation : citations) {
+            knownLicenses.put(citation.getVehicle().getLicense());
+        }
+        return delegate.createCitations(citations, requestKeys);
+    }
+
+    @Override
+    public void updateCitation(Citation citation) throws SQLException {
+        delegate.updateCitation(citation);
+    }
+
+    @Override
+    public void deleteCitationByNumber(int number) throws SQLException {
+        delegate.deleteCitationByNumber(number);
+    }
+
+    @Override
+    public boolean appealCitation(int number) {
+        return delegate.appealCitation(number);
+    }
+
+    @Override
+    public boolean payCitation(int number) {
+        return delegate.payCitation(number);
+    }
+
+    @Override
+    public Map<Integer, Boolean> appealCitations(Collection<Integer> numbers) throws SQLException {
+        return delegate.appealCitations(numbers);
+    }
+
+    @Override
+    public Map<Integer, Boolean> payCitations(Collection<Integer> numbers) throws SQLException {
+        return delegate.payCitations(numbers);
+    }
+}
@@ -0,0 +1,28 @@
+package org.parking.service;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.Collections;
+
+/**
+ * PermitValidationService decorator that reports an unregistered vehicle with no violations, without a query, for
+ * licenses the {@link LicenseBloomFilter} has never seen. Most plates read in visitor lots are such vehicles.
+ */
+public class FilteredPermitValidationServiceImpl implements PermitValidationService {
+    private final PermitValidationService delegate;
+    private final LicenseBloomFilter knownLicenses;
+
+    public FilteredPermitValidationServiceImpl(PermitValidationService delegate, LicenseBloomFilter knownLicenses) {
+        this.delegate = delegate;
+        this.knownLicenses = knownLicenses;
+    }
+
+    @Override
+    public PermitValidationResult validate(String license, String lotName, Date date, Time time, String spaceType) throws SQLException {
+        if (!knownLicenses.mightContain(license)) {
+            return new PermitValidationResult(false, Collections.<PermitViolation>emptyList());
+        }
+        return delegate.validate(license, lotName, date, time, spaceType);
+    }
+}
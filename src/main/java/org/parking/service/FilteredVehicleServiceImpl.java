@@ -0,0 +1,69 @@
+package org.parking.service;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.parking.model.Vehicle;
+
+/**
+ * VehicleService decorator that answers getByLicense with null, without a query, for licenses the
+ * {@link LicenseBloomFilter} has never seen. Licenses are put in the filter before a vehicle is created, so a vehicle
+ * that was saved is never reported missing.
+ */
+public class FilteredVehicleServiceImpl implements VehicleService {
+    private final VehicleService delegate;
+    private final LicenseBloomFilter knownLicenses;
+
+    /**
+     * @param delegate      The service that reads and writes vehicles.
+     * @param knownLicenses The filter of every license in the Vehicles table, shared with the citation and permit
+     *                      validation decorators.
+     */
+    public FilteredVehicleServiceImpl(VehicleService delegate, LicenseBloomFilter knownLicenses) {
+        this.delegate = delegate;
+        this.knownLicenses = knownLicenses;
+    }
+
+    @Override
+    public Collection<Vehicle> getAll() throws SQLException {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Vehicle> getPage(String afterLicense, int limit) throws SQLException {
+        return delegate.getPage(afterLicense, limit);
+    }
+
+    @Override
+    public int forEach(Consumer<Vehicle> action) throws SQLException {
+        return delegate.forEach(action);
+    }
+
+    @Override
+    public Vehicle getByLicense(String license) throws SQLException {
+        if (!knownLicenses.mightContain(license)) {
+            return null;
+        }
+        return delegate.getByLicense(license);
+    }
+
+    @Override
+    public boolean update(Vehicle vehicle) throws SQLException {
+        return delegate.update(vehicle);
+    }
+
+    @Override
+    public boolean delete(String license) throws SQLException {
+        // The filter can't forget a license, so a deleted vehicle's lookups still go to the database.
+        return delegate.delete(license);
+    }
+
+    @Override
+    public boolean create(Vehicle vehicle) throws SQLException {
+        // Put first: if the vehicle is saved but the caller fails afterwards, the filter must already know it.
+        knownLicenses.put(vehicle.getLicense());
+        return delegate.create(vehicle);
+    }
+}
@@ -0,0 +1,148 @@
+package org.parking.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Time is counted in ticks. Each level is a ring of slots, and one slot at a level covers
+ * a whole rotation of the level below it. A timer is kept at the lowest level whose current rotation contains its
+ * deadline. When time reaches a higher level slot, the timers in it are moved down a level, until they reach level 0
+ * and fire on their exact tick. Scheduling and cancelling cost O(1), and each timer is moved at most once per level,
+ * however many timers are waiting.
+ *
+ * Deadlines beyond the top level's rotation wait in an overflow list that is looked at once per top level rotation.
+ * The wheel is not thread safe; it is meant to be driven by a single thread.
+ */
+class HierarchicalTimingWheel<T> {
+    private final long tickMillis;
+    private final int slotBits;
+    private final int mask;
+    private final List<List<Timer<T>>>[] levels;
+    private final List<Timer<T>> overflow = new ArrayList<>();
+    private final List<T> due = new ArrayList<>();
+    private long currentTick;
+    private int size = 0;
+
+    /**
+     * @param tickMillis  Length of one tick. Timers fire on the first tick at or after their deadline.
+     * @param slotBits    Slots per level as a power of two; 6 gives 64 slots.
+     * @param levelCount  Number of levels.
+     * @param startMillis Time the wheel starts at.
+     */
+    @SuppressWarnings("unchecked")
+    HierarchicalTimingWheel(long tickMillis, int slotBits, int levelCount, long startMillis) {
+        if (tickMillis <= 0 || slotBits <= 0 || levelCount <= 0 || slotBits * levelCount >= 63) {
+            throw new IllegalArgumentException("tickMillis, slotBits and levelCount must be positive and fit in a long");
+        }
+        this.tickMillis = tickMillis;
+        this.slotBits = slotBits;
+        this.mask = (1 << slotBits) - 1;
+        this.levels = new List[levelCount];
+        for (int level = 0; level < levelCount; level++) {
+            levels[level] = new ArrayList<>();
+            for (int slot = 0; slot <= mask; slot++) {
+                levels[level].add(new ArrayList<>());
+            }
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * schedule adds item to fire at deadlineMillis. A deadline that has already passed fires on the next advance.
+     * Returns a handle that can cancel the timer.
+     */
+    Timer<T> schedule(long deadlineMillis, T item) {
+        // Round up so a timer never fires before its deadline.
+        Timer<T> timer = new Timer<>((deadlineMillis + tickMillis - 1) / tickMillis, item);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /** cancel stops the timer from firing. Cancelling a timer that already fired or was cancelled does nothing. */
+    void cancel(Timer<T> timer) {
+        if (!timer.done) {
+            timer.done = true;
+            size--;
+        }
+    }
+
+    /** advance moves the wheel up to nowMillis and returns the items whose deadlines passed, in the order they fired. */
+    List<T> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Cascade from the top down, so timers moved out of a higher slot into a lower slot that is also being
+            // cascaded on this tick are moved on again.
+            if ((currentTick & ((1L << (slotBits * levels.length)) - 1)) == 0) {
+                List<Timer<T>> waiting = new ArrayList<>(overflow);
+                overflow.clear();
+                for (Timer<T> timer : waiting) {
+                    place(timer);
+                }
+            }
+            for (int level = levels.length - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (slotBits * level)) - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (slotBits * level)) & mask));
+                }
+            }
+            cascade(0, (int) (currentTick & mask));
+        }
+        List<T> fired = new ArrayList<>(due);
+        due.clear();
+        return fired;
+    }
+
+    /** size returns the number of timers that have not fired or been cancelled. */
+    int size() {
+        return size;
+    }
+
+    private void cascade(int level, int slot) {
+        List<Timer<T>> timers = levels[level].get(slot);
+        if (timers.isEmpty()) {
+            return;
+        }
+        levels[level].set(slot, new ArrayList<>());
+        for (Timer<T> timer : timers) {
+            place(timer);
+        }
+    }
+
+    // place puts a timer at the lowest level whose current rotation holds its deadline, or fires it if its deadline
+    // has been reached.
+    private void place(Timer<T> timer) {
+        if (timer.done) {
+            return;
+        }
+        if (timer.deadlineTick <= currentTick) {
+            timer.done = true;
+            size--;
+            due.add(timer.item);
+            return;
+        }
+        for (int level = 0; level < levels.length; level++) {
+            int shift = slotBits * (level + 1);
+            if ((timer.deadlineTick >>> shift) == (currentTick >>> shift)) {
+                levels[level].get((int) ((timer.deadlineTick >>> (slotBits * level)) & mask)).add(timer);
+                return;
+            }
+        }
+        overflow.add(timer);
+    }
+
+    static final class Timer<T> {
+        private final long deadlineTick;
+        private final T item;
+        private boolean done = false;
+
+        private Timer(long deadlineTick, T item) {
+            this.deadlineTick = deadlineTick;
+            this.item = item;
+        }
+
+        T getItem() {
+            return item;
+        }
+    }
+}
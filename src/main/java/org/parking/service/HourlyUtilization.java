@@ -0,0 +1,65 @@
+package org.parking.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * How much of one hour the matching spaces of a lot were in use, read from the {@link OccupancyTimeSeriesStore}.
+ * zoneID and spaceType are null when the query covered every zone or type.
+ */
+public class HourlyUtilization {
+    private final String lotName;
+    private final String zoneID;
+    private final String spaceType;
+    private final LocalDateTime hour;
+    private final double spaceHours;
+    private final double occupiedHours;
+
+    public HourlyUtilization(String lotName, String zoneID, String spaceType, LocalDateTime hour,
+                             double spaceHours, double occupiedHours) {
+        this.lotName = lotName;
+        this.zoneID = zoneID;
+        this.spaceType = spaceType;
+        this.hour = hour;
+        this.spaceHours = spaceHours;
+        this.occupiedHours = occupiedHours;
+    }
+
+    public String getLotName() {
+        return lotName;
+    }
+
+    public String getZoneID() {
+        return zoneID;
+    }
+
+    public String getSpaceType() {
+        return spaceType;
+    }
+
+    /** getHour returns the start of the hour. */
+    public LocalDateTime getHour() {
+        return hour;
+    }
+
+    /** getSpaceHours returns the hours of history recorded for the matching spaces, summed over every space. */
+    public double getSpaceHours() {
+        return spaceHours;
+    }
+
+    /** getOccupiedHours returns how many of those space hours the spaces were in use. */
+    public double getOccupiedHours() {
+        return occupiedHours;
+    }
+
+    /** getUtilization returns the fraction of recorded space time that was in use, between 0 and 1. */
+    public double getUtilization() {
+        return spaceHours == 0 ? 0 : occupiedHours / spaceHours;
+    }
+
+    @Override
+    public String toString() {
+        return lotName + (zoneID == null ? "" : " zone " + zoneID) + (spaceType == null ? "" : " " + spaceType)
+                + " " + hour + ": " + String.format("%.1f%%", getUtilization() * 100) + " of "
+                + String.format("%.1f", spaceHours) + " space hours";
+    }
+}
@@ -0,0 +1,263 @@
+package org.parking.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads import records one line at a time so files of any size are processed in constant memory. Files ending in
+ * .json or .jsonl are read as JSON Lines, one flat object per line. Anything else is read as CSV with a header row
+ * naming the columns. Blank lines are skipped and do not count as records.
+ */
+public class ImportRecordReader implements Closeable {
+    private final BufferedReader reader;
+    private final boolean json;
+    private List<String> header;
+    private long recordNumber = 0;
+    private long lineNumber = 0;
+
+    ImportRecordReader(BufferedReader reader, boolean json) {
+        this.reader = reader;
+        this.json = json;
+    }
+
+    public static ImportRecordReader open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        boolean json = name.endsWith(".json") || name.endsWith(".jsonl");
+        return new ImportRecordReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), json);
+    }
+
+    /** next returns the next record, or null at the end of the file. A line that cannot be parsed is returned as a
+     * record with a parse error so the caller can reject it and carry on.
+     */
+    public ImportRecord next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (!json && header == null) {
+                header = parseCsvLine(line);
+                continue;
+            }
+            recordNumber++;
+            try {
+                Map<String, String> fields = json ? parseJsonLine(line) : toFields(parseCsvLine(line));
+                return new ImportRecord(recordNumber, lineNumber, fields, null);
+            } catch (IllegalArgumentException e) {
+                return new ImportRecord(recordNumber, lineNumber, new HashMap<String, String>(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Map<String, String> toFields(List<String> values) {
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("expected " + header.size() + " columns but found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(header.get(i).trim(), values.get(i));
+        }
+        return fields;
+    }
+
+    // parseCsvLine splits a line on commas, honouring double quoted fields and "" as an escaped quote.
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    // parseJsonLine parses a flat JSON object whose values are strings, numbers, booleans or null. Nested objects
+    // and arrays are not supported since none of the imported tables need them.
+    static Map<String, String> parseJsonLine(String line) {
+        Map<String, String> fields = new HashMap<>();
+        int[] pos = {skipWhitespace(line, 0)};
+        expect(line, pos, '{');
+        pos[0] = skipWhitespace(line, pos[0]);
+        if (pos[0] < line.length() && line.charAt(pos[0]) == '}') {
+            pos[0]++;
+        } else {
+            while (true) {
+                pos[0] = skipWhitespace(line, pos[0]);
+                String key = readJsonString(line, pos);
+                pos[0] = skipWhitespace(line, pos[0]);
+                expect(line, pos, ':');
+                pos[0] = skipWhitespace(line, pos[0]);
+                fields.put(key, readJsonValue(line, pos));
+                pos[0] = skipWhitespace(line, pos[0]);
+                if (pos[0] < line.length() && line.charAt(pos[0]) == ',') {
+                    pos[0]++;
+                    continue;
+                }
+                expect(line, pos, '}');
+                break;
+            }
+        }
+        if (skipWhitespace(line, pos[0]) != line.length()) {
+            throw new IllegalArgumentException("unexpected content after JSON object");
+        }
+        return fields;
+    }
+
+    private static String readJsonValue(String line, int[] pos) {
+        if (pos[0] >= line.length()) {
+            throw new IllegalArgumentException("missing JSON value");
+        }
+        char c = line.charAt(pos[0]);
+        if (c == '"') {
+            return readJsonString(line, pos);
+        }
+        if (c == '{' || c == '[') {
+            throw new IllegalArgumentException("nested JSON values are not supported");
+        }
+        int start = pos[0];
+        while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) {
+            pos[0]++;
+        }
+        String literal = line.substring(start, pos[0]);
+        if (literal.isEmpty()) {
+            throw new IllegalArgumentException("missing JSON value");
+        }
+        return "null".equals(literal) ? null : literal;
+    }
+
+    private static String readJsonString(String line, int[] pos) {
+        expect(line, pos, '"');
+        StringBuilder value = new StringBuilder();
+        while (pos[0] < line.length()) {
+            char c = line.charAt(pos[0]++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (pos[0] >= line.length()) {
+                break;
+            }
+            char escaped = line.charAt(pos[0]++);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (pos[0] + 4 > line.length()) {
+                        throw new IllegalArgumentException("invalid unicode escape");
+                    }
+                    value.append((char) Integer.parseInt(line.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+        throw new IllegalArgumentException("unterminated JSON string");
+    }
+
+    private static void expect(String line, int[] pos, char expected) {
+        if (pos[0] >= line.length() || line.charAt(pos[0]) != expected) {
+            throw new IllegalArgumentException("expected '" + expected + "' at column " + (pos[0] + 1));
+        }
+        pos[0]++;
+    }
+
+    private static int skipWhitespace(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * A single record from an import file. The record number counts data records from 1 and is what checkpoints
+     * refer to; the line number is kept for error messages.
+     */
+    public static class ImportRecord {
+        private final long number;
+        private final long lineNumber;
+        private final Map<String, String> fields;
+        private final String parseError;
+
+        ImportRecord(long number, long lineNumber, Map<String, String> fields, String parseError) {
+            this.number = number;
+            this.lineNumber = lineNumber;
+            this.fields = fields;
+            this.parseError = parseError;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getParseError() {
+            return parseError;
+        }
+
+        /** get returns the trimmed value of a field, or null if it is missing or empty. */
+        public String get(String field) {
+            String value = fields.get(field);
+            if (value == null) {
+                return null;
+            }
+            value = value.trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.parking.service;
+
+/**
+ * Counts of what happened to the records of one import file. Records skipped are those already committed by an
+ * earlier run and passed over when resuming from a checkpoint.
+ */
+public class ImportResult {
+    private final String fileName;
+    private long imported = 0;
+    private long rejected = 0;
+    private long skipped = 0;
+
+    public ImportResult(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    void addImported() {
+        imported++;
+    }
+
+    void addRejected() {
+        rejected++;
+    }
+
+    void addSkipped() {
+        skipped++;
+    }
+
+    @Override
+    public String toString() {
+        return fileName + ": " + imported + " imported, " + rejected + " rejected, " + skipped + " skipped";
+    }
+}
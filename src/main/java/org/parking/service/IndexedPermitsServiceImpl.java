@@ -0,0 +1,123 @@
+package org.parking.service;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.parking.model.Driver;
+import org.parking.model.Permit;
+import org.parking.model.Vehicle;
+
+/**
+ * PermitsService decorator that keeps an {@link ActivePermitIndex} current. Each write goes through the delegate and
+ * then refreshes the plates it touched. A failed refresh is logged rather than thrown, since the permit change itself
+ * has been saved; the plate is corrected by its next change or the next full load.
+ */
+public class IndexedPermitsServiceImpl implements PermitsService {
+    private final PermitsService delegate;
+    private final ActivePermitIndex index;
+
+    /**
+     * @param delegate The service that reads and writes permits.
+     * @param index    The index refreshed after every write.
+     */
+    public IndexedPermitsServiceImpl(PermitsService delegate, ActivePermitIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @Override
+    public Collection<Permit> getPermitInfo(String permitID) throws SQLException {
+        return delegate.getPermitInfo(permitID);
+    }
+
+    @Override
+    public void enterPermitInfo(Permit permit) throws SQLException {
+        delegate.enterPermitInfo(permit);
+        refreshPlate(permit.getCarLicenseNum());
+    }
+
+    @Override
+    public void updatePermitInfo(String permitID, String permitType, String zoneID, String spaceType,
+                                 Date startDate, Date expirationDate, Time expirationTime) throws SQLException {
+        delegate.updatePermitInfo(permitID, permitType, zoneID, spaceType, startDate, expirationDate, expirationTime);
+        refreshPermit(permitID);
+    }
+
+    @Override
+    public void deletePermitInfo(String permitID) throws SQLException {
+        // The permit's vehicles can't be looked up once it is gone, so read them first.
+        Set<String> plates = new LinkedHashSet<>();
+        for (Permit permit : delegate.getPermitInfo(permitID)) {
+            plates.add(permit.getCarLicenseNum());
+        }
+        delegate.deletePermitInfo(permitID);
+        for (String plate : plates) {
+            refreshPlate(plate);
+        }
+    }
+
+    @Override
+    public int getPermitsNumberForDriver(String associatedID) throws SQLException {
+        return delegate.getPermitsNumberForDriver(associatedID);
+    }
+
+    @Override
+    public void assignPermitToDriver(String permitID, String permitType, String zoneID, String spaceType,
+                                     Date startDate, Date expirationDate, Time expirationTime, Driver driver,
+                                     Vehicle vehicle) throws SQLException {
+        delegate.assignPermitToDriver(permitID, permitType, zoneID, spaceType, startDate, expirationDate,
+                expirationTime, driver, vehicle);
+        refreshPlate(vehicle.getLicense());
+    }
+
+    @Override
+    public int getVehicleNumberofPermit(String permitID) throws SQLException {
+        return delegate.getVehicleNumberofPermit(permitID);
+    }
+
+    @Override
+    public void removeVehicleFromPermit(String permitID, String carLicenseNum) throws SQLException {
+        delegate.removeVehicleFromPermit(permitID, carLicenseNum);
+        refreshPlate(carLicenseNum);
+    }
+
+    @Override
+    public void addVehicleToPermit(String permitID, String newCarLicenseNum) throws SQLException {
+        delegate.addVehicleToPermit(permitID, newCarLicenseNum);
+        refreshPlate(newCarLicenseNum);
+    }
+
+    @Override
+    public void addVehicleToPermitForEmployee(Permit permit, String newCarLicenseNum) throws SQLException {
+        delegate.addVehicleToPermitForEmployee(permit, newCarLicenseNum);
+        refreshPlate(newCarLicenseNum);
+    }
+
+    @Override
+    public Collection<Permit> getPermitPerCarLicense(String carLicenseNum) throws SQLException {
+        return delegate.getPermitPerCarLicense(carLicenseNum);
+    }
+
+    private void refreshPlate(String carLicenseNum) {
+        if (carLicenseNum == null) {
+            return;
+        }
+        try {
+            index.refreshPlate(carLicenseNum);
+        } catch (SQLException e) {
+            System.out.println("Active permit index not refreshed for " + carLicenseNum + ": " + e.getMessage());
+        }
+    }
+
+    private void refreshPermit(String permitID) {
+        try {
+            index.refreshPermit(permitID);
+        } catch (SQLException e) {
+            System.out.println("Active permit index not refreshed for permit " + permitID + ": " + e.getMessage());
+        }
+    }
+}
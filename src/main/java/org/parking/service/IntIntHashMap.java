@@ -0,0 +1,86 @@
+package org.parking.service;
+
+/**
+ * Open addressing hash map from int keys to non-negative int values, held in two int arrays so a million entries
+ * take a few megabytes and no boxing. Meant for joins that map an id to a row index: values are usually positions in
+ * parallel arrays kept by the caller. Entries cannot be removed.
+ */
+final class IntIntHashMap {
+    static final int MISSING = -1;
+
+    private int[] keys;
+    // Each value is stored plus one so that a zero marks an empty slot.
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) * 2;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /** get returns the value for key, or MISSING if there is none. */
+    int get(int key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int value = values[slot];
+            if (value == 0) {
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                return value - 1;
+            }
+        }
+    }
+
+    /** putIfAbsent stores value for key unless key is already present. Returns the existing value, or MISSING if value
+     * was stored.
+     */
+    int putIfAbsent(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative");
+        }
+        int slot = slot(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        // Linear probing stays short while at most half of the slots are taken.
+        if (++size > keys.length / 2) {
+            grow();
+        }
+        return MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(int key) {
+        // Fibonacci hashing spreads consecutive keys, such as citation numbers, across the table.
+        return (key * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(mask)) & mask;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
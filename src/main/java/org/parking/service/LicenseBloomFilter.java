@@ -0,0 +1,146 @@
+package org.parking.service;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the licenses in the Vehicles table, so a lookup for a plate that was never registered can be
+ * answered without a database round trip. {@link #mightContain(String)} never returns false for a license that was
+ * put, and returns true for a license that was not with roughly the configured false positive rate.
+ *
+ * Licenses are compared upper case and trimmed, since MariaDB's default collation ignores case and trailing spaces
+ * when it looks them up. A filter can't forget a license, so deleted vehicles keep answering true and still go to the
+ * database; the filter is rebuilt on the next startup. Bits are set with atomic ORs, so puts and lookups take no locks.
+ */
+public class LicenseBloomFilter {
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLongArray words;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * @param bitCount  Size of the filter in bits. Memory use is bitCount / 8 bytes.
+     * @param hashCount Number of bits set per license.
+     */
+    public LicenseBloomFilter(long bitCount, int hashCount) {
+        if (bitCount <= 0 || bitCount > (long) Integer.MAX_VALUE * Long.SIZE || hashCount <= 0) {
+            throw new IllegalArgumentException("bitCount and hashCount must be positive and bitCount must fit in an array");
+        }
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+        this.words = new AtomicLongArray((int) ((bitCount + Long.SIZE - 1) / Long.SIZE));
+    }
+
+    /**
+     * forFalsePositiveRate sizes a filter so that it answers true for an unknown license with the given probability
+     * once expectedLicenses have been put.
+     */
+    public static LicenseBloomFilter forFalsePositiveRate(long expectedLicenses, double falsePositiveRate) {
+        if (expectedLicenses <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedLicenses must be positive and falsePositiveRate between 0 and 1");
+        }
+        long bits = (long) Math.ceil(-expectedLicenses * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        return new LicenseBloomFilter(bits, optimalHashCount(bits, expectedLicenses));
+    }
+
+    /** forMemory builds a filter of maxBytes with the number of hashes that suits expectedLicenses best. */
+    public static LicenseBloomFilter forMemory(long expectedLicenses, long maxBytes) {
+        if (expectedLicenses <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("expectedLicenses and maxBytes must be positive");
+        }
+        return new LicenseBloomFilter(maxBytes * 8, optimalHashCount(maxBytes * 8, expectedLicenses));
+    }
+
+    private static int optimalHashCount(long bits, long expectedLicenses) {
+        return Math.max(1, (int) Math.round((double) bits / expectedLicenses * Math.log(2)));
+    }
+
+    /** load puts the license of every vehicle, streamed from the vehicle service. Returns the number put. */
+    public int load(VehicleService vehicleService) throws SQLException {
+        int loaded = vehicleService.forEach(vehicle -> put(vehicle.getLicense()));
+        System.out.println("Loaded " + loaded + " vehicle licenses into the license filter");
+        return loaded;
+    }
+
+    /** put adds a license. A null license is ignored. */
+    public void put(String license) {
+        if (license == null) {
+            return;
+        }
+        long hash = hash(license);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1, h2, i);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.accumulateAndGet(word, mask, (current, set) -> current | set);
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    /** mightContain returns false only if the license was never put. A null license is never contained. */
+    public boolean mightContain(String license) {
+        if (license == null) {
+            return false;
+        }
+        long hash = hash(license);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1, h2, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /** getMemoryBytes returns the size of the bit array. */
+    public long getMemoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /**
+     * getExpectedFalsePositiveRate estimates the current false positive rate from the number of puts. Licenses put
+     * more than once are counted each time, so the estimate errs high.
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions.get() / bitCount), hashCount);
+    }
+
+    // index derives the i-th bit from two halves of one 64 bit hash, which is as good as i independent hashes for a
+    // bloom filter.
+    private long index(int h1, int h2, int i) {
+        long combined = h1 + (long) i * h2;
+        return (combined & Long.MAX_VALUE) % bitCount;
+    }
+
+    // hash is FNV-1a over the normalized license followed by the MurmurHash3 finalizer to spread the bits.
+    private static long hash(String license) {
+        String normalized = license.trim().toUpperCase(Locale.ROOT);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
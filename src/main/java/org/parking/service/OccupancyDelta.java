@@ -0,0 +1,47 @@
+package org.parking.service;
+
+/**
+ * Net change to the number of free and total spaces of one type in one lot, published by the
+ * {@link OccupancyEventBus}. Several space changes in the same flush interval are combined into one delta.
+ */
+public class OccupancyDelta {
+    private final long sequence;
+    private final String lotName;
+    private final String spaceType;
+    private final int freeDelta;
+    private final int totalDelta;
+
+    public OccupancyDelta(long sequence, String lotName, String spaceType, int freeDelta, int totalDelta) {
+        this.sequence = sequence;
+        this.lotName = lotName;
+        this.spaceType = spaceType;
+        this.freeDelta = freeDelta;
+        this.totalDelta = totalDelta;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getLotName() {
+        return lotName;
+    }
+
+    public String getSpaceType() {
+        return spaceType;
+    }
+
+    public int getFreeDelta() {
+        return freeDelta;
+    }
+
+    public int getTotalDelta() {
+        return totalDelta;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + lotName + " " + spaceType + ": free " + (freeDelta >= 0 ? "+" : "") + freeDelta
+                + ", total " + (totalDelta >= 0 ? "+" : "") + totalDelta;
+    }
+}
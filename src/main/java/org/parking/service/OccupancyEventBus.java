@@ -0,0 +1,222 @@
+package org.parking.service;
+
+import org.parking.model.Space;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * In-process bus that keeps free and total space counts per lot and type, and publishes changes to them to any
+ * number of subscribers without touching the database.
+ *
+ * Space changes reported through {@link #spaceChanged(Space, Space)} are added to a pending delta per lot and type.
+ * {@link #flush()}, run every flush interval, turns each non-zero pending delta into one {@link OccupancyDelta} in a
+ * ring buffer, so a burst of arrivals at one lot costs subscribers one delta rather than one event per car.
+ *
+ * Each {@link Subscription} only holds its own cursor into the ring, so publishing costs the same however many
+ * subscribers there are. A subscriber starts from {@link Subscription#resync(String)}, which returns a lot's counts
+ * together with the cursor they correspond to, and applies each polled delta to them. One that falls more than a
+ * ring's length behind is told so by {@link Subscription#poll(Consumer)} and resyncs.
+ */
+public class OccupancyEventBus implements SpaceStatusListener {
+    static final int DEFAULT_CAPACITY = 4096;
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 250;
+
+    private final int capacity;
+    private final AtomicReferenceArray<OccupancyDelta> ring;
+    // Sequence number of the newest delta in the ring. Deltas are numbered from 1, so 0 means none yet.
+    private volatile long published = 0;
+
+    private final Map<String, int[]> pending = new HashMap<>();
+    // Free and total count per lot and type. Guarded by this bus, so counts and published always agree.
+    private final Map<String, int[]> counts = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public OccupancyEventBus() {
+        this(DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param capacity             Number of deltas the ring holds. Must be a power of two.
+     * @param flushIntervalMillis  How often pending changes are published. Zero disables the background flush so
+     *                             the caller decides when to {@link #flush()}.
+     */
+    public OccupancyEventBus(int capacity, long flushIntervalMillis) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.capacity = capacity;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        if (flushIntervalMillis > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "occupancy-bus-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * seed sets the starting counts from every space in the database. Call it once before the first change is
+     * reported. Returns the number of spaces counted.
+     */
+    public synchronized int seed(SpaceService spaceService) {
+        return spaceService.forEach(space -> {
+            int[] count = counts.computeIfAbsent(key(space.getLotName(), space.getType()), k -> new int[2]);
+            count[0] += space.getStatus() ? 1 : 0;
+            count[1]++;
+        });
+    }
+
+    @Override
+    public void spaceChanged(Space before, Space after) {
+        synchronized (pending) {
+            if (before != null) {
+                addPending(before, -1);
+            }
+            if (after != null) {
+                addPending(after, 1);
+            }
+        }
+    }
+
+    private void addPending(Space space, int sign) {
+        int[] delta = pending.computeIfAbsent(key(space.getLotName(), space.getType()), k -> new int[2]);
+        delta[0] += space.getStatus() ? sign : 0;
+        delta[1] += sign;
+    }
+
+    /**
+     * flush publishes one delta for every lot and type whose counts changed since the last flush and applies it to
+     * the counts. Returns the number of deltas published.
+     */
+    public synchronized int flush() {
+        Map<String, int[]> changes;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            changes = new HashMap<>(pending);
+            pending.clear();
+        }
+        int publishedNow = 0;
+        long sequence = published;
+        for (Map.Entry<String, int[]> change : changes.entrySet()) {
+            int[] delta = change.getValue();
+            if (delta[0] == 0 && delta[1] == 0) {
+                continue;
+            }
+            String[] lotAndType = change.getKey().split("\u0000", 2);
+            int[] count = counts.computeIfAbsent(change.getKey(), k -> new int[2]);
+            count[0] += delta[0];
+            count[1] += delta[1];
+            sequence++;
+            ring.set(index(sequence), new OccupancyDelta(sequence, lotAndType[0], lotAndType[1], delta[0], delta[1]));
+            publishedNow++;
+        }
+        // Subscribers only read up to published, so the new deltas become visible together once they are all in
+        // the ring.
+        published = sequence;
+        return publishedNow;
+    }
+
+    /** subscribe returns a subscription that receives every delta published from now on. */
+    public Subscription subscribe() {
+        return new Subscription(published);
+    }
+
+    /** getFreeCount returns the number of free spaces of the type in the lot as of the last flush. */
+    public synchronized int getFreeCount(String lotName, String spaceType) {
+        int[] count = counts.get(key(lotName, spaceType));
+        return count == null ? 0 : count[0];
+    }
+
+    /** getTotalCount returns the number of spaces of the type in the lot as of the last flush. */
+    public synchronized int getTotalCount(String lotName, String spaceType) {
+        int[] count = counts.get(key(lotName, spaceType));
+        return count == null ? 0 : count[1];
+    }
+
+    /** shutdown publishes anything still pending and stops the background flush. */
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & (capacity - 1));
+    }
+
+    private static String key(String lotName, String spaceType) {
+        return lotName + "\u0000" + spaceType;
+    }
+
+    /**
+     * One subscriber's position in the ring. A subscription is meant to be polled by one thread at a time.
+     */
+    public class Subscription {
+        private long cursor;
+
+        private Subscription(long cursor) {
+            this.cursor = cursor;
+        }
+
+        /**
+         * poll passes every delta published since the last poll to consumer, oldest first. Returns the number of
+         * deltas passed, or -1 if the subscriber fell so far behind that deltas were overwritten before it read
+         * them. In that case the caller should {@link #resync(String)} before polling again.
+         */
+        public int poll(Consumer<OccupancyDelta> consumer) {
+            long last = published;
+            if (last - cursor > capacity) {
+                return -1;
+            }
+            int delivered = 0;
+            while (cursor < last) {
+                long next = cursor + 1;
+                OccupancyDelta delta = ring.get(index(next));
+                // The flusher lapped this subscriber while it was reading.
+                if (delta == null || delta.getSequence() != next) {
+                    return -1;
+                }
+                consumer.accept(delta);
+                cursor = next;
+                delivered++;
+            }
+            return delivered;
+        }
+
+        /**
+         * resync returns the free space count for each space type in the lot and moves the cursor to the delta
+         * those counts include, so the next poll continues exactly where they leave off.
+         */
+        public Map<String, Integer> resync(String lotName) {
+            Map<String, Integer> free = new HashMap<>();
+            synchronized (OccupancyEventBus.this) {
+                cursor = published;
+                String prefix = key(lotName, "");
+                for (Map.Entry<String, int[]> count : counts.entrySet()) {
+                    if (count.getKey().startsWith(prefix)) {
+                        free.put(count.getKey().substring(prefix.length()), count.getValue()[0]);
+                    }
+                }
+            }
+            return free;
+        }
+
+        /** getLag returns how many published deltas this subscriber has not read yet. */
+        public long getLag() {
+            return published - cursor;
+        }
+    }
+}
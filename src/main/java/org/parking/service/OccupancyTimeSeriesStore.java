@@ -0,0 +1,602 @@
+package org.parking.service;
+
+import org.parking.model.Space;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only history of space status, kept on local disk for utilization reports. Every change reported through
+ * {@link #spaceChanged(Space, Space)} is recorded as a transition of one space to in use, free or removed.
+ *
+ * History is partitioned into one file per lot per day, named lotName/yyyy-MM-dd.occ under the store's directory, so
+ * a query reads only the files of the lot and days it asks about. A file holds two kinds of record:
+ * <ul>
+ *     <li>a space record, which gives the next space id in the file to a zone, number and type, and</li>
+ *     <li>a block of transitions: the count, each timestamp as a varint delta from the one before, and then each
+ *     space id and its new status packed into just as many bits as the largest id in the block needs.</li>
+ * </ul>
+ * A file starts with a snapshot of every space in the lot, so it can be read without the files of earlier days.
+ * In a lot of around 500 spaces a transition takes three to four bytes.
+ *
+ * Transitions are kept in memory and appended in one block per lot every flush interval. A block torn by a crash is
+ * cut off when the file is next opened. If a write fails, its transitions are lost, but the next file opened for the
+ * lot starts with a snapshot of the correct state.
+ */
+public class OccupancyTimeSeriesStore implements SpaceStatusListener {
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    static final String PARTITION_SUFFIX = ".occ";
+    static final int OCCUPIED = 0;
+    static final int FREE = 1;
+    static final int REMOVED = 2;
+
+    private static final byte SPACE_RECORD = 'S';
+    private static final byte BLOCK_RECORD = 'B';
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    private final Path directory;
+    private final ZoneId zone;
+    private final Clock clock;
+    private final ScheduledExecutorService flusher;
+
+    private final List<Transition> pending = new ArrayList<>();
+    private long lastPendingTimestamp = 0;
+    // Status of every space in each lot as of the last transition written, and the open file of each lot. Both are
+    // guarded by this store.
+    private final Map<String, Map<SpaceKey, Integer>> states = new HashMap<>();
+    private final Map<String, Partition> partitions = new HashMap<>();
+    private long seededAt;
+
+    public OccupancyTimeSeriesStore(Path directory) {
+        this(directory, ZoneId.systemDefault(), Clock.systemUTC(), DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param directory            Directory the lot directories are created in.
+     * @param zone                 Time zone that decides where days and hours start.
+     * @param clock                Clock transitions are timed with.
+     * @param flushIntervalMillis  How often transitions are written. Zero disables the background flush so the
+     *                             caller decides when to {@link #flush()}.
+     */
+    public OccupancyTimeSeriesStore(Path directory, ZoneId zone, Clock clock, long flushIntervalMillis) {
+        this.directory = directory;
+        this.zone = zone;
+        this.clock = clock;
+        this.seededAt = clock.millis();
+        if (flushIntervalMillis > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "occupancy-history-writer");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * seed sets the status of every space from the database. Call it once before the first change is reported.
+     * History is only known from this moment on. Returns the number of spaces read.
+     */
+    public synchronized int seed(SpaceService spaceService) {
+        states.clear();
+        seededAt = clock.millis();
+        return spaceService.forEach(space -> states.computeIfAbsent(space.getLotName(), k -> new HashMap<>())
+                .put(new SpaceKey(space), space.getStatus() ? FREE : OCCUPIED));
+    }
+
+    @Override
+    public void spaceChanged(Space before, Space after) {
+        synchronized (pending) {
+            // Transitions are written in the order they were reported, so their timestamps must never go backwards.
+            long now = Math.max(clock.millis(), lastPendingTimestamp);
+            lastPendingTimestamp = now;
+            SpaceKey beforeKey = before == null ? null : new SpaceKey(before);
+            SpaceKey afterKey = after == null ? null : new SpaceKey(after);
+            // A space that changed type or moved is removed under its old key and added under the new one.
+            boolean sameSpace = before != null && after != null && beforeKey.equals(afterKey)
+                    && before.getLotName().equals(after.getLotName());
+            if (before != null && !sameSpace) {
+                pending.add(new Transition(now, before.getLotName(), beforeKey, REMOVED));
+            }
+            if (after != null && (!sameSpace || before.getStatus() != after.getStatus())) {
+                pending.add(new Transition(now, after.getLotName(), afterKey, after.getStatus() ? FREE : OCCUPIED));
+            }
+        }
+    }
+
+    /**
+     * flush appends every transition reported so far to the lot files and opens today's file for every lot that
+     * does not have one yet. Returns the number of transitions written.
+     */
+    public synchronized int flush() {
+        List<Transition> transitions;
+        synchronized (pending) {
+            transitions = new ArrayList<>(pending);
+            pending.clear();
+        }
+        Map<String, List<Transition>> transitionsByLot = new LinkedHashMap<>();
+        for (Transition transition : transitions) {
+            transitionsByLot.computeIfAbsent(transition.lotName, k -> new ArrayList<>()).add(transition);
+        }
+        Set<String> lotNames = new LinkedHashSet<>(states.keySet());
+        lotNames.addAll(transitionsByLot.keySet());
+        long now = clock.millis();
+        int written = 0;
+        for (String lotName : lotNames) {
+            List<Transition> lotTransitions = transitionsByLot.get(lotName);
+            try {
+                written += write(lotName, lotTransitions == null ? new ArrayList<>() : lotTransitions, now);
+            } catch (IOException e) {
+                System.out.println("Error writing occupancy history for " + lotName + ": " + e.getMessage());
+                closePartition(lotName);
+            }
+        }
+        return written;
+    }
+
+    // write appends the lot's transitions to the file of the day each happened on, applying them to the lot's state
+    // as it goes so that the snapshot starting each new file is the state at the start of that day.
+    private int write(String lotName, List<Transition> transitions, long now) throws IOException {
+        Map<SpaceKey, Integer> state = states.computeIfAbsent(lotName, k -> new HashMap<>());
+        Partition partition = partitions.get(lotName);
+        for (Transition transition : transitions) {
+            LocalDate day = dayOf(transition.timestamp);
+            if (partition == null || partition.day.isBefore(day)) {
+                partition = roll(lotName, partition, day, state);
+            }
+            partition.add(transition.timestamp, transition.space, transition.code);
+            if (transition.code == REMOVED) {
+                state.remove(transition.space);
+            } else {
+                state.put(transition.space, transition.code);
+            }
+        }
+        LocalDate today = dayOf(now);
+        if (partition == null || partition.day.isBefore(today)) {
+            partition = roll(lotName, partition, today, state);
+        }
+        partition.write();
+        return transitions.size();
+    }
+
+    // roll writes out and closes the lot's current file and opens the one for day, starting it with a snapshot of
+    // the lot.
+    private Partition roll(String lotName, Partition current, LocalDate day, Map<SpaceKey, Integer> state)
+            throws IOException {
+        if (current != null) {
+            current.write();
+            current.close();
+            partitions.remove(lotName);
+        }
+        long dayStart = startOf(day);
+        Partition partition = Partition.open(partitionFile(lotName, day), day, dayStart);
+        partitions.put(lotName, partition);
+        // The lot's state is only known from when it was seeded, so a snapshot can't be dated any earlier.
+        long snapshotAt = Math.max(dayStart, seededAt);
+        for (Map.Entry<SpaceKey, Integer> space : state.entrySet()) {
+            partition.add(snapshotAt, space.getKey(), space.getValue());
+        }
+        return partition;
+    }
+
+    /**
+     * getHourlyUtilization returns the utilization of the lot for every hour from the start of from to the end of to
+     * that has history, oldest first. Only the lot's files for those days are read.
+     *
+     * @param lotName   The name of the parking lot.
+     * @param zoneID    The zone to count, or null for every zone.
+     * @param spaceType The space type to count, or null for every type.
+     * @param from      The first day.
+     * @param to        The last day.
+     */
+    public List<HourlyUtilization> getHourlyUtilization(String lotName, String zoneID, String spaceType,
+                                                        LocalDate from, LocalDate to) throws IOException {
+        flush();
+        List<HourlyUtilization> hours = new ArrayList<>();
+        long now = clock.millis();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            Path file = partitionFile(lotName, day);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            long dayStart = startOf(day);
+            long dayEnd = startOf(day.plusDays(1));
+            UtilizationReplay replay = new UtilizationReplay(zoneID, spaceType, dayStart, dayEnd);
+            read(Files.readAllBytes(file), dayStart, replay);
+            replay.advance(Math.min(dayEnd, now));
+            for (int hour = 0; hour < replay.spaceMillis.length; hour++) {
+                if (replay.spaceMillis[hour] > 0) {
+                    hours.add(new HourlyUtilization(lotName, zoneID, spaceType,
+                            LocalDateTime.ofInstant(Instant.ofEpochMilli(dayStart + hour * HOUR_MILLIS), zone),
+                            (double) replay.spaceMillis[hour] / HOUR_MILLIS,
+                            (double) replay.occupiedMillis[hour] / HOUR_MILLIS));
+                }
+            }
+        }
+        return hours;
+    }
+
+    /** shutdown stops the background flush, writes everything still pending and closes the lot files. */
+    public synchronized void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+        for (String lotName : new ArrayList<>(partitions.keySet())) {
+            closePartition(lotName);
+        }
+    }
+
+    private void closePartition(String lotName) {
+        Partition partition = partitions.remove(lotName);
+        if (partition != null) {
+            partition.close();
+        }
+    }
+
+    Path partitionFile(String lotName, LocalDate day) {
+        try {
+            return directory.resolve(URLEncoder.encode(lotName, "UTF-8")).resolve(day + PARTITION_SUFFIX);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LocalDate dayOf(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+    }
+
+    private long startOf(LocalDate day) {
+        return day.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    // read passes every complete record in a file to visitor and returns the length of the file up to the end of the
+    // last complete record. Anything after that is a record cut short by a crash.
+    private static int read(byte[] bytes, long dayStart, PartitionVisitor visitor) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int nextId = 0;
+        long timestamp = dayStart;
+        int complete = 0;
+        try {
+            while (buffer.hasRemaining()) {
+                byte kind = buffer.get();
+                if (kind == SPACE_RECORD) {
+                    int number = (int) readVarint(buffer);
+                    String zoneID = readString(buffer);
+                    String type = readString(buffer);
+                    visitor.space(nextId++, new SpaceKey(zoneID, number, type));
+                } else if (kind == BLOCK_RECORD) {
+                    int count = (int) readVarint(buffer);
+                    long[] timestamps = new long[count];
+                    for (int i = 0; i < count; i++) {
+                        timestamp += readVarint(buffer);
+                        timestamps[i] = timestamp;
+                    }
+                    int width = buffer.get();
+                    byte[] packed = new byte[(count * width + 7) / 8];
+                    buffer.get(packed);
+                    for (int i = 0; i < count; i++) {
+                        int entry = (int) readBits(packed, i * width, width);
+                        visitor.transition(timestamps[i], entry >>> 2, entry & 3);
+                    }
+                } else {
+                    break;
+                }
+                complete = buffer.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // The last record was cut short.
+        }
+        return complete;
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) readVarint(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static long readBits(byte[] packed, int offset, int width) {
+        long value = 0;
+        for (int i = 0; i < width; i++) {
+            int bit = offset + i;
+            value |= (long) ((packed[bit >>> 3] >>> (bit & 7)) & 1) << i;
+        }
+        return value;
+    }
+
+    private static void writeBits(byte[] packed, int offset, int width, long value) {
+        for (int i = 0; i < width; i++) {
+            int bit = offset + i;
+            packed[bit >>> 3] |= ((value >>> i) & 1) << (bit & 7);
+        }
+    }
+
+    private interface PartitionVisitor {
+        void space(int id, SpaceKey space);
+
+        void transition(long timestamp, int id, int code);
+    }
+
+    /**
+     * One space of a lot. A space whose type changes becomes a different key, so its history is counted under the
+     * type it had at the time.
+     */
+    private static final class SpaceKey {
+        final String zoneID;
+        final int number;
+        final String type;
+
+        SpaceKey(Space space) {
+            this(space.getZoneID(), space.getNumber(), space.getType());
+        }
+
+        SpaceKey(String zoneID, int number, String type) {
+            this.zoneID = zoneID;
+            this.number = number;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SpaceKey)) {
+                return false;
+            }
+            SpaceKey other = (SpaceKey) o;
+            return number == other.number && zoneID.equals(other.zoneID) && type.equals(other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(zoneID, number, type);
+        }
+    }
+
+    private static final class Transition {
+        final long timestamp;
+        final String lotName;
+        final SpaceKey space;
+        final int code;
+
+        Transition(long timestamp, String lotName, SpaceKey space, int code) {
+            this.timestamp = timestamp;
+            this.lotName = lotName;
+            this.space = space;
+            this.code = code;
+        }
+    }
+
+    /**
+     * The open file of one lot for one day. Space records and the block of transitions are collected in memory and
+     * appended by {@link #write()} in a single write.
+     */
+    private static final class Partition {
+        final LocalDate day;
+        final FileChannel channel;
+        final Map<SpaceKey, Integer> ids = new HashMap<>();
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        long lastTimestamp;
+        long[] deltas = new long[64];
+        int[] entries = new int[64];
+        int count = 0;
+
+        private Partition(LocalDate day, FileChannel channel, long lastTimestamp) {
+            this.day = day;
+            this.channel = channel;
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        // open opens the file for appending. An existing file is read first to learn its space ids and last
+        // timestamp, and cut back to its last complete record.
+        static Partition open(Path file, LocalDate day, long dayStart) throws IOException {
+            Files.createDirectories(file.getParent());
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                byte[] bytes = new byte[(int) channel.size()];
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Keep reading until the whole file is in the buffer.
+                }
+                Partition partition = new Partition(day, channel, dayStart);
+                long[] last = {dayStart};
+                int complete = read(bytes, dayStart, new PartitionVisitor() {
+                    public void space(int id, SpaceKey space) {
+                        partition.ids.put(space, id);
+                    }
+
+                    public void transition(long timestamp, int id, int code) {
+                        last[0] = timestamp;
+                    }
+                });
+                partition.lastTimestamp = last[0];
+                channel.truncate(complete);
+                channel.position(complete);
+                return partition;
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        void add(long timestamp, SpaceKey space, int code) {
+            Integer id = ids.get(space);
+            if (id == null) {
+                id = ids.size();
+                ids.put(space, id);
+                records.write(SPACE_RECORD);
+                writeVarint(records, space.number);
+                writeString(records, space.zoneID);
+                writeString(records, space.type);
+            }
+            timestamp = Math.max(timestamp, lastTimestamp);
+            if (count == entries.length) {
+                deltas = Arrays.copyOf(deltas, count * 2);
+                entries = Arrays.copyOf(entries, count * 2);
+            }
+            deltas[count] = timestamp - lastTimestamp;
+            entries[count] = id << 2 | code;
+            count++;
+            lastTimestamp = timestamp;
+        }
+
+        // write appends the space records and the block of transitions collected since the last write.
+        void write() throws IOException {
+            if (count > 0) {
+                int largest = 0;
+                for (int i = 0; i < count; i++) {
+                    largest = Math.max(largest, entries[i]);
+                }
+                int width = Math.max(1, 32 - Integer.numberOfLeadingZeros(largest));
+                byte[] packed = new byte[(count * width + 7) / 8];
+                for (int i = 0; i < count; i++) {
+                    writeBits(packed, i * width, width, entries[i]);
+                }
+                records.write(BLOCK_RECORD);
+                writeVarint(records, count);
+                for (int i = 0; i < count; i++) {
+                    writeVarint(records, deltas[i]);
+                }
+                records.write(width);
+                records.write(packed, 0, packed.length);
+                count = 0;
+            }
+            if (records.size() == 0) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+            records.reset();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Error closing occupancy history: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Replays one file, adding up how long the matching spaces were known and how long they were in use in each
+     * hour of the day.
+     */
+    private static final class UtilizationReplay implements PartitionVisitor {
+        final String zoneID;
+        final String spaceType;
+        final long dayStart;
+        final long[] spaceMillis;
+        final long[] occupiedMillis;
+        // Whether each space id matches the query, and its status. -1 means its status is not known yet.
+        boolean[] matches = new boolean[64];
+        int[] codes = new int[64];
+        int tracked = 0;
+        int occupied = 0;
+        long time;
+
+        UtilizationReplay(String zoneID, String spaceType, long dayStart, long dayEnd) {
+            this.zoneID = zoneID;
+            this.spaceType = spaceType;
+            this.dayStart = dayStart;
+            this.time = dayStart;
+            // A day is 23 or 25 hours long when the clocks change.
+            int hours = (int) ((dayEnd - dayStart + HOUR_MILLIS - 1) / HOUR_MILLIS);
+            this.spaceMillis = new long[hours];
+            this.occupiedMillis = new long[hours];
+        }
+
+        public void space(int id, SpaceKey space) {
+            if (id >= matches.length) {
+                matches = Arrays.copyOf(matches, id * 2);
+                int previous = codes.length;
+                codes = Arrays.copyOf(codes, id * 2);
+                Arrays.fill(codes, previous, codes.length, -1);
+            }
+            matches[id] = (zoneID == null || zoneID.equals(space.zoneID))
+                    && (spaceType == null || spaceType.equals(space.type));
+            codes[id] = -1;
+        }
+
+        public void transition(long timestamp, int id, int code) {
+            advance(timestamp);
+            if (!matches[id]) {
+                return;
+            }
+            int previous = codes[id];
+            codes[id] = code;
+            tracked += (code != REMOVED ? 1 : 0) - (previous == FREE || previous == OCCUPIED ? 1 : 0);
+            occupied += (code == OCCUPIED ? 1 : 0) - (previous == OCCUPIED ? 1 : 0);
+        }
+
+        // advance adds the time up to timestamp to the hours it falls in.
+        void advance(long timestamp) {
+            while (time < timestamp) {
+                int hour = (int) ((time - dayStart) / HOUR_MILLIS);
+                if (hour >= spaceMillis.length) {
+                    break;
+                }
+                long end = Math.min(timestamp, dayStart + (hour + 1) * HOUR_MILLIS);
+                spaceMillis[hour] += tracked * (end - time);
+                occupiedMillis[hour] += occupied * (end - time);
+                time = end;
+            }
+            time = Math.max(time, timestamp);
+        }
+    }
+}
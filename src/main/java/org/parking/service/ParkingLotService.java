@@ -12,7 +12,7 @@ public interface ParkingLotService {
     /**
      * Returns all of the parking lots that have been entered into the database.
      *
-     * @return A collection of the parking lots
+     * @return A collection of the parking lots; null if an error occurs.
      */
     public Collection<ParkingLot> getAll();
 
@@ -49,6 +49,7 @@ public class ParkingLotServiceImpl implements ParkingLotService {
             }
         } catch (SQLException e) {
             System.out.println("Error executing getAll query");
+            parkingLots = null;
         } finally {
             // If the connection is null it means we didn't allocation any db related
             // objects to close so theres nothing
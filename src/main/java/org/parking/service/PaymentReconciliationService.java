@@ -0,0 +1,19 @@
+package org.parking.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/***************************************************************************
+ * Reconciliation of bank settlement files against DUE citations. Each line
+ * of a settlement file is a payment of citationNumber,license,amount. A
+ * payment that matches a DUE citation on all three is applied and the
+ * citation becomes PAID. Every other payment is written, with the reason,
+ * to a .mismatches file next to the settlement file.
+ * -------------------------------------------------------------------------
+ * Throws SQLException if the database cannot be reached and IOException if
+ * the settlement or mismatches file cannot be used.
+ ****************************************************************************/
+public interface PaymentReconciliationService {
+    public ReconciliationResult reconcile(Path settlementFile) throws SQLException, IOException;
+}
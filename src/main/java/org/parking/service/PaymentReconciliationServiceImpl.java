@@ -0,0 +1,273 @@
+package org.parking.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reconciles a settlement file with a hash join: the payments are read once into parallel arrays indexed by an
+ * {@link IntIntHashMap} keyed on citation number, then the DUE citations between the lowest and highest number paid
+ * are read in keyset pages and each one is probed against the map. Only the payments are held in memory, about
+ * twenty bytes per line plus the license, and each page of citations is read on its own connection so no cursor is
+ * held open while payments are applied.
+ *
+ * Matching payments are applied with {@link CitationsService#payCitations(java.util.Collection)} once batchSize of
+ * them are waiting. A citation that is paid by the time its batch is applied, for example at the cashier, is reported
+ * as a mismatch rather than paid twice, so the same file can safely be reconciled again.
+ */
+public class PaymentReconciliationServiceImpl implements PaymentReconciliationService {
+    static final int DEFAULT_PAGE_SIZE = 10_000;
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    static final String MISMATCHES_SUFFIX = ".mismatches";
+    static final String DUE_PAGE_QUERY = "SELECT citationNum, licenseNum, fee FROM Citations " +
+            "WHERE paymentStatus='DUE' AND citationNum > ? AND citationNum <= ? ORDER BY citationNum LIMIT ?";
+
+    private final DBService dbService;
+    private final CitationsService citationsService;
+    private final int pageSize;
+    private final int batchSize;
+
+    public PaymentReconciliationServiceImpl(DBService dbService, CitationsService citationsService) {
+        this(dbService, citationsService, DEFAULT_PAGE_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param dbService        DBService used to read the DUE citations.
+     * @param citationsService Service the matched payments are applied through.
+     * @param pageSize         Number of DUE citations read per query.
+     * @param batchSize        Number of matched payments applied at a time.
+     */
+    public PaymentReconciliationServiceImpl(DBService dbService, CitationsService citationsService, int pageSize,
+                                            int batchSize) {
+        if (pageSize <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("pageSize and batchSize must be positive");
+        }
+        this.dbService = dbService;
+        this.citationsService = citationsService;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+    }
+
+    /** reconcile applies every payment in the file that matches a DUE citation by number, license and amount, and
+     * writes the rest to the mismatches file, which is replaced on every run. Licenses are compared ignoring case and
+     * surrounding spaces, and amounts to the cent.
+     */
+    public ReconciliationResult reconcile(Path settlementFile) throws SQLException, IOException {
+        ReconciliationResult result = new ReconciliationResult(settlementFile.getFileName().toString());
+        Payments payments = new Payments();
+        try (BufferedReader reader = Files.newBufferedReader(settlementFile, StandardCharsets.UTF_8);
+             BufferedWriter mismatches = Files.newBufferedWriter(BulkImportServiceImpl.sibling(settlementFile, MISMATCHES_SUFFIX),
+                     StandardCharsets.UTF_8)) {
+            readPayments(reader, payments, result, mismatches);
+            if (payments.count > 0) {
+                joinDueCitations(payments);
+            }
+            for (int i = 0; i < payments.count; i++) {
+                String problem = payments.problems.get(i);
+                if (problem == null && !payments.matched.get(i)) {
+                    problem = "no DUE citation with this number";
+                }
+                if (problem == null) {
+                    result.addPaid();
+                } else {
+                    mismatch(mismatches, result, payments.lines[i], payments.describe(i) + ": " + problem);
+                }
+            }
+        }
+        System.out.println(result);
+        return result;
+    }
+
+    // readPayments builds the join's hash table from the file. A first line that does not parse is taken as a header.
+    private void readPayments(BufferedReader reader, Payments payments, ReconciliationResult result,
+                              BufferedWriter mismatches) throws IOException {
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            int number;
+            int cents;
+            try {
+                if (fields.length != 3) {
+                    throw new NumberFormatException();
+                }
+                number = Integer.parseInt(fields[0].trim());
+                if (number <= 0) {
+                    throw new NumberFormatException();
+                }
+                cents = toCents(fields[2].trim());
+            } catch (NumberFormatException | ArithmeticException e) {
+                if (lineNumber > 1) {
+                    result.addPayment();
+                    mismatch(mismatches, result, lineNumber, line + ": expected citationNumber,license,amount");
+                }
+                continue;
+            }
+            result.addPayment();
+            int first = payments.add(number, fields[1].trim(), cents, lineNumber);
+            if (first != IntIntHashMap.MISSING) {
+                mismatch(mismatches, result, lineNumber, line + ": duplicate of the payment on line " + payments.lines[first]);
+            }
+        }
+    }
+
+    // toCents reads an amount such as 40 or 40.00. More than two decimal places throws an ArithmeticException.
+    static int toCents(String amount) {
+        int cents = new BigDecimal(amount).movePointRight(2).intValueExact();
+        if (cents <= 0) {
+            throw new NumberFormatException("amount must be positive");
+        }
+        return cents;
+    }
+
+    // joinDueCitations probes every DUE citation in the range of the payments against them and applies the matches.
+    private void joinDueCitations(Payments payments) throws SQLException {
+        List<Integer> toPay = new ArrayList<>(batchSize);
+        int afterNumber = payments.minNumber - 1;
+        while (afterNumber < payments.maxNumber) {
+            int lastNumber = joinDuePage(afterNumber, payments, toPay);
+            if (lastNumber == afterNumber) {
+                break;
+            }
+            afterNumber = lastNumber;
+            if (toPay.size() >= batchSize) {
+                pay(payments, toPay);
+            }
+        }
+        if (!toPay.isEmpty()) {
+            pay(payments, toPay);
+        }
+    }
+
+    /***************************************************************************
+     * Read one page of DUE citations numbered after afterNumber and match each
+     * against the payments. Matching citation numbers are added to toPay.
+     * Returns the number of the last citation read, or afterNumber if there
+     * were none.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT citationNum, licenseNum, fee FROM Citations WHERE
+     * paymentStatus='DUE' AND citationNum > ? AND citationNum <= ? ORDER BY
+     * citationNum LIMIT ?"
+     ****************************************************************************/
+    private int joinDuePage(int afterNumber, Payments payments, List<Integer> toPay) throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        int lastNumber = afterNumber;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement(DUE_PAGE_QUERY);
+            pstate.setInt(1, afterNumber);
+            pstate.setInt(2, payments.maxNumber);
+            pstate.setInt(3, pageSize);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                lastNumber = results.getInt("citationNum");
+                int payment = payments.index.get(lastNumber);
+                if (payment == IntIntHashMap.MISSING) {
+                    continue;
+                }
+                payments.matched.set(payment);
+                String license = results.getString("licenseNum");
+                int fee = (int) Math.round(results.getDouble("fee") * 100);
+                if (license == null || !license.trim().equalsIgnoreCase(payments.licenses[payment])) {
+                    payments.problems.put(payment, "license does not match citation (" + license + ")");
+                } else if (fee != payments.cents[payment]) {
+                    payments.problems.put(payment, "amount does not match fee (" + formatCents(fee) + ")");
+                } else {
+                    toPay.add(lastNumber);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error reading DUE citations after " + afterNumber);
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        return lastNumber;
+    }
+
+    private void pay(Payments payments, List<Integer> toPay) throws SQLException {
+        Map<Integer, Boolean> outcomes = citationsService.payCitations(toPay);
+        for (Integer number : toPay) {
+            if (!Boolean.TRUE.equals(outcomes.get(number))) {
+                payments.problems.put(payments.index.get(number), "citation was no longer DUE when the payment was applied");
+            }
+        }
+        toPay.clear();
+    }
+
+    private static void mismatch(BufferedWriter mismatches, ReconciliationResult result, int lineNumber, String problem)
+            throws IOException {
+        result.addMismatched();
+        mismatches.write("line " + lineNumber + ": " + problem);
+        mismatches.newLine();
+    }
+
+    private static String formatCents(int cents) {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+
+    // Payments is the build side of the join: the first payment for each citation number, in file order, in parallel
+    // arrays. Problems are kept by position for the few payments that have one.
+    private static final class Payments {
+        private final IntIntHashMap index = new IntIntHashMap(1024);
+        private final BitSet matched = new BitSet();
+        private final Map<Integer, String> problems = new HashMap<>();
+        private int[] numbers = new int[1024];
+        private String[] licenses = new String[1024];
+        private int[] cents = new int[1024];
+        private int[] lines = new int[1024];
+        private int count = 0;
+        private int minNumber = Integer.MAX_VALUE;
+        private int maxNumber = Integer.MIN_VALUE;
+
+        // add returns the position of an earlier payment for the same citation, which is kept instead, or MISSING.
+        private int add(int number, String license, int amount, int lineNumber) {
+            int first = index.putIfAbsent(number, count);
+            if (first != IntIntHashMap.MISSING) {
+                return first;
+            }
+            if (count == numbers.length) {
+                numbers = Arrays.copyOf(numbers, count * 2);
+                licenses = Arrays.copyOf(licenses, count * 2);
+                cents = Arrays.copyOf(cents, count * 2);
+                lines = Arrays.copyOf(lines, count * 2);
+            }
+            numbers[count] = number;
+            licenses[count] = license;
+            cents[count] = amount;
+            lines[count] = lineNumber;
+            count++;
+            minNumber = Math.min(minNumber, number);
+            maxNumber = Math.max(maxNumber, number);
+            return IntIntHashMap.MISSING;
+        }
+
+        private String describe(int payment) {
+            return numbers[payment] + "," + licenses[payment] + "," + formatCents(cents[payment]);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.parking.service;
+
+/**
+ * Notified by {@link PermitExpiryScheduler} after a permit has been marked expired in the database.
+ */
+public interface PermitExpiryListener {
+    /**
+     * Called once per expired permit row, on the scheduler's thread. Listeners must return quickly and must not
+     * throw; an exception is logged and otherwise ignored.
+     *
+     * @param permitID     The permit that expired.
+     * @param associatedID The driver the permit belongs to.
+     */
+    void permitExpired(String permitID, String associatedID);
+}
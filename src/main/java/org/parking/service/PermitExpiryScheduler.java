@@ -0,0 +1,262 @@
+package org.parking.service;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks permits expired at their expirationDate and expirationTime, so quota checks and reports can filter on
+ * Permits.expired instead of comparing dates across the whole table.
+ *
+ * Every reload interval the scheduler reads the permits that are not expired yet and lapse within the horizon, using
+ * the PermitsByExpiry index. It keeps them in a {@link HierarchicalTimingWheel} with one second ticks. Permits that
+ * are already scheduled with the same deadline are left alone; a permit that has moved is rescheduled, and one that is
+ * gone is cancelled. Every tick, the permits that have come due are marked expired in batched updates. Listeners are
+ * then told about each one.
+ *
+ * Permits that lapsed while the application was down are returned by the first reload and expired on the first tick.
+ */
+public class PermitExpiryScheduler {
+    static final long TICK_MILLIS = 1000;
+    static final long DEFAULT_RELOAD_INTERVAL_MILLIS = 60 * 1000;
+    static final int HORIZON_DAYS = 1;
+    static final int BATCH_SIZE = 500;
+    static final String UPCOMING_QUERY = "SELECT id, permitID, associatedID, expirationDate, expirationTime " +
+            "FROM Permits WHERE expired = FALSE AND expirationDate <= ?";
+    static final String EXPIRE_UPDATE = "UPDATE Permits SET expired = TRUE WHERE id = ? AND expired = FALSE";
+
+    private final DBService dbService;
+    private final ZoneId zone;
+    private final Clock clock;
+    private final List<PermitExpiryListener> listeners;
+    // Six bits and four levels give 64^4 seconds, about 194 days, before a deadline waits in the overflow list.
+    private final HierarchicalTimingWheel<ScheduledPermit> wheel;
+    // The timer of every scheduled permit, by Permits.id. Guarded by this scheduler, as is the wheel.
+    private final Map<Integer, HierarchicalTimingWheel.Timer<ScheduledPermit>> timers = new HashMap<>();
+    private final ScheduledExecutorService executor;
+
+    public PermitExpiryScheduler(DBService dbService, PermitExpiryListener... listeners) {
+        this(dbService, ZoneId.systemDefault(), Clock.systemUTC(), DEFAULT_RELOAD_INTERVAL_MILLIS, listeners);
+    }
+
+    /**
+     * @param dbService            DBService used to obtain connections.
+     * @param zone                 Time zone of the expiration dates and times.
+     * @param clock                Clock deciding when a permit has lapsed.
+     * @param reloadIntervalMillis How often upcoming expirations are reloaded. Zero starts no background thread, so the
+     *                             caller runs {@link #reload()} and {@link #expireDue()} itself.
+     * @param listeners            Told about each permit after it is marked expired.
+     */
+    public PermitExpiryScheduler(DBService dbService, ZoneId zone, Clock clock, long reloadIntervalMillis,
+                                 PermitExpiryListener... listeners) {
+        this.dbService = dbService;
+        this.zone = zone;
+        this.clock = clock;
+        this.listeners = Arrays.asList(listeners);
+        this.wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 6, 4, clock.millis());
+        if (reloadIntervalMillis > 0) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "permit-expiry-scheduler");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.scheduleWithFixedDelay(this::runReload, 0, reloadIntervalMillis, TimeUnit.MILLISECONDS);
+            executor.scheduleAtFixedRate(this::runExpireDue, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /***************************************************************************
+     * Read every permit that is not expired and lapses by the end of the
+     * horizon, and bring the timing wheel in line with it. Returns the number
+     * of permits newly scheduled or rescheduled.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT id, permitID, associatedID, expirationDate,
+     * expirationTime FROM Permits WHERE expired = FALSE AND expirationDate <= ?"
+     ****************************************************************************/
+    public synchronized int reload() throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        int scheduled = 0;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement(UPCOMING_QUERY);
+            LocalDate today = LocalDate.now(clock.withZone(zone));
+            pstate.setDate(1, Date.valueOf(today.plusDays(HORIZON_DAYS)));
+            results = pstate.executeQuery();
+            Set<Integer> seen = new HashSet<>();
+            while (results.next()) {
+                ScheduledPermit permit = new ScheduledPermit(results.getInt("id"), results.getString("permitID"),
+                        results.getString("associatedID"), results.getDate("expirationDate").toLocalDate()
+                        .atTime(results.getTime("expirationTime").toLocalTime()).atZone(zone).toInstant().toEpochMilli());
+                seen.add(permit.id);
+                HierarchicalTimingWheel.Timer<ScheduledPermit> timer = timers.get(permit.id);
+                if (timer != null) {
+                    if (timer.getItem().deadline == permit.deadline) {
+                        continue;
+                    }
+                    wheel.cancel(timer);
+                }
+                timers.put(permit.id, wheel.schedule(permit.deadline, permit));
+                scheduled++;
+            }
+            // A scheduled permit that is no longer returned was deleted, extended past the horizon or expired by
+            // someone else.
+            Iterator<Map.Entry<Integer, HierarchicalTimingWheel.Timer<ScheduledPermit>>> entries = timers.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Integer, HierarchicalTimingWheel.Timer<ScheduledPermit>> entry = entries.next();
+                if (!seen.contains(entry.getKey())) {
+                    wheel.cancel(entry.getValue());
+                    entries.remove();
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error loading permit expirations");
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        return scheduled;
+    }
+
+    /***************************************************************************
+     * Advance the timing wheel to now and mark every permit that has come due
+     * expired, BATCH_SIZE rows per batch and transaction. Listeners are told
+     * about each permit once its batch has committed. If a batch fails, its
+     * permits are dropped from the wheel and picked up again by the next
+     * reload. Returns the number of permits marked expired.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "UPDATE Permits SET expired = TRUE WHERE id = ? AND
+     * expired = FALSE"
+     ****************************************************************************/
+    public synchronized int expireDue() throws SQLException {
+        List<ScheduledPermit> due = wheel.advance(clock.millis());
+        if (due.isEmpty()) {
+            return 0;
+        }
+        for (ScheduledPermit permit : due) {
+            timers.remove(permit.id);
+        }
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        int expired = 0;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            pstate = conn.prepareStatement(EXPIRE_UPDATE);
+            for (int start = 0; start < due.size(); start += BATCH_SIZE) {
+                List<ScheduledPermit> batch = due.subList(start, Math.min(due.size(), start + BATCH_SIZE));
+                for (ScheduledPermit permit : batch) {
+                    pstate.setInt(1, permit.id);
+                    pstate.addBatch();
+                }
+                int[] counts = pstate.executeBatch();
+                conn.commit();
+                for (int i = 0; i < batch.size(); i++) {
+                    // A permit someone else already marked expired updates no rows and is not reported again.
+                    if (counts[i] != 0) {
+                        notifyListeners(batch.get(i));
+                        expired++;
+                    }
+                }
+            }
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+            System.out.println("Permit expiry batch is being rolled back");
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException rollbackEx) {
+                System.out.println("Error: " + rollbackEx.getMessage());
+            }
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, null);
+            }
+        }
+        if (expired > 0) {
+            System.out.println("Marked " + expired + " permit(s) expired");
+        }
+        return expired;
+    }
+
+    /** getScheduledCount returns the number of permits waiting in the timing wheel. */
+    public synchronized int getScheduledCount() {
+        return wheel.size();
+    }
+
+    /** shutdown stops the background thread. Permits still scheduled are picked up again on the next start. */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void notifyListeners(ScheduledPermit permit) {
+        for (PermitExpiryListener listener : listeners) {
+            try {
+                listener.permitExpired(permit.permitID, permit.associatedID);
+            } catch (RuntimeException e) {
+                System.out.println("Permit expiry listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // The background tasks log failures instead of throwing, since an exception would cancel every later run.
+    private void runReload() {
+        try {
+            reload();
+        } catch (SQLException e) {
+            System.out.println("Permit expirations will be reloaded on the next run: " + e.getMessage());
+        }
+    }
+
+    private void runExpireDue() {
+        try {
+            expireDue();
+        } catch (SQLException e) {
+            System.out.println("Permits that were due will be retried after the next reload: " + e.getMessage());
+        }
+    }
+
+    private static final class ScheduledPermit {
+        final int id;
+        final String permitID;
+        final String associatedID;
+        final long deadline;
+
+        ScheduledPermit(int id, String permitID, String associatedID, long deadline) {
+            this.id = id;
+            this.permitID = permitID;
+            this.associatedID = associatedID;
+            this.deadline = deadline;
+        }
+    }
+}
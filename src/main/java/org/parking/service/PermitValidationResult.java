@@ -0,0 +1,48 @@
+package org.parking.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * The outcome of validating a vehicle's permits for a lot and time. It records whether the vehicle exists in the
+ * Vehicles table, whether any one of its permits covers the sighting and every violation found across the vehicle's
+ * permits.
+ */
+public class PermitValidationResult {
+    private final boolean vehicleRegistered;
+    private final boolean permitted;
+    private final Collection<PermitViolation> violations;
+
+    public PermitValidationResult(boolean vehicleRegistered, Collection<PermitViolation> violations) {
+        this(vehicleRegistered, false, violations);
+    }
+
+    /**
+     * @param vehicleRegistered Whether the vehicle exists in the Vehicles table.
+     * @param permitted         Whether at least one of the vehicle's permits has no violation for the sighting.
+     * @param violations        Every violation found across the vehicle's permits.
+     */
+    public PermitValidationResult(boolean vehicleRegistered, boolean permitted, Collection<PermitViolation> violations) {
+        this.vehicleRegistered = vehicleRegistered;
+        this.permitted = permitted;
+        this.violations = Collections.unmodifiableCollection(new ArrayList<>(violations));
+    }
+
+    public boolean isVehicleRegistered() {
+        return vehicleRegistered;
+    }
+
+    /** isPermitted returns true if one of the vehicle's permits covers the sighting, even if others are violated. */
+    public boolean isPermitted() {
+        return permitted;
+    }
+
+    public Collection<PermitViolation> getViolations() {
+        return violations;
+    }
+
+    public boolean hasViolations() {
+        return !violations.isEmpty();
+    }
+}
@@ -0,0 +1,24 @@
+package org.parking.service;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+
+/**
+ * Checks a vehicle's permits against the lot and time of a sighting.
+ */
+public interface PermitValidationService {
+    /**
+     * Looks up the vehicle, its permits and the lots of each permit's zone and reports every violation.
+     *
+     * @param license   The license of the vehicle that was seen.
+     * @param lotName   The parking lot the vehicle was seen in.
+     * @param date      The date of the sighting.
+     * @param time      The time of the sighting.
+     * @param spaceType The type of space the vehicle was parked in, or null to skip the space type check.
+     * @return Whether the vehicle is registered and the violations found. A vehicle without permits has no
+     *         violations.
+     * @throws SQLException If the lookup fails.
+     */
+    PermitValidationResult validate(String license, String lotName, Date date, Time time, String spaceType) throws SQLException;
+}
@@ -0,0 +1,121 @@
+package org.parking.service;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates permits with a single query that joins a vehicle to its permits and to the lots of each permit's
+ * zone, instead of looking up the vehicle, its permits and every zone separately.
+ */
+public class PermitValidationServiceImpl implements PermitValidationService {
+    static final String VALIDATION_QUERY = "SELECT Vehicles.carLicenseNumber, Permits.permitID, Permits.spaceType, " +
+            "Permits.expirationDate, Permits.expirationTime, Zones.lotName " +
+            "FROM Vehicles " +
+            "LEFT JOIN Permits ON Permits.carLicenseNum = Vehicles.carLicenseNumber " +
+            "LEFT JOIN Zones ON Zones.id = Permits.zoneID " +
+            "WHERE Vehicles.carLicenseNumber = ?";
+
+    private final DBService dbService;
+
+    public PermitValidationServiceImpl(DBService dbService) {
+        this.dbService = dbService;
+    }
+
+    /** validate will run the joined permit query for the license and check each permit for expiry, lot and space
+     * type. A permit is only reported for the wrong lot if none of its zone's lots match the lot of the sighting.
+     * If any SQLExceptions are encountered then it will throw a SQLException.
+     */
+    @Override
+    public PermitValidationResult validate(String license, String lotName, Date date, Time time, String spaceType) throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        boolean vehicleRegistered = false;
+        Map<String, PermitRow> permits = new LinkedHashMap<>();
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement(VALIDATION_QUERY);
+            pstate.setString(1, license);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                vehicleRegistered = true;
+                String permitID = results.getString("permitID");
+                if (permitID == null) {
+                    continue;
+                }
+                PermitRow permit = permits.get(permitID);
+                if (permit == null) {
+                    permit = new PermitRow(permitID, results.getString("spaceType"),
+                            results.getDate("expirationDate"), results.getTime("expirationTime"));
+                    permits.put(permitID, permit);
+                }
+                String zoneLotName = results.getString("lotName");
+                if (zoneLotName != null) {
+                    permit.lotNames.add(zoneLotName);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error executing permit validation query");
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+
+        Collection<PermitViolation> violations = new ArrayList<>();
+        boolean permitted = false;
+        for (PermitRow permit : permits.values()) {
+            int found = violations.size();
+            permit.check(lotName, date, time, spaceType, violations);
+            permitted |= violations.size() == found;
+        }
+        return new PermitValidationResult(vehicleRegistered, permitted, violations);
+    }
+
+    private static final class PermitRow {
+        private final String permitID;
+        private final String spaceType;
+        private final Date expirationDate;
+        private final Time expirationTime;
+        private final List<String> lotNames = new ArrayList<>();
+
+        private PermitRow(String permitID, String spaceType, Date expirationDate, Time expirationTime) {
+            this.permitID = permitID;
+            this.spaceType = spaceType;
+            this.expirationDate = expirationDate;
+            this.expirationTime = expirationTime;
+        }
+
+        private void check(String lotName, Date date, Time time, String seenSpaceType, Collection<PermitViolation> violations) {
+            // The permit is expired if the sighting is on a later day, or on the expiration day after the expiration time.
+            if (date.after(expirationDate) || (date.compareTo(expirationDate) == 0 && time.after(expirationTime))) {
+                violations.add(new PermitViolation(PermitViolation.Type.EXPIRED, permitID,
+                        "This vehicle's permit " + permitID + " is expired."));
+            }
+            if (!lotNames.isEmpty() && !lotNames.contains(lotName)) {
+                for (String permitLotName : lotNames) {
+                    violations.add(new PermitViolation(PermitViolation.Type.WRONG_LOT, permitID,
+                            "This vehicle's permit " + permitID + " is for Lot Name " + permitLotName
+                                    + " but this vehicles citation is for Lot Name " + lotName + "."));
+                }
+            }
+            if (seenSpaceType != null && spaceType != null && !seenSpaceType.equalsIgnoreCase(spaceType)) {
+                violations.add(new PermitViolation(PermitViolation.Type.WRONG_SPACE_TYPE, permitID,
+                        "This vehicle's permit " + permitID + " is for " + spaceType
+                                + " spaces but this vehicle is parked in a " + seenSpaceType + " space."));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.parking.service;
+
+/**
+ * A single problem found by the {@link PermitValidationService} with a vehicle's permit.
+ */
+public class PermitViolation {
+    public enum Type {
+        EXPIRED,
+        WRONG_LOT,
+        WRONG_SPACE_TYPE
+    }
+
+    private final Type type;
+    private final String permitID;
+    private final String message;
+
+    public PermitViolation(Type type, String permitID, String message) {
+        this.type = type;
+        this.permitID = permitID;
+        this.message = message;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPermitID() {
+        return permitID;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "VIOLATION DETECTED: " + message;
+    }
+}
@@ -7,16 +7,80 @@ import org.parking.model.Driver;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
-
-
-public class PermitsServiceImpl implements PermitsService {
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Permit quotas are enforced where permits and vehicles are written: assignPermitToDriver, addVehicleToPermit and
+ * addVehicleToPermitForEmployee lock the driver's row, count what the driver already has and write in one
+ * transaction, so two clerks serving the same driver can't both squeeze under the limit. The menus still check the
+ * counts first to give early feedback, and getPermitsNumberForDriver answers that check from a per-driver cache.
+ * The cache is only a hint; the locked count inside the transaction is what rejects a write.
+ */
+public class PermitsServiceImpl implements PermitsService, PermitExpiryListener {
+
+    static final String INSERT_PERMIT_SQL = "INSERT INTO Permits (permitID, permitType, zoneID, associatedID, carLicenseNum, spaceType, startDate, expirationDate, expirationTime) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // expired is worked out from the new expiration, so extending a lapsed permit makes it active again and moving the
+    // expiration into the past expires it straight away.
+    static final String UPDATE_PERMIT_SQL = "UPDATE Permits " +
+            "SET permitType = ?, zoneID = ?, spaceType = ?, startDate = ?, expirationDate = ?, expirationTime = ?, " +
+            "expired = (TIMESTAMP(?, ?) <= NOW()) " +
+            "WHERE permitID = ?";
+    // Locks the driver's row and reads everything the permit quota depends on in the same round trip.
+    static final String DRIVER_QUOTA_QUERY = "SELECT status, " +
+            "(SELECT COUNT(DISTINCT permitID) FROM Permits WHERE associatedID = Drivers.id AND expired = FALSE) AS permitCount, " +
+            "EXISTS (SELECT 1 FROM Permits WHERE permitID = ?) AS permitExists " +
+            "FROM Drivers WHERE id = ? FOR UPDATE";
+    // Locks the row of the driver who owns the permit, the same lock DRIVER_QUOTA_QUERY takes, and counts the permit's
+    // vehicles.
+    static final String PERMIT_VEHICLE_QUOTA_QUERY = "SELECT status, " +
+            "(SELECT COUNT(carLicenseNum) FROM Permits WHERE permitID = ?) AS vehicleCount " +
+            "FROM Drivers WHERE id = (SELECT associatedID FROM Permits WHERE permitID = ? LIMIT 1) FOR UPDATE";
 
     private final DBService dbService;
+    // Unexpired permit count per driver, as last read or written by this service.
+    private final ConcurrentHashMap<String, Integer> permitCounts = new ConcurrentHashMap<>();
 
     public PermitsServiceImpl(DBService dbService) {
         this.dbService = dbService;
     }
 
+    /**
+     * maxPermits returns how many unexpired permits a driver of the given status may hold: 3 for employees, 2 for
+     * students and 1 for visitors.
+     */
+    static int maxPermits(String status) {
+        if ("E".equals(status)) {
+            return 3;
+        }
+        if ("S".equals(status)) {
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * maxVehicles returns how many vehicles a permit of a driver with the given status may cover: 2 for employees and
+     * 1 for everyone else.
+     */
+    static int maxVehicles(String status) {
+        return "E".equals(status) ? 2 : 1;
+    }
+
+    // checkPermitQuota throws if a driver holding permitCount permits may not be given another of permitType. An
+    // employee's or student's last permit must be a special event or park & ride permit.
+    private static void checkPermitQuota(String status, int permitCount, String permitType) throws SQLException {
+        int max = maxPermits(status);
+        if (permitCount >= max) {
+            throw new SQLException("The driver has maximum number of permit");
+        }
+        boolean lastPermit = permitCount == max - 1 && ("E".equals(status) || "S".equals(status));
+        if (lastPermit && !"special event".equalsIgnoreCase(permitType) && !"park & ride".equalsIgnoreCase(permitType)) {
+            throw new SQLException("The driver's last permit can only be 'Special event' or 'Park & Ride'");
+        }
+    }
+
     /**
      * Retrieves detailed information for a specific permit based on the permit ID.
      * Return an empty collection if there is no permit associated with the permitID.
@@ -70,21 +134,10 @@ public class PermitsServiceImpl implements PermitsService {
         PreparedStatement state = null;
         try {
             conn = dbService.connectAndReturnConnection();
-            String sql = "INSERT INTO Permits (permitID, permitType, zoneID, associatedID, carLicenseNum, spaceType, startDate, expirationDate, expirationTime) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-            state = conn.prepareStatement(sql);
-            state.setString(1, permit.getPermitID());
-            state.setString(2, permit.getPermitType());
-            state.setString(3, permit.getZoneID());
-            state.setString(4, permit.getAssociatedID());
-            state.setString(5, permit.getCarLicenseNum());
-            state.setString(6, permit.getSpaceType());
-            state.setDate(7, permit.getStartDate());
-            state.setDate(8, permit.getExpirationDate());
-            state.setTime(9, permit.getExpirationTime());
+            state = prepareInsert(conn, permit);
 
             int id = state.executeUpdate();
+            permitCounts.remove(permit.getAssociatedID());
             if(id > 0) {
                System.out.println("Successfully created a new permit: " + permit );
             }
@@ -101,6 +154,20 @@ public class PermitsServiceImpl implements PermitsService {
         }
     }
 
+    private static PreparedStatement prepareInsert(Connection conn, Permit permit) throws SQLException {
+        PreparedStatement state = conn.prepareStatement(INSERT_PERMIT_SQL);
+        state.setString(1, permit.getPermitID());
+        state.setString(2, permit.getPermitType());
+        state.setString(3, permit.getZoneID());
+        state.setString(4, permit.getAssociatedID());
+        state.setString(5, permit.getCarLicenseNum());
+        state.setString(6, permit.getSpaceType());
+        state.setDate(7, permit.getStartDate());
+        state.setDate(8, permit.getExpirationDate());
+        state.setTime(9, permit.getExpirationTime());
+        return state;
+    }
+
     /**
      * Updates existing permit information identified by the permit ID.
      * permitID, associatedID, and carLicenseNum are not allowed to be updated.
@@ -112,22 +179,21 @@ public class PermitsServiceImpl implements PermitsService {
         PreparedStatement state = null;
         try {
             conn = dbService.connectAndReturnConnection();
-            String sql = "UPDATE Permits " +
-                    "SET permitType = ?, zoneID = ?," +
-                    "spaceType = ?, startDate = ?, expirationDate = ?, expirationTime = ? " +
-                    "WHERE permitID = ?";
-
-            state = conn.prepareStatement(sql);
+            state = conn.prepareStatement(UPDATE_PERMIT_SQL);
             state.setString(1, permitType);
             state.setString(2, zoneID);
             state.setString(3, spaceType);
             state.setDate(4, startDate);
             state.setDate(5, expirationDate);
             state.setTime(6, expirationTime);
-            state.setString(7, permitID);
+            state.setDate(7, expirationDate);
+            state.setTime(8, expirationTime);
+            state.setString(9, permitID);
 
             // Set the values for the prepared statement
             int rowsUpdated = state.executeUpdate();
+            // The permit's driver isn't known here, and a changed expiration can change its count.
+            permitCounts.clear();
             if(rowsUpdated > 0) {
                 System.out.println("Permit with id of " + permitID +  " is updated");
             }
@@ -163,6 +229,7 @@ public class PermitsServiceImpl implements PermitsService {
             state.setString(1, permitID);
 
             id = state.executeUpdate();
+            permitCounts.clear();
             if(id > 0) {
                 System.out.println("The permit with id of " + permitID + " is successfully deleted.");
             }
@@ -181,10 +248,16 @@ public class PermitsServiceImpl implements PermitsService {
     }
 
     /**
-     * Retrieves the number of permits associated with a specific driver, identified by their associated ID.
+     * Retrieves the number of unexpired permits associated with a specific driver, identified by their associated ID.
+     * Expired permits no longer count toward the driver's quota. The count is served from memory once read, and is kept
+     * current by this service's own writes and by permit expiry.
      */
     @Override
     public int getPermitsNumberForDriver(String associatedID) throws SQLException {
+        Integer cached = permitCounts.get(associatedID);
+        if (cached != null) {
+            return cached;
+        }
         int permitsNumber = 0;
         Connection conn = null;
         PreparedStatement state = null;
@@ -192,7 +265,7 @@ public class PermitsServiceImpl implements PermitsService {
 
         try {
             conn = dbService.connectAndReturnConnection();
-            String sql = "SELECT COUNT(DISTINCT permitID) AS permitCount FROM Permits WHERE associatedID = ?";
+            String sql = "SELECT COUNT(DISTINCT permitID) AS permitCount FROM Permits WHERE associatedID = ? AND expired = FALSE";
             state = conn.prepareStatement(sql);
             state.setString(1, associatedID);
 
@@ -201,6 +274,7 @@ public class PermitsServiceImpl implements PermitsService {
             if (result.next()) {
                 permitsNumber = result.getInt("permitCount"); // Get the count from the first column
             }
+            permitCounts.put(associatedID, permitsNumber);
         } catch (SQLException e) {
             System.out.println("Error executing getPermitsNumber");
             throw e;
@@ -214,6 +288,9 @@ public class PermitsServiceImpl implements PermitsService {
 
     /**
      * Assigns a permit to a driver and vehicle with the specified details.
+     * The driver's row is locked while the quota is checked and the permit inserted, so concurrent assignments for
+     * the same driver are applied one at a time. Throws an SQLException, and writes nothing, if the driver does not
+     * exist, the permit ID is taken or the driver's quota does not allow the permit.
      */
     @Override
     public void assignPermitToDriver(String permitID, String permitType, String zoneID, String spaceType,
@@ -225,7 +302,56 @@ public class PermitsServiceImpl implements PermitsService {
             carLicenseNum = vehicle.getLicense();
         }
         Permit newPermit = new Permit(permitID, permitType, zoneID, associatedID, carLicenseNum, spaceType, startDate, expirationDate, expirationTime);
-        this.enterPermitInfo(newPermit);
+        Connection conn = null;
+        PreparedStatement state = null;
+        ResultSet result = null;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            state = conn.prepareStatement(DRIVER_QUOTA_QUERY);
+            state.setString(1, permitID);
+            state.setString(2, associatedID);
+            result = state.executeQuery();
+            if (!result.next()) {
+                throw new SQLException("Driver " + associatedID + " does not exist");
+            }
+            if (result.getBoolean("permitExists")) {
+                throw new SQLException("This permit already exists");
+            }
+            int permitCount = result.getInt("permitCount");
+            checkPermitQuota(result.getString("status"), permitCount, permitType);
+            dbService.close(null, state, result);
+            state = null;
+            result = null;
+
+            state = prepareInsert(conn, newPermit);
+            state.executeUpdate();
+            conn.commit();
+            conn.setAutoCommit(true);
+            permitCounts.put(associatedID, permitCount + 1);
+            System.out.println("Successfully created a new permit: " + newPermit);
+        } catch (SQLException e) {
+            System.out.println("Error executing assign permit to driver");
+            rollback(conn);
+            throw e;
+        } finally {
+            if (conn != null) {
+                dbService.close(conn, state, result);
+            }
+        }
+    }
+
+    private static void rollback(Connection conn) throws SQLException {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        } catch (SQLException rollbackEx) {
+            System.out.println("Error: " + rollbackEx.getMessage());
+            throw rollbackEx;
+        }
     }
 
     /**
@@ -319,6 +445,8 @@ public class PermitsServiceImpl implements PermitsService {
 
     /**
      * Adds a vehicle to a permit using the vehicle's new license number and the permit ID.
+     * The vehicle fills the permit's empty row. Throws an SQLException, and writes nothing, if the permit does not
+     * exist or already covers as many vehicles as its driver may have.
      */
     @Override
     public void addVehicleToPermit(String permitID, String newCarLicenseNum) throws SQLException {
@@ -326,12 +454,16 @@ public class PermitsServiceImpl implements PermitsService {
         PreparedStatement state = null;
         try{
             conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            checkVehicleQuota(conn, permitID);
             String sql = "UPDATE Permits SET carLicenseNum = ? WHERE permitID = ? AND carLicenseNum IS NULL";
             state = conn.prepareStatement(sql);
             state.setString(1, newCarLicenseNum);
             state.setString(2, permitID);
 
             int id = state.executeUpdate();
+            conn.commit();
+            conn.setAutoCommit(true);
 
             if(id > 0) {
                 System.out.println("The vehicle of " + newCarLicenseNum + " is added to the permit of " + permitID);
@@ -341,6 +473,7 @@ public class PermitsServiceImpl implements PermitsService {
             }
         } catch (SQLException e) {
             System.out.println("Error executing adding a vehicle from a permit ");
+            rollback(conn);
             throw e;
         } finally {
             if (conn != null) {
@@ -351,12 +484,62 @@ public class PermitsServiceImpl implements PermitsService {
 
     /**
      * Adds a new vehicle to a permit associated with an employee,
-     * this method will create a new tuple in database
+     * this method will create a new tuple in database.
+     * Throws an SQLException, and writes nothing, if the permit already covers as many vehicles as its driver may have.
      */
     @Override
     public void addVehicleToPermitForEmployee(Permit permit, String newCarLicenseNum) throws SQLException {
-        permit.setCarLicenseNum(newCarLicenseNum);
-        enterPermitInfo(permit);
+        Connection conn = null;
+        PreparedStatement state = null;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            checkVehicleQuota(conn, permit.getPermitID());
+            permit.setCarLicenseNum(newCarLicenseNum);
+            state = prepareInsert(conn, permit);
+            state.executeUpdate();
+            conn.commit();
+            conn.setAutoCommit(true);
+            System.out.println("The vehicle of " + newCarLicenseNum + " is added to the permit of " + permit.getPermitID());
+        } catch (SQLException e) {
+            System.out.println("Error executing adding a vehicle to an employee permit");
+            rollback(conn);
+            throw e;
+        } finally {
+            if (conn != null) {
+                dbService.close(conn, state, null);
+            }
+        }
+    }
+
+    // checkVehicleQuota locks the permit's driver and throws if the permit can't take another vehicle. It must run
+    // inside the transaction that adds the vehicle.
+    private void checkVehicleQuota(Connection conn, String permitID) throws SQLException {
+        PreparedStatement state = null;
+        ResultSet result = null;
+        try {
+            state = conn.prepareStatement(PERMIT_VEHICLE_QUOTA_QUERY);
+            state.setString(1, permitID);
+            state.setString(2, permitID);
+            result = state.executeQuery();
+            if (!result.next()) {
+                throw new SQLException("No permit found.");
+            }
+            int max = maxVehicles(result.getString("status"));
+            if (result.getInt("vehicleCount") >= max) {
+                throw new SQLException("The permit has " + max + " vehicle(s) registered. No more vehicle allowed");
+            }
+        } finally {
+            dbService.close(null, state, result);
+        }
+    }
+
+    /**
+     * Forgets the cached permit count of the driver whose permit expired.
+     */
+    @Override
+    public void permitExpired(String permitID, String associatedID) {
+        permitCounts.remove(associatedID);
     }
 
     /**
@@ -0,0 +1,57 @@
+package org.parking.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * One sighting of a license plate by a lot's camera, as fed to the {@link PlateReadPipeline}.
+ */
+public class PlateRead {
+    private final String plate;
+    private final String lotName;
+    private final LocalDateTime seenAt;
+
+    /**
+     * @param plate   The license plate as the camera read it.
+     * @param lotName The lot the camera watches.
+     * @param seenAt  When the plate was read, in the lot's local time.
+     */
+    public PlateRead(String plate, String lotName, LocalDateTime seenAt) {
+        this.plate = plate;
+        this.lotName = lotName;
+        this.seenAt = seenAt;
+    }
+
+    /**
+     * parse reads a line of the form "plate,lotName,yyyy-MM-ddTHH:mm:ss". It throws an IllegalArgumentException if the
+     * line has the wrong number of fields, an empty plate or lot, or a malformed timestamp.
+     */
+    public static PlateRead parse(String line) throws IllegalArgumentException {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 3 || fields[0].trim().isEmpty() || fields[1].trim().isEmpty()) {
+            throw new IllegalArgumentException("Expected plate,lotName,timestamp but got: " + line);
+        }
+        try {
+            return new PlateRead(fields[0].trim(), fields[1].trim(), LocalDateTime.parse(fields[2].trim()));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid timestamp in: " + line);
+        }
+    }
+
+    public String getPlate() {
+        return plate;
+    }
+
+    public String getLotName() {
+        return lotName;
+    }
+
+    public LocalDateTime getSeenAt() {
+        return seenAt;
+    }
+
+    @Override
+    public String toString() {
+        return plate + " in " + lotName + " at " + seenAt;
+    }
+}
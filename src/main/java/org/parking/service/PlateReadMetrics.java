@@ -0,0 +1,130 @@
+package org.parking.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters kept by a {@link PlateReadPipeline}. Every read accepted into the pipeline ends up in exactly one of
+ * compliant, citationsWritten, citationsFailed or validationErrors, so the reads still in flight are accepted minus
+ * the sum of those. Lag is the time from a read being accepted to that outcome.
+ */
+public class PlateReadMetrics {
+    private final long startedAtMillis;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder compliant = new LongAdder();
+    private final LongAdder citationsWritten = new LongAdder();
+    private final LongAdder citationsFailed = new LongAdder();
+    private final LongAdder validationErrors = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder lagTotalMillis = new LongAdder();
+    private final AtomicLong lagMaxMillis = new AtomicLong();
+
+    PlateReadMetrics(long startedAtMillis) {
+        this.startedAtMillis = startedAtMillis;
+    }
+
+    void accepted() {
+        accepted.increment();
+    }
+
+    void duplicate() {
+        duplicates.increment();
+    }
+
+    void malformed() {
+        malformed.increment();
+    }
+
+    void compliant(long lagMillis) {
+        compliant.increment();
+        recordLag(lagMillis);
+    }
+
+    void citationWritten(long lagMillis) {
+        citationsWritten.increment();
+        recordLag(lagMillis);
+    }
+
+    void citationFailed(long lagMillis) {
+        citationsFailed.increment();
+        recordLag(lagMillis);
+    }
+
+    void validationError(long lagMillis) {
+        validationErrors.increment();
+        recordLag(lagMillis);
+    }
+
+    void batchWritten() {
+        batches.increment();
+    }
+
+    private void recordLag(long lagMillis) {
+        lagTotalMillis.add(lagMillis);
+        lagMaxMillis.accumulateAndGet(lagMillis, Math::max);
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    public long getMalformed() {
+        return malformed.sum();
+    }
+
+    public long getCompliant() {
+        return compliant.sum();
+    }
+
+    public long getCitationsWritten() {
+        return citationsWritten.sum();
+    }
+
+    public long getCitationsFailed() {
+        return citationsFailed.sum();
+    }
+
+    public long getValidationErrors() {
+        return validationErrors.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /** getCompleted returns the number of accepted reads that have reached an outcome. */
+    public long getCompleted() {
+        return getCompliant() + getCitationsWritten() + getCitationsFailed() + getValidationErrors();
+    }
+
+    /** getThroughput returns completed reads per second since the pipeline started, as of nowMillis. */
+    public double getThroughput(long nowMillis) {
+        long elapsed = Math.max(1, nowMillis - startedAtMillis);
+        return getCompleted() * 1000.0 / elapsed;
+    }
+
+    /** getMeanLagMillis returns the mean time from acceptance to outcome, 0 before any read completes. */
+    public double getMeanLagMillis() {
+        long completed = getCompleted();
+        return completed == 0 ? 0 : (double) lagTotalMillis.sum() / completed;
+    }
+
+    public long getMaxLagMillis() {
+        return lagMaxMillis.get();
+    }
+
+    /** summary formats the counters for the log, with throughput as of nowMillis. */
+    public String summary(long nowMillis) {
+        return String.format("Plate reads: %d accepted, %d duplicate, %d malformed, %d compliant, %d cited, " +
+                        "%d citation failures, %d validation errors, %d batches, %.1f reads/s, lag mean %.1f ms max %d ms",
+                getAccepted(), getDuplicates(), getMalformed(), getCompliant(), getCitationsWritten(),
+                getCitationsFailed(), getValidationErrors(), getBatches(), getThroughput(nowMillis),
+                getMeanLagMillis(), getMaxLagMillis());
+    }
+}
@@ -0,0 +1,357 @@
+package org.parking.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.parking.model.Citation;
+import org.parking.model.Vehicle;
+
+/**
+ * Turns a stream of camera plate reads into citations without anyone at the menus.
+ *
+ * Reads pass through three stages joined by bounded queues:
+ * <ol>
+ *     <li>{@link #submit(PlateRead)} drops repeat sightings of a plate in a lot within the dedupe window, then queues
+ *     the read. It blocks while the validation queue is full, so a source that outpaces the database is slowed down
+ *     instead of filling memory.</li>
+ *     <li>A pool of workers checks each read against the {@link ActivePermitIndex}, without touching the database.
+ *     A read the index does not permit is checked again with the {@link PermitValidationService}, the same check the
+ *     citations menu makes, which decides the citation's category and catches permits added since the index was
+ *     loaded. Both checks use the normalized plate. A read with no permit covering the lot becomes a citation against
+ *     the registered vehicle, or a placeholder vehicle if there is none, and is queued for writing; it blocks while
+ *     the citation queue is full.</li>
+ *     <li>A single writer collects citations into batches of up to batchSize, waiting at most batchDelay for a batch
+ *     to fill, and saves each batch with {@link CitationsService#createCitations(java.util.Collection)}.</li>
+ * </ol>
+ * Counts, throughput and lag are kept in {@link PlateReadMetrics}. {@link #close()} lets every accepted read finish.
+ */
+public class PlateReadPipeline {
+    static final String NO_PERMIT_CATEGORY = "No permits";
+    static final double NO_PERMIT_FEE = 40;
+    static final String INVALID_PERMIT_CATEGORY = "Invalid permits";
+    static final double INVALID_PERMIT_FEE = 30;
+    static final int DEFAULT_WORKERS = 4;
+    static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    static final Duration DEFAULT_DEDUPE_WINDOW = Duration.ofHours(1);
+    static final int DEFAULT_BATCH_SIZE = 200;
+    static final long DEFAULT_BATCH_DELAY_MILLIS = 500;
+
+    // Placed on the queues by close() to stop the stage that takes them.
+    private static final PendingRead END_OF_READS = new PendingRead(null, 0);
+    private static final PendingCitation END_OF_CITATIONS = new PendingCitation(null, 0);
+
+    private final ActivePermitIndex activePermitIndex;
+    private final PermitValidationService permitValidationService;
+    private final VehicleService vehicleService;
+    private final CitationsService citationsService;
+    private final Clock clock;
+    private final int workers;
+    private final Duration dedupeWindow;
+    private final int batchSize;
+    private final long batchDelayMillis;
+    private final BlockingQueue<PendingRead> reads;
+    private final BlockingQueue<PendingCitation> citations;
+    // The first sighting of each plate in each lot within the dedupe window, oldest first. Guarded by itself.
+    private final LinkedHashMap<String, PlateRead> firstSightings = new LinkedHashMap<>();
+    private final ExecutorService validators;
+    private final ExecutorService writer;
+    private final PlateReadMetrics metrics;
+    private boolean closed = false;
+
+    public PlateReadPipeline(ActivePermitIndex activePermitIndex, PermitValidationService permitValidationService,
+                             VehicleService vehicleService, CitationsService citationsService) {
+        this(activePermitIndex, permitValidationService, vehicleService, citationsService, Clock.systemUTC(),
+                DEFAULT_WORKERS,
+                DEFAULT_QUEUE_CAPACITY, DEFAULT_DEDUPE_WINDOW, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_DELAY_MILLIS);
+    }
+
+    /**
+     * @param activePermitIndex       Answers most reads from memory. If null, every read is checked with the
+     *                                permitValidationService.
+     * @param permitValidationService Checks the reads the index does not permit against the vehicle's permits.
+     * @param vehicleService          Finds the registered vehicle a citation is issued against.
+     * @param citationsService        Saves citations in batches.
+     * @param clock                   Clock used to measure lag and throughput.
+     * @param workers                 Number of validation workers.
+     * @param queueCapacity           Capacity of the validation queue and of the citation queue.
+     * @param dedupeWindow            A plate seen again in the same lot within this long of its first sighting, by the
+     *                                reads' own timestamps, is dropped.
+     * @param batchSize               Most citations saved in one batch.
+     * @param batchDelayMillis        Longest a citation waits for its batch to fill.
+     */
+    public PlateReadPipeline(ActivePermitIndex activePermitIndex, PermitValidationService permitValidationService,
+                             VehicleService vehicleService, CitationsService citationsService, Clock clock,
+                             int workers, int queueCapacity, Duration dedupeWindow, int batchSize,
+                             long batchDelayMillis) {
+        this.activePermitIndex = activePermitIndex;
+        this.permitValidationService = permitValidationService;
+        this.vehicleService = vehicleService;
+        this.citationsService = citationsService;
+        this.clock = clock;
+        this.workers = workers;
+        this.dedupeWindow = dedupeWindow;
+        this.batchSize = batchSize;
+        this.batchDelayMillis = batchDelayMillis;
+        this.reads = new ArrayBlockingQueue<>(queueCapacity);
+        this.citations = new ArrayBlockingQueue<>(queueCapacity);
+        this.metrics = new PlateReadMetrics(clock.millis());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.validators = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "plate-read-validator-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < workers; i++) {
+            validators.execute(this::validateReads);
+        }
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "plate-read-citation-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.execute(this::writeCitations);
+    }
+
+    /**
+     * submit queues a read for validation unless it repeats a sighting within the dedupe window. It blocks while the
+     * validation queue is full. Returns false if the read was dropped as a repeat.
+     */
+    public boolean submit(PlateRead read) throws InterruptedException {
+        synchronized (firstSightings) {
+            if (closed) {
+                throw new IllegalStateException("The plate read pipeline is closed");
+            }
+            if (isRepeat(read)) {
+                metrics.duplicate();
+                return false;
+            }
+            metrics.accepted();
+            // Queued while holding the lock so close() can't put the end marker ahead of an accepted read.
+            reads.put(new PendingRead(read, clock.millis()));
+        }
+        return true;
+    }
+
+    /**
+     * ingest submits every line of input as a read until the input ends. Malformed lines are logged, counted and
+     * skipped. Returns the number of reads accepted.
+     */
+    public int ingest(BufferedReader input) throws IOException, InterruptedException {
+        int accepted = 0;
+        String line;
+        while ((line = input.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            PlateRead read;
+            try {
+                read = PlateRead.parse(line);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Skipping plate read: " + e.getMessage());
+                metrics.malformed();
+                continue;
+            }
+            if (submit(read)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    /** close stops taking reads and waits for every accepted read to be validated and every citation to be saved. */
+    public void close() throws InterruptedException {
+        synchronized (firstSightings) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        for (int i = 0; i < workers; i++) {
+            reads.put(END_OF_READS);
+        }
+        validators.shutdown();
+        validators.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        citations.put(END_OF_CITATIONS);
+        writer.shutdown();
+        writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    public PlateReadMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** getQueuedReads returns the number of reads waiting for a validation worker. */
+    public int getQueuedReads() {
+        return reads.size();
+    }
+
+    /** getQueuedCitations returns the number of citations waiting for the writer. */
+    public int getQueuedCitations() {
+        return citations.size();
+    }
+
+    // isRepeat is called holding firstSightings. Entries are kept in first-sighting order, so the ones that have left the
+    // window are all at the front.
+    private boolean isRepeat(PlateRead read) {
+        String key = ActivePermitIndex.normalize(read.getPlate()) + '\n' + read.getLotName();
+        PlateRead first = firstSightings.get(key);
+        if (first != null && read.getSeenAt().isBefore(first.getSeenAt().plus(dedupeWindow))) {
+            return true;
+        }
+        firstSightings.remove(key);
+        firstSightings.put(key, read);
+        Iterator<Map.Entry<String, PlateRead>> oldest = firstSightings.entrySet().iterator();
+        while (oldest.hasNext()) {
+            PlateRead entry = oldest.next().getValue();
+            if (entry.getSeenAt().plus(dedupeWindow).isAfter(read.getSeenAt())) {
+                break;
+            }
+            oldest.remove();
+        }
+        return false;
+    }
+
+    private void validateReads() {
+        try {
+            while (true) {
+                PendingRead pending = reads.take();
+                if (pending == END_OF_READS) {
+                    return;
+                }
+                Citation citation;
+                try {
+                    citation = check(pending.read);
+                } catch (SQLException e) {
+                    System.out.println("Could not validate plate read " + pending.read + ": " + e.getMessage());
+                    metrics.validationError(clock.millis() - pending.acceptedAtMillis);
+                    continue;
+                }
+                if (citation == null) {
+                    metrics.compliant(clock.millis() - pending.acceptedAtMillis);
+                } else {
+                    citations.put(new PendingCitation(citation, pending.acceptedAtMillis));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // check returns the citation for a read, or null if one of the vehicle's permits covers the lot and time.
+    private Citation check(PlateRead read) throws SQLException {
+        String plate = ActivePermitIndex.normalize(read.getPlate());
+        if (activePermitIndex != null && activePermitIndex.isPermitted(plate, read.getLotName(), read.getSeenAt())) {
+            return null;
+        }
+        Date date = Date.valueOf(read.getSeenAt().toLocalDate());
+        Time time = Time.valueOf(read.getSeenAt().toLocalTime().withNano(0));
+        PermitValidationResult validation = permitValidationService.validate(plate, read.getLotName(), date, time, null);
+        if (validation.isPermitted()) {
+            return null;
+        }
+        // A vehicle with permits that are all expired or for other lots has an invalid permit; one with no permits, or
+        // not registered at all, has none.
+        boolean invalidPermit = validation.hasViolations();
+        Vehicle vehicle = validation.isVehicleRegistered() ? vehicleService.getByLicense(plate) : null;
+        if (vehicle == null) {
+            // Citations reference Vehicles, so an unregistered plate is saved with a placeholder vehicle: empty
+            // strings for the columns that can't be null and no year.
+            vehicle = new Vehicle(plate, "", "", "", 0);
+        }
+        return new Citation(0, vehicle, read.getLotName(),
+                invalidPermit ? INVALID_PERMIT_CATEGORY : NO_PERMIT_CATEGORY,
+                invalidPermit ? INVALID_PERMIT_FEE : NO_PERMIT_FEE, "DUE", date, time);
+    }
+
+    private void writeCitations() {
+        List<PendingCitation> batch = new ArrayList<>(batchSize);
+        boolean ended = false;
+        try {
+            while (!ended) {
+                PendingCitation first = citations.take();
+                if (first == END_OF_CITATIONS) {
+                    return;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchDelayMillis);
+                while (batch.size() < batchSize) {
+                    PendingCitation next = citations.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == END_OF_CITATIONS) {
+                        ended = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(List<PendingCitation> batch) {
+        List<Citation> rows = new ArrayList<>(batch.size());
+        for (PendingCitation pending : batch) {
+            rows.add(pending.citation);
+        }
+        int[] outcomes;
+        try {
+            outcomes = citationsService.createCitations(rows);
+        } catch (SQLException e) {
+            System.out.println("Could not save " + batch.size() + " citation(s) from plate reads: " + e.getMessage());
+            outcomes = new int[batch.size()];
+            Arrays.fill(outcomes, Statement.EXECUTE_FAILED);
+        }
+        long now = clock.millis();
+        for (int i = 0; i < batch.size(); i++) {
+            if (outcomes[i] > 0) {
+                metrics.citationWritten(now - batch.get(i).acceptedAtMillis);
+            } else {
+                metrics.citationFailed(now - batch.get(i).acceptedAtMillis);
+            }
+        }
+        metrics.batchWritten();
+    }
+
+    private static final class PendingRead {
+        final PlateRead read;
+        final long acceptedAtMillis;
+
+        PendingRead(PlateRead read, long acceptedAtMillis) {
+            this.read = read;
+            this.acceptedAtMillis = acceptedAtMillis;
+        }
+    }
+
+    private static final class PendingCitation {
+        final Citation citation;
+        final long acceptedAtMillis;
+
+        PendingCitation(Citation citation, long acceptedAtMillis) {
+            this.citation = citation;
+            this.acceptedAtMillis = acceptedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package org.parking.service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DBService implementation that keeps a bounded pool of open connections so that service calls do not pay for a
+ * new TCP connection and login on every query. Physical connections are opened and closed through the wrapped
+ * DBService, and {@link #close(Connection, Statement, ResultSet)} hands the connection back to the pool instead
+ * of closing it.
+ */
+public class PooledDBServiceImpl implements DBService {
+    static final int DEFAULT_MAX_SIZE = 10;
+    static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 5000;
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+    static final long DEFAULT_LEAK_THRESHOLD_MILLIS = 60 * 1000;
+    static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    // Connections handed back more recently than this are trusted without a validation round trip.
+    static final long VALIDATION_BYPASS_MILLIS = 500;
+    static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DBService connectionFactory;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+    private final boolean recordBorrowSites;
+
+    private final Semaphore available;
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private final Map<Connection, Lease> leased = new ConcurrentHashMap<>();
+    // Every connection this pool opened and has not closed, idle or borrowed.
+    private final Set<Connection> owned = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown = false;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalBorrowNanos = new AtomicLong();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    public PooledDBServiceImpl(DBService connectionFactory) {
+        this(connectionFactory, false);
+    }
+
+    public PooledDBServiceImpl(DBService connectionFactory, boolean recordBorrowSites) {
+        this(connectionFactory, DEFAULT_MAX_SIZE, DEFAULT_BORROW_TIMEOUT_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS,
+                DEFAULT_LEAK_THRESHOLD_MILLIS, DEFAULT_STATEMENT_CACHE_SIZE, recordBorrowSites);
+    }
+
+    public PooledDBServiceImpl(DBService connectionFactory, int maxSize, long borrowTimeoutMillis,
+                               long idleTimeoutMillis, long leakThresholdMillis, int statementCacheSize) {
+        this(connectionFactory, maxSize, borrowTimeoutMillis, idleTimeoutMillis, leakThresholdMillis,
+                statementCacheSize, false);
+    }
+
+    /**
+     * @param connectionFactory   DBService used to open and physically close connections.
+     * @param maxSize             Maximum number of connections open at once, idle and borrowed combined.
+     * @param borrowTimeoutMillis How long a caller waits for a free connection before a SQLException is thrown.
+     * @param idleTimeoutMillis   Idle connections older than this are closed by the housekeeper.
+     * @param leakThresholdMillis Borrowed connections held longer than this are reported as possible leaks.
+     *                            Zero disables leak detection.
+     * @param statementCacheSize  Number of prepared statements cached per connection, keyed by SQL text. Zero
+     *                            disables statement caching.
+     * @param recordBorrowSites   Whether to capture a stack trace on every borrow so a leak report shows where the
+     *                            connection was borrowed. Meant for debugging, as it costs a stack walk per borrow.
+     */
+    public PooledDBServiceImpl(DBService connectionFactory, int maxSize, long borrowTimeoutMillis,
+                               long idleTimeoutMillis, long leakThresholdMillis, int statementCacheSize,
+                               boolean recordBorrowSites) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.connectionFactory = connectionFactory;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.recordBorrowSites = recordBorrowSites && leakThresholdMillis > 0;
+        this.available = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, 30 * 1000));
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** connectAndReturnConnection will borrow a connection from the pool, opening a new one if none are idle and the
+     * pool has not reached its maximum size. Idle connections are validated before being handed out. It will throw a
+     * SQLException if no connection becomes available within the borrow timeout.
+     */
+    public Connection connectAndReturnConnection() throws SQLException {
+        long start = System.nanoTime();
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+        try {
+            if (!available.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                System.out.println("Timed out waiting for a pooled connection");
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + "ms waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        try {
+            Connection connection = takeValidIdleConnection();
+            if (connection == null) {
+                connection = connectionFactory.connectAndReturnConnection();
+                createdCount.incrementAndGet();
+                if (statementCacheSize > 0) {
+                    connection = StatementCache.wrap(connection, statementCacheSize, statementCacheHits,
+                            statementCacheMisses);
+                }
+                owned.add(connection);
+            }
+            Throwable borrowSite = recordBorrowSites ? new Throwable("Connection borrowed here") : null;
+            leased.put(connection, new Lease(System.currentTimeMillis(), Thread.currentThread().getName(), borrowSite));
+            recordBorrow(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            available.release();
+            throw e;
+        }
+    }
+
+    /** close will close the result set and statement and hand the connection back to the pool. A connection that was
+     * left inside a transaction is rolled back first so the next borrower starts from a clean state. Connections that
+     * did not come from this pool are closed through the wrapped DBService. Closing a pooled connection that has
+     * already been handed back does nothing, so a second close can't take an idle connection away from the pool.
+     * Cached statements stay prepared on the connection and are reset for the next borrower.
+     */
+    public void close(Connection connection, Statement statement, ResultSet results) {
+        if (results != null) {
+            try {
+                results.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing results");
+                System.out.println(e.getMessage());
+            }
+        }
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing statement");
+                System.out.println(e.getMessage());
+            }
+        }
+        if (connection == null) {
+            return;
+        }
+        Lease lease = leased.remove(connection);
+        if (lease == null) {
+            if (owned.contains(connection)) {
+                System.out.println("Ignoring close of a pooled connection that was already returned");
+            } else {
+                connectionFactory.close(connection, null, null);
+            }
+            return;
+        }
+        try {
+            StatementCache.releaseAll(connection);
+            if (shutdown || !reset(connection)) {
+                discard(connection);
+                return;
+            }
+            synchronized (idle) {
+                idle.addFirst(new IdleConnection(connection, System.currentTimeMillis()));
+            }
+        } finally {
+            available.release();
+        }
+    }
+
+    /** shutdown stops the housekeeper and closes every idle connection. Connections that are still borrowed are
+     * closed as they are handed back.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (IdleConnection idleConnection : idle) {
+                discard(idleConnection.connection);
+            }
+            idle.clear();
+        }
+    }
+
+    /** housekeeping closes connections that have been idle longer than the idle timeout and reports borrowed
+     * connections that have been held past the leak threshold.
+     */
+    void housekeeping() {
+        evictIdleConnections();
+        detectLeaks();
+    }
+
+    void evictIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        synchronized (idle) {
+            Iterator<IdleConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                IdleConnection idleConnection = it.next();
+                if (idleConnection.returnedAt <= cutoff) {
+                    it.remove();
+                    evictedCount.incrementAndGet();
+                    discard(idleConnection.connection);
+                }
+            }
+        }
+    }
+
+    void detectLeaks() {
+        if (leakThresholdMillis <= 0) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - leakThresholdMillis;
+        for (Lease lease : leased.values()) {
+            if (!lease.reported && lease.borrowedAt <= cutoff) {
+                lease.reported = true;
+                leakCount.incrementAndGet();
+                System.out.println("Possible connection leak: connection borrowed by thread " + lease.threadName
+                        + " has not been returned after " + (System.currentTimeMillis() - lease.borrowedAt) + "ms");
+                if (lease.borrowSite != null) {
+                    lease.borrowSite.printStackTrace(System.out);
+                } else {
+                    System.out.println("Start with -Dparking.db.recordBorrowSites=true to log where it was borrowed");
+                }
+            }
+        }
+    }
+
+    // takeValidIdleConnection pops the most recently returned idle connection, discarding any that fail validation.
+    private Connection takeValidIdleConnection() {
+        while (true) {
+            IdleConnection idleConnection;
+            synchronized (idle) {
+                idleConnection = idle.pollFirst();
+            }
+            if (idleConnection == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - idleConnection.returnedAt < VALIDATION_BYPASS_MILLIS
+                    || isValid(idleConnection.connection)) {
+                return idleConnection.connection;
+            }
+            evictedCount.incrementAndGet();
+            discard(idleConnection.connection);
+        }
+    }
+
+    // discard physically closes a pooled connection and forgets it.
+    private void discard(Connection connection) {
+        owned.remove(connection);
+        connectionFactory.close(connection, null, null);
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // reset puts a returned connection back into auto-commit mode, rolling back anything left uncommitted. It returns
+    // false if the connection is closed or could not be reset and should be discarded.
+    private boolean reset(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error resetting pooled connection");
+            System.out.println(e.getMessage());
+            return false;
+        }
+    }
+
+    private void recordBorrow(long nanos) {
+        borrowCount.incrementAndGet();
+        totalBorrowNanos.addAndGet(nanos);
+        long max;
+        do {
+            max = maxBorrowNanos.get();
+        } while (nanos > max && !maxBorrowNanos.compareAndSet(max, nanos));
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveConnections() {
+        return leased.size();
+    }
+
+    public int getIdleConnections() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    public double getAverageBorrowMicros() {
+        long count = borrowCount.get();
+        return count == 0 ? 0 : totalBorrowNanos.get() / 1000.0 / count;
+    }
+
+    public double getMaxBorrowMicros() {
+        return maxBorrowNanos.get() / 1000.0;
+    }
+
+    private static final class IdleConnection {
+        private final Connection connection;
+        private final long returnedAt;
+
+        private IdleConnection(Connection connection, long returnedAt) {
+            this.connection = connection;
+            this.returnedAt = returnedAt;
+        }
+    }
+
+    private static final class Lease {
+        private final long borrowedAt;
+        private final String threadName;
+        private final Throwable borrowSite;
+        private volatile boolean reported = false;
+
+        private Lease(long borrowedAt, String threadName, Throwable borrowSite) {
+            this.borrowedAt = borrowedAt;
+            this.threadName = threadName;
+            this.borrowSite = borrowSite;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.parking.service;
+
+/**
+ * Counts of what happened to the payments of one settlement file. A mismatched payment was not applied and is
+ * listed, with the reason, in the mismatches file next to the settlement file.
+ */
+public class ReconciliationResult {
+    private final String fileName;
+    private long payments = 0;
+    private long paid = 0;
+    private long mismatched = 0;
+
+    public ReconciliationResult(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /** getPayments returns the number of lines in the file, not counting blank lines and a header. */
+    public long getPayments() {
+        return payments;
+    }
+
+    public long getPaid() {
+        return paid;
+    }
+
+    public long getMismatched() {
+        return mismatched;
+    }
+
+    void addPayment() {
+        payments++;
+    }
+
+    void addPaid() {
+        paid++;
+    }
+
+    void addMismatched() {
+        mismatched++;
+    }
+
+    @Override
+    public String toString() {
+        return fileName + ": " + payments + " payments, " + paid + " paid, " + mismatched + " mismatched";
+    }
+}
@@ -0,0 +1,109 @@
+package org.parking.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Size bounded, time limited cache shared by the caching decorators for parking lots, zones and spaces.
+ * Entries expire after the configured time to live and the least recently used entry is evicted once the cache is
+ * full. Any write through one of the decorators clears the whole cache, because lot renames cascade into zones and
+ * spaces and this data changes rarely enough that reloading it is cheap.
+ */
+public class ReferenceDataCache {
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits = 0;
+    private long misses = 0;
+    // Bumped by every invalidation, so a load that started before one does not put back what it read.
+    private long generation = 0;
+
+    public ReferenceDataCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ReferenceDataCache.this.maxEntries;
+            }
+        };
+    }
+
+    /** getOrLoad returns the cached value for the key if present and not expired, otherwise it calls the loader and
+     * caches its result. Null results are returned but not cached so a missing row or failed query is retried on the
+     * next call. The loader runs without the lock, so a result is only cached if the cache was not invalidated while it
+     * ran; otherwise it may predate the write that caused the invalidation.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Supplier<T> loader) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits++;
+                return (T) entry.value;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+        T value = loader.get();
+        if (value != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    entries.put(key, new Entry(value, now + ttlMillis));
+                }
+            }
+        }
+        return value;
+    }
+
+    /** invalidate removes the entries for the given keys, for writes that are known to change nothing else. */
+    public synchronized void invalidate(String... keys) {
+        generation++;
+        for (String key : keys) {
+            entries.remove(key);
+        }
+    }
+
+    /** invalidateAll removes every entry from the cache. */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    /** removeExpired drops entries whose time to live has passed. */
+    public synchronized void removeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -10,6 +10,8 @@ public interface ReportsService {
 
     public int generateCitationReport(String lot, Date start, Date end) throws SQLException;
 
+    public Collection<CitationRollup> generateCitationRollupReport(String lot, Date start, Date end, boolean monthly) throws SQLException;
+
     public Collection<Zone> generateZoneReport() throws SQLException;
 
     public int generateViolatedCarNumber() throws SQLException;
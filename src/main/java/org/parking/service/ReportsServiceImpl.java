@@ -19,7 +19,9 @@ public class ReportsServiceImpl implements ReportsService {
 
     /***************************************************************************
      * Generate a report for the total number of Citations given in all Zones in
-     * the lot for a given time range.
+     * the lot for a given time range. The count is summed from the daily
+     * rollups, so it reads one row per day and payment status rather than every
+     * citation in the range.
      * Inputs: ParkingLot, Start Date, End Date
      ****************************************************************************/
     public int generateCitationReport(String lot, Date start, Date end) throws SQLException{
@@ -32,8 +34,8 @@ public class ReportsServiceImpl implements ReportsService {
         try {
             // Open connection to the database and prepare statement
             conn = dbService.connectAndReturnConnection();
-            pstate = conn.prepareStatement("SELECT COUNT(*) FROM Citations WHERE lotName = ? AND citationDate " +
-                    "BETWEEN ? AND ?");
+            pstate = conn.prepareStatement("SELECT COALESCE(SUM(citationCount), 0) FROM CitationDailyRollups " +
+                    "WHERE lotName = ? AND citationDay BETWEEN ? AND ?");
             pstate.setString(1, lot);
             pstate.setDate(2,start);
             pstate.setDate(3,end);
@@ -59,6 +61,62 @@ public class ReportsServiceImpl implements ReportsService {
         return count;
     }
 
+    /***************************************************************************
+     * Generate the citation count and fee total for each day, or each month if
+     * monthly is true, in the lot for a given time range, broken down by payment
+     * status. Monthly periods are dated on the first of the month. Periods with
+     * no citations are left out.
+     * Inputs: ParkingLot, Start Date, End Date, Monthly
+     ****************************************************************************/
+    public Collection<CitationRollup> generateCitationRollupReport(String lot, Date start, Date end, boolean monthly) throws SQLException {
+        // Define variables for query
+        Collection<CitationRollup> rollups = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet result = null;
+
+        try {
+            // Open connection to the database and prepare statement
+            conn = dbService.connectAndReturnConnection();
+            if (monthly) {
+                pstate = conn.prepareStatement("SELECT lotName, DATE_SUB(citationDay, INTERVAL DAYOFMONTH(citationDay) - 1 DAY) AS period, " +
+                        "paymentStatus, SUM(citationCount) AS citationCount, SUM(feeTotal) AS feeTotal FROM CitationDailyRollups " +
+                        "WHERE lotName = ? AND citationDay BETWEEN ? AND ? GROUP BY lotName, period, paymentStatus " +
+                        "HAVING citationCount > 0 ORDER BY period, paymentStatus");
+            } else {
+                pstate = conn.prepareStatement("SELECT lotName, citationDay AS period, paymentStatus, citationCount, feeTotal " +
+                        "FROM CitationDailyRollups WHERE lotName = ? AND citationDay BETWEEN ? AND ? AND citationCount > 0 " +
+                        "ORDER BY period, paymentStatus");
+            }
+            pstate.setString(1, lot);
+            pstate.setDate(2, start);
+            pstate.setDate(3, end);
+
+            // Execute the statement and build a rollup for each period and status
+            result = pstate.executeQuery();
+            while (result.next()) {
+                rollups.add(new CitationRollup(result.getString("lotName"),
+                        result.getDate("period"),
+                        result.getString("paymentStatus"),
+                        result.getInt("citationCount"),
+                        result.getDouble("feeTotal")));
+            }
+
+        } catch (SQLException e) {
+            // Throw SQL Exception up to caller function
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, result);
+
+            }
+        }
+
+        return rollups;
+    }
+
     /***************************************************************************
      * Generate a list of zones for each parking lot. Return as collection of tuples
      * with (LotName, Zone)
@@ -247,7 +305,7 @@ public class ReportsServiceImpl implements ReportsService {
         try {
             // Open connection to the database and prepare statement
             conn = dbService.connectAndReturnConnection();
-            pstate = conn.prepareStatement("SELECT number  FROM Spaces WHERE type =? AND status = '1' " +
+            pstate = conn.prepareStatement("SELECT number  FROM Spaces WHERE type =? AND status = TRUE " +
                     "AND lotName =?");
             pstate.setString(1, spaceType);
             pstate.setString(2, lotName);
@@ -0,0 +1,16 @@
+package org.parking.service;
+
+import java.sql.SQLException;
+
+/***************************************************************************
+ * Versioned schema changes applied on top of sql/createDatabaseScript.sql.
+ * Each migration is a SQL script named V<version>__<description>.sql under
+ * db/migration on the classpath. Applied versions are recorded in the
+ * SchemaVersions table so each script runs once per database.
+ * -------------------------------------------------------------------------
+ * Each function throws SQLException if an SQL error occurs.
+ ****************************************************************************/
+public interface SchemaMigrationService {
+    public int getCurrentVersion() throws SQLException;
+    public int migrate() throws SQLException;
+}
@@ -0,0 +1,211 @@
+package org.parking.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class SchemaMigrationServiceImpl implements SchemaMigrationService {
+    // Every migration script shipped with the application, in any order. Add new scripts here as well as under
+    // src/main/resources/db/migration since resources inside a jar cannot be listed.
+    static final List<String> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+            "V1__service_query_indexes.sql",
+            "V2__permit_expiry.sql",
+            "V3__citation_request_keys.sql",
+            "V4__citation_number_blocks.sql",
+            "V5__citation_daily_rollups.sql"
+    ));
+    static final String MIGRATION_PATH = "db/migration/";
+    // MySQL and MariaDB error code for creating an index whose name already exists.
+    static final int DUPLICATE_KEY_NAME = 1061;
+    // MySQL and MariaDB error code for adding a column whose name already exists. ADD COLUMN IF NOT EXISTS would
+    // avoid it, but only MariaDB supports that.
+    static final int DUPLICATE_COLUMN_NAME = 1060;
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private final DBService dbService;
+    private final List<String> migrations;
+
+    public SchemaMigrationServiceImpl(DBService dbService) {
+        this(dbService, MIGRATIONS);
+    }
+
+    /**
+     * @param dbService  DBService used to obtain connections.
+     * @param migrations Script names under db/migration on the classpath.
+     */
+    public SchemaMigrationServiceImpl(DBService dbService, List<String> migrations) {
+        this.dbService = dbService;
+        this.migrations = new ArrayList<>(migrations);
+        this.migrations.sort((a, b) -> Integer.compare(versionOf(a), versionOf(b)));
+    }
+
+    /***************************************************************************
+     * Get the highest migration version applied to the database, creating the
+     * SchemaVersions table first if it does not exist. Returns 0 if no
+     * migrations have been applied.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT COALESCE(MAX(version), 0) FROM SchemaVersions"
+     ****************************************************************************/
+    public int getCurrentVersion() throws SQLException {
+        Connection conn = null;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            return currentVersion(conn);
+        } catch (SQLException e) {
+            System.out.println("Error reading schema version");
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, null, null);
+            }
+        }
+    }
+
+    /***************************************************************************
+     * Apply every migration newer than the current version, in version order,
+     * and record each one in SchemaVersions once all of its statements have run.
+     * DDL commits implicitly, so a migration interrupted part way is re-run from
+     * the start; indexes and columns it already created are skipped rather than
+     * failing.
+     * Returns the number of migrations applied.
+     ****************************************************************************/
+    public int migrate() throws SQLException {
+        Connection conn = null;
+        Statement statement = null;
+        PreparedStatement record = null;
+        int applied = 0;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            int current = currentVersion(conn);
+            statement = conn.createStatement();
+            record = conn.prepareStatement("INSERT INTO SchemaVersions (version, description) VALUES (?, ?)");
+            for (String script : migrations) {
+                int version = versionOf(script);
+                if (version <= current) {
+                    continue;
+                }
+                System.out.println("Applying schema migration " + script);
+                for (String sql : loadStatements(script)) {
+                    execute(statement, sql);
+                }
+                record.setInt(1, version);
+                record.setString(2, descriptionOf(script));
+                record.executeUpdate();
+                applied++;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error applying schema migrations");
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(null, record, null);
+                dbService.close(conn, statement, null);
+            }
+        }
+        if (applied > 0) {
+            System.out.println("Applied " + applied + " schema migration(s)");
+        }
+        return applied;
+    }
+
+    private int currentVersion(Connection conn) throws SQLException {
+        Statement statement = null;
+        ResultSet results = null;
+        try {
+            statement = conn.createStatement();
+            statement.execute("CREATE TABLE IF NOT EXISTS SchemaVersions (version integer PRIMARY KEY NOT NULL, " +
+                    "description varchar(255) NOT NULL, appliedAt timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            results = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM SchemaVersions");
+            return results.next() ? results.getInt(1) : 0;
+        } finally {
+            dbService.close(null, statement, results);
+        }
+    }
+
+    private void execute(Statement statement, String sql) throws SQLException {
+        try {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            if (e.getErrorCode() == DUPLICATE_KEY_NAME) {
+                System.out.println("Skipping index that already exists: " + e.getMessage());
+            } else if (e.getErrorCode() == DUPLICATE_COLUMN_NAME) {
+                System.out.println("Skipping column that already exists: " + e.getMessage());
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    // loadStatements reads a migration script from the classpath and splits it into statements on semicolons that end
+    // a line. Lines starting with -- are comments. A line ending in BEGIN opens a compound statement, such as a
+    // trigger body, whose inner semicolons do not split it; it is closed by a line that is just END;.
+    static List<String> loadStatements(String script) throws SQLException {
+        InputStream in = SchemaMigrationServiceImpl.class.getClassLoader().getResourceAsStream(MIGRATION_PATH + script);
+        if (in == null) {
+            throw new SQLException("Migration script " + script + " was not found on the classpath");
+        }
+        List<String> statements = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            StringBuilder current = new StringBuilder();
+            int depth = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                current.append(current.length() == 0 ? "" : " ").append(trimmed);
+                String upper = trimmed.toUpperCase(Locale.ROOT);
+                if (upper.endsWith("BEGIN")) {
+                    depth++;
+                } else if (depth > 0 && upper.equals("END;")) {
+                    depth--;
+                }
+                if (depth == 0 && trimmed.endsWith(";")) {
+                    statements.add(current.substring(0, current.length() - 1));
+                    current.setLength(0);
+                }
+            }
+            if (current.length() > 0) {
+                statements.add(current.toString());
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read migration script " + script, e);
+        }
+        return statements;
+    }
+
+    static int versionOf(String script) {
+        return Integer.parseInt(parse(script).group(1));
+    }
+
+    private static String descriptionOf(String script) {
+        return parse(script).group(2).replace('_', ' ');
+    }
+
+    private static Matcher parse(String script) {
+        Matcher matcher = SCRIPT_NAME.matcher(script);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Migration script " + script + " is not named V<version>__<description>.sql");
+        }
+        return matcher;
+    }
+}
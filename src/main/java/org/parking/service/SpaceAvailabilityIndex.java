@@ -0,0 +1,361 @@
+package org.parking.service;
+
+import org.parking.model.Space;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index of free spaces that hands each free space to exactly one caller. Spaces are grouped by lot, zone
+ * and type. Each group keeps its space numbers in a sorted array and one bit per space in an {@link AtomicLongArray},
+ * set while the space is free. Claiming a space clears its bit with a compare-and-set, so two kiosks asking at the
+ * same moment always get different spaces. Claims and releases share a read lock, which only {@link #load()} ever
+ * blocks on: it holds the write lock while it re-reads the database, so no claim can be made after the pending writes
+ * are flushed and then be lost when the new groups are swapped in.
+ *
+ * Claims and releases are written to the database afterwards by a single background thread, in the order they
+ * happened, through {@link SpaceService#updateSpace(Space, Space)}. Pass the undecorated service, since a caching
+ * decorator would clear its whole cache on every claim, and evict just the saved space from any cache with the
+ * onSaved callback. If a write fails the space is left out of the
+ * index until the next {@link #load()} rather than risk handing it out twice.
+ *
+ * For permit holders, {@link #claimBestFit(String, String)} searches a permit's zone and then its alternates across
+ * lots, in the order set by the {@link SpaceSearchRules}. That order is worked out for every zone and type when the
+ * index is loaded, so an overflow search is a walk over an array of groups rather than one query per lot.
+ */
+public class SpaceAvailabilityIndex {
+    private final SpaceService spaceService;
+    private final SpaceSearchRules searchRules;
+    private final Consumer<Space> onSaved;
+    private final ExecutorService writer;
+    private final ReadWriteLock reloadLock = new ReentrantReadWriteLock();
+
+    // Both maps hold the same groups. They are rebuilt by load and swapped in whole, so readers never see a partly
+    // loaded index.
+    private volatile Map<String, List<SpaceGroup>> groupsByLotAndType = Collections.emptyMap();
+    private volatile Map<String, List<SpaceGroup>> groupsByLotAndZone = Collections.emptyMap();
+    // The groups to search for a permit's zone and a space type, best first. Rebuilt together with the maps above.
+    private volatile Map<String, SpaceGroup[]> searchOrderByZoneAndType = Collections.emptyMap();
+
+    public SpaceAvailabilityIndex(SpaceService spaceService) {
+        this(spaceService, SpaceSearchRules.none());
+    }
+
+    public SpaceAvailabilityIndex(SpaceService spaceService, SpaceSearchRules searchRules) {
+        this(spaceService, searchRules, space -> { });
+    }
+
+    /**
+     * @param spaceService Service the index is loaded from and writes claims and releases through, without a cache.
+     * @param searchRules  The alternate zones and lot priority used by {@link #claimBestFit(String, String)}.
+     * @param onSaved      Called by the writer thread with each space whose new status has been saved.
+     */
+    public SpaceAvailabilityIndex(SpaceService spaceService, SpaceSearchRules searchRules, Consumer<Space> onSaved) {
+        this.spaceService = spaceService;
+        this.searchRules = searchRules;
+        this.onSaved = onSaved;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "space-index-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * load rebuilds the index from every space in the database, after waiting for pending claims and releases to be
+     * written so they are not lost. Claims and releases wait until the new index is in place. Returns the number of
+     * spaces indexed.
+     */
+    public int load() {
+        reloadLock.writeLock().lock();
+        try {
+            return reload();
+        } finally {
+            reloadLock.writeLock().unlock();
+        }
+    }
+
+    private int reload() {
+        flush();
+        Map<String, List<Space>> spacesByGroup = new HashMap<>();
+        int count = spaceService.forEach(space -> spacesByGroup
+                .computeIfAbsent(key(space.getLotName(), space.getZoneID(), space.getType()), k -> new ArrayList<>())
+                .add(space));
+        Map<String, List<SpaceGroup>> byLotAndType = new HashMap<>();
+        Map<String, List<SpaceGroup>> byLotAndZone = new HashMap<>();
+        List<SpaceGroup> groups = new ArrayList<>();
+        for (List<Space> spaces : spacesByGroup.values()) {
+            SpaceGroup group = new SpaceGroup(spaces);
+            groups.add(group);
+            byLotAndType.computeIfAbsent(key(group.lotName, group.type), k -> new ArrayList<>()).add(group);
+            byLotAndZone.computeIfAbsent(key(group.lotName, group.zoneID), k -> new ArrayList<>()).add(group);
+        }
+        groupsByLotAndType = byLotAndType;
+        groupsByLotAndZone = byLotAndZone;
+        searchOrderByZoneAndType = buildSearchOrder(groups);
+        System.out.println("Indexed " + count + " spaces");
+        return count;
+    }
+
+    /**
+     * claim takes a free space of the given type in the lot, marks it in use and queues the update to the
+     * database. Returns the space as it is now (in use), or null if the lot has no free space of that type.
+     */
+    public Space claim(String lotName, String spaceType) {
+        reloadLock.readLock().lock();
+        try {
+            List<SpaceGroup> groups = groupsByLotAndType.get(key(lotName, spaceType));
+            if (groups == null) {
+                return null;
+            }
+            for (SpaceGroup group : groups) {
+                int position = group.claim();
+                if (position >= 0) {
+                    Space claimed = group.space(position, false);
+                    writeBehind(group, position, claimed);
+                    return claimed;
+                }
+            }
+            return null;
+        } finally {
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * claimBestFit takes a free space of the given type for a permit in zoneID. It tries the zone in every lot, then
+     * each alternate zone in every lot, with lots in priority order, and claims the first free space it finds.
+     * Returns the space as it is now (in use), or null if none of those zones has a free space of that type.
+     */
+    public Space claimBestFit(String zoneID, String spaceType) {
+        reloadLock.readLock().lock();
+        try {
+            SpaceGroup[] groups = searchOrderByZoneAndType.get(key(zoneID, spaceType));
+            if (groups == null) {
+                return null;
+            }
+            for (SpaceGroup group : groups) {
+                int position = group.claim();
+                if (position >= 0) {
+                    Space claimed = group.space(position, false);
+                    writeBehind(group, position, claimed);
+                    return claimed;
+                }
+            }
+            return null;
+        } finally {
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * release marks a space free again and queues the update to the database. Returns false if the space is not
+     * in the index or was already free.
+     */
+    public boolean release(String lotName, String zoneID, int number) {
+        reloadLock.readLock().lock();
+        try {
+            List<SpaceGroup> groups = groupsByLotAndZone.get(key(lotName, zoneID));
+            if (groups == null) {
+                return false;
+            }
+            for (SpaceGroup group : groups) {
+                int position = Arrays.binarySearch(group.numbers, number);
+                if (position >= 0) {
+                    if (!group.release(position)) {
+                        return false;
+                    }
+                    writeBehind(group, position, group.space(position, true));
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    /** getFreeCount returns how many spaces of the given type are free in the lot, across all of its zones. */
+    public int getFreeCount(String lotName, String spaceType) {
+        List<SpaceGroup> groups = groupsByLotAndType.get(key(lotName, spaceType));
+        int free = 0;
+        if (groups != null) {
+            for (SpaceGroup group : groups) {
+                free += group.freeCount.get();
+            }
+        }
+        return free;
+    }
+
+    /** flush waits until every claim and release made so far has been written to the database. */
+    public void flush() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The task is empty, so there is nothing that could have failed.
+        }
+    }
+
+    /** shutdown writes out every pending claim and release and then stops the writer thread. */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.out.println("Gave up waiting for space updates to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // writeBehind queues the database update for a claim or release. updated is the space after the change; the
+    // original passed to updateSpace is the same space with the opposite status.
+    private void writeBehind(SpaceGroup group, int position, Space updated) {
+        Space original = group.space(position, !updated.getStatus());
+        writer.execute(() -> {
+            if (!spaceService.updateSpace(original, updated)) {
+                group.disable(position);
+                System.out.println("Could not save the status of space " + updated.getNumber() + " in zone "
+                        + updated.getZoneID() + " of " + updated.getLotName() + ". It will not be handed out until the index is reloaded");
+            } else {
+                onSaved.accept(updated);
+            }
+        });
+    }
+
+    // buildSearchOrder lists, for every zone and type a permit could ask for, the groups claimBestFit tries in order.
+    private Map<String, SpaceGroup[]> buildSearchOrder(Collection<SpaceGroup> groups) {
+        Map<String, SpaceGroup> byLotZoneAndType = new HashMap<>();
+        Set<String> lotNames = new HashSet<>();
+        Set<String> zoneIDs = new HashSet<>(searchRules.getZonesWithAlternates());
+        Set<String> types = new HashSet<>();
+        for (SpaceGroup group : groups) {
+            byLotZoneAndType.put(key(group.lotName, group.zoneID, group.type), group);
+            lotNames.add(group.lotName);
+            zoneIDs.add(group.zoneID);
+            types.add(group.type);
+        }
+        List<String> lotOrder = searchRules.lotOrder(lotNames);
+        Map<String, SpaceGroup[]> searchOrder = new HashMap<>();
+        for (String zoneID : zoneIDs) {
+            List<String> zoneOrder = searchRules.zoneOrder(zoneID);
+            for (String type : types) {
+                List<SpaceGroup> candidates = new ArrayList<>();
+                for (String candidateZone : zoneOrder) {
+                    for (String lotName : lotOrder) {
+                        SpaceGroup group = byLotZoneAndType.get(key(lotName, candidateZone, type));
+                        if (group != null) {
+                            candidates.add(group);
+                        }
+                    }
+                }
+                if (!candidates.isEmpty()) {
+                    searchOrder.put(key(zoneID, type), candidates.toArray(new SpaceGroup[0]));
+                }
+            }
+        }
+        return searchOrder;
+    }
+
+    private static String key(String... parts) {
+        return String.join("\u0000", parts);
+    }
+
+    /**
+     * The spaces of one type in one zone of one lot. Bit i of the free bitset is set while numbers[i] is free.
+     */
+    private static final class SpaceGroup {
+        final String lotName;
+        final String zoneID;
+        final String type;
+        final int[] numbers;
+        final AtomicLongArray free;
+        final AtomicInteger freeCount = new AtomicInteger();
+        // Word where the last claim succeeded. Claims start looking there, so a claim normally finds a free bit in
+        // the first word it reads instead of scanning the words already used up.
+        final AtomicInteger hint = new AtomicInteger();
+
+        SpaceGroup(List<Space> spaces) {
+            spaces.sort((a, b) -> Integer.compare(a.getNumber(), b.getNumber()));
+            Space first = spaces.get(0);
+            this.lotName = first.getLotName();
+            this.zoneID = first.getZoneID();
+            this.type = first.getType();
+            this.numbers = new int[spaces.size()];
+            this.free = new AtomicLongArray((spaces.size() + 63) / 64);
+            for (int i = 0; i < spaces.size(); i++) {
+                numbers[i] = spaces.get(i).getNumber();
+                if (spaces.get(i).getStatus()) {
+                    free.set(i >>> 6, free.get(i >>> 6) | (1L << i));
+                    freeCount.incrementAndGet();
+                }
+            }
+        }
+
+        // claim clears the lowest free bit it finds, starting at the hint word, and returns its position or -1 if
+        // every space is in use.
+        int claim() {
+            if (freeCount.get() == 0) {
+                return -1;
+            }
+            int words = free.length();
+            int start = hint.get();
+            for (int i = 0; i < words; i++) {
+                int word = (start + i) % words;
+                long bits = free.get(word);
+                while (bits != 0) {
+                    long lowest = bits & -bits;
+                    if (free.compareAndSet(word, bits, bits & ~lowest)) {
+                        freeCount.decrementAndGet();
+                        hint.set(word);
+                        return (word << 6) + Long.numberOfTrailingZeros(lowest);
+                    }
+                    bits = free.get(word);
+                }
+            }
+            return -1;
+        }
+
+        // release sets the bit for position and returns false if it was already set.
+        boolean release(int position) {
+            long mask = 1L << position;
+            long previous = free.getAndUpdate(position >>> 6, bits -> bits | mask);
+            if ((previous & mask) != 0) {
+                return false;
+            }
+            freeCount.incrementAndGet();
+            return true;
+        }
+
+        // disable clears the bit for position so the space is no longer handed out.
+        void disable(int position) {
+            long mask = 1L << position;
+            long previous = free.getAndUpdate(position >>> 6, bits -> bits & ~mask);
+            if ((previous & mask) != 0) {
+                freeCount.decrementAndGet();
+            }
+        }
+
+        Space space(int position, boolean status) {
+            return new Space(numbers[position], type, status, zoneID, lotName);
+        }
+    }
+}
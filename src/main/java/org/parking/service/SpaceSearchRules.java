@@ -0,0 +1,110 @@
+package org.parking.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Where to look for a space when a permit's own zone is full. Zones are tried in order: the permit's zone first,
+ * then its alternate zones. Within each zone, lots are tried in order: the priority lots first, then every other lot
+ * by name.
+ *
+ * Rules are read from a properties file such as:
+ * <pre>
+ * lots=Dan Allen Deck,Coliseum Deck
+ * zone.A=AS,B
+ * zone.V=A,B,C,D
+ * </pre>
+ */
+public class SpaceSearchRules {
+    static final String LOTS_PROPERTY = "lots";
+    static final String ZONE_PROPERTY_PREFIX = "zone.";
+
+    private final List<String> lotPriority;
+    private final Map<String, List<String>> alternateZones;
+
+    /**
+     * @param lotPriority    Lots to try before any other lot, most preferred first.
+     * @param alternateZones Zones to try, in order, when a permit's zone has no free space, by the permit's zone.
+     */
+    public SpaceSearchRules(List<String> lotPriority, Map<String, List<String>> alternateZones) {
+        this.lotPriority = new ArrayList<>(lotPriority);
+        this.alternateZones = new HashMap<>(alternateZones);
+    }
+
+    /** none returns rules with no alternate zones and no lot priority. */
+    public static SpaceSearchRules none() {
+        return new SpaceSearchRules(Collections.<String>emptyList(), Collections.<String, List<String>>emptyMap());
+    }
+
+    /**
+     * load reads the rules from a properties file. "lots" lists the priority lots, and "zone.&lt;zoneID&gt;" lists
+     * the alternate zones of a zone. Both are comma separated.
+     */
+    public static SpaceSearchRules load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        List<String> lotPriority = split(properties.getProperty(LOTS_PROPERTY, ""));
+        Map<String, List<String>> alternateZones = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(ZONE_PROPERTY_PREFIX)) {
+                alternateZones.put(name.substring(ZONE_PROPERTY_PREFIX.length()), split(properties.getProperty(name)));
+            }
+        }
+        return new SpaceSearchRules(lotPriority, alternateZones);
+    }
+
+    /** zoneOrder returns the zones to search for a permit's zone: the zone itself, then its alternates. */
+    public List<String> zoneOrder(String zoneID) {
+        Set<String> zones = new LinkedHashSet<>();
+        zones.add(zoneID);
+        List<String> alternates = alternateZones.get(zoneID);
+        if (alternates != null) {
+            zones.addAll(alternates);
+        }
+        return new ArrayList<>(zones);
+    }
+
+    /** lotOrder puts lotNames in search order: the priority lots that exist, then the rest by name. */
+    public List<String> lotOrder(Collection<String> lotNames) {
+        Set<String> remaining = new TreeSet<>(lotNames);
+        List<String> ordered = new ArrayList<>();
+        for (String lotName : lotPriority) {
+            if (remaining.remove(lotName)) {
+                ordered.add(lotName);
+            }
+        }
+        ordered.addAll(remaining);
+        return ordered;
+    }
+
+    /** getZonesWithAlternates returns every zone that has alternates configured. */
+    public Set<String> getZonesWithAlternates() {
+        return Collections.unmodifiableSet(alternateZones.keySet());
+    }
+
+    private static List<String> split(String value) {
+        List<String> parts = new ArrayList<>();
+        for (String part : Arrays.asList(value.split(","))) {
+            if (!part.trim().isEmpty()) {
+                parts.add(part.trim());
+            }
+        }
+        return parts;
+    }
+}
@@ -1,6 +1,8 @@
 package org.parking.service;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 import org.parking.model.Space;
 
@@ -13,10 +15,33 @@ public interface SpaceService {
      * Spaces are grouped by the parking lot they are in,
      * the zone they are in and their identifier.
      *
-     * @return A collection of all of the Spaces in the database.
+     * @return A collection of all of the Spaces in the database; null if an error occurs.
      */
     public Collection<Space> getAll();
 
+    /**
+     * Returns up to limit Spaces that come after the given space in primary key
+     * order (number, zoneID, lotName). Seeking on the key keeps every page as
+     * cheap as the first.
+     *
+     * @param after The last space of the previous page, null for the first page.
+     * @param limit The maximum number of spaces to return.
+     * @return The next page of spaces, empty once there are no more or if an
+     *         error occurs.
+     */
+    List<Space> getPage(Space after, int limit);
+
+    /**
+     * Passes every Space to action in primary key order without loading the
+     * table into memory. The cursor is closed when the scan finishes or action
+     * throws.
+     *
+     * @param action Called once for each space.
+     * @return The number of spaces visited. The scan stops early if an error
+     *         occurs.
+     */
+    int forEach(Consumer<Space> action);
+
     /**
      * Retrieves a space that has a primary key that matches the number,
      * zoneID and lotName from the database.
@@ -38,15 +63,29 @@ public interface SpaceService {
     boolean createSpace(Space space);
 
     /**
-     * Updates a space in the database.
+     * Updates a space in the database. The update only applies if the space's
+     * status is still originalSpace's status, so a space someone else has
+     * taken or freed in the meantime is left alone.
      * 
      * @param originalSpace The original space to look for.
      * @param updatedSpace  The values to the set the space to.
      * @return True if successful, false if the space does not
-     *         exist or an error occurs.
+     *         exist, its status has changed or an error occurs.
      */
     boolean updateSpace(Space originalSpace, Space updatedSpace);
 
+    /**
+     * Finds a free space of the given type in the lot and marks it in use in
+     * one transaction. Concurrent callers never reserve the same space and do
+     * not wait on each other's reservations.
+     *
+     * @param lotName   The name of the parking lot.
+     * @param spaceType The type of space wanted.
+     * @return The reserved space with its new status, null if no free space of
+     *         that type is left or an error occurs.
+     */
+    Space reserveSpace(String lotName, String spaceType);
+
     /**
      * Deletes a space from the database.
      * 
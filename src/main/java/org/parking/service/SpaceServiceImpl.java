@@ -5,7 +5,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 import org.parking.model.Space;
 
@@ -18,15 +21,35 @@ public class SpaceServiceImpl implements SpaceService {
      */
     private final DBService dbService;
 
+    /**
+     * Notified after every successful change to a space.
+     */
+    private final List<SpaceStatusListener> listeners;
+
     /**
      * Constructor for the Space Service Implementation. Allows the program to
      * perform
      * database operations on Space entries.
      * 
      * @param dbService Database org.parking.service that holds the connection information.
+     * @param listeners Told about every space created, updated, reserved,
+     *                  retyped or deleted through this service.
      */
-    public SpaceServiceImpl(DBService dbService) {
+    public SpaceServiceImpl(DBService dbService, SpaceStatusListener... listeners) {
         this.dbService = dbService;
+        this.listeners = Arrays.asList(listeners);
+    }
+
+    // publish tells every listener about a change that has been written to the database. A failing listener is
+    // logged and skipped so it can't undo or hide the change from the caller.
+    private void publish(Space before, Space after) {
+        for (SpaceStatusListener listener : listeners) {
+            try {
+                listener.spaceChanged(before, after);
+            } catch (RuntimeException e) {
+                System.out.println("Space status listener failed: " + e.getMessage());
+            }
+        }
     }
 
     public Collection<Space> getAll() {
@@ -54,6 +77,7 @@ public class SpaceServiceImpl implements SpaceService {
             }
         } catch (SQLException e) {
             System.out.println("Error executing getAllSpaces query");
+            Spaces = null;
         } finally {
             // If the connection is null it means we didn't allocation any db related
             // objects to close so theres nothing
@@ -67,6 +91,80 @@ public class SpaceServiceImpl implements SpaceService {
         return Spaces;
     }
 
+    @Override
+    public List<Space> getPage(Space after, int limit) {
+        List<Space> spaces = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            if (after == null) {
+                pstate = conn.prepareStatement("SELECT * FROM Spaces ORDER BY number, zoneID, lotName LIMIT ?");
+                pstate.setInt(1, limit);
+            } else {
+                pstate = conn.prepareStatement("SELECT * FROM Spaces WHERE number > ? OR (number = ? AND (zoneID > ? OR (zoneID = ? AND lotName > ?))) ORDER BY number, zoneID, lotName LIMIT ?");
+                pstate.setInt(1, after.getNumber());
+                pstate.setInt(2, after.getNumber());
+                pstate.setString(3, after.getZoneID());
+                pstate.setString(4, after.getZoneID());
+                pstate.setString(5, after.getLotName());
+                pstate.setInt(6, limit);
+            }
+            results = pstate.executeQuery();
+            while (results.next()) {
+                spaces.add(toSpace(results));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error executing getPage query");
+            spaces.clear();
+        } finally {
+            // If the connection is null it means we didn't allocation any db related
+            // objects to close so theres nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        return spaces;
+    }
+
+    @Override
+    public int forEach(Consumer<Space> action) {
+        int count = 0;
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement("SELECT * FROM Spaces ORDER BY number, zoneID, lotName");
+            pstate.setFetchSize(DBService.STREAM_FETCH_SIZE);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                action.accept(toSpace(results));
+                count++;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error executing forEach query");
+        } finally {
+            // If the connection is null it means we didn't allocation any db related
+            // objects to close so theres nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+        return count;
+    }
+
+    private static Space toSpace(ResultSet results) throws SQLException {
+        return new Space(results.getInt("number"),
+                results.getString("type"),
+                results.getBoolean("status"),
+                results.getString("zoneID"),
+                results.getString("lotName"));
+    }
+
     @Override
     public Space getSpace(int number, String zoneID, String lotName) {
         Connection conn = null;
@@ -130,6 +228,9 @@ public class SpaceServiceImpl implements SpaceService {
 
             }
         }
+        if (rowCount != 0) {
+            publish(null, space);
+        }
         return rowCount != 0;
     }
 
@@ -147,7 +248,7 @@ public class SpaceServiceImpl implements SpaceService {
                     "status=?, " +
                     "zoneID=?, " +
                     "lotName=? " +
-                    "WHERE number=? AND zoneID=? AND lotName=?");
+                    "WHERE number=? AND zoneID=? AND lotName=? AND status=?");
             pstate.setInt(1, updatedSpace.getNumber());
             pstate.setString(2, updatedSpace.getType());
             pstate.setBoolean(3, updatedSpace.getStatus());
@@ -156,6 +257,9 @@ public class SpaceServiceImpl implements SpaceService {
             pstate.setInt(6, originalSpace.getNumber());
             pstate.setString(7, originalSpace.getZoneID());
             pstate.setString(8, originalSpace.getLotName());
+            // Only update the space if its status is still the one the caller read, so two callers that both saw the
+            // space free cannot both mark it in use.
+            pstate.setBoolean(9, originalSpace.getStatus());
             rowCount = pstate.executeUpdate();
         } catch (SQLException e) {
             System.out.println("Error executing updateSpace query");
@@ -168,9 +272,70 @@ public class SpaceServiceImpl implements SpaceService {
 
             }
         }
+        if (rowCount != 0) {
+            publish(originalSpace, updatedSpace);
+        }
         return rowCount != 0;
     }
 
+    @Override
+    public Space reserveSpace(String lotName, String spaceType) {
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        Space reserved = null;
+
+        try {
+            conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            // SKIP LOCKED passes over spaces another transaction is reserving right now instead of waiting for it, so
+            // concurrent reservations each lock a different free space.
+            pstate = conn.prepareStatement("SELECT * FROM Spaces WHERE lotName=? AND type=? AND status=TRUE " +
+                    "LIMIT 1 FOR UPDATE SKIP LOCKED");
+            pstate.setString(1, lotName);
+            pstate.setString(2, spaceType);
+            results = pstate.executeQuery();
+            if (results.next()) {
+                reserved = new Space(results.getInt("number"), results.getString("type"), false,
+                        results.getString("zoneID"), results.getString("lotName"));
+                dbService.close(null, pstate, results);
+                results = null;
+                pstate = conn.prepareStatement("UPDATE Spaces SET status=FALSE " +
+                        "WHERE number=? AND zoneID=? AND lotName=? AND status=TRUE");
+                pstate.setInt(1, reserved.getNumber());
+                pstate.setString(2, reserved.getZoneID());
+                pstate.setString(3, reserved.getLotName());
+                if (pstate.executeUpdate() == 0) {
+                    reserved = null;
+                }
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.out.println("Error executing reserveSpace query");
+            reserved = null;
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException rollbackEx) {
+                System.out.println("Error: " + rollbackEx.getMessage());
+            }
+        } finally {
+            // If the connection is null it means we didn't allocation any db related
+            // objects to close so theres nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+
+            }
+        }
+        if (reserved != null) {
+            publish(new Space(reserved.getNumber(), reserved.getType(), true, reserved.getZoneID(), reserved.getLotName()), reserved);
+        }
+        return reserved;
+    }
+
     @Override
     public boolean deleteSpace(Space space) {
         Connection conn = null;
@@ -195,11 +360,17 @@ public class SpaceServiceImpl implements SpaceService {
 
             }
         }
+        if (rowCount != 0) {
+            publish(space, null);
+        }
         return rowCount != 0;
     }
 
     @Override
     public boolean assignTypeOfASpace(String lotName, String zoneID, int number, String type) {
+        if (!listeners.isEmpty()) {
+            return assignTypeOfASpaceAndPublish(lotName, zoneID, number, type);
+        }
         Connection conn = null;
         PreparedStatement pstate = null;
         int rowCount = 0;
@@ -225,4 +396,59 @@ public class SpaceServiceImpl implements SpaceService {
         }
         return rowCount != 0;
     }
+
+    // assignTypeOfASpaceAndPublish changes a space's type when there are listeners to tell. Listeners count spaces by
+    // type, so the space is read and locked first to learn the type it is moving from.
+    private boolean assignTypeOfASpaceAndPublish(String lotName, String zoneID, int number, String type) {
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+        Space before = null;
+        int rowCount = 0;
+
+        try {
+            conn = dbService.connectAndReturnConnection();
+            conn.setAutoCommit(false);
+            pstate = conn.prepareStatement("SELECT * FROM Spaces WHERE number=? AND zoneID=? AND lotName=? FOR UPDATE");
+            pstate.setInt(1, number);
+            pstate.setString(2, zoneID);
+            pstate.setString(3, lotName);
+            results = pstate.executeQuery();
+            if (results.next()) {
+                before = toSpace(results);
+                dbService.close(null, pstate, results);
+                results = null;
+                pstate = conn.prepareStatement("UPDATE Spaces SET type=? WHERE number=? AND zoneID=? AND lotName=?");
+                pstate.setString(1, type);
+                pstate.setInt(2, number);
+                pstate.setString(3, zoneID);
+                pstate.setString(4, lotName);
+                rowCount = pstate.executeUpdate();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.out.println("Error executing assignTypeOfASpace query");
+            rowCount = 0;
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException rollbackEx) {
+                System.out.println("Error: " + rollbackEx.getMessage());
+            }
+        } finally {
+            // If the connection is null it means we didn't allocation any db related
+            // objects to close so theres nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+
+            }
+        }
+        if (rowCount != 0) {
+            publish(before, new Space(before.getNumber(), type, before.getStatus(), before.getZoneID(), before.getLotName()));
+        }
+        return rowCount != 0;
+    }
 }
\ No newline at end of file
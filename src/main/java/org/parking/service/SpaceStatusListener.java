@@ -0,0 +1,17 @@
+package org.parking.service;
+
+import org.parking.model.Space;
+
+/**
+ * Notified by {@link SpaceServiceImpl} after a change to a space has been written to the database.
+ */
+public interface SpaceStatusListener {
+    /**
+     * Called once per changed space, on the thread that made the change. Listeners must return quickly and must not
+     * throw; an exception is logged and otherwise ignored.
+     *
+     * @param before The space before the change, null if it was just created.
+     * @param after  The space after the change, null if it was deleted.
+     */
+    void spaceChanged(Space before, Space after);
+}
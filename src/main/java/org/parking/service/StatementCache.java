@@ -0,0 +1,229 @@
+package org.parking.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection LRU cache of PreparedStatements keyed by SQL text. The pool wraps each physical connection with
+ * {@link #wrap}, and the returned connection hands out cached statements from {@code prepareStatement(String)}.
+ * Closing a cached statement only clears its parameters and returns it to the cache, so the services can keep
+ * preparing and closing statements exactly as they do today while the server only parses each SQL string once per
+ * connection.
+ */
+final class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    private StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        // Access ordered so iteration starts at the least recently used statement.
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /** wrap returns a connection that serves prepareStatement(String) from a cache of at most maxSize statements and
+     * closes the cached statements along with the physical connection.
+     */
+    static Connection wrap(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses) {
+        StatementCache cache = new StatementCache(physical, maxSize, hits, misses);
+        return (Connection) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, cache.new ConnectionHandler());
+    }
+
+    /** releaseAll returns every statement still checked out to the cache. The pool calls it when a connection is
+     * handed back, which covers code paths that reassign a statement variable without closing the previous one.
+     */
+    static void releaseAll(Connection connection) {
+        StatementCache cache = cacheOf(connection);
+        if (cache != null) {
+            cache.releaseAll();
+        }
+    }
+
+    static int size(Connection connection) {
+        StatementCache cache = cacheOf(connection);
+        return cache == null ? 0 : cache.statements.size();
+    }
+
+    private static StatementCache cacheOf(Connection connection) {
+        if (connection != null && Proxy.isProxyClass(connection.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(connection);
+            if (handler instanceof ConnectionHandler) {
+                return ((ConnectionHandler) handler).cache();
+            }
+        }
+        return null;
+    }
+
+    private PreparedStatement checkout(Connection proxy, String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+        misses.incrementAndGet();
+        PreparedStatement statement = physical.prepareStatement(sql);
+        if (cached != null) {
+            // The same SQL is already checked out on this connection, so this one is used once and closed for real.
+            return statement;
+        }
+        cached = new CachedStatement(statement);
+        cached.proxy = (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new StatementHandler(cached, proxy));
+        cached.inUse = true;
+        statements.put(sql, cached);
+        evictOverflow();
+        return cached.proxy;
+    }
+
+    private void evictOverflow() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            if (!eldest.inUse) {
+                it.remove();
+                closeQuietly(eldest.target);
+            }
+        }
+    }
+
+    private void release(CachedStatement cached) throws SQLException {
+        if (!cached.inUse) {
+            return;
+        }
+        cached.inUse = false;
+        try {
+            cached.target.clearParameters();
+            cached.target.clearBatch();
+        } catch (SQLException e) {
+            // A statement that cannot be reset is not safe to hand out again.
+            statements.values().remove(cached);
+            closeQuietly(cached.target);
+            throw e;
+        }
+        evictOverflow();
+    }
+
+    private void releaseAll() {
+        for (CachedStatement cached : new ArrayList<>(statements.values())) {
+            try {
+                release(cached);
+            } catch (SQLException e) {
+                System.out.println("Error resetting cached statement");
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    private void closeAll() {
+        List<CachedStatement> all = new ArrayList<>(statements.values());
+        statements.clear();
+        for (CachedStatement cached : all) {
+            closeQuietly(cached.target);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing cached statement");
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class CachedStatement {
+        private final PreparedStatement target;
+        private PreparedStatement proxy;
+        private boolean inUse;
+
+        private CachedStatement(PreparedStatement target) {
+            this.target = target;
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private StatementCache cache() {
+            return StatementCache.this;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        return checkout((Connection) proxy, (String) args[0]);
+                    }
+                    break;
+                case "close":
+                    closeAll();
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "StatementCache[" + physical + "]";
+                default:
+                    break;
+            }
+            return StatementCache.invoke(physical, method, args);
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection connection;
+
+        private StatementHandler(CachedStatement cached, Connection connection) {
+            this.cached = cached;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release(cached);
+                    return null;
+                case "isClosed":
+                    return !cached.inUse;
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.target + "]";
+                default:
+                    return StatementCache.invoke(cached.target, method, args);
+            }
+        }
+    }
+}
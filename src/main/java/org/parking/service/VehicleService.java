@@ -4,9 +4,12 @@ import org.parking.model.Vehicle;
 
 import java.sql.*;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 /***************************************************************************
- * CRUD operations for the Vehicles table. Includes functions to read all,
+ * CRUD operations for the Vehicles table. Includes functions to read all
+ * (whole, by page or streamed),
  * get by license, create, update, and delete vehicles.
  * -------------------------------------------------------------------------
  * Each function throws SQLException if an SQL error occurs and prints any
@@ -16,6 +19,8 @@ import java.util.Collection;
  ****************************************************************************/
 public interface VehicleService {
     public Collection<Vehicle> getAll() throws SQLException;
+    public List<Vehicle> getPage(String afterLicense, int limit) throws SQLException;
+    public int forEach(Consumer<Vehicle> action) throws SQLException;
     public Vehicle getByLicense(String id) throws SQLException;
     public boolean update(Vehicle vehicle) throws SQLException;
     public boolean delete(String license) throws SQLException;
@@ -5,6 +5,8 @@ import org.parking.model.Vehicle;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class VehicleServiceImpl implements VehicleService {
     private final DBService dbService;
@@ -58,6 +60,89 @@ public class VehicleServiceImpl implements VehicleService {
         return vehicles;
     }
 
+    /***************************************************************************
+     * Get up to limit vehicles whose carLicenseNumber sorts after afterLicense, ordered by
+     * carLicenseNumber. Pass null for the first page and the carLicenseNumber of the last
+     * vehicle returned for each following page. Returns an empty list once there
+     * are no more vehicles.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT * FROM Vehicles WHERE carLicenseNumber > ? ORDER BY carLicenseNumber LIMIT ?"
+     ****************************************************************************/
+    public List<Vehicle> getPage(String afterLicense, int limit) throws SQLException {
+        List<Vehicle> vehicles = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement("SELECT * FROM Vehicles WHERE carLicenseNumber > ? ORDER BY carLicenseNumber LIMIT ?");
+            pstate.setString(1, afterLicense == null ? "" : afterLicense);
+            pstate.setInt(2, limit);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                vehicles.add(toVehicle(results));
+            }
+        } catch (SQLException e) {
+            // Throw SQL Exception up to caller function
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+
+        return vehicles;
+    }
+
+    /***************************************************************************
+     * Pass every vehicle to action in carLicenseNumber order without loading the table
+     * into memory. Rows are read DBService.STREAM_FETCH_SIZE at a time and the
+     * cursor is closed when the scan finishes or action throws. Returns the
+     * number of vehicles visited.
+     * ---------------------------------------------------------------------------
+     * SQL Statement: "SELECT * FROM Vehicles ORDER BY carLicenseNumber"
+     ****************************************************************************/
+    public int forEach(Consumer<Vehicle> action) throws SQLException {
+        int count = 0;
+        Connection conn = null;
+        PreparedStatement pstate = null;
+        ResultSet results = null;
+
+        try {
+            conn = dbService.connectAndReturnConnection();
+            pstate = conn.prepareStatement("SELECT * FROM Vehicles ORDER BY carLicenseNumber");
+            pstate.setFetchSize(DBService.STREAM_FETCH_SIZE);
+            results = pstate.executeQuery();
+            while (results.next()) {
+                action.accept(toVehicle(results));
+                count++;
+            }
+        } catch (SQLException e) {
+            // Throw SQL Exception up to caller function
+            throw e;
+        } finally {
+            // If the connection is null it means we didn't allocation any db related objects to close so there's nothing
+            // to clean up.
+            if (conn != null) {
+                dbService.close(conn, pstate, results);
+            }
+        }
+
+        return count;
+    }
+
+    private static Vehicle toVehicle(ResultSet results) throws SQLException {
+        return new Vehicle(results.getString("carLicenseNumber"),
+                results.getString("model"),
+                results.getString("color"),
+                results.getString("manufacturer"),
+                results.getInt("year")
+        );
+    }
+
     /***************************************************************************
      * Get a specific vehicle based on a given license plate number. If none exist,
      * return null.
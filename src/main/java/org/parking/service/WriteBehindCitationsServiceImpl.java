@@ -0,0 +1,321 @@
+package org.parking.service;
+
+import org.parking.model.Citation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * CitationsService decorator that acknowledges new citations once they are in a {@link CitationWriteBehindLog} and
+ * writes them to the database in the background, so issuing a ticket does not wait on, or fail with, the database.
+ *
+ * Every citation is given its number and a request key when it is logged, so the number can be printed on the ticket
+ * straight away. Numbers come from a {@link CitationNumberAllocator}, which only needs the database when its block
+ * runs out. The drainer inserts batches with their keys, and Citations.requestKey is unique, so a batch sent again
+ * after a crash or a lost reply is not inserted twice. A citation the database refuses with a constraint violation,
+ * for example for an unknown lot, is appended to the rejected file so it can be corrected and re-entered. Any other
+ * error, such as a lost connection, leaves the whole batch in the log to be retried on the next drain.
+ *
+ * Reads, updates and deletes go straight to the delegate and do not see citations still in the log. When the log is
+ * full, citations are written through to the delegate as if there were no log.
+ */
+public class WriteBehindCitationsServiceImpl implements CitationsService {
+    static final int DEFAULT_BATCH_SIZE = 200;
+    static final long DEFAULT_DRAIN_INTERVAL_MILLIS = 500;
+
+    private final CitationsService delegate;
+    private final CitationNumberAllocator numberAllocator;
+    private final CitationWriteBehindLog log;
+    private final Path rejectedFile;
+    private final int batchSize;
+    private final ScheduledExecutorService drainer;
+    private final Object drainLock = new Object();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final CitationRequestKeyCache loggedByRequestKey = new CitationRequestKeyCache(CitationRequestKeyCache.DEFAULT_MAX_SIZE);
+
+    public WriteBehindCitationsServiceImpl(CitationsService delegate, CitationNumberAllocator numberAllocator,
+                                           CitationWriteBehindLog log, Path rejectedFile) {
+        this(delegate, numberAllocator, log, rejectedFile, DEFAULT_BATCH_SIZE, DEFAULT_DRAIN_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param delegate            The service citations are written to.
+     * @param numberAllocator     Numbers citations as they are logged.
+     * @param log                 Log citations are kept in until they are written.
+     * @param rejectedFile        File citations the database refuses are appended to, one per line.
+     * @param batchSize           Number of logged citations written per call to the delegate.
+     * @param drainIntervalMillis How long the drainer waits between drains. Zero disables the background drain so the
+     *                            caller decides when to {@link #drain()}.
+     */
+    public WriteBehindCitationsServiceImpl(CitationsService delegate, CitationNumberAllocator numberAllocator,
+                                           CitationWriteBehindLog log, Path rejectedFile, int batchSize,
+                                           long drainIntervalMillis) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.delegate = delegate;
+        this.numberAllocator = numberAllocator;
+        this.log = log;
+        this.rejectedFile = rejectedFile;
+        this.batchSize = batchSize;
+        if (drainIntervalMillis > 0) {
+            this.drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "citation-log-drainer");
+                t.setDaemon(true);
+                return t;
+            });
+            drainer.scheduleWithFixedDelay(this::drain, drainIntervalMillis, drainIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.drainer = null;
+        }
+    }
+
+    @Override
+    public Collection<Citation> getAll() throws SQLException {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Citation> getPage(int afterNumber, int limit) throws SQLException {
+        return delegate.getPage(afterNumber, limit);
+    }
+
+    @Override
+    public int forEach(Consumer<Citation> action) throws SQLException {
+        return delegate.forEach(action);
+    }
+
+    @Override
+    public Citation getByNumber(int number) throws SQLException {
+        return delegate.getByNumber(number);
+    }
+
+    /**
+     * createCitation numbers and logs the citation and returns its number. The drainer inserts the vehicle if it is
+     * missing, so createVehicle only matters when the log is full and the citation is written through.
+     */
+    @Override
+    public int createCitation(Citation citation, Boolean createVehicle) throws SQLException {
+        assignNumber(citation);
+        if (!append(citation, UUID.randomUUID().toString())) {
+            return delegate.createCitation(citation, createVehicle);
+        }
+        System.out.println("Citation " + citation.getNumber() + " logged, it will be saved shortly");
+        return citation.getNumber();
+    }
+
+    /**
+     * createCitation with a request key logs the citation under that key, and answers a repeated key with the number
+     * logged the first time. Keys logged before a restart are not remembered; the drainer's keyed insert still keeps
+     * such a retry from adding a second row.
+     */
+    @Override
+    public int createCitation(Citation citation, Boolean createVehicle, String requestKey) throws SQLException {
+        if (requestKey == null) {
+            return createCitation(citation, createVehicle);
+        }
+        // Appends are serialized by the log anyway, so holding the cache across one costs little and keeps two
+        // concurrent requests with the same key from both being logged.
+        synchronized (loggedByRequestKey) {
+            Integer logged = loggedByRequestKey.get(requestKey);
+            if (logged != null) {
+                citation.setNumber(logged);
+                System.out.println("Citation " + logged + " was already created for this request");
+                return logged;
+            }
+            assignNumber(citation);
+            if (!append(citation, requestKey)) {
+                return delegate.createCitation(citation, createVehicle, requestKey);
+            }
+            loggedByRequestKey.put(requestKey, citation.getNumber());
+        }
+        System.out.println("Citation " + citation.getNumber() + " logged, it will be saved shortly");
+        return citation.getNumber();
+    }
+
+    private void assignNumber(Citation citation) throws SQLException {
+        if (citation.getNumber() == 0) {
+            citation.setNumber(numberAllocator.next());
+        }
+    }
+
+    @Override
+    public int[] createCitations(Collection<Citation> citations) throws SQLException {
+        List<String> requestKeys = new ArrayList<>(citations.size());
+        for (int i = 0; i < citations.size(); i++) {
+            requestKeys.add(UUID.randomUUID().toString());
+        }
+        return createCitations(citations, requestKeys);
+    }
+
+    /**
+     * createCitations logs every citation with its request key and reports it created. Citations that don't fit in
+     * the log are written through to the delegate and report the delegate's outcome.
+     */
+    @Override
+    public int[] createCitations(Collection<Citation> citations, List<String> requestKeys) throws SQLException {
+        List<Citation> rows = new ArrayList<>(citations);
+        if (requestKeys.size() != rows.size()) {
+            throw new IllegalArgumentException("Expected one request key per citation");
+        }
+        for (Citation citation : rows) {
+            assignNumber(citation);
+        }
+        int[] outcomes = new int[rows.size()];
+        int logged = 0;
+        while (logged < rows.size() && append(rows.get(logged), requestKeys.get(logged))) {
+            outcomes[logged++] = 1;
+        }
+        if (logged < rows.size()) {
+            int[] rest = delegate.createCitations(rows.subList(logged, rows.size()), requestKeys.subList(logged, rows.size()));
+            System.arraycopy(rest, 0, outcomes, logged, rest.length);
+        }
+        return outcomes;
+    }
+
+    // append returns false if the citation could not be logged and must be written through instead.
+    private boolean append(Citation citation, String requestKey) {
+        try {
+            return log.append(citation, requestKey);
+        } catch (IOException e) {
+            System.out.println("Citation log write failed, saving directly: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void updateCitation(Citation citation) throws SQLException {
+        delegate.updateCitation(citation);
+    }
+
+    @Override
+    public void deleteCitationByNumber(int number) throws SQLException {
+        delegate.deleteCitationByNumber(number);
+    }
+
+    @Override
+    public boolean appealCitation(int number) {
+        return delegate.appealCitation(number);
+    }
+
+    @Override
+    public boolean payCitation(int number) {
+        return delegate.payCitation(number);
+    }
+
+    @Override
+    public Map<Integer, Boolean> appealCitations(Collection<Integer> numbers) throws SQLException {
+        return delegate.appealCitations(numbers);
+    }
+
+    @Override
+    public Map<Integer, Boolean> payCitations(Collection<Integer> numbers) throws SQLException {
+        return delegate.payCitations(numbers);
+    }
+
+    /**
+     * drain writes the logged citations to the delegate, batchSize at a time, until the log is empty or a batch
+     * fails. Returns the number of citations written. The background drainer calls this on its interval.
+     */
+    public int drain() {
+        synchronized (drainLock) {
+            int count = 0;
+            try {
+                List<CitationWriteBehindLog.PendingCitation> batch;
+                while (!(batch = log.readPending(batchSize)).isEmpty()) {
+                    List<Citation> citations = new ArrayList<>(batch.size());
+                    List<String> requestKeys = new ArrayList<>(batch.size());
+                    for (CitationWriteBehindLog.PendingCitation pending : batch) {
+                        citations.add(pending.getCitation());
+                        requestKeys.add(pending.getRequestKey());
+                    }
+                    int[] outcomes = delegate.createCitations(citations, requestKeys);
+                    List<CitationWriteBehindLog.PendingCitation> refused = new ArrayList<>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (outcomes[i] == Statement.EXECUTE_FAILED) {
+                            refused.add(batch.get(i));
+                        } else {
+                            count++;
+                        }
+                    }
+                    if (!refused.isEmpty()) {
+                        reject(refused);
+                    }
+                    log.markDrained(batch.get(batch.size() - 1));
+                    written.addAndGet(batch.size() - refused.size());
+                }
+            } catch (SQLException | IOException e) {
+                System.out.println("Citation log not drained, will retry: " + e.getMessage());
+            }
+            return count;
+        }
+    }
+
+    private void reject(List<CitationWriteBehindLog.PendingCitation> refused) throws IOException {
+        List<String> lines = new ArrayList<>(refused.size());
+        for (CitationWriteBehindLog.PendingCitation pending : refused) {
+            Citation citation = pending.getCitation();
+            lines.add(String.join(",", Arrays.asList(pending.getRequestKey(), String.valueOf(citation.getNumber()),
+                    citation.getVehicle().getLicense(),
+                    citation.getLotName(), citation.getCategory(), String.valueOf(citation.getFee()),
+                    citation.getPaymentStatus(), String.valueOf(citation.getCitationDate()),
+                    String.valueOf(citation.getCitationTime()))));
+        }
+        Files.write(rejectedFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        rejected.addAndGet(refused.size());
+        System.out.println(refused.size() + " citation(s) refused by the database were written to " + rejectedFile);
+    }
+
+    /** getPending returns the number of citations in the log that have not been written yet. */
+    public int getPending() {
+        return log.getPending();
+    }
+
+    /** getWritten returns the number of logged citations the drainer has written. */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /** getRejected returns the number of logged citations the database refused. */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * shutdown stops the drainer, makes a last attempt to write what is left and closes the log. Citations that could
+     * not be written stay in the log for the next start.
+     */
+    public void shutdown() {
+        if (drainer != null) {
+            drainer.shutdown();
+            try {
+                drainer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drain();
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.out.println("Error closing citation log: " + e.getMessage());
+        }
+    }
+}
@@ -13,7 +13,7 @@ public interface ZoneService {
      * Returns all of the Zones in the database.
      * Zones are grouped by the parking lot they are in and their identifier.
      *
-     * @return A collection of all of the Zones in the database.
+     * @return A collection of all of the Zones in the database; null if an error occurs.
      */
     Collection<Zone> getAll();
 
@@ -32,7 +32,8 @@ public interface ZoneService {
      * Retrieves a collection of zones that match the id provided.
      * 
      * @param id The id to search for.
-     * @return A collection of all the zones found that match the id.
+     * @return A collection of all the zones found that match the id; null if an
+     *         error occurs.
      */
     Collection<Zone> getZonesById(String id);
 
@@ -40,7 +41,8 @@ public interface ZoneService {
      * Retrieves a collection of zones that match the lot name provided.
      * 
      * @param lotName The name of the parking lot to search for.
-     * @return A collection of all the zones found that match the lotName.
+     * @return A collection of all the zones found that match the lotName; null if
+     *         an error occurs.
      */
     Collection<Zone> getZonesByLotName(String lotName);
 
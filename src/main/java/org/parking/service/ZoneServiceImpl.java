@@ -52,6 +52,7 @@ public class ZoneServiceImpl implements ZoneService {
             }
         } catch (SQLException e) {
             System.out.println("Error executing getAll query");
+            zones = null;
         } finally {
             // If the connection is null it means we didn't allocation any db related
             // objects to close so theres nothing
@@ -123,6 +124,7 @@ public class ZoneServiceImpl implements ZoneService {
             }
         } catch (SQLException e) {
             System.out.println("Error executing getParkingLot query");
+            zones = null;
         } finally {
             // If the connection is null it means we didn't allocation any db related
             // objects to close so theres nothing
@@ -161,6 +163,7 @@ public class ZoneServiceImpl implements ZoneService {
             }
         } catch (SQLException e) {
             System.out.println("Error executing getParkingLot query");
+            zones = null;
         } finally {
             // If the connection is null it means we didn't allocation any db related
             // objects to close so theres nothing
@@ -0,0 +1,23 @@
+-- Secondary indexes for the lookups the services run on every menu action. InnoDB already indexes foreign key
+-- columns on its own, but naming the indexes here makes them explicit and lets the composite ones replace the
+-- single column foreign key indexes they start with.
+
+-- PermitsServiceImpl.getPermitInfo, getVehicleNumberofPermit, deletePermitInfo, addVehicleToPermit and
+-- removeVehicleFromPermit all look permits up by permitID.
+CREATE INDEX PermitsByPermitID ON Permits (permitID);
+
+-- PermitsServiceImpl.getPermitPerCarLicense and PermitValidationServiceImpl.validate look permits up by vehicle.
+CREATE INDEX PermitsByCarLicense ON Permits (carLicenseNum);
+
+-- PermitsServiceImpl.getPermitsNumberForDriver counts distinct permitIDs per driver, which this index answers on its
+-- own. ReportsServiceImpl.getPermitForDriver uses its leading column.
+CREATE INDEX PermitsByDriver ON Permits (associatedID, permitID);
+
+-- ReportsServiceImpl.generateViolatedCarNumber counts distinct licenses of DUE citations from the index alone.
+CREATE INDEX CitationsByStatus ON Citations (paymentStatus, licenseNum);
+
+-- Date range queries on a lot's citations.
+CREATE INDEX CitationsByLotAndDate ON Citations (lotName, citationDate);
+
+-- ReportsServiceImpl.getAvailableSpaceinParkingLot finds free spaces of a type in a lot.
+CREATE INDEX SpacesByLotTypeStatus ON Spaces (lotName, type, status);
@@ -0,0 +1,7 @@
+-- PermitExpiryScheduler marks permits expired when their expirationDate and expirationTime pass, so quota checks and
+-- reports can filter on a flag instead of comparing dates. A run interrupted after the column was added is repeated
+-- safely, since SchemaMigrationServiceImpl skips a column that already exists.
+ALTER TABLE Permits ADD COLUMN expired boolean NOT NULL DEFAULT FALSE;
+
+-- PermitExpiryScheduler loads the permits that are not expired yet and lapse within its horizon.
+CREATE INDEX PermitsByExpiry ON Permits (expired, expirationDate);
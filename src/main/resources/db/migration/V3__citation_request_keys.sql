@@ -0,0 +1,5 @@
+-- WriteBehindCitationsServiceImpl stores the request key each citation was issued with, so a batch replayed from its
+-- local log after a crash inserts nothing it already inserted. Keys are optional; citations entered directly have none.
+ALTER TABLE Citations ADD COLUMN requestKey varchar(36) NULL;
+
+CREATE UNIQUE INDEX CitationsByRequestKey ON Citations (requestKey);
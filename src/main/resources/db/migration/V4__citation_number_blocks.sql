@@ -0,0 +1,8 @@
+-- CitationNumberAllocator reserves blocks of citation numbers per device from a single-row sequence, so handhelds can
+-- number tickets without a round trip. The sequence starts after the highest number already used.
+CREATE TABLE IF NOT EXISTS CitationNumberSequence (id integer PRIMARY KEY NOT NULL, nextNumber integer NOT NULL);
+
+INSERT IGNORE INTO CitationNumberSequence (id, nextNumber) SELECT 1, COALESCE(MAX(citationNum), 0) + 1 FROM Citations;
+
+-- Every reserved block and the device it was given to, for reconciling the numbers a device actually issued.
+CREATE TABLE IF NOT EXISTS CitationNumberBlocks (firstNumber integer PRIMARY KEY NOT NULL, lastNumber integer NOT NULL, deviceID varchar(64) NOT NULL, allocatedAt timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP);
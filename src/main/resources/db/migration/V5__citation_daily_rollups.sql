@@ -0,0 +1,42 @@
+-- Citation reports read CitationDailyRollups instead of scanning Citations. Databases created before the rollups
+-- existed get the table here, and every database has its rollups rebuilt from Citations so no citation written
+-- before the triggers is missed. The triggers are dropped first so the rebuild and a re-run both start clean.
+DROP TRIGGER IF EXISTS CitationsRollupInsert;
+DROP TRIGGER IF EXISTS CitationsRollupDelete;
+DROP TRIGGER IF EXISTS CitationsRollupUpdateRemove;
+DROP TRIGGER IF EXISTS CitationsRollupUpdateAdd;
+
+CREATE TABLE IF NOT EXISTS CitationDailyRollups (lotName varchar(255) NOT NULL, citationDay date NOT NULL, paymentStatus varchar(8) NOT NULL, citationCount integer NOT NULL, feeTotal decimal(12,2) NOT NULL, PRIMARY KEY (lotName, citationDay, paymentStatus), FOREIGN KEY (lotName) REFERENCES ParkingLots (name) ON UPDATE CASCADE);
+
+DELETE FROM CitationDailyRollups;
+
+INSERT INTO CitationDailyRollups (lotName, citationDay, paymentStatus, citationCount, feeTotal)
+SELECT lotName, citationDate, paymentStatus, COUNT(*), SUM(fee) FROM Citations GROUP BY lotName, citationDate, paymentStatus;
+
+CREATE TRIGGER CitationsRollupInsert AFTER INSERT ON Citations FOR EACH ROW
+INSERT INTO CitationDailyRollups (lotName, citationDay, paymentStatus, citationCount, feeTotal)
+VALUES (NEW.lotName, NEW.citationDate, NEW.paymentStatus, 1, NEW.fee)
+ON DUPLICATE KEY UPDATE citationCount = citationCount + 1, feeTotal = feeTotal + NEW.fee;
+
+-- A rollup row is removed when its last citation leaves it, so an empty row never holds a reference to its lot and
+-- a lot whose citations are all gone can be deleted.
+CREATE TRIGGER CitationsRollupDelete AFTER DELETE ON Citations FOR EACH ROW BEGIN
+UPDATE CitationDailyRollups SET citationCount = citationCount - 1, feeTotal = feeTotal - OLD.fee
+WHERE lotName = OLD.lotName AND citationDay = OLD.citationDate AND paymentStatus = OLD.paymentStatus;
+DELETE FROM CitationDailyRollups
+WHERE lotName = OLD.lotName AND citationDay = OLD.citationDate AND paymentStatus = OLD.paymentStatus AND citationCount = 0;
+END;
+
+-- An update moves the citation out of its old rollup row and into its new one, covering paying, appealing and
+-- editing a citation.
+CREATE TRIGGER CitationsRollupUpdateRemove AFTER UPDATE ON Citations FOR EACH ROW BEGIN
+UPDATE CitationDailyRollups SET citationCount = citationCount - 1, feeTotal = feeTotal - OLD.fee
+WHERE lotName = OLD.lotName AND citationDay = OLD.citationDate AND paymentStatus = OLD.paymentStatus;
+DELETE FROM CitationDailyRollups
+WHERE lotName = OLD.lotName AND citationDay = OLD.citationDate AND paymentStatus = OLD.paymentStatus AND citationCount = 0;
+END;
+
+CREATE TRIGGER CitationsRollupUpdateAdd AFTER UPDATE ON Citations FOR EACH ROW FOLLOWS CitationsRollupUpdateRemove
+INSERT INTO CitationDailyRollups (lotName, citationDay, paymentStatus, citationCount, feeTotal)
+VALUES (NEW.lotName, NEW.citationDate, NEW.paymentStatus, 1, NEW.fee)
+ON DUPLICATE KEY UPDATE citationCount = citationCount + 1, feeTotal = feeTotal + NEW.fee;
@@ -28,6 +28,8 @@ public class CUDMenuImplTest {
     private ZoneService zoneService;
     @Mock
     private SpaceService spaceService;
+    @Mock
+    private SpaceAvailabilityIndex spaceAvailabilityIndex;
 
     private final InputStream systemIn = System.in;
 
@@ -35,7 +37,7 @@ public class CUDMenuImplTest {
     @BeforeEach
     void init() {
         openMocks(this);
-        CUDMenuImpl = new CUDMenuImpl(permitsService,driversService,vehicleService,parkingLotService,zoneService,spaceService);
+        CUDMenuImpl = new CUDMenuImpl(permitsService,driversService,vehicleService,parkingLotService,zoneService,spaceService,spaceAvailabilityIndex);
     }
 
     @AfterEach
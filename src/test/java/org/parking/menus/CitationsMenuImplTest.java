@@ -1,13 +1,13 @@
 package org.parking.menus;
 
 import org.parking.model.Citation;
-import org.parking.model.Permit;
 import org.parking.model.Vehicle;
-import org.parking.model.Zone;
 import org.parking.service.*;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 import java.io.ByteArrayInputStream;
@@ -16,6 +16,7 @@ import java.sql.Date;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.Mockito.*;
@@ -27,24 +28,18 @@ class CitationsMenuImplTest {
     @Mock
     private CitationsService citationsService;
     @Mock
-    private VehicleService vehicleService;
-    @Mock
-    private PermitsService permitsService;
-    @Mock
-    private ZoneService zoneService;
+    private PermitValidationService permitValidationService;
 
     private final Citation mockCitation =  new Citation(0, new Vehicle("test-license", "test-model", "test-color", "", 0), "test-lotName", "test-category", 30.00, "paid", Date.valueOf("2024-01-01"), Time.valueOf("10:10:10"));
 
-    private final Permit mockPermit = new Permit("test-permit", "", "test-zone", "", "", "", Date.valueOf("2023-12-01"), Date.valueOf("2024-01-01"), Time.valueOf("10:10:10"));
-
-    private final Zone mockZone = new Zone("test-zone", "test-lotName");
+    private final PermitValidationResult unregisteredVehicle = new PermitValidationResult(false, Collections.emptyList());
     private final InputStream systemIn = System.in;
 
 
     @BeforeEach
     void init() {
         openMocks( this );
-        citationsMenuImpl = new CitationsMenuImpl(citationsService, vehicleService, permitsService, zoneService);
+        citationsMenuImpl = new CitationsMenuImpl(citationsService, permitValidationService);
     }
 
     @AfterEach
@@ -56,37 +51,51 @@ class CitationsMenuImplTest {
     void callInterface_createCitationNoExistingVehicleFirstLicenseEmpty() throws SQLException {
         ByteArrayInputStream in = new ByteArrayInputStream("1\n\ntest-license\ntest-model\ntest-color\ntest-lotName\ntest-category\n30.00\ndue\nDUE\n2024-01-01\n10:10:10\n8\n".getBytes());
         System.setIn(in);
-        when(vehicleService.getByLicense("test-license")).thenReturn(null);
+        when(permitValidationService.validate(eq("test-license"), eq("test-lotName"), any(), any(), isNull())).thenReturn(unregisteredVehicle);
         citationsMenuImpl.callInterface();
-        verify(citationsService, times(1)).createCitation(any(), any());
+        verify(citationsService, times(1)).createCitation(any(), eq(true), anyString());
     }
 
     @Test
     void callInterface_createCitationNoExistingVehicleInvalidFirstFeeDateAndTime() throws SQLException {
         ByteArrayInputStream in = new ByteArrayInputStream("1\ntest-license\ntest-model\ntest-color\ntest-lotName\ntest-category\nA\n30.00\nDUE\nA\n2024-01-01\nA\n10:10:10\n8\n".getBytes());
         System.setIn(in);
-        when(vehicleService.getByLicense("test-license")).thenReturn(null);
+        when(permitValidationService.validate(eq("test-license"), eq("test-lotName"), any(), any(), isNull())).thenReturn(unregisteredVehicle);
         citationsMenuImpl.callInterface();
-        verify(citationsService, times(1)).createCitation(any(), any());
+        verify(citationsService, times(1)).createCitation(any(), eq(true), anyString());
     }
 
     @Test
     void callInterface_createCitationSQLException() throws SQLException {
-        ByteArrayInputStream in = new ByteArrayInputStream("1\ntest-license\ntest-model\ntest-color\ntest-lotName\ntest-category\n30.00\nPAID\n2024-01-01\n10:10:10\n8\n".getBytes());
+        ByteArrayInputStream in = new ByteArrayInputStream("1\ntest-license\ntest-model\ntest-color\ntest-lotName\ntest-category\n30.00\nPAID\n2024-01-01\n10:10:10\nn\n8\n".getBytes());
+        System.setIn(in);
+        when(permitValidationService.validate(eq("test-license"), eq("test-lotName"), any(), any(), isNull())).thenThrow(new SQLException());
+        citationsMenuImpl.callInterface();
+        verify(citationsService, never()).createCitation(any(), any(), any());
+    }
+
+    @Test
+    void callInterface_createCitationRetryReusesRequestKey() throws SQLException {
+        ByteArrayInputStream in = new ByteArrayInputStream("1\ntest-license\ntest-model\ntest-color\ntest-lotName\ntest-category\n30.00\nPAID\n2024-01-01\n10:10:10\ny\n8\n".getBytes());
         System.setIn(in);
-        when(vehicleService.getByLicense("test-license")).thenThrow(new SQLException());
+        when(permitValidationService.validate(eq("test-license"), eq("test-lotName"), any(), any(), isNull())).thenReturn(unregisteredVehicle);
+        when(citationsService.createCitation(any(), eq(true), anyString())).thenThrow(new SQLException()).thenReturn(12);
         citationsMenuImpl.callInterface();
+        ArgumentCaptor<String> requestKeys = ArgumentCaptor.forClass(String.class);
+        verify(citationsService, times(2)).createCitation(any(), eq(true), requestKeys.capture());
+        Assertions.assertEquals(requestKeys.getAllValues().get(0), requestKeys.getAllValues().get(1));
     }
 
     @Test
     void callInterface_createCitationExistingVehicleInvalidPermit() throws SQLException {
         ByteArrayInputStream in = new ByteArrayInputStream("1\ntest-license\ntest-model\ntest-color\ntest-citationLotName\ntest-category\n30.00\nPAID\n2024-01-01\n10:10:11\n8\n".getBytes());
         System.setIn(in);
-        when(vehicleService.getByLicense("test-license")).thenReturn(new Vehicle("test-license", "test-model", "test-color", "test-manf", 2023));
-        when(permitsService.getPermitPerCarLicense("test-license")).thenReturn(Collections.singletonList(mockPermit));
-        when(zoneService.getZonesById("test-zone")).thenReturn(Collections.singletonList(mockZone));
+        PermitValidationResult invalidPermit = new PermitValidationResult(true, Arrays.asList(
+                new PermitViolation(PermitViolation.Type.EXPIRED, "test-permit", "This vehicle's permit test-permit is expired."),
+                new PermitViolation(PermitViolation.Type.WRONG_LOT, "test-permit", "This vehicle's permit test-permit is for Lot Name test-lotName but this vehicles citation is for Lot Name test-citationLotName.")));
+        when(permitValidationService.validate("test-license", "test-citationLotName", Date.valueOf("2024-01-01"), Time.valueOf("10:10:11"), null)).thenReturn(invalidPermit);
         citationsMenuImpl.callInterface();
-        verify(citationsService, times(1)).createCitation(any(), any());
+        verify(citationsService, times(1)).createCitation(any(), eq(false), anyString());
     }
 
     @Test
@@ -153,7 +162,11 @@ class CitationsMenuImplTest {
     void callInterface_getAllCitations() throws SQLException {
         ByteArrayInputStream in = new ByteArrayInputStream("3\n8\n".getBytes());
         System.setIn(in);
-        when(citationsService.getAll()).thenReturn(Collections.singleton(mockCitation));
+        when(citationsService.forEach(any())).thenAnswer(invocation -> {
+            Consumer<Citation> action = invocation.getArgument(0);
+            action.accept(mockCitation);
+            return 1;
+        });
         citationsMenuImpl.callInterface();
     }
 
@@ -161,7 +174,7 @@ class CitationsMenuImplTest {
     void callInterface_getAllCitationsNoneFound() throws SQLException {
         ByteArrayInputStream in = new ByteArrayInputStream("3\n8\n".getBytes());
         System.setIn(in);
-        when(citationsService.getAll()).thenReturn(null);
+        when(citationsService.forEach(any())).thenReturn(0);
         citationsMenuImpl.callInterface();
     }
 
@@ -169,7 +182,7 @@ class CitationsMenuImplTest {
     void callInterface_getAllCitationsSQLException() throws SQLException {
         ByteArrayInputStream in = new ByteArrayInputStream("3\n8\n".getBytes());
         System.setIn(in);
-        when(citationsService.getAll()).thenThrow(new SQLException());
+        when(citationsService.forEach(any())).thenThrow(new SQLException());
         citationsMenuImpl.callInterface();
     }
 
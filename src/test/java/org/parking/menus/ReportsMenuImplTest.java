@@ -90,6 +90,31 @@ public class ReportsMenuImplTest {
         reportsMenu.callInterface();
     }
 
+    @Test
+    void callInterface_citationRollupReport_monthly() throws SQLException {
+        ByteArrayInputStream in = new ByteArrayInputStream("8\nLotName\n2023-01-01\nbad\n2023-12-31\nx\nm\n0\n".getBytes());
+        System.setIn(in);
+        when(parkingLotService.getParkingLot("LotName")).thenReturn(mockLot);
+        when(reportsService.generateCitationRollupReport(mockLot.getName(), Date.valueOf("2023-01-01"),
+                Date.valueOf("2023-12-31"), true)).thenReturn(Collections.singletonList(
+                        new CitationRollup(mockLot.getName(), Date.valueOf("2023-01-01"), "DUE", 4, 100.0)));
+
+        reportsMenu.callInterface();
+        verify(reportsService, times(1)).generateCitationRollupReport(mockLot.getName(), Date.valueOf("2023-01-01"),
+                Date.valueOf("2023-12-31"), true);
+    }
+
+    @Test
+    void callInterface_citationRollupReport_sqlException() throws SQLException {
+        ByteArrayInputStream in = new ByteArrayInputStream("8\nLotName\n2023-01-01\n2022-01-01\n2023-01-31\nD\n0\n".getBytes());
+        System.setIn(in);
+        when(parkingLotService.getParkingLot("LotName")).thenReturn(mockLot);
+        when(reportsService.generateCitationRollupReport(mockLot.getName(), Date.valueOf("2023-01-01"),
+                Date.valueOf("2023-01-31"), false)).thenThrow(new SQLException());
+
+        assertDoesNotThrow(() -> reportsMenu.callInterface());
+    }
+
     @Test
     void callInterface_citationReport_noLotFound() throws SQLException {
         ByteArrayInputStream in = new ByteArrayInputStream("2\nNoneFound\nLotName\n2020-01-01\n2023-01-01\n0\n".getBytes());
@@ -370,7 +395,7 @@ public class ReportsMenuImplTest {
 
     @Test
     void callInterface_default() throws SQLException {
-        ByteArrayInputStream in = new ByteArrayInputStream("8\n0\n".getBytes());
+        ByteArrayInputStream in = new ByteArrayInputStream("9\n0\n".getBytes());
         System.setIn(in);
 
         reportsMenu.callInterface();
@@ -20,6 +20,8 @@ class SpaceMenuImplTest {
 
     @Mock
     private SpaceService spaceService;
+    @Mock
+    private SpaceAvailabilityIndex spaceAvailabilityIndex;
 
     private final InputStream systemIn = System.in;
 
@@ -27,7 +29,7 @@ class SpaceMenuImplTest {
     @BeforeEach
     void init() {
         openMocks(this);
-        spaceMenuImpl = new SpaceMenuImpl(spaceService);
+        spaceMenuImpl = new SpaceMenuImpl(spaceService, spaceAvailabilityIndex);
     }
 
     @AfterEach
@@ -57,6 +59,7 @@ class SpaceMenuImplTest {
         spaceMenuImpl.callInterface();
         verify(spaceService, times(1)).getSpace(eq(number), eq(zoneID), eq(lotName));
         verify(spaceService, times(1)).createSpace(any(Space.class));
+        verify(spaceAvailabilityIndex, times(1)).load();
     }
 
     @Test
@@ -524,4 +527,75 @@ class SpaceMenuImplTest {
         verify(spaceService, times(0)).getSpace(anyInt(), anyString(), anyString());
         verify(spaceService, times(0)).deleteSpace(any(Space.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void callInterface_assignFreeSpace_success() {
+        String lotName = "testLotName";
+        String input = String.format("4\n%s\n%s\n0\n", lotName, 1);
+        System.setIn(new ByteArrayInputStream(input.getBytes()));
+
+        when(spaceAvailabilityIndex.claim(lotName, "electric")).thenReturn(new Space(7, "electric", false, "A", lotName));
+        spaceMenuImpl.callInterface();
+        verify(spaceAvailabilityIndex, times(1)).claim(eq(lotName), eq("electric"));
+    }
+
+    @Test
+    void callInterface_assignFreeSpace_noneFree() {
+        String lotName = "testLotName";
+        String input = String.format("4\n%s\n\n0\n", lotName);
+        System.setIn(new ByteArrayInputStream(input.getBytes()));
+
+        when(spaceAvailabilityIndex.claim(lotName, "regular")).thenReturn(null);
+        spaceMenuImpl.callInterface();
+        verify(spaceAvailabilityIndex, times(1)).claim(eq(lotName), eq("regular"));
+    }
+
+    @Test
+    void callInterface_assignFreeSpace_emptyLotName() {
+        String input = "4\n\n0\n";
+        System.setIn(new ByteArrayInputStream(input.getBytes()));
+
+        spaceMenuImpl.callInterface();
+        verify(spaceAvailabilityIndex, never()).claim(anyString(), anyString());
+    }
+
+    @Test
+    void callInterface_assignPermitSpace_success() {
+        String input = "6\nA\n2\n0\n";
+        System.setIn(new ByteArrayInputStream(input.getBytes()));
+
+        when(spaceAvailabilityIndex.claimBestFit("A", "handicap")).thenReturn(new Space(3, "handicap", false, "B", "Overflow Lot"));
+        spaceMenuImpl.callInterface();
+        verify(spaceAvailabilityIndex, times(1)).claimBestFit(eq("A"), eq("handicap"));
+    }
+
+    @Test
+    void callInterface_assignPermitSpace_emptyZoneID() {
+        String input = "6\n\n0\n";
+        System.setIn(new ByteArrayInputStream(input.getBytes()));
+
+        spaceMenuImpl.callInterface();
+        verify(spaceAvailabilityIndex, never()).claimBestFit(anyString(), anyString());
+    }
+
+    @Test
+    void callInterface_releaseSpace_success() {
+        int number = 7;
+        String zoneID = "A", lotName = "testLotName";
+        String input = String.format("5\n%s\n%s\n%s\n0\n", lotName, zoneID, number);
+        System.setIn(new ByteArrayInputStream(input.getBytes()));
+
+        when(spaceAvailabilityIndex.release(lotName, zoneID, number)).thenReturn(true);
+        spaceMenuImpl.callInterface();
+        verify(spaceAvailabilityIndex, times(1)).release(eq(lotName), eq(zoneID), eq(number));
+    }
+
+    @Test
+    void callInterface_releaseSpace_invalidNumber() {
+        String input = "5\ntestLotName\nA\n-1\n0\n";
+        System.setIn(new ByteArrayInputStream(input.getBytes()));
+
+        spaceMenuImpl.callInterface();
+        verify(spaceAvailabilityIndex, never()).release(anyString(), anyString(), anyInt());
+    }
+}
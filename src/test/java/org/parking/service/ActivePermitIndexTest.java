@@ -0,0 +1,194 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActivePermitIndexTest {
+    private static final LocalDateTime EXPIRY = LocalDateTime.of(2026, 6, 30, 23, 59, 59);
+    private static final long EXPIRES_AT = EXPIRY.toEpochSecond(ZoneOffset.UTC);
+
+    @Mock
+    private DBService dbService;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement pstate;
+    @Mock
+    private ResultSet results;
+
+    private ActivePermitIndex index;
+
+    @BeforeEach
+    void init() {
+        index = new ActivePermitIndex(dbService, ZoneOffset.UTC);
+    }
+
+    // stubRows makes results return the given rows of carLicenseNum, zoneID, spaceType, lotName and expiry.
+    private void stubRows(String sql, Object[]... rows) throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(sql)).thenReturn(pstate);
+        when(pstate.executeQuery()).thenReturn(results);
+        int[] cursor = {-1};
+        when(results.next()).thenAnswer(invocation -> ++cursor[0] < rows.length);
+        lenient().when(results.getString("carLicenseNum")).thenAnswer(invocation -> rows[cursor[0]][0]);
+        lenient().when(results.getString("zoneID")).thenAnswer(invocation -> rows[cursor[0]][1]);
+        lenient().when(results.getString("spaceType")).thenAnswer(invocation -> rows[cursor[0]][2]);
+        lenient().when(results.getString("lotName")).thenAnswer(invocation -> rows[cursor[0]][3]);
+        lenient().when(results.getDate("expirationDate"))
+                .thenAnswer(invocation -> Date.valueOf(((LocalDateTime) rows[cursor[0]][4]).toLocalDate()));
+        lenient().when(results.getTime("expirationTime"))
+                .thenAnswer(invocation -> Time.valueOf(((LocalDateTime) rows[cursor[0]][4]).toLocalTime()));
+    }
+
+    private static Object[] row(String plate, String zoneID, String spaceType, String lotName, LocalDateTime expiry) {
+        return new Object[]{plate, zoneID, spaceType, lotName, expiry};
+    }
+
+    @Test
+    void load_indexesEveryLotOfEachPlate() throws SQLException {
+        stubRows(ActivePermitIndex.ACTIVE_PERMITS_QUERY,
+                row("VAN-9910", "A", "regular", "Dan Allen Deck", EXPIRY),
+                row("VAN-9910", "A", "regular", "Coliseum Deck", EXPIRY),
+                row("TRK-1122", "V", "handicap", null, EXPIRY));
+
+        Assertions.assertEquals(2, index.load());
+
+        verify(pstate).setFetchSize(DBService.STREAM_FETCH_SIZE);
+        verify(dbService).close(connection, pstate, results);
+        List<ActivePermit> permits = index.getActivePermits("van 9910");
+        Assertions.assertEquals(2, permits.size());
+        Assertions.assertEquals("A", permits.get(0).getZoneID());
+        Assertions.assertEquals("Dan Allen Deck", permits.get(0).getLotName());
+        Assertions.assertEquals("regular", permits.get(0).getSpaceType());
+        Assertions.assertEquals(EXPIRES_AT, permits.get(0).getExpiresAt());
+        Assertions.assertEquals("Coliseum Deck", permits.get(1).getLotName());
+        Assertions.assertNull(index.getActivePermits("TRK1122").get(0).getLotName());
+    }
+
+    @Test
+    void isPermitted_checksLotAndExpiry() {
+        index.put("VAN9910", Collections.singletonList(new ActivePermit("A", "Dan Allen Deck", "regular", EXPIRES_AT)));
+        index.put("TRK1122", Collections.singletonList(new ActivePermit("V", "Coliseum Deck", "regular", EXPIRES_AT)));
+
+        Assertions.assertTrue(index.isPermitted("VAN9910", "Dan Allen Deck", EXPIRES_AT));
+        Assertions.assertTrue(index.isPermitted("van-9910", "Dan Allen Deck", EXPIRES_AT - 60));
+        Assertions.assertFalse(index.isPermitted("VAN9910", "Dan Allen Deck", EXPIRES_AT + 1));
+        Assertions.assertFalse(index.isPermitted("VAN9910", "Coliseum Deck", EXPIRES_AT));
+        Assertions.assertFalse(index.isPermitted("VAN9910", "Unknown Lot", EXPIRES_AT));
+        Assertions.assertFalse(index.isPermitted("NOPE123", "Dan Allen Deck", EXPIRES_AT));
+    }
+
+    @Test
+    void fullDictionary_leavesPermitOutOfIndex() {
+        for (int i = 0; i < 300; i++) {
+            index.put("VAN" + i, Collections.singletonList(new ActivePermit("A", "Dan Allen Deck", "type" + i, EXPIRES_AT)));
+        }
+
+        Assertions.assertTrue(index.isPermitted("VAN0", "Dan Allen Deck", EXPIRES_AT));
+        Assertions.assertTrue(index.isPermitted("VAN253", "Dan Allen Deck", EXPIRES_AT));
+        Assertions.assertFalse(index.isPermitted("VAN299", "Dan Allen Deck", EXPIRES_AT));
+        Assertions.assertTrue(index.getActivePermits("VAN299").isEmpty());
+    }
+
+    @Test
+    void refreshPlate_replacesOrRemovesEntry() throws SQLException {
+        index.put("VAN9910", Collections.singletonList(new ActivePermit("A", "Dan Allen Deck", "regular", EXPIRES_AT)));
+        stubRows(String.format(ActivePermitIndex.PLATE_QUERY, "?"), row("VAN9910", "B", "regular", "Coliseum Deck", EXPIRY));
+
+        index.refreshPlate("VAN9910");
+
+        verify(pstate).setString(1, "VAN9910");
+        Assertions.assertFalse(index.isPermitted("VAN9910", "Dan Allen Deck", EXPIRES_AT));
+        Assertions.assertTrue(index.isPermitted("VAN9910", "Coliseum Deck", EXPIRES_AT));
+
+        ActivePermitIndex emptied = new ActivePermitIndex(dbService, ZoneOffset.UTC);
+        emptied.put("TRK1122", Collections.singletonList(new ActivePermit("V", "Coliseum Deck", "regular", EXPIRES_AT)));
+        when(results.next()).thenReturn(false);
+
+        emptied.refreshPlate("TRK1122");
+
+        Assertions.assertEquals(0, emptied.size());
+    }
+
+    @Test
+    void refreshPlate_mergesEverySpellingOfThePlate() throws SQLException {
+        stubRows(ActivePermitIndex.ACTIVE_PERMITS_QUERY, row("AB-1", "A", "regular", "Dan Allen Deck", EXPIRY));
+        index.load();
+        PreparedStatement plateQuery = mock(PreparedStatement.class);
+        ResultSet plateResults = mock(ResultSet.class);
+        when(connection.prepareStatement(String.format(ActivePermitIndex.PLATE_QUERY, "?,?"))).thenReturn(plateQuery);
+        when(plateQuery.executeQuery()).thenReturn(plateResults);
+        when(plateResults.next()).thenReturn(true, true, false);
+        when(plateResults.getString("carLicenseNum")).thenReturn("AB-1", "AB 1");
+        when(plateResults.getString("zoneID")).thenReturn("A", "B");
+        when(plateResults.getString("spaceType")).thenReturn("regular");
+        when(plateResults.getString("lotName")).thenReturn("Dan Allen Deck", "Coliseum Deck");
+        when(plateResults.getDate("expirationDate")).thenReturn(Date.valueOf(EXPIRY.toLocalDate()));
+        when(plateResults.getTime("expirationTime")).thenReturn(Time.valueOf(EXPIRY.toLocalTime()));
+
+        index.refreshPlate("AB 1");
+
+        verify(plateQuery).setString(1, "AB-1");
+        verify(plateQuery).setString(2, "AB 1");
+        Assertions.assertTrue(index.isPermitted("AB1", "Dan Allen Deck", EXPIRES_AT));
+        Assertions.assertTrue(index.isPermitted("AB1", "Coliseum Deck", EXPIRES_AT));
+    }
+
+    @Test
+    void permitExpired_refreshesEveryVehicleOfThePermit() throws SQLException {
+        index.put("VAN9910", Collections.singletonList(new ActivePermit("A", "Dan Allen Deck", "regular", EXPIRES_AT)));
+        index.put("TRK1122", Collections.singletonList(new ActivePermit("A", "Dan Allen Deck", "regular", EXPIRES_AT)));
+        PreparedStatement platesQuery = mock(PreparedStatement.class);
+        ResultSet plates = mock(ResultSet.class);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(ActivePermitIndex.PERMIT_PLATES_QUERY)).thenReturn(platesQuery);
+        when(platesQuery.executeQuery()).thenReturn(plates);
+        when(plates.next()).thenReturn(true, true, false);
+        when(plates.getString("carLicenseNum")).thenReturn("VAN9910", "TRK1122");
+        when(connection.prepareStatement(String.format(ActivePermitIndex.PLATE_QUERY, "?"))).thenReturn(pstate);
+        when(pstate.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(false);
+
+        index.permitExpired("EJH2C", "366399121");
+
+        verify(platesQuery).setString(1, "EJH2C");
+        Assertions.assertEquals(0, index.size());
+    }
+
+    @Test
+    void permitExpired_keepsEntryWhenRefreshFails() throws SQLException {
+        index.put("VAN9910", Collections.singletonList(new ActivePermit("A", "Dan Allen Deck", "regular", EXPIRES_AT)));
+        when(dbService.connectAndReturnConnection()).thenThrow(new SQLException("down"));
+
+        index.permitExpired("EJH2C", "366399121");
+
+        Assertions.assertEquals(1, index.size());
+    }
+
+    @Test
+    void normalize_keepsNormalizedPlatesAsIs() {
+        String plate = "VAN9910";
+
+        Assertions.assertSame(plate, ActivePermitIndex.normalize(plate));
+        Assertions.assertEquals("VAN9910", ActivePermitIndex.normalize(" van-99 10"));
+        Assertions.assertTrue(index.getActivePermits("VAN9910").isEmpty());
+    }
+}
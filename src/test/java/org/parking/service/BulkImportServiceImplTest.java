@@ -0,0 +1,181 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportServiceImplTest {
+
+    private static final String DRIVER_INSERT = "INSERT INTO Drivers (id, name, status) VALUES (?, ?, ?)";
+    private static final String VEHICLE_INSERT = "INSERT INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)";
+    private static final String PERMIT_INSERT = "INSERT INTO Permits (permitID, permitType, zoneID, associatedID, carLicenseNum, spaceType, startDate, expirationDate, expirationTime) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private BulkImportServiceImpl bulkImportService;
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private DBService dbService;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @BeforeEach
+    void init() throws SQLException {
+        bulkImportService = new BulkImportServiceImpl(dbService, 2);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+    }
+
+    @Test
+    void importDrivers_writesBatchesAndRejectsInvalidRecords() throws SQLException, IOException {
+        stubKeys("SELECT id FROM Drivers", "existing");
+        stubKeys("SELECT carLicenseNumber FROM Vehicles");
+        stubKeys("SELECT DISTINCT id FROM Zones");
+        when(connection.prepareStatement(DRIVER_INSERT)).thenReturn(statement);
+        Path file = write("drivers.csv", "id,name,status",
+                "d1,\"Smith, Jane\",S",
+                "d2,Bob,E",
+                "d1,Duplicate,S",
+                "existing,Already There,V",
+                "d3,Bad Status,X");
+
+        ImportResult result = bulkImportService.importDrivers(file);
+
+        Assertions.assertEquals(2, result.getImported());
+        Assertions.assertEquals(3, result.getRejected());
+        verify(statement, times(1)).setString(2, "Smith, Jane");
+        verify(statement, times(2)).addBatch();
+        verify(statement, times(1)).executeBatch();
+        verify(connection, times(1)).commit();
+        verify(dbService, times(1)).close(connection, statement, null);
+        Assertions.assertFalse(Files.exists(tempDir.resolve("drivers.csv.checkpoint")));
+        Assertions.assertEquals(3, Files.readAllLines(tempDir.resolve("drivers.csv.rejects")).size());
+    }
+
+    @Test
+    void importPermits_checksReferencesAgainstIndexes() throws SQLException, IOException {
+        stubKeys("SELECT id FROM Drivers", "D1");
+        stubKeys("SELECT carLicenseNumber FROM Vehicles", "V1");
+        stubKeys("SELECT DISTINCT id FROM Zones", "A");
+        when(connection.prepareStatement(PERMIT_INSERT)).thenReturn(statement);
+        Path file = write("permits.jsonl",
+                "{\"permitID\": \"P1\", \"permitType\": \"Commuter\", \"zoneID\": \"A\", \"associatedID\": \"D1\", \"carLicenseNum\": \"V1\", \"spaceType\": \"regular\", \"startDate\": \"2023-01-01\", \"expirationDate\": \"2024-01-01\", \"expirationTime\": \"12:00:00\"}",
+                "{\"permitID\": \"P2\", \"permitType\": \"Commuter\", \"zoneID\": \"A\", \"associatedID\": \"D9\", \"carLicenseNum\": \"V1\", \"spaceType\": \"regular\", \"startDate\": \"2023-01-01\", \"expirationDate\": \"2024-01-01\", \"expirationTime\": \"12:00:00\"}",
+                "{\"permitID\": \"P3\", \"permitType\": \"Commuter\", \"zoneID\": \"A\", \"associatedID\": \"D1\", \"carLicenseNum\": \"V9\", \"spaceType\": \"regular\", \"startDate\": \"2023-01-01\", \"expirationDate\": \"2024-01-01\", \"expirationTime\": \"12:00:00\"}",
+                "{\"permitID\": \"P4\", \"permitType\": \"Commuter\", \"zoneID\": \"Z\", \"associatedID\": \"D1\", \"carLicenseNum\": null, \"spaceType\": \"regular\", \"startDate\": \"2023-01-01\", \"expirationDate\": \"2024-01-01\", \"expirationTime\": \"12:00:00\"}",
+                "{\"permitID\": \"P5\", \"permitType\": \"Commuter\", \"zoneID\": \"A\", \"associatedID\": \"D1\", \"carLicenseNum\": null, \"spaceType\": \"regular\", \"startDate\": \"01/01/2023\", \"expirationDate\": \"2024-01-01\", \"expirationTime\": \"12:00:00\"}",
+                "{\"permitID\": \"P6\"");
+
+        ImportResult result = bulkImportService.importPermits(file);
+
+        Assertions.assertEquals(1, result.getImported());
+        Assertions.assertEquals(5, result.getRejected());
+        verify(statement, times(1)).setString(1, "P1");
+        verify(statement, times(1)).setDate(7, Date.valueOf("2023-01-01"));
+        verify(statement, times(1)).executeBatch();
+        List<String> rejects = Files.readAllLines(tempDir.resolve("permits.jsonl.rejects"));
+        Assertions.assertTrue(rejects.get(0).contains("driver D9 does not exist"));
+        Assertions.assertTrue(rejects.get(1).contains("vehicle V9 does not exist"));
+        Assertions.assertTrue(rejects.get(2).contains("zone Z does not exist"));
+    }
+
+    @Test
+    void importVehicles_resumesAfterCheckpoint() throws SQLException, IOException {
+        stubKeys("SELECT id FROM Drivers");
+        stubKeys("SELECT carLicenseNumber FROM Vehicles");
+        stubKeys("SELECT DISTINCT id FROM Zones");
+        when(connection.prepareStatement(VEHICLE_INSERT)).thenReturn(statement);
+        Path file = write("vehicles.csv", "carLicenseNumber,model,color,manufacturer,year",
+                "V1,Civic,Red,Honda,2019",
+                "V2,Model 3,White,Tesla,2021",
+                "V3,Corolla,Blue,Toyota,");
+        Files.write(tempDir.resolve("vehicles.csv.checkpoint"), "2".getBytes(StandardCharsets.UTF_8));
+
+        ImportResult result = bulkImportService.importVehicles(file);
+
+        Assertions.assertEquals(2, result.getSkipped());
+        Assertions.assertEquals(1, result.getImported());
+        verify(statement, never()).setString(1, "V1");
+        verify(statement, times(1)).setString(1, "V3");
+        verify(statement, times(1)).setNull(5, Types.INTEGER);
+        Assertions.assertFalse(Files.exists(tempDir.resolve("vehicles.csv.checkpoint")));
+    }
+
+    @Test
+    void importDrivers_failedBatchRetriedOneRecordAtATime() throws SQLException, IOException {
+        stubKeys("SELECT id FROM Drivers");
+        stubKeys("SELECT carLicenseNumber FROM Vehicles");
+        stubKeys("SELECT DISTINCT id FROM Zones");
+        when(connection.prepareStatement(DRIVER_INSERT)).thenReturn(statement);
+        when(statement.executeBatch()).thenThrow(new BatchUpdateException());
+        when(statement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("Data too long"));
+        Path file = write("drivers.csv", "id,name,status", "d1,Ann,S", "d2,Bob,E");
+
+        ImportResult result = bulkImportService.importDrivers(file);
+
+        Assertions.assertEquals(1, result.getImported());
+        Assertions.assertEquals(1, result.getRejected());
+        verify(connection, times(2)).rollback();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    void importDrivers_failureLeavesCheckpointAtLastCommittedBatch() throws SQLException, IOException {
+        stubKeys("SELECT id FROM Drivers");
+        stubKeys("SELECT carLicenseNumber FROM Vehicles");
+        stubKeys("SELECT DISTINCT id FROM Zones");
+        when(connection.prepareStatement(DRIVER_INSERT)).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1}).thenThrow(new SQLException("Connection lost"));
+        doThrow(new SQLException("Connection lost")).when(connection).rollback();
+        Path file = write("drivers.csv", "id,name,status", "d1,Ann,S", "d2,Bob,E", "d3,Cid,V", "d4,Dee,S");
+
+        Assertions.assertThrows(SQLException.class, () -> {
+            bulkImportService.importDrivers(file);
+        });
+
+        Assertions.assertEquals(2, BulkImportServiceImpl.readCheckpoint(tempDir.resolve("drivers.csv.checkpoint")));
+        verify(dbService, times(1)).close(connection, statement, null);
+    }
+
+    private void stubKeys(String sql, String... keys) throws SQLException {
+        PreparedStatement keyStatement = mock(PreparedStatement.class);
+        ResultSet keyResults = mock(ResultSet.class);
+        when(connection.prepareStatement(sql)).thenReturn(keyStatement);
+        when(keyStatement.executeQuery()).thenReturn(keyResults);
+        Boolean[] more = new Boolean[keys.length];
+        Arrays.fill(more, true);
+        List<Boolean> rest = new java.util.ArrayList<>(Arrays.asList(more));
+        rest.add(false);
+        when(keyResults.next()).thenReturn(rest.get(0), rest.subList(1, rest.size()).toArray(new Boolean[0]));
+        if (keys.length > 0) {
+            when(keyResults.getString(1)).thenReturn(keys[0], Arrays.copyOfRange(keys, 1, keys.length));
+        }
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+}
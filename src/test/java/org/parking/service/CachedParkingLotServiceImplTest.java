@@ -0,0 +1,65 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.ParkingLot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachedParkingLotServiceImplTest {
+
+    private CachedParkingLotServiceImpl parkingLotService;
+
+    @Mock
+    private ParkingLotService delegate;
+
+    @BeforeEach
+    void init() {
+        parkingLotService = new CachedParkingLotServiceImpl(delegate, new ReferenceDataCache(60000, 100));
+    }
+
+    @Test
+    void getAll_servedFromCache() {
+        when(delegate.getAll()).thenReturn(new ArrayList<>(Collections.singletonList(new ParkingLot("Lot 9", "200 Main St"))));
+        parkingLotService.getAll();
+        Assertions.assertEquals(1, parkingLotService.getAll().size());
+        verify(delegate, times(1)).getAll();
+    }
+
+    @Test
+    void getParkingLot_returnsCopies() {
+        when(delegate.getParkingLot("Lot 9")).thenReturn(new ParkingLot("Lot 9", "200 Main St"));
+        parkingLotService.getParkingLot("Lot 9").setAddress("changed");
+        Assertions.assertEquals("200 Main St", parkingLotService.getParkingLot("Lot 9").getAddress());
+        verify(delegate, times(1)).getParkingLot("Lot 9");
+    }
+
+    @Test
+    void updateParkingLot_invalidatesCache() {
+        ParkingLot lot = new ParkingLot("Lot 9", "200 Main St");
+        when(delegate.getParkingLot("Lot 9")).thenReturn(lot);
+        when(delegate.updateParkingLot("Lot 9", lot)).thenReturn(true);
+        parkingLotService.getParkingLot("Lot 9");
+        Assertions.assertTrue(parkingLotService.updateParkingLot("Lot 9", lot));
+        parkingLotService.getParkingLot("Lot 9");
+        verify(delegate, times(2)).getParkingLot("Lot 9");
+    }
+
+    @Test
+    void deleteParkingLot_invalidatesCache() {
+        when(delegate.getAll()).thenReturn(new ArrayList<>());
+        when(delegate.deleteParkingLot("Lot 9")).thenReturn(true);
+        parkingLotService.getAll();
+        Assertions.assertTrue(parkingLotService.deleteParkingLot("Lot 9"));
+        parkingLotService.getAll();
+        verify(delegate, times(2)).getAll();
+    }
+}
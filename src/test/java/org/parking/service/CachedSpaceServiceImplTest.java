@@ -0,0 +1,106 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Space;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachedSpaceServiceImplTest {
+
+    private CachedSpaceServiceImpl spaceService;
+
+    @Mock
+    private SpaceService delegate;
+
+    private final Space space = new Space(1, "regular", true, "A", "Lot 9");
+
+    @BeforeEach
+    void init() {
+        spaceService = new CachedSpaceServiceImpl(delegate, new ReferenceDataCache(60000, 100));
+    }
+
+    @Test
+    void getAll_servedFromCache() {
+        when(delegate.getAll()).thenReturn(new ArrayList<>(Collections.singletonList(space)));
+        spaceService.getAll();
+        Assertions.assertEquals(1, spaceService.getAll().size());
+        verify(delegate, times(1)).getAll();
+    }
+
+    @Test
+    void getSpace_servedFromCache() {
+        when(delegate.getSpace(1, "A", "Lot 9")).thenReturn(space);
+        spaceService.getSpace(1, "A", "Lot 9");
+        Assertions.assertSame(space, spaceService.getSpace(1, "A", "Lot 9"));
+        verify(delegate, times(1)).getSpace(1, "A", "Lot 9");
+    }
+
+    @Test
+    void updateSpace_invalidatesCache() {
+        Space updated = new Space(1, "regular", false, "A", "Lot 9");
+        when(delegate.getSpace(1, "A", "Lot 9")).thenReturn(space);
+        when(delegate.updateSpace(space, updated)).thenReturn(true);
+        spaceService.getSpace(1, "A", "Lot 9");
+        Assertions.assertTrue(spaceService.updateSpace(space, updated));
+        spaceService.getSpace(1, "A", "Lot 9");
+        verify(delegate, times(2)).getSpace(1, "A", "Lot 9");
+    }
+
+    @Test
+    void reserveSpace_invalidatesCache() {
+        Space reserved = new Space(1, "regular", false, "A", "Lot 9");
+        when(delegate.getSpace(1, "A", "Lot 9")).thenReturn(space);
+        when(delegate.reserveSpace("Lot 9", "regular")).thenReturn(reserved);
+        spaceService.getSpace(1, "A", "Lot 9");
+        Assertions.assertSame(reserved, spaceService.reserveSpace("Lot 9", "regular"));
+        spaceService.getSpace(1, "A", "Lot 9");
+        verify(delegate, times(2)).getSpace(1, "A", "Lot 9");
+    }
+
+    @Test
+    void assignTypeOfASpace_invalidatesCache() {
+        when(delegate.getAll()).thenReturn(new ArrayList<>());
+        when(delegate.assignTypeOfASpace("Lot 9", "A", 1, "electric")).thenReturn(true);
+        spaceService.getAll();
+        Assertions.assertTrue(spaceService.assignTypeOfASpace("Lot 9", "A", 1, "electric"));
+        spaceService.getAll();
+        verify(delegate, times(2)).getAll();
+    }
+
+    @Test
+    void invalidate_dropsOnlyThatSpace() {
+        Space other = new Space(2, "regular", true, "A", "Lot 9");
+        when(delegate.getSpace(1, "A", "Lot 9")).thenReturn(space);
+        when(delegate.getSpace(2, "A", "Lot 9")).thenReturn(other);
+        when(delegate.getAll()).thenReturn(new ArrayList<>());
+        spaceService.getSpace(1, "A", "Lot 9");
+        spaceService.getSpace(2, "A", "Lot 9");
+        spaceService.getAll();
+
+        spaceService.invalidate(new Space(1, "regular", false, "A", "Lot 9"));
+        spaceService.getSpace(1, "A", "Lot 9");
+        spaceService.getSpace(2, "A", "Lot 9");
+        spaceService.getAll();
+
+        verify(delegate, times(2)).getSpace(1, "A", "Lot 9");
+        verify(delegate, times(1)).getSpace(2, "A", "Lot 9");
+        verify(delegate, times(2)).getAll();
+    }
+
+    @Test
+    void getPage_notCached() {
+        when(delegate.getPage(null, 10)).thenReturn(new ArrayList<>(Collections.singletonList(space)));
+        spaceService.getPage(null, 10);
+        spaceService.getPage(null, 10);
+        verify(delegate, times(2)).getPage(null, 10);
+    }
+}
@@ -0,0 +1,85 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Zone;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachedZoneServiceImplTest {
+
+    private CachedZoneServiceImpl zoneService;
+
+    @Mock
+    private ZoneService delegate;
+
+    @BeforeEach
+    void init() {
+        zoneService = new CachedZoneServiceImpl(delegate, new ReferenceDataCache(60000, 100));
+    }
+
+    @Test
+    void getZonesById_servedFromCache() {
+        when(delegate.getZonesById("A")).thenReturn(new ArrayList<>(Collections.singletonList(new Zone("A", "Lot 9"))));
+        zoneService.getZonesById("A");
+        Collection<Zone> zones = zoneService.getZonesById("A");
+        Assertions.assertEquals(1, zones.size());
+        Assertions.assertEquals("Lot 9", zones.iterator().next().getLotName());
+        verify(delegate, times(1)).getZonesById("A");
+    }
+
+    @Test
+    void getZone_returnsCopies() {
+        when(delegate.getZone("A", "Lot 9")).thenReturn(new Zone("A", "Lot 9"));
+        Zone zone = zoneService.getZone("A", "Lot 9");
+        zone.setLotName("changed");
+        Assertions.assertEquals("Lot 9", zoneService.getZone("A", "Lot 9").getLotName());
+        verify(delegate, times(1)).getZone("A", "Lot 9");
+    }
+
+    @Test
+    void getZone_missingZoneNotCached() {
+        when(delegate.getZone("A", "Lot 9")).thenReturn(null);
+        Assertions.assertNull(zoneService.getZone("A", "Lot 9"));
+        Assertions.assertNull(zoneService.getZone("A", "Lot 9"));
+        verify(delegate, times(2)).getZone("A", "Lot 9");
+    }
+
+    @Test
+    void getAll_failedLoadNotCached() {
+        when(delegate.getAll()).thenReturn(null, new ArrayList<>(Collections.singletonList(new Zone("A", "Lot 9"))));
+        Assertions.assertNull(zoneService.getAll());
+        Assertions.assertEquals(1, zoneService.getAll().size());
+        Assertions.assertEquals(1, zoneService.getAll().size());
+        verify(delegate, times(2)).getAll();
+    }
+
+    @Test
+    void createZone_invalidatesCache() {
+        when(delegate.getAll()).thenReturn(new ArrayList<>());
+        when(delegate.createZone(any())).thenReturn(true);
+        zoneService.getAll();
+        Assertions.assertTrue(zoneService.createZone(new Zone("B", "Lot 9")));
+        zoneService.getAll();
+        verify(delegate, times(2)).getAll();
+    }
+
+    @Test
+    void assignZoneToParkingLot_invalidatesCacheOnFailure() {
+        when(delegate.getZonesByLotName("Lot 9")).thenReturn(new ArrayList<>());
+        when(delegate.assignZoneToParkingLot("Lot 9", "A", "Lot 16")).thenReturn(false);
+        zoneService.getZonesByLotName("Lot 9");
+        Assertions.assertFalse(zoneService.assignZoneToParkingLot("Lot 9", "A", "Lot 16"));
+        zoneService.getZonesByLotName("Lot 9");
+        verify(delegate, times(2)).getZonesByLotName("Lot 9");
+    }
+}
@@ -0,0 +1,114 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CitationNumberAllocatorTest {
+
+    private CitationNumberAllocator allocator;
+
+    @Mock
+    private DBService dbService;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement nextNumber;
+
+    @Mock
+    private PreparedStatement advance;
+
+    @Mock
+    private PreparedStatement recordBlock;
+
+    @Mock
+    private ResultSet results;
+
+    @BeforeEach
+    void init() {
+        allocator = new CitationNumberAllocator(dbService, "handheld-7", 3);
+    }
+
+    private void stubReservation() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(CitationNumberAllocator.NEXT_NUMBER_QUERY)).thenReturn(nextNumber);
+        when(nextNumber.executeQuery()).thenReturn(results);
+        lenient().when(connection.prepareStatement(CitationNumberAllocator.ADVANCE_SQL)).thenReturn(advance);
+        lenient().when(connection.prepareStatement(CitationNumberAllocator.RECORD_BLOCK_SQL)).thenReturn(recordBlock);
+    }
+
+    @Test
+    void reserveBlock_advancesSequenceAndRecordsBlockInOneTransaction() throws SQLException {
+        stubReservation();
+        when(results.next()).thenReturn(true);
+        when(results.getInt("nextNumber")).thenReturn(1001);
+
+        CitationNumberBlock block = allocator.reserveBlock("handheld-9", 500);
+
+        Assertions.assertEquals(1001, block.getFirstNumber());
+        Assertions.assertEquals(1500, block.getLastNumber());
+        Assertions.assertEquals(500, block.size());
+        verify(connection).setAutoCommit(false);
+        verify(advance).setInt(1, 1501);
+        verify(recordBlock).setInt(1, 1001);
+        verify(recordBlock).setInt(2, 1500);
+        verify(recordBlock).setString(3, "handheld-9");
+        verify(connection).commit();
+        verify(dbService).close(connection, recordBlock, null);
+    }
+
+    @Test
+    void next_reservesOnlyWhenBlockIsUsedUp() throws SQLException {
+        stubReservation();
+        when(results.next()).thenReturn(true);
+        when(results.getInt("nextNumber")).thenReturn(1, 4);
+
+        int[] numbers = new int[4];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = allocator.next();
+        }
+
+        Assertions.assertArrayEquals(new int[]{1, 2, 3, 4}, numbers);
+        Assertions.assertEquals(2, allocator.getRemaining());
+        verify(dbService, times(2)).connectAndReturnConnection();
+        verify(recordBlock, times(2)).setString(3, "handheld-7");
+    }
+
+    @Test
+    void reserveBlock_missingSequenceRollsBack() throws SQLException {
+        stubReservation();
+        when(results.next()).thenReturn(false);
+
+        Assertions.assertThrows(SQLException.class, () -> allocator.reserveBlock("handheld-7", 10));
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(dbService).close(connection, nextNumber, results);
+    }
+
+    @Test
+    void next_failedReservationCanBeRetried() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenThrow(new SQLException("Connection refused")).thenReturn(connection);
+        when(connection.prepareStatement(CitationNumberAllocator.NEXT_NUMBER_QUERY)).thenReturn(nextNumber);
+        when(nextNumber.executeQuery()).thenReturn(results);
+        when(connection.prepareStatement(CitationNumberAllocator.ADVANCE_SQL)).thenReturn(advance);
+        when(connection.prepareStatement(CitationNumberAllocator.RECORD_BLOCK_SQL)).thenReturn(recordBlock);
+        when(results.next()).thenReturn(true);
+        when(results.getInt("nextNumber")).thenReturn(20);
+
+        Assertions.assertThrows(SQLException.class, () -> allocator.next());
+        Assertions.assertEquals(20, allocator.next());
+    }
+}
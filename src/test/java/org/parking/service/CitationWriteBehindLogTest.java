@@ -0,0 +1,139 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.parking.model.Citation;
+import org.parking.model.Vehicle;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Time;
+import java.util.List;
+
+class CitationWriteBehindLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static Citation citation(String license) {
+        return new Citation(0, new Vehicle(license, "Civic", "Blue", "Honda", 2020), "Lot 9", "No permits", 40.0, "DUE",
+                Date.valueOf("2026-03-02"), Time.valueOf("08:15:30"));
+    }
+
+    @Test
+    void appendedCitations_areReadBackInOrder() throws IOException {
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(directory.resolve("citations.log"), 4096)) {
+            Assertions.assertTrue(log.append(citation("VAN9910"), "key-1"));
+            Assertions.assertTrue(log.append(citation("TRK1122"), "key-2"));
+
+            List<CitationWriteBehindLog.PendingCitation> pending = log.readPending(10);
+            Assertions.assertEquals(2, pending.size());
+            Assertions.assertEquals("key-1", pending.get(0).getRequestKey());
+            Citation first = pending.get(0).getCitation();
+            Assertions.assertEquals("VAN9910", first.getVehicle().getLicense());
+            Assertions.assertEquals("Honda", first.getVehicle().getManufacturer());
+            Assertions.assertEquals("Lot 9", first.getLotName());
+            Assertions.assertEquals(40.0, first.getFee());
+            Assertions.assertEquals(Date.valueOf("2026-03-02"), first.getCitationDate());
+            Assertions.assertEquals(Time.valueOf("08:15:30"), first.getCitationTime());
+            Assertions.assertEquals("TRK1122", pending.get(1).getCitation().getVehicle().getLicense());
+            Assertions.assertEquals(1, log.readPending(1).size());
+        }
+    }
+
+    @Test
+    void reopen_findsOnlyUndrainedCitations() throws IOException {
+        Path file = directory.resolve("citations.log");
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(file, 4096)) {
+            log.append(citation("VAN9910"), "key-1");
+            log.append(citation("TRK1122"), "key-2");
+            log.append(citation("CAR3344"), "key-3");
+            log.markDrained(log.readPending(1).get(0));
+        }
+
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(file, 4096)) {
+            Assertions.assertEquals(2, log.getPending());
+            List<CitationWriteBehindLog.PendingCitation> pending = log.readPending(10);
+            Assertions.assertEquals("key-2", pending.get(0).getRequestKey());
+            Assertions.assertEquals("key-3", pending.get(1).getRequestKey());
+        }
+    }
+
+    @Test
+    void reopen_cutsOffTornRecord() throws IOException {
+        Path file = directory.resolve("citations.log");
+        int tornAt;
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(file, 4096)) {
+            log.append(citation("VAN9910"), "key-1");
+            tornAt = log.getUsedBytes();
+            log.append(citation("TRK1122"), "key-2");
+        }
+        // Damage the last byte of the second record, as if the crash came before its payload reached the disk.
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(tornAt + 20);
+            raw.write(raw.read() ^ 0xff);
+        }
+
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(file, 4096)) {
+            Assertions.assertEquals(1, log.getPending());
+            Assertions.assertEquals(tornAt, log.getUsedBytes());
+            log.append(citation("CAR3344"), "key-3");
+            Assertions.assertEquals("key-3", log.readPending(10).get(1).getRequestKey());
+        }
+    }
+
+    @Test
+    void append_refusedWhenFull() throws IOException {
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(directory.resolve("citations.log"), 200)) {
+            Assertions.assertTrue(log.append(citation("VAN9910"), "key-1"));
+            Assertions.assertFalse(log.append(citation("TRK1122"), "key-2"));
+            Assertions.assertEquals(1, log.getPending());
+        }
+    }
+
+    @Test
+    void drainedLog_startsAgainFromTheFront() throws IOException {
+        Path file = directory.resolve("citations.log");
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(file, 300)) {
+            log.append(citation("VAN9910"), "key-1");
+            log.append(citation("TRK1122"), "key-2");
+            Assertions.assertFalse(log.append(citation("CAR3344"), "key-3"));
+            List<CitationWriteBehindLog.PendingCitation> pending = log.readPending(10);
+            log.markDrained(pending.get(pending.size() - 1));
+
+            Assertions.assertEquals(CitationWriteBehindLog.HEADER_BYTES, log.getUsedBytes());
+            Assertions.assertTrue(log.append(citation("CAR3344"), "key-3"));
+        }
+
+        // The drained records are still in the file behind the new one but belong to the old generation.
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(file, 300)) {
+            List<CitationWriteBehindLog.PendingCitation> pending = log.readPending(10);
+            Assertions.assertEquals(1, pending.size());
+            Assertions.assertEquals("key-3", pending.get(0).getRequestKey());
+        }
+    }
+
+    @Test
+    void drainerOneRecordBehind_keepsTheLogFromFilling() throws IOException {
+        Path file = directory.resolve("citations.log");
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(file, 400)) {
+            Assertions.assertTrue(log.append(citation("VAN9910"), "key-0"));
+            for (int i = 1; i <= 50; i++) {
+                Assertions.assertTrue(log.append(citation("VAN9910"), "key-" + i));
+                List<CitationWriteBehindLog.PendingCitation> pending = log.readPending(1);
+                Assertions.assertEquals("key-" + (i - 1), pending.get(0).getRequestKey());
+                log.markDrained(pending.get(0));
+                Assertions.assertEquals(1, log.getPending());
+            }
+        }
+
+        try (CitationWriteBehindLog log = new CitationWriteBehindLog(file, 400)) {
+            List<CitationWriteBehindLog.PendingCitation> pending = log.readPending(10);
+            Assertions.assertEquals(1, pending.size());
+            Assertions.assertEquals("key-50", pending.get(0).getRequestKey());
+        }
+    }
+}
@@ -11,8 +11,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -35,9 +39,18 @@ class CitationsServiceImplTest {
     @Mock
     private ResultSet results;
 
+    @Mock
+    private CitationNumberAllocator numberAllocator;
+
+    @Mock
+    private PreparedStatement keyLookup;
+
+    @Mock
+    private ResultSet keyResults;
+
     @BeforeEach
     void init() {
-        citationsService = new CitationsServiceImpl(dbService);
+        citationsService = new CitationsServiceImpl(dbService, numberAllocator);
     }
 
     @Test
@@ -120,18 +133,123 @@ class CitationsServiceImplTest {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
         when(connection.prepareStatement("INSERT INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)")).thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(1);
-        when(connection.prepareStatement("INSERT INTO Citations (licenseNum, lotName, category, fee, paymentStatus, citationDate, citationTime) VALUES (?,?,?,?,?,?,?)")).thenReturn(statement);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_CITATION_SQL)).thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(1);
-        citationsService.createCitation(new Citation(1, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "testStatus", new Date(1698067480), new Time(1698067480)), true);
+        Assertions.assertEquals(1, citationsService.createCitation(new Citation(1, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "testStatus", new Date(1698067480), new Time(1698067480)), true));
+        verify(numberAllocator, never()).next();
         verify(dbService, times(1)).close(connection, statement, null);
     }
 
+    @Test
+    void createCitation_unknownYearSavedAsNull() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("INSERT INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)")).thenReturn(statement);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_CITATION_SQL)).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+        Assertions.assertEquals(1, citationsService.createCitation(new Citation(1, new Vehicle("testLicense", "", "", "", 0), "testLotName", "testCategory", 1.50, "DUE", new Date(1698067480), new Time(1698067480)), true));
+        verify(statement).setNull(5, Types.INTEGER);
+        verify(statement, never()).setInt(5, 0);
+    }
+
+    @Test
+    void createCitation_assignsNumberFromAllocator() throws SQLException {
+        Citation citation = new Citation(0, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "DUE", new Date(1698067480), new Time(1698067480));
+        when(numberAllocator.next()).thenReturn(4711);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_CITATION_SQL)).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+
+        Assertions.assertEquals(4711, citationsService.createCitation(citation, false));
+
+        Assertions.assertEquals(4711, citation.getNumber());
+        verify(statement).setInt(1, 4711);
+    }
+
+    private static Citation unnumberedCitation() {
+        return new Citation(0, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "DUE", new Date(1698067480), new Time(1698067480));
+    }
+
+    private void stubRequestKeyLookup() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(CitationsServiceImpl.CITATION_NUMBER_BY_REQUEST_KEY_QUERY)).thenReturn(keyLookup);
+        when(keyLookup.executeQuery()).thenReturn(keyResults);
+    }
+
+    @Test
+    void createCitation_requestKeyRetryIsAnsweredFromMemory() throws SQLException {
+        stubRequestKeyLookup();
+        when(keyResults.next()).thenReturn(false);
+        when(numberAllocator.next()).thenReturn(4711);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_REQUEST_CITATION_SQL)).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+
+        Assertions.assertEquals(4711, citationsService.createCitation(unnumberedCitation(), false, "request-1"));
+        Citation retry = unnumberedCitation();
+        Assertions.assertEquals(4711, citationsService.createCitation(retry, false, "request-1"));
+
+        Assertions.assertEquals(4711, retry.getNumber());
+        verify(statement).setString(9, "request-1");
+        verify(statement, times(1)).executeUpdate();
+        verify(dbService, times(1)).connectAndReturnConnection();
+        verify(numberAllocator, times(1)).next();
+        verify(connection).commit();
+    }
+
+    @Test
+    void createCitation_requestKeyAlreadyInTableIsNotInsertedAgain() throws SQLException {
+        stubRequestKeyLookup();
+        when(keyResults.next()).thenReturn(true);
+        when(keyResults.getInt("citationNum")).thenReturn(88);
+        when(numberAllocator.next()).thenReturn(4711);
+
+        Citation citation = unnumberedCitation();
+        Assertions.assertEquals(88, citationsService.createCitation(citation, true, "request-1"));
+
+        Assertions.assertEquals(88, citation.getNumber());
+        verify(connection, never()).prepareStatement(CitationsServiceImpl.INSERT_REQUEST_CITATION_SQL);
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(dbService).close(null, keyLookup, keyResults);
+    }
+
+    @Test
+    void createCitation_concurrentRequestKeyAnswersWithTheWinner() throws SQLException {
+        stubRequestKeyLookup();
+        when(connection.prepareStatement(CitationsServiceImpl.CITATION_NUMBER_BY_REQUEST_KEY_LOCKING_QUERY)).thenReturn(keyLookup);
+        // The snapshot read misses the winner's citation and only the locking read after the duplicate entry finds it.
+        when(keyResults.next()).thenReturn(false, true);
+        when(keyResults.getInt("citationNum")).thenReturn(93);
+        when(numberAllocator.next()).thenReturn(4711);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_REQUEST_CITATION_SQL)).thenReturn(statement);
+        when(statement.executeUpdate()).thenThrow(new SQLException("Duplicate entry", "23000", CitationsServiceImpl.DUPLICATE_ENTRY));
+
+        Assertions.assertEquals(93, citationsService.createCitation(unnumberedCitation(), false, "request-1"));
+
+        verify(connection).prepareStatement(CitationsServiceImpl.CITATION_NUMBER_BY_REQUEST_KEY_LOCKING_QUERY);
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(dbService).close(connection, statement, null);
+    }
+
+    @Test
+    void createCitation_duplicateCitationNumberIsStillAnError() throws SQLException {
+        stubRequestKeyLookup();
+        when(connection.prepareStatement(CitationsServiceImpl.CITATION_NUMBER_BY_REQUEST_KEY_LOCKING_QUERY)).thenReturn(keyLookup);
+        when(keyResults.next()).thenReturn(false, false);
+        when(numberAllocator.next()).thenReturn(4711);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_REQUEST_CITATION_SQL)).thenReturn(statement);
+        when(statement.executeUpdate()).thenThrow(new SQLException("Duplicate entry", "23000", CitationsServiceImpl.DUPLICATE_ENTRY));
+
+        Assertions.assertThrows(SQLException.class, () -> citationsService.createCitation(unnumberedCitation(), false, "request-1"));
+        verify(connection).rollback();
+    }
+
     @Test
     void createCitation_vehicleCreatedErrCreatedCitation() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
         when(connection.prepareStatement("INSERT INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)")).thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(1);
-        when(connection.prepareStatement("INSERT INTO Citations (licenseNum, lotName, category, fee, paymentStatus, citationDate, citationTime) VALUES (?,?,?,?,?,?,?)")).thenThrow(new SQLException());
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_CITATION_SQL)).thenThrow(new SQLException());
         Assertions.assertThrows(SQLException.class, () -> {
             citationsService.createCitation(new Citation(1, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "testStatus", new Date(1698067480), new Time(1698067480)), true);
         });
@@ -144,7 +262,7 @@ class CitationsServiceImplTest {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
         when(connection.prepareStatement("INSERT INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)")).thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(1);
-        when(connection.prepareStatement("INSERT INTO Citations (licenseNum, lotName, category, fee, paymentStatus, citationDate, citationTime) VALUES (?,?,?,?,?,?,?)")).thenThrow(new SQLException());
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_CITATION_SQL)).thenThrow(new SQLException());
         doThrow(new SQLException()).when(connection).rollback();
         Assertions.assertThrows(SQLException.class, () -> {
             citationsService.createCitation(new Citation(1, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "testStatus", new Date(1698067480), new Time(1698067480)), true);
@@ -152,6 +270,134 @@ class CitationsServiceImplTest {
         verify(dbService, times(1)).close(connection, statement, null);
     }
 
+    @Test
+    void createCitations_success() throws SQLException {
+        citationsService = new CitationsServiceImpl(dbService, 2, numberAllocator);
+        PreparedStatement vehicleStatement = mock(PreparedStatement.class);
+        Citation citation = new Citation(0, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "DUE", new Date(1698067480), new Time(1698067480));
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("INSERT IGNORE INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)")).thenReturn(vehicleStatement);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_CITATION_SQL)).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1}).thenReturn(new int[]{Statement.SUCCESS_NO_INFO});
+
+        int[] outcomes = citationsService.createCitations(Arrays.asList(citation, citation, citation));
+
+        Assertions.assertArrayEquals(new int[]{1, 1, 1}, outcomes);
+        verify(vehicleStatement, times(3)).addBatch();
+        verify(statement, times(3)).addBatch();
+        verify(statement, times(2)).executeBatch();
+        verify(connection, times(2)).commit();
+        verify(dbService, times(1)).close(null, vehicleStatement, null);
+        verify(dbService, times(1)).close(connection, statement, null);
+    }
+
+    @Test
+    void createCitations_failedBatchRetriedPerRow() throws SQLException {
+        PreparedStatement vehicleStatement = mock(PreparedStatement.class);
+        Citation good = new Citation(0, new Vehicle("goodLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "DUE", new Date(1698067480), new Time(1698067480));
+        Citation bad = new Citation(0, new Vehicle("badLicense", "testModel", "testColor", "testManf", 1234), "missingLot", "testCategory", 1.50, "DUE", new Date(1698067480), new Time(1698067480));
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("INSERT IGNORE INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)")).thenReturn(vehicleStatement);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_CITATION_SQL)).thenReturn(statement);
+        when(statement.executeBatch()).thenThrow(new BatchUpdateException());
+        when(statement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("foreign key"));
+
+        int[] outcomes = citationsService.createCitations(Arrays.asList(good, bad));
+
+        Assertions.assertArrayEquals(new int[]{1, Statement.EXECUTE_FAILED}, outcomes);
+        verify(connection, times(2)).rollback();
+        verify(connection, times(1)).commit();
+        verify(statement, times(1)).clearBatch();
+    }
+
+    @Test
+    void createCitations_withRequestKeys() throws SQLException {
+        PreparedStatement vehicleStatement = mock(PreparedStatement.class);
+        Citation citation = new Citation(0, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "DUE", new Date(1698067480), new Time(1698067480));
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("INSERT IGNORE INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)")).thenReturn(vehicleStatement);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_REQUEST_CITATION_SQL)).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1});
+
+        int[] outcomes = citationsService.createCitations(Arrays.asList(citation, citation), Arrays.asList("key-1", "key-2"));
+
+        Assertions.assertArrayEquals(new int[]{1, 1}, outcomes);
+        verify(statement).setString(9, "key-1");
+        verify(statement).setString(9, "key-2");
+        verify(connection, times(1)).commit();
+    }
+
+    private void stubKeyedBatchRetriedPerRow() throws SQLException {
+        PreparedStatement vehicleStatement = mock(PreparedStatement.class);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("INSERT IGNORE INTO Vehicles (carLicenseNumber, model, color, manufacturer, year) VALUES (?, ?, ?, ?, ?)")).thenReturn(vehicleStatement);
+        when(connection.prepareStatement(CitationsServiceImpl.INSERT_REQUEST_CITATION_SQL)).thenReturn(statement);
+        when(statement.executeBatch()).thenThrow(new BatchUpdateException());
+    }
+
+    @Test
+    void createCitations_requestKeyAlreadyInTableIsReportedCreated() throws SQLException {
+        stubKeyedBatchRetriedPerRow();
+        // The second key was inserted by an earlier attempt, so its row fails with a duplicate entry.
+        when(statement.executeUpdate()).thenReturn(1).thenThrow(new SQLIntegrityConstraintViolationException("Duplicate entry", "23000", CitationsServiceImpl.DUPLICATE_ENTRY));
+        when(connection.prepareStatement(CitationsServiceImpl.CITATION_NUMBER_BY_REQUEST_KEY_LOCKING_QUERY)).thenReturn(keyLookup);
+        when(keyLookup.executeQuery()).thenReturn(keyResults);
+        when(keyResults.next()).thenReturn(true);
+        when(keyResults.getInt("citationNum")).thenReturn(2);
+
+        int[] outcomes = citationsService.createCitations(Arrays.asList(unnumberedCitation(), unnumberedCitation()), Arrays.asList("key-1", "key-2"));
+
+        Assertions.assertArrayEquals(new int[]{1, 1}, outcomes);
+        verify(keyLookup).setString(1, "key-2");
+    }
+
+    @Test
+    void createCitations_citationNumberTakenByAnotherKeyIsRefused() throws SQLException {
+        stubKeyedBatchRetriedPerRow();
+        when(statement.executeUpdate()).thenThrow(new SQLIntegrityConstraintViolationException("Duplicate entry for key 'PRIMARY'", "23000", CitationsServiceImpl.DUPLICATE_ENTRY));
+        when(connection.prepareStatement(CitationsServiceImpl.CITATION_NUMBER_BY_REQUEST_KEY_LOCKING_QUERY)).thenReturn(keyLookup);
+        when(keyLookup.executeQuery()).thenReturn(keyResults);
+        when(keyResults.next()).thenReturn(false);
+
+        int[] outcomes = citationsService.createCitations(Collections.singletonList(unnumberedCitation()), Collections.singletonList("key-1"));
+
+        Assertions.assertArrayEquals(new int[]{Statement.EXECUTE_FAILED}, outcomes);
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    void createCitations_requestKeysRethrowErrorsThatAreNotConstraintViolations() throws SQLException {
+        stubKeyedBatchRetriedPerRow();
+        when(statement.executeUpdate()).thenThrow(new SQLException("Lock wait timeout exceeded", "HY000", 1205));
+
+        Assertions.assertThrows(SQLException.class, () -> citationsService.createCitations(Collections.singletonList(unnumberedCitation()), Collections.singletonList("key-1")));
+        verify(connection, times(2)).rollback();
+        verify(dbService, times(1)).close(connection, statement, null);
+    }
+
+    @Test
+    void createCitations_requestKeysMustMatchCitations() {
+        Citation citation = new Citation(0, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "DUE", new Date(1698067480), new Time(1698067480));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            citationsService.createCitations(Arrays.asList(citation, citation), Collections.singletonList("key-1"));
+        });
+    }
+
+    @Test
+    void createCitations_empty() throws SQLException {
+        Assertions.assertEquals(0, citationsService.createCitations(Collections.emptyList()).length);
+        verify(dbService, never()).connectAndReturnConnection();
+    }
+
+    @Test
+    void createCitations_connSqlFailure() throws SQLException {
+        Citation citation = new Citation(0, new Vehicle("testLicense", "testModel", "testColor", "testManf", 1234), "testLotName", "testCategory", 1.50, "DUE", new Date(1698067480), new Time(1698067480));
+        when(dbService.connectAndReturnConnection()).thenThrow(new SQLException());
+        Assertions.assertThrows(SQLException.class, () -> {
+            citationsService.createCitations(Collections.singletonList(citation));
+        });
+    }
+
     @Test
     void updateCitation_success() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
@@ -196,7 +442,7 @@ class CitationsServiceImplTest {
     @Test
     void appealCitation_success() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("UPDATE Citations SET paymentStatus=\"APPEALED\" WHERE citationNum = ? AND paymentStatus=\"DUE\"")).thenReturn(statement);
+        when(connection.prepareStatement("UPDATE Citations SET paymentStatus='APPEALED' WHERE citationNum = ? AND paymentStatus='DUE'")).thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(1);
         assertTrue(citationsService.appealCitation(1));
         verify(dbService, times(1)).close(connection, statement, null);
@@ -212,7 +458,7 @@ class CitationsServiceImplTest {
     @Test
     void payCitation_success() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("UPDATE Citations SET paymentStatus=\"PAID\" WHERE citationNum = ? AND paymentStatus=\"DUE\"")).thenReturn(statement);
+        when(connection.prepareStatement("UPDATE Citations SET paymentStatus='PAID' WHERE citationNum = ? AND paymentStatus='DUE'")).thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(1);
         assertTrue(citationsService.payCitation(1));
         verify(dbService, times(1)).close(connection, statement, null);
@@ -224,4 +470,117 @@ class CitationsServiceImplTest {
         assertFalse(citationsService.payCitation(1));
         verify(dbService, times(0)).close(connection, statement, null);
     }
-}
\ No newline at end of file
+
+    @Test
+    void payCitations_updatesDueCitationsChunkByChunk() throws SQLException {
+        citationsService = new CitationsServiceImpl(dbService, 2, numberAllocator);
+        PreparedStatement update = mock(PreparedStatement.class);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(String.format(CitationsServiceImpl.DUE_CITATIONS_QUERY, "?,?"))).thenReturn(keyLookup);
+        when(connection.prepareStatement(String.format(CitationsServiceImpl.SET_DUE_STATUS_SQL, "?,?"))).thenReturn(update);
+        when(keyLookup.executeQuery()).thenReturn(keyResults);
+        when(keyResults.next()).thenReturn(true, false, false);
+        when(keyResults.getInt("citationNum")).thenReturn(5);
+        when(update.executeUpdate()).thenReturn(1);
+
+        Map<Integer, Boolean> outcomes = citationsService.payCitations(Arrays.asList(5, 6, 5, 7));
+
+        Assertions.assertEquals(Arrays.asList(5, 6, 7), new ArrayList<>(outcomes.keySet()));
+        Assertions.assertEquals(Arrays.asList(true, false, false), new ArrayList<>(outcomes.values()));
+        verify(keyLookup).setInt(1, 5);
+        verify(keyLookup).setInt(2, 6);
+        verify(keyLookup).setInt(1, 7);
+        verify(keyLookup).setInt(2, 7);
+        verify(update).setString(1, "PAID");
+        verify(update).setInt(2, 5);
+        verify(update).setInt(3, 5);
+        verify(update, times(1)).executeUpdate();
+        verify(connection, times(2)).commit();
+    }
+
+    @Test
+    void appealCitations_failedChunkIsRolledBackAndReportedUnchanged() throws SQLException {
+        citationsService = new CitationsServiceImpl(dbService, 2, numberAllocator);
+        PreparedStatement update = mock(PreparedStatement.class);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(String.format(CitationsServiceImpl.DUE_CITATIONS_QUERY, "?,?"))).thenReturn(keyLookup);
+        when(connection.prepareStatement(String.format(CitationsServiceImpl.SET_DUE_STATUS_SQL, "?,?"))).thenReturn(update);
+        when(keyLookup.executeQuery()).thenReturn(keyResults);
+        when(keyResults.next()).thenReturn(true, true, false, true, false);
+        when(keyResults.getInt("citationNum")).thenReturn(1, 2, 3);
+        when(update.executeUpdate()).thenThrow(new SQLException("Lock wait timeout exceeded")).thenReturn(1);
+
+        Map<Integer, Boolean> outcomes = citationsService.appealCitations(Arrays.asList(1, 2, 3));
+
+        Assertions.assertFalse(outcomes.get(1));
+        Assertions.assertFalse(outcomes.get(2));
+        Assertions.assertTrue(outcomes.get(3));
+        verify(update, times(2)).setString(1, "APPEALED");
+        verify(connection).rollback();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    void payCitations_empty() throws SQLException {
+        Assertions.assertTrue(citationsService.payCitations(Collections.emptyList()).isEmpty());
+        verifyNoInteractions(dbService);
+    }
+
+    @Test
+    void getPage_seeksPastLastNumber() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select * from Citations, Vehicles where Citations.licenseNum = Vehicles.carLicenseNumber AND citationNum > ? ORDER BY citationNum LIMIT ?")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true).thenReturn(false);
+        when(results.getInt("citationNum")).thenReturn(51);
+        when(results.getString("carLicenseNumber")).thenReturn("testLicense");
+
+        List<Citation> page = citationsService.getPage(50, 25);
+
+        Assertions.assertEquals(1, page.size());
+        Assertions.assertEquals(51, page.get(0).getNumber());
+        verify(statement, times(1)).setInt(1, 50);
+        verify(statement, times(1)).setInt(2, 25);
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void getPage_sqlFailure() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select * from Citations, Vehicles where Citations.licenseNum = Vehicles.carLicenseNumber AND citationNum > ? ORDER BY citationNum LIMIT ?")).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLException());
+        Assertions.assertThrows(SQLException.class, () -> {
+            citationsService.getPage(0, 25);
+        });
+        verify(dbService, times(1)).close(connection, statement, null);
+    }
+
+    @Test
+    void forEach_streamsEveryRowWithFetchSize() throws SQLException {
+        List<Integer> seen = new ArrayList<>();
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select * from Citations, Vehicles where Citations.licenseNum = Vehicles.carLicenseNumber ORDER BY citationNum")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+        when(results.getInt("citationNum")).thenReturn(1).thenReturn(2);
+
+        Assertions.assertEquals(2, citationsService.forEach(citation -> seen.add(citation.getNumber())));
+        Assertions.assertEquals(Arrays.asList(1, 2), seen);
+        verify(statement, times(1)).setFetchSize(DBService.STREAM_FETCH_SIZE);
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void forEach_closesCursorWhenActionThrows() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select * from Citations, Vehicles where Citations.licenseNum = Vehicles.carLicenseNumber ORDER BY citationNum")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true);
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            citationsService.forEach(citation -> {
+                throw new IllegalStateException();
+            });
+        });
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+}
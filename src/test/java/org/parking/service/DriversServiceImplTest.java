@@ -10,8 +10,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.Mockito.*;
 
@@ -161,4 +164,58 @@ class DriversServiceImplTest {
         });
         verify(dbService, times(1)).close(connection, null, null);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPage_firstPageStartsFromEmptyKey() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Drivers WHERE id > ? ORDER BY id LIMIT ?")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true).thenReturn(false);
+        when(results.getString("id")).thenReturn("1234567890");
+
+        List<Driver> page = driversService.getPage(null, 10);
+
+        Assertions.assertEquals("1234567890", page.get(0).getId());
+        verify(statement, times(1)).setString(1, "");
+        verify(statement, times(1)).setInt(2, 10);
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void getPage_seeksPastLastKey() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Drivers WHERE id > ? ORDER BY id LIMIT ?")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(false);
+
+        Assertions.assertTrue(driversService.getPage("1234567890", 10).isEmpty());
+        verify(statement, times(1)).setString(1, "1234567890");
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void forEach_streamsEveryRow() throws SQLException {
+        List<String> seen = new ArrayList<>();
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Drivers ORDER BY id")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+        when(results.getString("id")).thenReturn("first").thenReturn("second");
+
+        Assertions.assertEquals(2, driversService.forEach(item -> seen.add(item.getId())));
+        Assertions.assertEquals(Arrays.asList("first", "second"), seen);
+        verify(statement, times(1)).setFetchSize(DBService.STREAM_FETCH_SIZE);
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void forEach_sqlFailure() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Drivers ORDER BY id")).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLException());
+        Assertions.assertThrows(SQLException.class, () -> {
+            driversService.forEach(item -> { });
+        });
+        verify(dbService, times(1)).close(connection, statement, null);
+    }
+}
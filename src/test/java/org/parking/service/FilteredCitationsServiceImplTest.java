@@ -0,0 +1,86 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Citation;
+import org.parking.model.Vehicle;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FilteredCitationsServiceImplTest {
+
+    private FilteredCitationsServiceImpl citationsService;
+    private LicenseBloomFilter knownLicenses;
+
+    @Mock
+    private CitationsService delegate;
+
+    @BeforeEach
+    void init() {
+        knownLicenses = LicenseBloomFilter.forFalsePositiveRate(100, 0.01);
+        citationsService = new FilteredCitationsServiceImpl(delegate, knownLicenses);
+    }
+
+    private static Citation citation(String license) {
+        return new Citation(0, new Vehicle(license, "", "", "", 0), "Lot 9", "No permits", 40.0, "DUE",
+                Date.valueOf("2026-03-02"), Time.valueOf("08:00:00"));
+    }
+
+    @Test
+    void createCitation_putsLicenseOnlyWhenCreatingVehicle() throws SQLException {
+        Citation created = citation("VAN-9910");
+        Citation existing = citation("TRK-1122");
+
+        citationsService.createCitation(created, true);
+        citationsService.createCitation(existing, false);
+
+        verify(delegate).createCitation(created, true);
+        verify(delegate).createCitation(existing, false);
+        Assertions.assertTrue(knownLicenses.mightContain("VAN-9910"));
+        Assertions.assertFalse(knownLicenses.mightContain("TRK-1122"));
+    }
+
+    @Test
+    void createCitationWithRequestKey_passesKeyThrough() throws SQLException {
+        Citation created = citation("VAN-9910");
+        when(delegate.createCitation(created, true, "request-1")).thenReturn(42);
+
+        Assertions.assertEquals(42, citationsService.createCitation(created, true, "request-1"));
+
+        Assertions.assertTrue(knownLicenses.mightContain("VAN-9910"));
+    }
+
+    @Test
+    void createCitations_putsEveryLicense() throws SQLException {
+        List<Citation> citations = Arrays.asList(citation("VAN-9910"), citation("TRK-1122"));
+        when(delegate.createCitations(citations)).thenReturn(new int[]{1, 1});
+
+        Assertions.assertArrayEquals(new int[]{1, 1}, citationsService.createCitations(citations));
+
+        Assertions.assertTrue(knownLicenses.mightContain("VAN-9910"));
+        Assertions.assertTrue(knownLicenses.mightContain("TRK-1122"));
+    }
+
+    @Test
+    void createCitationsWithRequestKeys_putsEveryLicense() throws SQLException {
+        List<Citation> citations = Arrays.asList(citation("VAN-9910"), citation("TRK-1122"));
+        List<String> requestKeys = Arrays.asList("key-1", "key-2");
+        when(delegate.createCitations(citations, requestKeys)).thenReturn(new int[]{1, 1});
+
+        Assertions.assertArrayEquals(new int[]{1, 1}, citationsService.createCitations(citations, requestKeys));
+
+        Assertions.assertTrue(knownLicenses.mightContain("VAN-9910"));
+        Assertions.assertTrue(knownLicenses.mightContain("TRK-1122"));
+    }
+}
@@ -0,0 +1,51 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.Collections;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FilteredPermitValidationServiceImplTest {
+    private static final Date DATE = Date.valueOf("2026-03-02");
+    private static final Time TIME = Time.valueOf("08:00:00");
+
+    private FilteredPermitValidationServiceImpl permitValidationService;
+    private LicenseBloomFilter knownLicenses;
+
+    @Mock
+    private PermitValidationService delegate;
+
+    @BeforeEach
+    void init() {
+        knownLicenses = LicenseBloomFilter.forFalsePositiveRate(100, 0.01);
+        permitValidationService = new FilteredPermitValidationServiceImpl(delegate, knownLicenses);
+    }
+
+    @Test
+    void validate_unknownLicenseIsUnregistered() throws SQLException {
+        PermitValidationResult result = permitValidationService.validate("VAN-9910", "Lot 9", DATE, TIME, null);
+
+        Assertions.assertFalse(result.isVehicleRegistered());
+        Assertions.assertFalse(result.hasViolations());
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void validate_knownLicenseGoesToDelegate() throws SQLException {
+        PermitValidationResult registered = new PermitValidationResult(true, true, Collections.emptyList());
+        knownLicenses.put("VAN-9910");
+        when(delegate.validate("VAN-9910", "Lot 9", DATE, TIME, null)).thenReturn(registered);
+
+        Assertions.assertSame(registered, permitValidationService.validate("VAN-9910", "Lot 9", DATE, TIME, null));
+    }
+}
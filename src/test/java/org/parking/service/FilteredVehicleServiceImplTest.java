@@ -0,0 +1,66 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Vehicle;
+
+import java.sql.SQLException;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FilteredVehicleServiceImplTest {
+
+    private FilteredVehicleServiceImpl vehicleService;
+    private LicenseBloomFilter knownLicenses;
+
+    @Mock
+    private VehicleService delegate;
+
+    @BeforeEach
+    void init() {
+        knownLicenses = LicenseBloomFilter.forFalsePositiveRate(100, 0.01);
+        vehicleService = new FilteredVehicleServiceImpl(delegate, knownLicenses);
+    }
+
+    @Test
+    void getByLicense_unknownLicenseSkipsDatabase() throws SQLException {
+        Assertions.assertNull(vehicleService.getByLicense("VAN-9910"));
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void getByLicense_knownLicenseGoesToDelegate() throws SQLException {
+        Vehicle vehicle = new Vehicle("VAN-9910", "Civic", "Blue", "Honda", 2020);
+        knownLicenses.put("VAN-9910");
+        when(delegate.getByLicense("VAN-9910")).thenReturn(vehicle);
+
+        Assertions.assertSame(vehicle, vehicleService.getByLicense("VAN-9910"));
+    }
+
+    @Test
+    void create_putsLicenseEvenIfCreateFails() throws SQLException {
+        Vehicle vehicle = new Vehicle("VAN-9910", "Civic", "Blue", "Honda", 2020);
+        when(delegate.create(vehicle)).thenThrow(new SQLException("timeout"));
+
+        Assertions.assertThrows(SQLException.class, () -> vehicleService.create(vehicle));
+
+        when(delegate.getByLicense("VAN-9910")).thenReturn(vehicle);
+        Assertions.assertSame(vehicle, vehicleService.getByLicense("VAN-9910"));
+    }
+
+    @Test
+    void delete_keepsLicenseInFilter() throws SQLException {
+        knownLicenses.put("VAN-9910");
+        when(delegate.delete("VAN-9910")).thenReturn(true);
+
+        Assertions.assertTrue(vehicleService.delete("VAN-9910"));
+        vehicleService.getByLicense("VAN-9910");
+
+        verify(delegate).getByLicense("VAN-9910");
+    }
+}
@@ -0,0 +1,76 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void advance_firesEachTimerOnItsTickAcrossLevels() {
+        // 4 slots per level and 3 levels cover 64 ticks before the overflow list.
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(1000, 2, 3, 0);
+        int[] deadlines = {1, 3, 4, 5, 15, 16, 17, 63, 64, 65, 200};
+        for (int deadline : deadlines) {
+            wheel.schedule(deadline * 1000L, deadline);
+        }
+        Assertions.assertEquals(deadlines.length, wheel.size());
+
+        for (int tick = 1; tick <= 200; tick++) {
+            final int now = tick;
+            List<Integer> fired = wheel.advance(now * 1000L);
+            boolean expected = Arrays.stream(deadlines).anyMatch(deadline -> deadline == now);
+            Assertions.assertEquals(expected ? Collections.singletonList(tick) : Collections.emptyList(), fired,
+                    "tick " + tick);
+        }
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_manyTicksAtOnce_firesInDeadlineOrder() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(1000, 6, 4, 0);
+        List<Long> deadlines = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            deadlines.add(1000L * (1 + random.nextInt(86400)));
+        }
+        for (Long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        List<Long> fired = wheel.advance(86400 * 1000L);
+        Collections.sort(deadlines);
+        Assertions.assertEquals(deadlines, fired);
+    }
+
+    @Test
+    void schedule_roundsUpAndFiresPastDeadlinesOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1000, 6, 2, 10_000);
+        wheel.schedule(5_000, "past");
+        wheel.schedule(11_500, "half");
+        Assertions.assertEquals(Collections.singletonList("past"), wheel.advance(10_000));
+        Assertions.assertEquals(Collections.emptyList(), wheel.advance(11_999));
+        Assertions.assertEquals(Collections.singletonList("half"), wheel.advance(12_000));
+    }
+
+    @Test
+    void cancel_stopsTimerFromFiring() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1000, 6, 2, 0);
+        HierarchicalTimingWheel.Timer<String> timer = wheel.schedule(90_000, "cancelled");
+        wheel.schedule(90_000, "kept");
+        wheel.cancel(timer);
+        wheel.cancel(timer);
+        Assertions.assertEquals(1, wheel.size());
+        Assertions.assertEquals(Collections.singletonList("kept"), wheel.advance(100_000));
+    }
+
+    @Test
+    void constructor_rejectsBadSizes() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<String>(0, 6, 4, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<String>(1000, 16, 4, 0));
+    }
+}
@@ -0,0 +1,61 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.parking.service.ImportRecordReader.ImportRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Map;
+
+class ImportRecordReaderTest {
+
+    @Test
+    void next_readsCsvWithQuotedFieldsAndSkipsBlankLines() throws IOException {
+        ImportRecordReader reader = new ImportRecordReader(new BufferedReader(new StringReader(
+                "id,name,status\n\nd1,\"Smith, \"\"JJ\"\"\",S\nd2,,E\n")), false);
+
+        ImportRecord first = reader.next();
+        ImportRecord second = reader.next();
+
+        Assertions.assertEquals(1, first.getNumber());
+        Assertions.assertEquals(3, first.getLineNumber());
+        Assertions.assertEquals("Smith, \"JJ\"", first.get("name"));
+        Assertions.assertNull(second.get("name"));
+        Assertions.assertNull(reader.next());
+    }
+
+    @Test
+    void next_returnsParseErrorForMalformedLine() throws IOException {
+        ImportRecordReader reader = new ImportRecordReader(new BufferedReader(new StringReader(
+                "id,name,status\nd1,Ann\nd2,Bob,E\n")), false);
+
+        Assertions.assertNotNull(reader.next().getParseError());
+        Assertions.assertEquals("d2", reader.next().get("id"));
+    }
+
+    @Test
+    void parseJsonLine_readsFlatObject() {
+        Map<String, String> fields = ImportRecordReader.parseJsonLine(
+                "{\"id\": \"d\\\"1\", \"year\": 2020, \"carLicenseNum\": null, \"name\": \"Ren\\u00e9e\"}");
+
+        Assertions.assertEquals("d\"1", fields.get("id"));
+        Assertions.assertEquals("2020", fields.get("year"));
+        Assertions.assertNull(fields.get("carLicenseNum"));
+        Assertions.assertEquals("Renée", fields.get("name"));
+    }
+
+    @Test
+    void parseJsonLine_rejectsNestedValues() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            ImportRecordReader.parseJsonLine("{\"id\": {\"nested\": 1}}");
+        });
+    }
+
+    @Test
+    void parseCsvLine_keepsEmptyTrailingField() {
+        Assertions.assertEquals(Arrays.asList("a", "b", ""), ImportRecordReader.parseCsvLine("a,b,"));
+    }
+}
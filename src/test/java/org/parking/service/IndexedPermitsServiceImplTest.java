@@ -0,0 +1,125 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Driver;
+import org.parking.model.Permit;
+import org.parking.model.Vehicle;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndexedPermitsServiceImplTest {
+
+    private IndexedPermitsServiceImpl permitsService;
+
+    @Mock
+    private PermitsService delegate;
+    @Mock
+    private ActivePermitIndex index;
+
+    @BeforeEach
+    void init() {
+        permitsService = new IndexedPermitsServiceImpl(delegate, index);
+    }
+
+    private static Permit permit(String carLicenseNum) {
+        return new Permit("EJH2C", "Commuter", "A", "366399121", carLicenseNum, "regular",
+                Date.valueOf("2026-01-01"), Date.valueOf("2026-06-30"), Time.valueOf("23:59:59"));
+    }
+
+    @Test
+    void enterPermitInfo_refreshesPlateAfterWrite() throws SQLException {
+        Permit permit = permit("VAN9910");
+
+        permitsService.enterPermitInfo(permit);
+
+        InOrder inOrder = inOrder(delegate, index);
+        inOrder.verify(delegate).enterPermitInfo(permit);
+        inOrder.verify(index).refreshPlate("VAN9910");
+    }
+
+    @Test
+    void updatePermitInfo_refreshesEveryVehicleOfThePermit() throws SQLException {
+        Date start = Date.valueOf("2026-01-01");
+        Date end = Date.valueOf("2026-12-31");
+        Time time = Time.valueOf("23:59:59");
+
+        permitsService.updatePermitInfo("EJH2C", "Commuter", "B", "regular", start, end, time);
+
+        verify(delegate).updatePermitInfo("EJH2C", "Commuter", "B", "regular", start, end, time);
+        verify(index).refreshPermit("EJH2C");
+    }
+
+    @Test
+    void deletePermitInfo_refreshesPlatesReadBeforeDelete() throws SQLException {
+        when(delegate.getPermitInfo("EJH2C")).thenReturn(Arrays.asList(permit("VAN9910"), permit("TRK1122")));
+
+        permitsService.deletePermitInfo("EJH2C");
+
+        InOrder inOrder = inOrder(delegate, index);
+        inOrder.verify(delegate).getPermitInfo("EJH2C");
+        inOrder.verify(delegate).deletePermitInfo("EJH2C");
+        inOrder.verify(index).refreshPlate("VAN9910");
+        inOrder.verify(index).refreshPlate("TRK1122");
+    }
+
+    @Test
+    void assignPermitToDriver_refreshesVehiclePlate() throws SQLException {
+        Driver driver = new Driver("366399121", "Ann Lee", "S");
+        Vehicle vehicle = new Vehicle("VAN9910", "Civic", "Blue", "Honda", 2020);
+        Date start = Date.valueOf("2026-01-01");
+        Date end = Date.valueOf("2026-06-30");
+        Time time = Time.valueOf("23:59:59");
+
+        permitsService.assignPermitToDriver("EJH2C", "Commuter", "A", "regular", start, end, time, driver, vehicle);
+
+        verify(delegate).assignPermitToDriver("EJH2C", "Commuter", "A", "regular", start, end, time, driver, vehicle);
+        verify(index).refreshPlate("VAN9910");
+    }
+
+    @Test
+    void vehicleChanges_refreshGivenPlate() throws SQLException {
+        Permit permit = permit("VAN9910");
+
+        permitsService.removeVehicleFromPermit("EJH2C", "VAN9910");
+        permitsService.addVehicleToPermit("EJH2C", "TRK1122");
+        permitsService.addVehicleToPermitForEmployee(permit, "CAR3344");
+
+        verify(delegate).removeVehicleFromPermit("EJH2C", "VAN9910");
+        verify(delegate).addVehicleToPermit("EJH2C", "TRK1122");
+        verify(delegate).addVehicleToPermitForEmployee(permit, "CAR3344");
+        verify(index).refreshPlate("VAN9910");
+        verify(index).refreshPlate("TRK1122");
+        verify(index).refreshPlate("CAR3344");
+    }
+
+    @Test
+    void refreshFailure_doesNotFailTheWrite() throws SQLException {
+        doThrow(new SQLException("down")).when(index).refreshPlate("VAN9910");
+
+        permitsService.addVehicleToPermit("EJH2C", "VAN9910");
+
+        verify(delegate).addVehicleToPermit("EJH2C", "VAN9910");
+    }
+
+    @Test
+    void reads_goStraightToDelegate() throws SQLException {
+        when(delegate.getPermitsNumberForDriver("366399121")).thenReturn(2);
+
+        permitsService.getPermitsNumberForDriver("366399121");
+        permitsService.getPermitPerCarLicense("VAN9910");
+
+        verify(delegate).getPermitPerCarLicense("VAN9910");
+        verifyNoInteractions(index);
+    }
+}
@@ -0,0 +1,45 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class IntIntHashMapTest {
+
+    @Test
+    void putIfAbsent_keepsTheFirstValue() {
+        IntIntHashMap map = new IntIntHashMap(4);
+
+        Assertions.assertEquals(IntIntHashMap.MISSING, map.putIfAbsent(42, 0));
+        Assertions.assertEquals(0, map.putIfAbsent(42, 7));
+
+        Assertions.assertEquals(0, map.get(42));
+        Assertions.assertEquals(1, map.size());
+    }
+
+    @Test
+    void get_missingKey() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        map.putIfAbsent(1, 1);
+
+        Assertions.assertEquals(IntIntHashMap.MISSING, map.get(2));
+    }
+
+    @Test
+    void growsPastExpectedSize() {
+        IntIntHashMap map = new IntIntHashMap(8);
+        for (int key = -50_000; key < 50_000; key++) {
+            map.putIfAbsent(key * 16, key + 50_000);
+        }
+
+        Assertions.assertEquals(100_000, map.size());
+        for (int key = -50_000; key < 50_000; key++) {
+            Assertions.assertEquals(key + 50_000, map.get(key * 16));
+        }
+        Assertions.assertEquals(IntIntHashMap.MISSING, map.get(17));
+    }
+
+    @Test
+    void negativeValuesAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IntIntHashMap(4).putIfAbsent(1, -1));
+    }
+}
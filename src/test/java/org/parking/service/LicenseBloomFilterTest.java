@@ -0,0 +1,82 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Vehicle;
+
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LicenseBloomFilterTest {
+
+    @Mock
+    private VehicleService vehicleService;
+
+    @Test
+    void mightContain_neverMissesAPutLicense() {
+        LicenseBloomFilter filter = LicenseBloomFilter.forFalsePositiveRate(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("PLATE" + i);
+        }
+        for (int i = 0; i < 10000; i++) {
+            Assertions.assertTrue(filter.mightContain("PLATE" + i));
+        }
+    }
+
+    @Test
+    void mightContain_falsePositivesStayNearConfiguredRate() {
+        LicenseBloomFilter filter = LicenseBloomFilter.forFalsePositiveRate(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("PLATE" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("VISITOR" + i)) {
+                falsePositives++;
+            }
+        }
+        Assertions.assertTrue(falsePositives < 2000, "false positives: " + falsePositives);
+        Assertions.assertEquals(0.01, filter.getExpectedFalsePositiveRate(), 0.002);
+    }
+
+    @Test
+    void mightContain_ignoresCaseAndSurroundingSpaces() {
+        LicenseBloomFilter filter = LicenseBloomFilter.forFalsePositiveRate(100, 0.01);
+        filter.put("VAN-9910");
+
+        Assertions.assertTrue(filter.mightContain("van-9910 "));
+        Assertions.assertFalse(filter.mightContain(null));
+    }
+
+    @Test
+    void forMemory_capsTheBitArray() {
+        LicenseBloomFilter filter = LicenseBloomFilter.forMemory(1000000, 64 * 1024);
+
+        Assertions.assertEquals(64 * 1024, filter.getMemoryBytes());
+        Assertions.assertEquals(1, filter.getHashCount());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LicenseBloomFilter.forFalsePositiveRate(100, 1));
+    }
+
+    @Test
+    void load_putsEveryVehicleLicense() throws SQLException {
+        when(vehicleService.forEach(any())).thenAnswer(invocation -> {
+            Consumer<Vehicle> action = invocation.getArgument(0);
+            action.accept(new Vehicle("VAN-9910", "Civic", "Blue", "Honda", 2020));
+            action.accept(new Vehicle("TRK-1122", "F-150", "Red", "Ford", 2018));
+            return 2;
+        });
+        LicenseBloomFilter filter = LicenseBloomFilter.forFalsePositiveRate(100, 0.01);
+
+        Assertions.assertEquals(2, filter.load(vehicleService));
+
+        Assertions.assertTrue(filter.mightContain("VAN-9910"));
+        Assertions.assertTrue(filter.mightContain("TRK-1122"));
+    }
+}
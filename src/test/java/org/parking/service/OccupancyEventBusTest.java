@@ -0,0 +1,144 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Space;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyEventBusTest {
+
+    private OccupancyEventBus bus;
+
+    @Mock
+    private SpaceService spaceService;
+
+    @BeforeEach
+    void init() {
+        bus = new OccupancyEventBus(4, 0);
+    }
+
+    @AfterEach
+    void shutdown() {
+        bus.shutdown();
+    }
+
+    private static Space space(int number, String type, boolean free, String lotName) {
+        return new Space(number, type, free, "A", lotName);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void seed_countsSpacesPerLotAndType() {
+        List<Space> spaces = Arrays.asList(space(1, "regular", true, "Lot 1"), space(2, "regular", false, "Lot 1"),
+                space(3, "electric", true, "Lot 1"));
+        doAnswer(invocation -> {
+            spaces.forEach((Consumer<Space>) invocation.getArgument(0));
+            return spaces.size();
+        }).when(spaceService).forEach(any(Consumer.class));
+
+        Assertions.assertEquals(3, bus.seed(spaceService));
+        Assertions.assertEquals(1, bus.getFreeCount("Lot 1", "regular"));
+        Assertions.assertEquals(2, bus.getTotalCount("Lot 1", "regular"));
+        Assertions.assertEquals(1, bus.getFreeCount("Lot 1", "electric"));
+    }
+
+    @Test
+    void flush_coalescesChangesPerLotAndType() {
+        OccupancyEventBus.Subscription subscription = bus.subscribe();
+        for (int number = 1; number <= 10; number++) {
+            bus.spaceChanged(space(number, "regular", true, "Lot 1"), space(number, "regular", false, "Lot 1"));
+        }
+        bus.spaceChanged(null, space(11, "electric", true, "Lot 1"));
+        Assertions.assertEquals(0, subscription.poll(delta -> Assertions.fail("nothing is published before a flush")));
+
+        Assertions.assertEquals(2, bus.flush());
+        List<OccupancyDelta> deltas = new ArrayList<>();
+        Assertions.assertEquals(2, subscription.poll(deltas::add));
+        for (OccupancyDelta delta : deltas) {
+            if (delta.getSpaceType().equals("regular")) {
+                Assertions.assertEquals(-10, delta.getFreeDelta());
+                Assertions.assertEquals(0, delta.getTotalDelta());
+            } else {
+                Assertions.assertEquals(1, delta.getFreeDelta());
+                Assertions.assertEquals(1, delta.getTotalDelta());
+            }
+        }
+        Assertions.assertEquals(-10, bus.getFreeCount("Lot 1", "regular"));
+        Assertions.assertEquals(0, subscription.getLag());
+    }
+
+    @Test
+    void flush_changesThatCancelOut_publishNothing() {
+        bus.spaceChanged(space(1, "regular", true, "Lot 1"), space(1, "regular", false, "Lot 1"));
+        bus.spaceChanged(space(1, "regular", false, "Lot 1"), space(1, "regular", true, "Lot 1"));
+        Assertions.assertEquals(0, bus.flush());
+    }
+
+    @Test
+    void poll_everySubscriberSeesEveryDelta() {
+        OccupancyEventBus.Subscription first = bus.subscribe();
+        OccupancyEventBus.Subscription second = bus.subscribe();
+        bus.spaceChanged(null, space(1, "regular", true, "Lot 1"));
+        bus.flush();
+        bus.spaceChanged(null, space(1, "regular", true, "Lot 2"));
+        bus.flush();
+
+        List<OccupancyDelta> seen = new ArrayList<>();
+        Assertions.assertEquals(2, first.poll(seen::add));
+        Assertions.assertEquals(1, seen.get(0).getSequence());
+        Assertions.assertEquals("Lot 2", seen.get(1).getLotName());
+        Assertions.assertEquals(2, second.poll(delta -> { }));
+        Assertions.assertEquals(0, first.poll(delta -> { }));
+    }
+
+    @Test
+    void poll_lappedSubscriber_mustResync() {
+        OccupancyEventBus.Subscription subscription = bus.subscribe();
+        for (int number = 1; number <= 5; number++) {
+            bus.spaceChanged(null, space(number, "regular", true, "Lot 1"));
+            bus.flush();
+        }
+
+        Assertions.assertEquals(-1, subscription.poll(delta -> Assertions.fail("overwritten deltas must not be delivered")));
+        Map<String, Integer> free = subscription.resync("Lot 1");
+        Assertions.assertEquals(Integer.valueOf(5), free.get("regular"));
+
+        bus.spaceChanged(space(1, "regular", true, "Lot 1"), space(1, "regular", false, "Lot 1"));
+        bus.flush();
+        List<OccupancyDelta> deltas = new ArrayList<>();
+        Assertions.assertEquals(1, subscription.poll(deltas::add));
+        Assertions.assertEquals(-1, deltas.get(0).getFreeDelta());
+    }
+
+    @Test
+    void resync_onlyReturnsTheRequestedLot() {
+        bus.spaceChanged(null, space(1, "regular", true, "Lot 1"));
+        bus.spaceChanged(null, space(1, "electric", false, "Lot 1"));
+        bus.spaceChanged(null, space(1, "regular", true, "Lot 10"));
+        bus.flush();
+
+        Map<String, Integer> free = bus.subscribe().resync("Lot 1");
+        Assertions.assertEquals(2, free.size());
+        Assertions.assertEquals(Integer.valueOf(1), free.get("regular"));
+        Assertions.assertEquals(Integer.valueOf(0), free.get("electric"));
+    }
+
+    @Test
+    void constructor_capacityNotPowerOfTwo_throws() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OccupancyEventBus(6, 0));
+    }
+}
@@ -0,0 +1,218 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Space;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyTimeSeriesStoreTest {
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 2);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private SpaceService spaceService;
+
+    private MutableClock clock;
+    private OccupancyTimeSeriesStore store;
+
+    @BeforeEach
+    void init() {
+        clock = new MutableClock(DAY.atTime(8, 0));
+        store = newStore();
+    }
+
+    @AfterEach
+    void shutdown() {
+        store.shutdown();
+    }
+
+    private OccupancyTimeSeriesStore newStore() {
+        return new OccupancyTimeSeriesStore(directory, ZoneOffset.UTC, clock, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void seed(OccupancyTimeSeriesStore target, List<Space> spaces) {
+        doAnswer(invocation -> {
+            spaces.forEach((Consumer<Space>) invocation.getArgument(0));
+            return spaces.size();
+        }).when(spaceService).forEach(any(Consumer.class));
+        target.seed(spaceService);
+    }
+
+    private static Space space(int number, String type, boolean free, String zoneID) {
+        return new Space(number, type, free, zoneID, "Lot 1");
+    }
+
+    private List<Space> threeSpaces() {
+        return Arrays.asList(space(1, "regular", true, "A"), space(2, "regular", false, "A"),
+                space(3, "electric", true, "B"));
+    }
+
+    @Test
+    void getHourlyUtilization_weighsStatusByTimeInEachHour() throws IOException {
+        seed(store, threeSpaces());
+        store.flush();
+        clock.set(DAY.atTime(8, 30));
+        store.spaceChanged(space(1, "regular", true, "A"), space(1, "regular", false, "A"));
+        clock.set(DAY.atTime(9, 0));
+
+        List<HourlyUtilization> all = store.getHourlyUtilization("Lot 1", null, null, DAY, DAY);
+        Assertions.assertEquals(1, all.size());
+        Assertions.assertEquals(DAY.atTime(8, 0), all.get(0).getHour());
+        Assertions.assertEquals(3.0, all.get(0).getSpaceHours(), 1e-9);
+        Assertions.assertEquals(1.5, all.get(0).getOccupiedHours(), 1e-9);
+        Assertions.assertEquals(0.5, all.get(0).getUtilization(), 1e-9);
+
+        Assertions.assertEquals(0.75, store.getHourlyUtilization("Lot 1", null, "regular", DAY, DAY)
+                .get(0).getUtilization(), 1e-9);
+        Assertions.assertEquals(0.0, store.getHourlyUtilization("Lot 1", "B", null, DAY, DAY)
+                .get(0).getUtilization(), 1e-9);
+    }
+
+    @Test
+    void getHourlyUtilization_unknownLotOrDay_returnsEmpty() throws IOException {
+        seed(store, threeSpaces());
+        Assertions.assertTrue(store.getHourlyUtilization("Lot 2", null, null, DAY, DAY).isEmpty());
+        Assertions.assertTrue(store.getHourlyUtilization("Lot 1", null, null, DAY.minusDays(3), DAY.minusDays(1))
+                .isEmpty());
+    }
+
+    @Test
+    void flush_newDay_startsPartitionWithSnapshot() throws IOException {
+        seed(store, threeSpaces());
+        clock.set(DAY.atTime(23, 0));
+        store.spaceChanged(space(3, "electric", true, "B"), space(3, "electric", false, "B"));
+        clock.set(DAY.plusDays(1).atTime(1, 0));
+        store.spaceChanged(space(3, "electric", false, "B"), space(3, "electric", true, "B"));
+        clock.set(DAY.plusDays(1).atTime(2, 0));
+        store.flush();
+
+        Assertions.assertTrue(Files.exists(store.partitionFile("Lot 1", DAY)));
+        Assertions.assertTrue(Files.exists(store.partitionFile("Lot 1", DAY.plusDays(1))));
+        // The second day's file alone says space 3 was in use from midnight until 1am.
+        List<HourlyUtilization> hours = store.getHourlyUtilization("Lot 1", "B", null, DAY.plusDays(1), DAY.plusDays(1));
+        Assertions.assertEquals(2, hours.size());
+        Assertions.assertEquals(1.0, hours.get(0).getUtilization(), 1e-9);
+        Assertions.assertEquals(0.0, hours.get(1).getUtilization(), 1e-9);
+    }
+
+    @Test
+    void spaceChanged_typeChangeAndDelete_moveSpaceBetweenTypes() throws IOException {
+        seed(store, threeSpaces());
+        clock.set(DAY.atTime(8, 15));
+        store.spaceChanged(space(1, "regular", true, "A"), space(1, "electric", true, "A"));
+        clock.set(DAY.atTime(8, 45));
+        store.spaceChanged(space(2, "regular", false, "A"), null);
+        clock.set(DAY.atTime(9, 0));
+
+        Assertions.assertEquals(1.75, store.getHourlyUtilization("Lot 1", null, "electric", DAY, DAY)
+                .get(0).getSpaceHours(), 1e-9);
+        HourlyUtilization regular = store.getHourlyUtilization("Lot 1", null, "regular", DAY, DAY).get(0);
+        Assertions.assertEquals(1.0, regular.getSpaceHours(), 1e-9);
+        Assertions.assertEquals(0.75, regular.getOccupiedHours(), 1e-9);
+    }
+
+    @Test
+    void flush_reopenedPartition_appendsAfterTornRecord() throws IOException {
+        seed(store, threeSpaces());
+        store.flush();
+        store.shutdown();
+        // A crash in the middle of appending a block leaves part of it at the end of the file.
+        Files.write(store.partitionFile("Lot 1", DAY), new byte[]{'B', 5, 1}, StandardOpenOption.APPEND);
+
+        store = newStore();
+        seed(store, threeSpaces());
+        clock.set(DAY.atTime(8, 30));
+        store.spaceChanged(space(3, "electric", true, "B"), space(3, "electric", false, "B"));
+        clock.set(DAY.atTime(9, 0));
+
+        HourlyUtilization hour = store.getHourlyUtilization("Lot 1", null, null, DAY, DAY).get(0);
+        Assertions.assertEquals(3.0, hour.getSpaceHours(), 1e-9);
+        Assertions.assertEquals(1.5, hour.getOccupiedHours(), 1e-9);
+    }
+
+    @Test
+    void flush_packsTransitionsIntoFewBytes() throws IOException {
+        List<Space> spaces = new ArrayList<>();
+        for (int number = 1; number <= 500; number++) {
+            spaces.add(space(number, "regular", true, "A"));
+        }
+        seed(store, spaces);
+        store.flush();
+        long snapshotSize = Files.size(store.partitionFile("Lot 1", DAY));
+
+        for (int i = 0; i < 2000; i++) {
+            clock.advance(1500);
+            Space free = space(1 + (i * 7) % 500, "regular", true, "A");
+            Space taken = space(free.getNumber(), "regular", false, "A");
+            store.spaceChanged(i % 2 == 0 ? free : taken, i % 2 == 0 ? taken : free);
+            if (i % 100 == 99) {
+                store.flush();
+            }
+        }
+        long transitionBytes = Files.size(store.partitionFile("Lot 1", DAY)) - snapshotSize;
+        Assertions.assertTrue(transitionBytes < 2000 * 4, "transitions took " + transitionBytes + " bytes");
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(LocalDateTime time) {
+            set(time);
+        }
+
+        void set(LocalDateTime time) {
+            millis = time.toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
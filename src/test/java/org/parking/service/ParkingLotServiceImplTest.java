@@ -49,7 +49,7 @@ public class ParkingLotServiceImplTest {
     @Test
     void testGetAll_NoConnection() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenThrow(new SQLException());
-        assertEquals(0, parkingLotService.getAll().size());
+        assertNull(parkingLotService.getAll());
         verify(dbService, times(0)).close(connection, statement, results);
     }
 
@@ -0,0 +1,141 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentReconciliationServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    private PaymentReconciliationServiceImpl reconciliationService;
+
+    @Mock
+    private DBService dbService;
+
+    @Mock
+    private CitationsService citationsService;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet results;
+
+    @BeforeEach
+    void init() {
+        reconciliationService = new PaymentReconciliationServiceImpl(dbService, citationsService, 2, 2);
+    }
+
+    private void stubDuePages() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(PaymentReconciliationServiceImpl.DUE_PAGE_QUERY)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+    }
+
+    private Path settlementFile(String... lines) throws IOException {
+        return Files.write(directory.resolve("settlement.csv"), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private List<String> mismatches() throws IOException {
+        return Files.readAllLines(directory.resolve("settlement.csv" + PaymentReconciliationServiceImpl.MISMATCHES_SUFFIX),
+                StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void reconcile_paysMatchesAndFlagsTheRest() throws SQLException, IOException {
+        Path file = settlementFile("citationNumber,license,amount",
+                "101,VAN9910,40.00",
+                "102,trk1122 ,25",
+                "103,CAR3344,40.00",
+                "104,BUS5566,40.00",
+                "101,VAN9910,40.00",
+                "bad line",
+                "105,XYZ,40.001");
+        stubDuePages();
+        when(results.next()).thenReturn(true, true, false, true, true, false);
+        when(results.getInt("citationNum")).thenReturn(101, 102, 103, 104);
+        when(results.getString("licenseNum")).thenReturn("VAN9910", "TRK1122", "CAR9999", "BUS5566");
+        when(results.getDouble("fee")).thenReturn(40.0, 25.0, 40.0, 35.0);
+        Map<Integer, Boolean> outcomes = new LinkedHashMap<>();
+        outcomes.put(101, true);
+        outcomes.put(102, false);
+        when(citationsService.payCitations(Arrays.asList(101, 102))).thenReturn(outcomes);
+
+        ReconciliationResult result = reconciliationService.reconcile(file);
+
+        Assertions.assertEquals(7, result.getPayments());
+        Assertions.assertEquals(1, result.getPaid());
+        Assertions.assertEquals(6, result.getMismatched());
+        Assertions.assertEquals(Arrays.asList(
+                "line 6: 101,VAN9910,40.00: duplicate of the payment on line 2",
+                "line 7: bad line: expected citationNumber,license,amount",
+                "line 8: 105,XYZ,40.001: expected citationNumber,license,amount",
+                "line 3: 102,trk1122,25.00: citation was no longer DUE when the payment was applied",
+                "line 4: 103,CAR3344,40.00: license does not match citation (CAR9999)",
+                "line 5: 104,BUS5566,40.00: amount does not match fee (35.00)"), mismatches());
+        verify(statement).setInt(1, 100);
+        verify(statement).setInt(1, 102);
+        verify(statement, times(2)).setInt(2, 104);
+        verify(statement, times(2)).setInt(3, 2);
+        verify(citationsService, times(1)).payCitations(anyCollection());
+        verify(dbService, times(2)).close(connection, statement, results);
+    }
+
+    @Test
+    void reconcile_paymentWithoutDueCitation() throws SQLException, IOException {
+        Path file = settlementFile("300,VAN9910,40.00");
+        stubDuePages();
+        when(results.next()).thenReturn(false);
+
+        ReconciliationResult result = reconciliationService.reconcile(file);
+
+        Assertions.assertEquals(0, result.getPaid());
+        Assertions.assertEquals(Arrays.asList("line 1: 300,VAN9910,40.00: no DUE citation with this number"), mismatches());
+        verify(citationsService, never()).payCitations(anyCollection());
+    }
+
+    @Test
+    void reconcile_databaseFailureStopsTheRun() throws SQLException, IOException {
+        Path file = settlementFile("300,VAN9910,40.00");
+        stubDuePages();
+        when(results.next()).thenThrow(new SQLException("Connection reset"));
+
+        Assertions.assertThrows(SQLException.class, () -> reconciliationService.reconcile(file));
+        verify(dbService).close(connection, statement, results);
+        verify(citationsService, never()).payCitations(anyCollection());
+    }
+
+    @Test
+    void toCents_rejectsFractionsOfACent() {
+        Assertions.assertEquals(4000, PaymentReconciliationServiceImpl.toCents("40"));
+        Assertions.assertEquals(1999, PaymentReconciliationServiceImpl.toCents("19.99"));
+        Assertions.assertThrows(ArithmeticException.class, () -> PaymentReconciliationServiceImpl.toCents("19.999"));
+        Assertions.assertThrows(NumberFormatException.class, () -> PaymentReconciliationServiceImpl.toCents("0"));
+    }
+}
@@ -0,0 +1,196 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PermitExpirySchedulerTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 2, 8, 0);
+
+    @Mock
+    private DBService dbService;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement query;
+    @Mock
+    private PreparedStatement update;
+    @Mock
+    private ResultSet results;
+    @Mock
+    private PermitExpiryListener listener;
+
+    private MutableClock clock;
+    private PermitExpiryScheduler scheduler;
+
+    @BeforeEach
+    void init() {
+        clock = new MutableClock(NOW);
+        scheduler = new PermitExpiryScheduler(dbService, ZoneOffset.UTC, clock, 0, listener);
+    }
+
+    private void stubUpcoming(Object[]... rows) throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(PermitExpiryScheduler.UPCOMING_QUERY)).thenReturn(query);
+        when(query.executeQuery()).thenReturn(results);
+        stubRows(rows);
+    }
+
+    // stubRows makes results return the given rows of id, permitID, associatedID and expiry.
+    private void stubRows(Object[]... rows) throws SQLException {
+        int[] cursor = {-1};
+        when(results.next()).thenAnswer(invocation -> ++cursor[0] < rows.length);
+        lenient().when(results.getInt("id")).thenAnswer(invocation -> rows[cursor[0]][0]);
+        lenient().when(results.getString("permitID")).thenAnswer(invocation -> rows[cursor[0]][1]);
+        lenient().when(results.getString("associatedID")).thenAnswer(invocation -> rows[cursor[0]][2]);
+        lenient().when(results.getDate("expirationDate"))
+                .thenAnswer(invocation -> Date.valueOf(((LocalDateTime) rows[cursor[0]][3]).toLocalDate()));
+        lenient().when(results.getTime("expirationTime"))
+                .thenAnswer(invocation -> Time.valueOf(((LocalDateTime) rows[cursor[0]][3]).toLocalTime()));
+    }
+
+    private static Object[] row(int id, String permitID, String associatedID, LocalDateTime expiry) {
+        return new Object[]{id, permitID, associatedID, expiry};
+    }
+
+    @Test
+    void reload_schedulesUpcomingPermitsWithinHorizon() throws SQLException {
+        stubUpcoming(row(1, "EJH2C", "366399121", NOW.plusHours(1)),
+                row(2, "EIG3C", "466399121", NOW.plusHours(20)));
+
+        Assertions.assertEquals(2, scheduler.reload());
+        Assertions.assertEquals(2, scheduler.getScheduledCount());
+        verify(query, times(1)).setDate(1, Date.valueOf(NOW.toLocalDate().plusDays(PermitExpiryScheduler.HORIZON_DAYS)));
+        verify(dbService, times(1)).close(connection, query, results);
+    }
+
+    @Test
+    void expireDue_marksPermitsExpiredAtTheirExactTime() throws SQLException {
+        stubUpcoming(row(1, "EJH2C", "366399121", NOW.plusMinutes(30)),
+                row(2, "EIG3C", "466399121", NOW.plusHours(2)));
+        scheduler.reload();
+        when(connection.prepareStatement(PermitExpiryScheduler.EXPIRE_UPDATE)).thenReturn(update);
+        when(update.executeBatch()).thenReturn(new int[]{1});
+
+        clock.set(NOW.plusMinutes(30).minusSeconds(1));
+        Assertions.assertEquals(0, scheduler.expireDue());
+        verify(update, never()).executeBatch();
+
+        clock.set(NOW.plusMinutes(30));
+        Assertions.assertEquals(1, scheduler.expireDue());
+        verify(update, times(1)).setInt(1, 1);
+        verify(update, times(1)).addBatch();
+        verify(connection, times(1)).commit();
+        verify(listener, times(1)).permitExpired("EJH2C", "366399121");
+        verify(listener, never()).permitExpired(eq("EIG3C"), anyString());
+        Assertions.assertEquals(1, scheduler.getScheduledCount());
+    }
+
+    @Test
+    void expireDue_lapsedBeforeStart_expiresOnFirstTick() throws SQLException {
+        stubUpcoming(row(3, "VSBF1C", "7729119111", NOW.minusDays(30)),
+                row(4, "SST1R", "122765234", NOW.minusDays(2)));
+        scheduler.reload();
+        when(connection.prepareStatement(PermitExpiryScheduler.EXPIRE_UPDATE)).thenReturn(update);
+        when(update.executeBatch()).thenReturn(new int[]{1, 0});
+
+        Assertions.assertEquals(1, scheduler.expireDue());
+        verify(update, times(1)).executeBatch();
+        verify(listener, times(1)).permitExpired("VSBF1C", "7729119111");
+        // The second permit was already marked expired by someone else, so it is not reported again.
+        verify(listener, never()).permitExpired("SST1R", "122765234");
+    }
+
+    @Test
+    void reload_cancelsPermitsNoLongerDue() throws SQLException {
+        stubUpcoming(row(1, "EJH2C", "366399121", NOW.plusMinutes(30)));
+        scheduler.reload();
+        reset(results);
+        stubRows();
+
+        Assertions.assertEquals(0, scheduler.reload());
+        Assertions.assertEquals(0, scheduler.getScheduledCount());
+        clock.set(NOW.plusHours(1));
+        Assertions.assertEquals(0, scheduler.expireDue());
+        verify(connection, never()).prepareStatement(PermitExpiryScheduler.EXPIRE_UPDATE);
+    }
+
+    @Test
+    void reload_samePermitTwice_isScheduledOnce() throws SQLException {
+        stubUpcoming(row(1, "EJH2C", "366399121", NOW.plusMinutes(30)));
+        Assertions.assertEquals(1, scheduler.reload());
+        reset(results);
+        stubRows(row(1, "EJH2C", "366399121", NOW.plusMinutes(30)));
+
+        Assertions.assertEquals(0, scheduler.reload());
+        Assertions.assertEquals(1, scheduler.getScheduledCount());
+    }
+
+    @Test
+    void expireDue_failedBatch_rollsBackAndRetriesAfterReload() throws SQLException {
+        stubUpcoming(row(1, "EJH2C", "366399121", NOW.minusMinutes(1)));
+        scheduler.reload();
+        when(connection.prepareStatement(PermitExpiryScheduler.EXPIRE_UPDATE)).thenReturn(update);
+        when(update.executeBatch()).thenThrow(new SQLException("Lock wait timeout")).thenReturn(new int[]{1});
+
+        Assertions.assertThrows(SQLException.class, () -> scheduler.expireDue());
+        verify(connection, times(1)).rollback();
+        verify(listener, never()).permitExpired(anyString(), anyString());
+
+        reset(results);
+        stubRows(row(1, "EJH2C", "366399121", NOW.minusMinutes(1)));
+        scheduler.reload();
+        Assertions.assertEquals(1, scheduler.expireDue());
+        verify(listener, times(1)).permitExpired("EJH2C", "366399121");
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(LocalDateTime time) {
+            set(time);
+        }
+
+        void set(LocalDateTime time) {
+            millis = time.toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return Clock.fixed(instant(), zone);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
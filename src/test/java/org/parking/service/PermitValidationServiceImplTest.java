@@ -0,0 +1,121 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PermitValidationServiceImplTest {
+
+    private PermitValidationServiceImpl permitValidationService;
+
+    @Mock
+    private DBService dbService;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet results;
+
+    @BeforeEach
+    void init() {
+        permitValidationService = new PermitValidationServiceImpl(dbService);
+    }
+
+    private void stubQuery() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(PermitValidationServiceImpl.VALIDATION_QUERY)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+    }
+
+    @Test
+    void validate_unregisteredVehicle() throws SQLException {
+        stubQuery();
+        when(results.next()).thenReturn(false);
+        PermitValidationResult result = permitValidationService.validate("test-license", "Lot 9", Date.valueOf("2024-01-01"), Time.valueOf("10:00:00"), null);
+        Assertions.assertFalse(result.isVehicleRegistered());
+        Assertions.assertFalse(result.hasViolations());
+        verify(statement, times(1)).setString(1, "test-license");
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void validate_registeredVehicleWithoutPermits() throws SQLException {
+        stubQuery();
+        when(results.next()).thenReturn(true).thenReturn(false);
+        when(results.getString("permitID")).thenReturn(null);
+        PermitValidationResult result = permitValidationService.validate("test-license", "Lot 9", Date.valueOf("2024-01-01"), Time.valueOf("10:00:00"), null);
+        Assertions.assertTrue(result.isVehicleRegistered());
+        Assertions.assertFalse(result.isPermitted());
+        Assertions.assertFalse(result.hasViolations());
+    }
+
+    @Test
+    void validate_validPermit() throws SQLException {
+        stubQuery();
+        when(results.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+        when(results.getString("permitID")).thenReturn("P1");
+        when(results.getString("spaceType")).thenReturn("Regular");
+        when(results.getDate("expirationDate")).thenReturn(Date.valueOf("2024-01-01"));
+        when(results.getTime("expirationTime")).thenReturn(Time.valueOf("10:00:00"));
+        // The permit's zone exists in two lots, one of which is the lot of the sighting.
+        when(results.getString("lotName")).thenReturn("Lot 16").thenReturn("Lot 9");
+        PermitValidationResult result = permitValidationService.validate("test-license", "Lot 9", Date.valueOf("2024-01-01"), Time.valueOf("10:00:00"), "regular");
+        Assertions.assertTrue(result.isVehicleRegistered());
+        Assertions.assertTrue(result.isPermitted());
+        Assertions.assertFalse(result.hasViolations());
+    }
+
+    @Test
+    void validate_reportsEveryViolation() throws SQLException {
+        stubQuery();
+        when(results.next()).thenReturn(true).thenReturn(false);
+        when(results.getString("permitID")).thenReturn("P1");
+        when(results.getString("spaceType")).thenReturn("Regular");
+        when(results.getDate("expirationDate")).thenReturn(Date.valueOf("2024-01-01"));
+        when(results.getTime("expirationTime")).thenReturn(Time.valueOf("10:00:00"));
+        when(results.getString("lotName")).thenReturn("Lot 16");
+        PermitValidationResult result = permitValidationService.validate("test-license", "Lot 9", Date.valueOf("2024-01-01"), Time.valueOf("10:00:01"), "electric");
+        List<PermitViolation.Type> types = new ArrayList<>();
+        for (PermitViolation violation : result.getViolations()) {
+            types.add(violation.getType());
+            Assertions.assertEquals("P1", violation.getPermitID());
+        }
+        Assertions.assertFalse(result.isPermitted());
+        Assertions.assertEquals(3, types.size());
+        Assertions.assertTrue(types.contains(PermitViolation.Type.EXPIRED));
+        Assertions.assertTrue(types.contains(PermitViolation.Type.WRONG_LOT));
+        Assertions.assertTrue(types.contains(PermitViolation.Type.WRONG_SPACE_TYPE));
+    }
+
+    @Test
+    void validate_connSqlFailure() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenThrow(new SQLException());
+        Assertions.assertThrows(SQLException.class, () -> {
+            permitValidationService.validate("test-license", "Lot 9", Date.valueOf("2024-01-01"), Time.valueOf("10:00:00"), null);
+        });
+    }
+
+    @Test
+    void validate_statementSqlFailureCleanupConnection() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(PermitValidationServiceImpl.VALIDATION_QUERY)).thenThrow(new SQLException());
+        Assertions.assertThrows(SQLException.class, () -> {
+            permitValidationService.validate("test-license", "Lot 9", Date.valueOf("2024-01-01"), Time.valueOf("10:00:00"), null);
+        });
+        verify(dbService, times(1)).close(connection, null, null);
+    }
+}
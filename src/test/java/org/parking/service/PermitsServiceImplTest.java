@@ -1,7 +1,9 @@
 
 package org.parking.service;
 
+import org.parking.model.Driver;
 import org.parking.model.Permit;
+import org.parking.model.Vehicle;
 import org.parking.service.DBService;
 import org.parking.service.PermitsService;
 import org.parking.service.PermitsServiceImpl;
@@ -34,6 +36,12 @@ public class PermitsServiceImplTest {
     @Mock
     private ResultSet results;
 
+    @Mock
+    private PreparedStatement quotaStatement;
+
+    @Mock
+    private ResultSet quotaResults;
+
     @BeforeEach
     void init() {
         permitService = new PermitsServiceImpl(dbService);
@@ -142,15 +150,30 @@ public class PermitsServiceImplTest {
         Time expirationTime = Time.valueOf("20:00:00");
 
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("UPDATE Permits " +
-                "SET permitType = ?, zoneID = ?," +
-                "spaceType = ?, startDate = ?, expirationDate = ?, expirationTime = ? " +
-                "WHERE permitID = ?")).thenReturn(statement);
+        when(connection.prepareStatement(PermitsServiceImpl.UPDATE_PERMIT_SQL)).thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(1);
         permitService.updatePermitInfo(permitID, permitType, zoneID, spaceType, startDate, expirationDate, expirationTime);
         verify(dbService, times(1)).close(connection, statement, null);
     }
 
+    @Test
+    void updatePermitInfo_extendingExpiredPermitRecomputesExpired() throws SQLException {
+        Date expirationDate = Date.valueOf("2099-05-31");
+        Time expirationTime = Time.valueOf("23:59:00");
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(PermitsServiceImpl.UPDATE_PERMIT_SQL)).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+
+        permitService.updatePermitInfo("EXP01", "Commuter", "B", "Regular", Date.valueOf("2022-01-01"), expirationDate, expirationTime);
+
+        Assertions.assertTrue(PermitsServiceImpl.UPDATE_PERMIT_SQL.contains("expired = (TIMESTAMP(?, ?) <= NOW())"));
+        verify(statement).setDate(5, expirationDate);
+        verify(statement).setTime(6, expirationTime);
+        verify(statement).setDate(7, expirationDate);
+        verify(statement).setTime(8, expirationTime);
+        verify(statement).setString(9, "EXP01");
+    }
+
     @Test
     void testupdatePermitInfo_connSqlFailure() throws SQLException {
         String permitID = "TTFWX";
@@ -177,10 +200,7 @@ public class PermitsServiceImplTest {
         Time expirationTime = Time.valueOf("20:00:00");
 
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("UPDATE Permits " +
-                "SET permitType = ?, zoneID = ?," +
-                "spaceType = ?, startDate = ?, expirationDate = ?, expirationTime = ? " +
-                "WHERE permitID = ?")).thenReturn(statement);
+        when(connection.prepareStatement(PermitsServiceImpl.UPDATE_PERMIT_SQL)).thenReturn(statement);
         when(statement.executeUpdate()).thenThrow(new SQLException());
         Assertions.assertThrows(SQLException.class, () -> {
             permitService.updatePermitInfo(permitID, permitType, zoneID, spaceType, startDate, expirationDate, expirationTime);
@@ -224,7 +244,7 @@ public class PermitsServiceImplTest {
         String associatedID = "466399121";
 
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("SELECT COUNT(DISTINCT permitID) AS permitCount FROM Permits WHERE associatedID = ?")).thenReturn(statement);
+        when(connection.prepareStatement("SELECT COUNT(DISTINCT permitID) AS permitCount FROM Permits WHERE associatedID = ? AND expired = FALSE")).thenReturn(statement);
         when(statement.executeQuery()).thenReturn(results);
 
         when(results.next()).thenReturn(true).thenReturn(false);
@@ -238,7 +258,7 @@ public class PermitsServiceImplTest {
     void testgetPermitsNumberForDriver_statementSqlFailureCleanupConnection() throws SQLException {
         String associatedID = "466399121";
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("SELECT COUNT(DISTINCT permitID) AS permitCount FROM Permits WHERE associatedID = ?")).thenReturn(statement);
+        when(connection.prepareStatement("SELECT COUNT(DISTINCT permitID) AS permitCount FROM Permits WHERE associatedID = ? AND expired = FALSE")).thenReturn(statement);
         when(statement.executeQuery()).thenThrow(new SQLException());
         Assertions.assertThrows(SQLException.class, () -> {
             permitService.getPermitsNumberForDriver(associatedID);
@@ -310,9 +330,11 @@ public class PermitsServiceImplTest {
         String carLicenseNum = "GGdel";
 
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        stubVehicleQuota("S", 0);
         when(connection.prepareStatement("UPDATE Permits SET carLicenseNum = ? WHERE permitID = ? AND carLicenseNum IS NULL")).thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(1);
         permitService.addVehicleToPermit(permitID,carLicenseNum);
+        verify(connection).commit();
         verify(dbService, times(1)).close(connection, statement, null);
 
     }
@@ -322,14 +344,138 @@ public class PermitsServiceImplTest {
         String permitID = "TTFWX";
         String carLicenseNum = "GGdel";
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        stubVehicleQuota("S", 0);
         when(connection.prepareStatement("UPDATE Permits SET carLicenseNum = ? WHERE permitID = ? AND carLicenseNum IS NULL")).thenReturn(statement);
         when(statement.executeUpdate()).thenThrow(new SQLException());
         Assertions.assertThrows(SQLException.class, () -> {
             permitService.addVehicleToPermit(permitID,carLicenseNum);
         });
+        verify(connection).rollback();
         verify(dbService, times(1)).close(connection, statement, null);
     }
 
+    @Test
+    void addVehicleToPermit_vehicleLimitReached() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        stubVehicleQuota("S", 1);
+
+        Assertions.assertThrows(SQLException.class, () -> permitService.addVehicleToPermit("TTFWX", "GGdel"));
+        verify(connection, never()).prepareStatement("UPDATE Permits SET carLicenseNum = ? WHERE permitID = ? AND carLicenseNum IS NULL");
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    void addVehicleToPermitForEmployee_insertsSecondVehicle() throws SQLException {
+        Permit permit = new Permit("TTFWX", "Commuter", "B",
+                "466399121", "GGdel", "Regular",
+                Date.valueOf("2022-01-01"), Date.valueOf("2025-10-22"), Time.valueOf("20:00:00"));
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        stubVehicleQuota("E", 1);
+        when(connection.prepareStatement(PermitsServiceImpl.INSERT_PERMIT_SQL)).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+
+        permitService.addVehicleToPermitForEmployee(permit, "NEW123");
+
+        verify(statement).setString(5, "NEW123");
+        verify(connection).commit();
+    }
+
+    @Test
+    void addVehicleToPermitForEmployee_vehicleLimitReached() throws SQLException {
+        Permit permit = new Permit("TTFWX", "Commuter", "B",
+                "466399121", "GGdel", "Regular",
+                Date.valueOf("2022-01-01"), Date.valueOf("2025-10-22"), Time.valueOf("20:00:00"));
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        stubVehicleQuota("E", 2);
+
+        Assertions.assertThrows(SQLException.class, () -> permitService.addVehicleToPermitForEmployee(permit, "NEW123"));
+        verify(connection, never()).prepareStatement(PermitsServiceImpl.INSERT_PERMIT_SQL);
+        verify(connection).rollback();
+    }
+
+    @Test
+    void assignPermitToDriver_insertsWithinQuotaAndCachesCount() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        stubDriverQuota("E", 1, false);
+        when(connection.prepareStatement(PermitsServiceImpl.INSERT_PERMIT_SQL)).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+
+        assign("commuter", new Driver("466399121", "Bob", "E"));
+
+        verify(connection).commit();
+        verify(statement).setString(5, "GGdel");
+        // The count written by the transaction answers the next quota check without a query.
+        Assertions.assertEquals(2, permitService.getPermitsNumberForDriver("466399121"));
+        verify(dbService, times(1)).connectAndReturnConnection();
+    }
+
+    @Test
+    void assignPermitToDriver_permitLimitReached() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        stubDriverQuota("S", 2, false);
+
+        Assertions.assertThrows(SQLException.class, () -> assign("special event", new Driver("466399121", "Bob", "S")));
+        verify(connection, never()).prepareStatement(PermitsServiceImpl.INSERT_PERMIT_SQL);
+        verify(connection).rollback();
+        verify(dbService).close(connection, quotaStatement, quotaResults);
+    }
+
+    @Test
+    void assignPermitToDriver_lastPermitMustBeSpecialEventOrParkAndRide() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        stubDriverQuota("E", 2, false);
+
+        Assertions.assertThrows(SQLException.class, () -> assign("commuter", new Driver("466399121", "Bob", "E")));
+        verify(connection, never()).prepareStatement(PermitsServiceImpl.INSERT_PERMIT_SQL);
+    }
+
+    @Test
+    void assignPermitToDriver_existingPermitRejected() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        stubDriverQuota("V", 0, true);
+
+        Assertions.assertThrows(SQLException.class, () -> assign("commuter", new Driver("466399121", "Bob", "V")));
+        verify(connection, never()).prepareStatement(PermitsServiceImpl.INSERT_PERMIT_SQL);
+    }
+
+    @Test
+    void getPermitsNumberForDriver_cachedUntilPermitExpires() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT COUNT(DISTINCT permitID) AS permitCount FROM Permits WHERE associatedID = ? AND expired = FALSE")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true);
+        when(results.getInt("permitCount")).thenReturn(2).thenReturn(1);
+
+        Assertions.assertEquals(2, permitService.getPermitsNumberForDriver("466399121"));
+        Assertions.assertEquals(2, permitService.getPermitsNumberForDriver("466399121"));
+        ((PermitsServiceImpl) permitService).permitExpired("TTFWX", "466399121");
+        Assertions.assertEquals(1, permitService.getPermitsNumberForDriver("466399121"));
+        verify(dbService, times(2)).connectAndReturnConnection();
+    }
+
+    private void assign(String permitType, Driver driver) throws SQLException {
+        permitService.assignPermitToDriver("TTFWX", permitType, "B", "Regular", Date.valueOf("2022-01-01"),
+                Date.valueOf("2025-10-22"), Time.valueOf("20:00:00"), driver, new Vehicle("GGdel", "Honda", "Civic", "Blue", 2020));
+    }
+
+    private void stubDriverQuota(String status, int permitCount, boolean permitExists) throws SQLException {
+        when(connection.prepareStatement(PermitsServiceImpl.DRIVER_QUOTA_QUERY)).thenReturn(quotaStatement);
+        when(quotaStatement.executeQuery()).thenReturn(quotaResults);
+        when(quotaResults.next()).thenReturn(true);
+        when(quotaResults.getBoolean("permitExists")).thenReturn(permitExists);
+        lenient().when(quotaResults.getString("status")).thenReturn(status);
+        lenient().when(quotaResults.getInt("permitCount")).thenReturn(permitCount);
+    }
+
+    private void stubVehicleQuota(String status, int vehicleCount) throws SQLException {
+        when(connection.prepareStatement(PermitsServiceImpl.PERMIT_VEHICLE_QUOTA_QUERY)).thenReturn(quotaStatement);
+        when(quotaStatement.executeQuery()).thenReturn(quotaResults);
+        when(quotaResults.next()).thenReturn(true);
+        when(quotaResults.getString("status")).thenReturn(status);
+        when(quotaResults.getInt("vehicleCount")).thenReturn(vehicleCount);
+    }
+
     @Test
     void testgetPermitPerCarLicense() throws SQLException {
         String permitID = "TTFWX";
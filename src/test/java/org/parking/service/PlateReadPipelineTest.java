@@ -0,0 +1,283 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Citation;
+import org.parking.model.Vehicle;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlateReadPipelineTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 2, 8, 0);
+    private static final PermitValidationResult PERMITTED = new PermitValidationResult(true, true, Collections.emptyList());
+    private static final PermitValidationResult UNREGISTERED = new PermitValidationResult(false, Collections.emptyList());
+    private static final PermitValidationResult EXPIRED = new PermitValidationResult(true, false, Collections.singletonList(
+            new PermitViolation(PermitViolation.Type.EXPIRED, "EJH2C", "This vehicle's permit EJH2C is expired.")));
+
+    @Mock
+    private PermitValidationService permitValidationService;
+    @Mock
+    private VehicleService vehicleService;
+    @Mock
+    private CitationsService citationsService;
+
+    private PlateReadPipeline pipeline;
+    // Every citation passed to createCitations, and the size of each batch, in the order they were written.
+    private final List<Citation> written = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void close() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    private PlateReadPipeline pipeline(int workers, int queueCapacity, int batchSize) {
+        return new PlateReadPipeline(null, permitValidationService, vehicleService, citationsService, Clock.systemUTC(),
+                workers, queueCapacity, Duration.ofHours(1), batchSize, 50);
+    }
+
+    private void recordBatches() throws SQLException {
+        when(citationsService.createCitations(any())).thenAnswer(invocation -> {
+            Collection<Citation> batch = invocation.getArgument(0);
+            written.addAll(batch);
+            batchSizes.add(batch.size());
+            int[] outcomes = new int[batch.size()];
+            Arrays.fill(outcomes, 1);
+            return outcomes;
+        });
+    }
+
+    private static PlateRead read(String plate, String lotName, LocalDateTime seenAt) {
+        return new PlateRead(plate, lotName, seenAt);
+    }
+
+    @Test
+    void readsWithoutCoveringPermit_becomeCitations() throws Exception {
+        pipeline = pipeline(2, 10, 10);
+        recordBatches();
+        when(permitValidationService.validate(eq("VAN9910"), anyString(), any(), any(), isNull())).thenReturn(PERMITTED);
+        when(permitValidationService.validate(eq("TRK1122"), anyString(), any(), any(), isNull())).thenReturn(EXPIRED);
+        when(permitValidationService.validate(eq("CAR3344"), anyString(), any(), any(), isNull())).thenReturn(UNREGISTERED);
+
+        pipeline.submit(read("VAN9910", "Lot 9", NOW));
+        pipeline.submit(read("TRK1122", "Lot 9", NOW));
+        pipeline.submit(read("CAR3344", "Lot 16", NOW.plusSeconds(5)));
+        pipeline.close();
+
+        verify(permitValidationService).validate("CAR3344", "Lot 16", Date.valueOf("2026-03-02"),
+                Time.valueOf("08:00:05"), null);
+        Assertions.assertEquals(2, written.size());
+        for (Citation citation : written) {
+            if (citation.getVehicle().getLicense().equals("TRK1122")) {
+                Assertions.assertEquals(PlateReadPipeline.INVALID_PERMIT_CATEGORY, citation.getCategory());
+                Assertions.assertEquals(PlateReadPipeline.INVALID_PERMIT_FEE, citation.getFee());
+            } else {
+                Assertions.assertEquals("CAR3344", citation.getVehicle().getLicense());
+                Assertions.assertEquals(PlateReadPipeline.NO_PERMIT_CATEGORY, citation.getCategory());
+                Assertions.assertEquals("Lot 16", citation.getLotName());
+                Assertions.assertEquals(Time.valueOf("08:00:05"), citation.getCitationTime());
+            }
+            Assertions.assertEquals("DUE", citation.getPaymentStatus());
+        }
+        PlateReadMetrics metrics = pipeline.getMetrics();
+        Assertions.assertEquals(3, metrics.getAccepted());
+        Assertions.assertEquals(1, metrics.getCompliant());
+        Assertions.assertEquals(2, metrics.getCitationsWritten());
+        Assertions.assertEquals(3, metrics.getCompleted());
+    }
+
+    @Test
+    void readsPermittedByTheIndex_skipTheDatabase() throws Exception {
+        ActivePermitIndex index = new ActivePermitIndex(mock(DBService.class), ZoneOffset.UTC);
+        index.put("VAN9910", Collections.singletonList(new ActivePermit("B", "Lot 9", "regular",
+                NOW.plusDays(1).toEpochSecond(ZoneOffset.UTC))));
+        pipeline = new PlateReadPipeline(index, permitValidationService, vehicleService, citationsService,
+                Clock.systemUTC(), 1, 10, Duration.ofHours(1), 10, 50);
+        recordBatches();
+        when(permitValidationService.validate(eq("VAN9910"), eq("Lot 16"), any(), any(), isNull())).thenReturn(EXPIRED);
+
+        pipeline.submit(read("van-9910", "Lot 9", NOW));
+        pipeline.submit(read("VAN9910", "Lot 16", NOW));
+        pipeline.close();
+
+        verify(permitValidationService, never()).validate(anyString(), eq("Lot 9"), any(), any(), any());
+        Assertions.assertEquals(1, written.size());
+        Assertions.assertEquals(PlateReadPipeline.INVALID_PERMIT_CATEGORY, written.get(0).getCategory());
+        Assertions.assertEquals(1, pipeline.getMetrics().getCompliant());
+    }
+
+    @Test
+    void citations_useNormalizedPlateAndRegisteredVehicle() throws Exception {
+        pipeline = pipeline(1, 10, 10);
+        recordBatches();
+        Vehicle registered = new Vehicle("TRK1122", "Transit", "White", "Ford", 2019);
+        when(permitValidationService.validate(eq("TRK1122"), anyString(), any(), any(), isNull())).thenReturn(EXPIRED);
+        when(vehicleService.getByLicense("TRK1122")).thenReturn(registered);
+        when(permitValidationService.validate(eq("CAR3344"), anyString(), any(), any(), isNull())).thenReturn(UNREGISTERED);
+
+        pipeline.submit(read("trk-1122", "Lot 9", NOW));
+        pipeline.submit(read("car 3344", "Lot 9", NOW));
+        pipeline.close();
+
+        Assertions.assertEquals(2, written.size());
+        for (Citation citation : written) {
+            if (citation.getVehicle().getLicense().equals("TRK1122")) {
+                Assertions.assertSame(registered, citation.getVehicle());
+            } else {
+                Assertions.assertEquals("CAR3344", citation.getVehicle().getLicense());
+                Assertions.assertEquals("", citation.getVehicle().getModel());
+            }
+        }
+        verify(vehicleService, never()).getByLicense("CAR3344");
+    }
+
+    @Test
+    void repeatSightingsWithinWindow_areDropped() throws Exception {
+        pipeline = pipeline(1, 10, 10);
+        recordBatches();
+        when(permitValidationService.validate(anyString(), anyString(), any(), any(), isNull())).thenReturn(UNREGISTERED);
+
+        Assertions.assertTrue(pipeline.submit(read("VAN9910", "Lot 9", NOW)));
+        Assertions.assertFalse(pipeline.submit(read("van-9910", "Lot 9", NOW.plusMinutes(30))));
+        Assertions.assertTrue(pipeline.submit(read("VAN9910", "Lot 16", NOW.plusMinutes(30))));
+        Assertions.assertTrue(pipeline.submit(read("VAN9910", "Lot 9", NOW.plusMinutes(60))));
+        pipeline.close();
+
+        Assertions.assertEquals(3, written.size());
+        Assertions.assertEquals(1, pipeline.getMetrics().getDuplicates());
+    }
+
+    @Test
+    void citations_areWrittenInBatches() throws Exception {
+        pipeline = pipeline(1, 10, 2);
+        recordBatches();
+        when(permitValidationService.validate(anyString(), anyString(), any(), any(), isNull())).thenReturn(UNREGISTERED);
+
+        for (int i = 0; i < 5; i++) {
+            pipeline.submit(read("CAR" + i, "Lot 9", NOW));
+        }
+        pipeline.close();
+
+        Assertions.assertEquals(5, written.size());
+        for (int size : batchSizes) {
+            Assertions.assertTrue(size <= 2);
+        }
+        Assertions.assertEquals(batchSizes.size(), pipeline.getMetrics().getBatches());
+    }
+
+    @Test
+    void failures_areCountedAndSkipped() throws Exception {
+        pipeline = pipeline(1, 10, 10);
+        when(permitValidationService.validate(eq("VAN9910"), anyString(), any(), any(), isNull()))
+                .thenThrow(new SQLException("down"));
+        when(permitValidationService.validate(eq("TRK1122"), anyString(), any(), any(), isNull())).thenReturn(UNREGISTERED);
+        when(citationsService.createCitations(any())).thenReturn(new int[]{Statement.EXECUTE_FAILED});
+
+        pipeline.submit(read("VAN9910", "Lot 9", NOW));
+        pipeline.submit(read("TRK1122", "Lot 9", NOW));
+        pipeline.close();
+
+        PlateReadMetrics metrics = pipeline.getMetrics();
+        Assertions.assertEquals(1, metrics.getValidationErrors());
+        Assertions.assertEquals(1, metrics.getCitationsFailed());
+        Assertions.assertEquals(0, metrics.getCitationsWritten());
+    }
+
+    @Test
+    void ingest_skipsMalformedLines() throws Exception {
+        pipeline = pipeline(1, 10, 10);
+        when(permitValidationService.validate(anyString(), anyString(), any(), any(), isNull())).thenReturn(PERMITTED);
+        BufferedReader input = new BufferedReader(new StringReader(
+                "VAN9910,Lot 9,2026-03-02T08:00:00\n" +
+                "\n" +
+                "TRK1122,Lot 9\n" +
+                "CAR3344,Lot 9,yesterday\n" +
+                "CAR3344, Lot 16 ,2026-03-02T08:01:00\n"));
+
+        Assertions.assertEquals(2, pipeline.ingest(input));
+        pipeline.close();
+
+        verify(permitValidationService).validate("CAR3344", "Lot 16", Date.valueOf("2026-03-02"),
+                Time.valueOf("08:01:00"), null);
+        Assertions.assertEquals(2, pipeline.getMetrics().getMalformed());
+        Assertions.assertEquals(2, pipeline.getMetrics().getCompliant());
+    }
+
+    @Test
+    void submit_blocksWhileValidationQueueIsFull() throws Exception {
+        pipeline = pipeline(1, 1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch validating = new CountDownLatch(1);
+        when(permitValidationService.validate(anyString(), anyString(), any(), any(), isNull())).thenAnswer(invocation -> {
+            validating.countDown();
+            release.await();
+            return PERMITTED;
+        });
+
+        pipeline.submit(read("CAR1", "Lot 9", NOW));
+        Assertions.assertTrue(validating.await(5, TimeUnit.SECONDS));
+        pipeline.submit(read("CAR2", "Lot 9", NOW));
+        Thread source = new Thread(() -> {
+            try {
+                pipeline.submit(read("CAR3", "Lot 9", NOW));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        source.start();
+        source.join(200);
+        Assertions.assertTrue(source.isAlive());
+
+        release.countDown();
+        source.join(5000);
+        Assertions.assertFalse(source.isAlive());
+        pipeline.close();
+        Assertions.assertEquals(3, pipeline.getMetrics().getCompliant());
+    }
+
+    @Test
+    void submit_afterCloseIsRejected() throws Exception {
+        pipeline = pipeline(1, 10, 10);
+        pipeline.close();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> pipeline.submit(read("CAR1", "Lot 9", NOW)));
+    }
+
+    @Test
+    void parse_readsPlateLotAndTimestamp() {
+        PlateRead read = PlateRead.parse("VAN-9910,Dan Allen Deck,2026-03-02T08:15:30");
+
+        Assertions.assertEquals("VAN-9910", read.getPlate());
+        Assertions.assertEquals("Dan Allen Deck", read.getLotName());
+        Assertions.assertEquals(LocalDateTime.of(2026, 3, 2, 8, 15, 30), read.getSeenAt());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PlateRead.parse(",Lot 9,2026-03-02T08:15:30"));
+    }
+}
@@ -0,0 +1,261 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.*;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PooledDBServiceImplTest {
+
+    private PooledDBServiceImpl pool;
+
+    @Mock
+    private DBService connectionFactory;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Connection secondConnection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet results;
+
+    @BeforeEach
+    void init() {
+        pool = new PooledDBServiceImpl(connectionFactory, 2, 50, 60000, 60000, 0);
+    }
+
+    @AfterEach
+    void cleanup() {
+        pool.shutdown();
+    }
+
+    @Test
+    void connectAndReturnConnection_reusesReturnedConnection() throws SQLException {
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        Connection first = pool.connectAndReturnConnection();
+        pool.close(first, statement, results);
+        Connection second = pool.connectAndReturnConnection();
+
+        Assertions.assertSame(connection, second);
+        verify(connectionFactory, times(1)).connectAndReturnConnection();
+        verify(connection, never()).close();
+        verify(statement, times(1)).close();
+        verify(results, times(1)).close();
+        Assertions.assertEquals(2, pool.getBorrowCount());
+        Assertions.assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void connectAndReturnConnection_timesOutWhenPoolExhausted() throws SQLException {
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection).thenReturn(secondConnection);
+        pool.connectAndReturnConnection();
+        pool.connectAndReturnConnection();
+
+        Assertions.assertThrows(SQLException.class, () -> {
+            pool.connectAndReturnConnection();
+        });
+        Assertions.assertEquals(2, pool.getActiveConnections());
+    }
+
+    @Test
+    void connectAndReturnConnection_factoryFailureReleasesSlot() throws SQLException {
+        when(connectionFactory.connectAndReturnConnection()).thenThrow(new SQLException())
+                .thenReturn(connection).thenReturn(secondConnection);
+
+        Assertions.assertThrows(SQLException.class, () -> {
+            pool.connectAndReturnConnection();
+        });
+        pool.connectAndReturnConnection();
+        pool.connectAndReturnConnection();
+        Assertions.assertEquals(2, pool.getActiveConnections());
+    }
+
+    @Test
+    void close_rollsBackOpenTransactionBeforeReuse() throws SQLException {
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(false);
+
+        Connection borrowed = pool.connectAndReturnConnection();
+        pool.close(borrowed, null, null);
+
+        verify(connection, times(1)).rollback();
+        verify(connection, times(1)).setAutoCommit(true);
+        Assertions.assertEquals(1, pool.getIdleConnections());
+    }
+
+    @Test
+    void close_discardsConnectionThatCannotBeReset() throws SQLException {
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.isClosed()).thenReturn(true);
+
+        Connection borrowed = pool.connectAndReturnConnection();
+        pool.close(borrowed, null, null);
+
+        verify(connectionFactory, times(1)).close(connection, null, null);
+        Assertions.assertEquals(0, pool.getIdleConnections());
+        Assertions.assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test
+    void close_foreignConnectionIsClosedPhysically() {
+        pool.close(connection, statement, null);
+        verify(connectionFactory, times(1)).close(connection, null, null);
+    }
+
+    @Test
+    void close_twiceLeavesIdleConnectionInPool() throws SQLException {
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        Connection borrowed = pool.connectAndReturnConnection();
+        pool.close(borrowed, null, null);
+        pool.close(borrowed, null, null);
+
+        verify(connectionFactory, never()).close(connection, null, null);
+        Assertions.assertEquals(1, pool.getIdleConnections());
+        Assertions.assertSame(connection, pool.connectAndReturnConnection());
+    }
+
+    @Test
+    void connectAndReturnConnection_discardsConnectionThatFailsValidation() throws SQLException, InterruptedException {
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection).thenReturn(secondConnection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.isValid(anyInt())).thenReturn(false);
+
+        pool.close(pool.connectAndReturnConnection(), null, null);
+        Thread.sleep(PooledDBServiceImpl.VALIDATION_BYPASS_MILLIS + 50);
+
+        Assertions.assertSame(secondConnection, pool.connectAndReturnConnection());
+        verify(connectionFactory, times(1)).close(connection, null, null);
+        Assertions.assertEquals(1, pool.getEvictedCount());
+    }
+
+    @Test
+    void evictIdleConnections_closesExpiredConnections() throws SQLException {
+        pool.shutdown();
+        pool = new PooledDBServiceImpl(connectionFactory, 2, 50, 0, 0, 0);
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        pool.close(pool.connectAndReturnConnection(), null, null);
+        pool.evictIdleConnections();
+
+        verify(connectionFactory, times(1)).close(connection, null, null);
+        Assertions.assertEquals(0, pool.getIdleConnections());
+    }
+
+    @Test
+    void detectLeaks_reportsLongHeldConnectionOnce() throws SQLException, InterruptedException {
+        pool.shutdown();
+        pool = new PooledDBServiceImpl(connectionFactory, 2, 50, 60000, 1, 0);
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+
+        pool.connectAndReturnConnection();
+        Thread.sleep(5);
+        pool.detectLeaks();
+        pool.detectLeaks();
+
+        Assertions.assertEquals(1, pool.getLeakCount());
+    }
+
+    @Test
+    void connectAndReturnConnection_afterShutdownThrows() {
+        pool.shutdown();
+        Assertions.assertThrows(SQLException.class, () -> {
+            pool.connectAndReturnConnection();
+        });
+    }
+
+    @Test
+    void prepareStatement_cachedAcrossBorrowings() throws SQLException {
+        pool.shutdown();
+        pool = new PooledDBServiceImpl(connectionFactory, 2, 50, 60000, 60000, 4);
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement("SELECT * FROM Permits WHERE carLicenseNum = ?")).thenReturn(statement);
+
+        for (int i = 0; i < 3; i++) {
+            Connection conn = pool.connectAndReturnConnection();
+            PreparedStatement pstate = conn.prepareStatement("SELECT * FROM Permits WHERE carLicenseNum = ?");
+            pstate.setString(1, "test-license");
+            pool.close(conn, pstate, null);
+        }
+
+        verify(connection, times(1)).prepareStatement("SELECT * FROM Permits WHERE carLicenseNum = ?");
+        verify(statement, times(3)).setString(1, "test-license");
+        verify(statement, times(3)).clearParameters();
+        verify(statement, never()).close();
+        Assertions.assertEquals(2, pool.getStatementCacheHits());
+        Assertions.assertEquals(1, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    void prepareStatement_sameSqlCheckedOutTwiceIsNotShared() throws SQLException {
+        pool.shutdown();
+        pool = new PooledDBServiceImpl(connectionFactory, 2, 50, 60000, 60000, 4);
+        PreparedStatement otherStatement = mock(PreparedStatement.class);
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("DELETE FROM Citations WHERE citationNum = ?")).thenReturn(statement).thenReturn(otherStatement);
+
+        Connection conn = pool.connectAndReturnConnection();
+        PreparedStatement first = conn.prepareStatement("DELETE FROM Citations WHERE citationNum = ?");
+        PreparedStatement second = conn.prepareStatement("DELETE FROM Citations WHERE citationNum = ?");
+        second.close();
+
+        Assertions.assertNotSame(first, second);
+        verify(otherStatement, times(1)).close();
+        verify(statement, never()).close();
+    }
+
+    @Test
+    void prepareStatement_leastRecentlyUsedStatementEvicted() throws SQLException {
+        pool.shutdown();
+        pool = new PooledDBServiceImpl(connectionFactory, 2, 50, 60000, 60000, 1);
+        PreparedStatement otherStatement = mock(PreparedStatement.class);
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Zones")).thenReturn(statement);
+        when(connection.prepareStatement("SELECT * FROM Spaces")).thenReturn(otherStatement);
+
+        Connection conn = pool.connectAndReturnConnection();
+        conn.prepareStatement("SELECT * FROM Zones").close();
+        conn.prepareStatement("SELECT * FROM Spaces").close();
+
+        verify(statement, times(1)).close();
+        verify(otherStatement, never()).close();
+    }
+
+    @Test
+    void shutdown_closesCachedStatementsWithConnection() throws SQLException {
+        pool.shutdown();
+        pool = new PooledDBServiceImpl(connectionFactory, 2, 50, 60000, 60000, 4);
+        when(connectionFactory.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement("SELECT * FROM Zones")).thenReturn(statement);
+        doAnswer(invocation -> {
+            ((Connection) invocation.getArgument(0)).close();
+            return null;
+        }).when(connectionFactory).close(any(), isNull(), isNull());
+
+        Connection conn = pool.connectAndReturnConnection();
+        pool.close(conn, conn.prepareStatement("SELECT * FROM Zones"), null);
+        pool.shutdown();
+
+        verify(statement, times(1)).close();
+        verify(connection, times(1)).close();
+    }
+}
@@ -0,0 +1,78 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ReferenceDataCacheTest {
+
+    @Test
+    void getOrLoad_loadsOnceWithinTtl() {
+        ReferenceDataCache cache = new ReferenceDataCache(60000, 10);
+        AtomicInteger loads = new AtomicInteger();
+        Assertions.assertEquals("value", cache.getOrLoad("key", () -> "value" + (loads.getAndIncrement() == 0 ? "" : "2")));
+        Assertions.assertEquals("value", cache.getOrLoad("key", () -> "value" + (loads.getAndIncrement() == 0 ? "" : "2")));
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void getOrLoad_reloadsAfterTtl() {
+        ReferenceDataCache cache = new ReferenceDataCache(0, 10);
+        AtomicInteger loads = new AtomicInteger();
+        cache.getOrLoad("key", loads::incrementAndGet);
+        cache.getOrLoad("key", loads::incrementAndGet);
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getOrLoad_nullNotCached() {
+        ReferenceDataCache cache = new ReferenceDataCache(60000, 10);
+        AtomicInteger loads = new AtomicInteger();
+        cache.getOrLoad("key", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        cache.getOrLoad("key", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void getOrLoad_evictsLeastRecentlyUsed() {
+        ReferenceDataCache cache = new ReferenceDataCache(60000, 2);
+        cache.getOrLoad("a", () -> 1);
+        cache.getOrLoad("b", () -> 2);
+        cache.getOrLoad("a", () -> 1);
+        cache.getOrLoad("c", () -> 3);
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(Integer.valueOf(1), cache.getOrLoad("a", () -> -1));
+        Assertions.assertEquals(Integer.valueOf(-2), cache.getOrLoad("b", () -> -2));
+    }
+
+    @Test
+    void invalidateAll_clearsEntries() {
+        ReferenceDataCache cache = new ReferenceDataCache(60000, 10);
+        cache.getOrLoad("a", () -> 1);
+        cache.invalidateAll();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateAll_duringLoad_keepsLoadedValueOutOfCache() {
+        ReferenceDataCache cache = new ReferenceDataCache(60000, 10);
+        // The write that invalidates the cache lands after the loader has read the old value.
+        Assertions.assertEquals("stale", cache.getOrLoad("key", () -> {
+            cache.invalidateAll();
+            return "stale";
+        }));
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals("fresh", cache.getOrLoad("key", () -> "fresh"));
+        Assertions.assertEquals("fresh", cache.getOrLoad("key", () -> "newer"));
+    }
+}
@@ -45,8 +45,8 @@ public class ReportsServiceImplTest {
     @Test
     void generateCitationReport_success() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("SELECT COUNT(*) FROM Citations WHERE lotName = ? AND citationDate " +
-                "BETWEEN ? AND ?")).thenReturn(statement);
+        when(connection.prepareStatement("SELECT COALESCE(SUM(citationCount), 0) FROM CitationDailyRollups " +
+                "WHERE lotName = ? AND citationDay BETWEEN ? AND ?")).thenReturn(statement);
         when(statement.executeQuery()).thenReturn(results);
         when(results.next()).thenReturn(true);
         when(results.getInt(1)).thenReturn(1);
@@ -61,8 +61,8 @@ public class ReportsServiceImplTest {
     @Test
     void generateCitationReport_sqlException() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("SELECT COUNT(*) FROM Citations WHERE lotName = ? AND citationDate " +
-                "BETWEEN ? AND ?")).thenThrow(new SQLException());
+        when(connection.prepareStatement("SELECT COALESCE(SUM(citationCount), 0) FROM CitationDailyRollups " +
+                "WHERE lotName = ? AND citationDay BETWEEN ? AND ?")).thenThrow(new SQLException());
 
         Assertions.assertThrows(SQLException.class, () -> {
             reportsService.generateCitationReport("Lot Name", new Date(2023,01,01),
@@ -72,6 +72,57 @@ public class ReportsServiceImplTest {
         verify(dbService, times(1)).close(connection, null, null);
     }
 
+    @Test
+    void generateCitationRollupReport_daily() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT lotName, citationDay AS period, paymentStatus, citationCount, feeTotal " +
+                "FROM CitationDailyRollups WHERE lotName = ? AND citationDay BETWEEN ? AND ? AND citationCount > 0 " +
+                "ORDER BY period, paymentStatus")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true).thenReturn(false);
+        when(results.getString("lotName")).thenReturn("Lot Name");
+        when(results.getDate("period")).thenReturn(Date.valueOf("2023-01-05"));
+        when(results.getString("paymentStatus")).thenReturn("DUE");
+        when(results.getInt("citationCount")).thenReturn(3);
+        when(results.getDouble("feeTotal")).thenReturn(75.0);
+
+        Collection<CitationRollup> rollups = reportsService.generateCitationRollupReport("Lot Name",
+                Date.valueOf("2023-01-01"), Date.valueOf("2023-01-31"), false);
+
+        CitationRollup rollup = rollups.iterator().next();
+        Assertions.assertEquals(1, rollups.size());
+        Assertions.assertEquals(Date.valueOf("2023-01-05"), rollup.getPeriod());
+        Assertions.assertEquals(3, rollup.getCitationCount());
+        Assertions.assertEquals(75.0, rollup.getFeeTotal());
+        verify(statement, times(1)).setString(1, "Lot Name");
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void generateCitationRollupReport_monthly() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT lotName, DATE_SUB(citationDay, INTERVAL DAYOFMONTH(citationDay) - 1 DAY) AS period, " +
+                "paymentStatus, SUM(citationCount) AS citationCount, SUM(feeTotal) AS feeTotal FROM CitationDailyRollups " +
+                "WHERE lotName = ? AND citationDay BETWEEN ? AND ? GROUP BY lotName, period, paymentStatus " +
+                "HAVING citationCount > 0 ORDER BY period, paymentStatus")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(false);
+
+        Assertions.assertTrue(reportsService.generateCitationRollupReport("Lot Name",
+                Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), true).isEmpty());
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void generateCitationRollupReport_sqlException() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenThrow(new SQLException());
+        Assertions.assertThrows(SQLException.class, () -> {
+            reportsService.generateCitationRollupReport("Lot Name", Date.valueOf("2023-01-01"),
+                    Date.valueOf("2023-12-31"), true);
+        });
+        verify(dbService, times(0)).close(any(), any(), any());
+    }
+
     @Test
     void generateZoneReport_success() throws SQLException {
         Collection<Zone> zones = Collections.singleton(new Zone("A","TestLot"));
@@ -201,7 +252,7 @@ public class ReportsServiceImplTest {
     @Test
     void getAvailableSpaceinParkingLot_success() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("SELECT number  FROM Spaces WHERE type =? AND status = '1' " +
+        when(connection.prepareStatement("SELECT number  FROM Spaces WHERE type =? AND status = TRUE " +
                 "AND lotName =?")).thenReturn(statement);
         when(statement.executeQuery()).thenReturn(results);
         when(results.next()).thenReturn(true);
@@ -216,7 +267,7 @@ public class ReportsServiceImplTest {
     @Test
     void getAvailableSpaceinParkingLot_sqlException() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenReturn(connection);
-        when(connection.prepareStatement("SELECT number  FROM Spaces WHERE type =? AND status = '1' " +
+        when(connection.prepareStatement("SELECT number  FROM Spaces WHERE type =? AND status = TRUE " +
                 "AND lotName =?")).thenThrow(new SQLException());
 
         Assertions.assertThrows(SQLException.class, () -> {
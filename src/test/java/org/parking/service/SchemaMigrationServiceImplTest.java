@@ -0,0 +1,157 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.*;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SchemaMigrationServiceImplTest {
+
+    private SchemaMigrationServiceImpl schemaMigrationService;
+
+    @Mock
+    private DBService dbService;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private PreparedStatement record;
+
+    @Mock
+    private ResultSet results;
+
+    @BeforeEach
+    void init() {
+        schemaMigrationService = new SchemaMigrationServiceImpl(dbService);
+    }
+
+    @Test
+    void getCurrentVersion_createsVersionTable() throws SQLException {
+        stubCurrentVersion(1);
+
+        Assertions.assertEquals(1, schemaMigrationService.getCurrentVersion());
+        verify(statement, times(1)).execute(startsWith("CREATE TABLE IF NOT EXISTS SchemaVersions"));
+        verify(dbService, times(1)).close(connection, null, null);
+    }
+
+    @Test
+    void migrate_appliesPendingMigrationAndRecordsVersion() throws SQLException {
+        stubCurrentVersion(0);
+        when(connection.prepareStatement("INSERT INTO SchemaVersions (version, description) VALUES (?, ?)")).thenReturn(record);
+
+        Assertions.assertEquals(5, schemaMigrationService.migrate());
+
+        verify(statement, times(1)).execute("CREATE INDEX PermitsByPermitID ON Permits (permitID)");
+        verify(statement, times(1)).execute("CREATE INDEX SpacesByLotTypeStatus ON Spaces (lotName, type, status)");
+        verify(statement, times(1)).execute("ALTER TABLE Permits ADD COLUMN expired boolean NOT NULL DEFAULT FALSE");
+        verify(record, times(1)).setInt(1, 1);
+        verify(record, times(1)).setString(2, "service query indexes");
+        verify(record, times(1)).setInt(1, 2);
+        verify(record, times(1)).setString(2, "permit expiry");
+        verify(statement, times(1)).execute("CREATE UNIQUE INDEX CitationsByRequestKey ON Citations (requestKey)");
+        verify(record, times(1)).setInt(1, 3);
+        verify(record, times(1)).setString(2, "citation request keys");
+        verify(statement, times(1)).execute(startsWith("CREATE TABLE IF NOT EXISTS CitationNumberSequence"));
+        verify(record, times(1)).setInt(1, 4);
+        verify(record, times(1)).setString(2, "citation number blocks");
+        verify(statement, times(1)).execute(startsWith("INSERT INTO CitationDailyRollups (lotName, citationDay, paymentStatus, citationCount, feeTotal) SELECT"));
+        verify(record, times(1)).setInt(1, 5);
+        verify(record, times(1)).setString(2, "citation daily rollups");
+        verify(record, times(5)).executeUpdate();
+        verify(dbService, times(1)).close(connection, statement, null);
+    }
+
+    @Test
+    void migrate_skipsAppliedMigrations() throws SQLException {
+        stubCurrentVersion(5);
+        when(connection.prepareStatement("INSERT INTO SchemaVersions (version, description) VALUES (?, ?)")).thenReturn(record);
+
+        Assertions.assertEquals(0, schemaMigrationService.migrate());
+
+        verify(statement, never()).execute(startsWith("CREATE INDEX"));
+        verify(record, never()).executeUpdate();
+    }
+
+    @Test
+    void migrate_toleratesIndexLeftByInterruptedRun() throws SQLException {
+        stubCurrentVersion(0);
+        when(connection.prepareStatement("INSERT INTO SchemaVersions (version, description) VALUES (?, ?)")).thenReturn(record);
+        lenient().when(statement.execute("CREATE INDEX PermitsByPermitID ON Permits (permitID)"))
+                .thenThrow(new SQLException("Duplicate key name 'PermitsByPermitID'", "42000", SchemaMigrationServiceImpl.DUPLICATE_KEY_NAME));
+
+        Assertions.assertEquals(5, schemaMigrationService.migrate());
+        verify(record, times(5)).executeUpdate();
+    }
+
+    @Test
+    void migrate_toleratesColumnLeftByInterruptedRun() throws SQLException {
+        stubCurrentVersion(0);
+        when(connection.prepareStatement("INSERT INTO SchemaVersions (version, description) VALUES (?, ?)")).thenReturn(record);
+        lenient().when(statement.execute("ALTER TABLE Citations ADD COLUMN requestKey varchar(36) NULL"))
+                .thenThrow(new SQLException("Duplicate column name 'requestKey'", "42S21", SchemaMigrationServiceImpl.DUPLICATE_COLUMN_NAME));
+
+        Assertions.assertEquals(5, schemaMigrationService.migrate());
+        verify(statement, times(1)).execute("CREATE UNIQUE INDEX CitationsByRequestKey ON Citations (requestKey)");
+        verify(record, times(5)).executeUpdate();
+    }
+
+    @Test
+    void migrate_failureDoesNotRecordVersion() throws SQLException {
+        stubCurrentVersion(0);
+        when(connection.prepareStatement("INSERT INTO SchemaVersions (version, description) VALUES (?, ?)")).thenReturn(record);
+        lenient().when(statement.execute("CREATE INDEX PermitsByCarLicense ON Permits (carLicenseNum)")).thenThrow(new SQLException("Lock wait timeout"));
+
+        Assertions.assertThrows(SQLException.class, () -> {
+            schemaMigrationService.migrate();
+        });
+        verify(record, never()).executeUpdate();
+        verify(dbService, times(1)).close(null, record, null);
+        verify(dbService, times(1)).close(connection, statement, null);
+    }
+
+    @Test
+    void loadStatements_skipsCommentsAndSplitsOnSemicolons() throws SQLException {
+        List<String> statements = SchemaMigrationServiceImpl.loadStatements("V1__service_query_indexes.sql");
+
+        Assertions.assertEquals(6, statements.size());
+        Assertions.assertEquals("CREATE INDEX CitationsByLotAndDate ON Citations (lotName, citationDate)", statements.get(4));
+    }
+
+    @Test
+    void loadStatements_keepsTriggerBodiesWhole() throws SQLException {
+        List<String> statements = SchemaMigrationServiceImpl.loadStatements("V5__citation_daily_rollups.sql");
+
+        Assertions.assertEquals(11, statements.size());
+        Assertions.assertTrue(statements.get(8).startsWith("CREATE TRIGGER CitationsRollupDelete AFTER DELETE ON Citations FOR EACH ROW BEGIN UPDATE"));
+        Assertions.assertTrue(statements.get(8).endsWith("AND citationCount = 0; END"));
+        Assertions.assertTrue(statements.get(10).startsWith("CREATE TRIGGER CitationsRollupUpdateAdd"));
+    }
+
+    @Test
+    void constructor_rejectsBadlyNamedScript() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new SchemaMigrationServiceImpl(dbService, java.util.Arrays.asList("indexes.sql", "V1__a.sql"));
+        });
+    }
+
+    private void stubCurrentVersion(int version) throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM SchemaVersions")).thenReturn(results);
+        when(results.next()).thenReturn(true);
+        when(results.getInt(1)).thenReturn(version);
+    }
+}
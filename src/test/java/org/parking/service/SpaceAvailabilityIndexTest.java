@@ -0,0 +1,272 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Space;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpaceAvailabilityIndexTest {
+
+    private SpaceAvailabilityIndex index;
+
+    @Mock
+    private SpaceService spaceService;
+
+    @BeforeEach
+    void init() {
+        index = new SpaceAvailabilityIndex(spaceService);
+    }
+
+    @AfterEach
+    void shutdown() {
+        index.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubSpaces(List<Space> spaces) {
+        doAnswer(invocation -> {
+            Consumer<Space> action = invocation.getArgument(0);
+            spaces.forEach(action);
+            return spaces.size();
+        }).when(spaceService).forEach(any(Consumer.class));
+    }
+
+    @Test
+    void load_countsFreeSpacesPerLotAndType() {
+        stubSpaces(Arrays.asList(
+                new Space(1, "regular", true, "A", "Lot 1"),
+                new Space(2, "regular", false, "A", "Lot 1"),
+                new Space(3, "regular", true, "B", "Lot 1"),
+                new Space(4, "electric", true, "A", "Lot 1"),
+                new Space(1, "regular", true, "A", "Lot 2")));
+        Assertions.assertEquals(5, index.load());
+        Assertions.assertEquals(2, index.getFreeCount("Lot 1", "regular"));
+        Assertions.assertEquals(1, index.getFreeCount("Lot 1", "electric"));
+        Assertions.assertEquals(0, index.getFreeCount("Lot 3", "regular"));
+    }
+
+    @Test
+    void claim_marksSpaceInUseAndSavesIt() {
+        stubSpaces(Arrays.asList(
+                new Space(1, "regular", false, "A", "Lot 1"),
+                new Space(2, "regular", true, "A", "Lot 1")));
+        when(spaceService.updateSpace(any(Space.class), any(Space.class))).thenReturn(true);
+        index.load();
+
+        Space claimed = index.claim("Lot 1", "regular");
+        Assertions.assertEquals(2, claimed.getNumber());
+        Assertions.assertFalse(claimed.getStatus());
+        Assertions.assertNull(index.claim("Lot 1", "regular"));
+        index.flush();
+        verify(spaceService, times(1)).updateSpace(
+                argThat(space -> space.getNumber() == 2 && space.getStatus()),
+                argThat(space -> space.getNumber() == 2 && !space.getStatus() && space.getZoneID().equals("A")));
+    }
+
+    @Test
+    void claim_reportsSavedSpace() {
+        List<Space> saved = new ArrayList<>();
+        index.shutdown();
+        index = new SpaceAvailabilityIndex(spaceService, SpaceSearchRules.none(), saved::add);
+        stubSpaces(Arrays.asList(new Space(1, "regular", true, "A", "Lot 1")));
+        when(spaceService.updateSpace(any(Space.class), any(Space.class))).thenReturn(true, false);
+        index.load();
+
+        Space claimed = index.claim("Lot 1", "regular");
+        index.release("Lot 1", "A", 1);
+        index.flush();
+
+        Assertions.assertEquals(Collections.singletonList(claimed), saved);
+    }
+
+    @Test
+    void claim_unknownLotOrType_returnsNull() {
+        stubSpaces(Arrays.asList(new Space(1, "regular", true, "A", "Lot 1")));
+        index.load();
+        Assertions.assertNull(index.claim("Lot 1", "electric"));
+        Assertions.assertNull(index.claim("Lot 2", "regular"));
+    }
+
+    @Test
+    void claim_concurrentCallers_neverShareASpace() throws InterruptedException {
+        List<Space> spaces = new ArrayList<>();
+        for (int number = 1; number <= 300; number++) {
+            spaces.add(new Space(number, "regular", true, number <= 150 ? "A" : "B", "Lot 1"));
+        }
+        stubSpaces(spaces);
+        when(spaceService.updateSpace(any(Space.class), any(Space.class))).thenReturn(true);
+        index.load();
+
+        ConcurrentLinkedQueue<String> claimed = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Space space;
+                while ((space = index.claim("Lot 1", "regular")) != null) {
+                    claimed.add(space.getZoneID() + space.getNumber());
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<String> distinct = new HashSet<>(claimed);
+        Assertions.assertEquals(300, claimed.size());
+        Assertions.assertEquals(300, distinct.size());
+        Assertions.assertEquals(0, index.getFreeCount("Lot 1", "regular"));
+        index.flush();
+        verify(spaceService, times(300)).updateSpace(any(Space.class), any(Space.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claim_duringReload_waitsForTheNewIndex() throws InterruptedException {
+        // The database holds each space's status; a claim reaches it only when the writer saves the update.
+        Map<Integer, Boolean> saved = new HashMap<>();
+        saved.put(1, true);
+        saved.put(2, true);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch finishReading = new CountDownLatch(1);
+        int[] loads = {0};
+        doAnswer(invocation -> {
+            if (++loads[0] == 2) {
+                reading.countDown();
+                finishReading.await();
+            }
+            Consumer<Space> action = invocation.getArgument(0);
+            synchronized (saved) {
+                saved.forEach((number, free) -> action.accept(new Space(number, "regular", free, "A", "Lot 1")));
+            }
+            return saved.size();
+        }).when(spaceService).forEach(any(Consumer.class));
+        when(spaceService.updateSpace(any(Space.class), any(Space.class))).thenAnswer(invocation -> {
+            Space updated = invocation.getArgument(1);
+            synchronized (saved) {
+                saved.put(updated.getNumber(), updated.getStatus());
+            }
+            return true;
+        });
+        index.load();
+
+        Thread reload = new Thread(index::load);
+        reload.start();
+        reading.await();
+        Space[] claimed = new Space[1];
+        Thread claim = new Thread(() -> claimed[0] = index.claim("Lot 1", "regular"));
+        claim.start();
+        while (claim.getState() != Thread.State.WAITING && claim.isAlive()) {
+            Thread.yield();
+        }
+        Assertions.assertNull(claimed[0]);
+        finishReading.countDown();
+        reload.join();
+        claim.join();
+
+        Assertions.assertNotNull(claimed[0]);
+        Assertions.assertEquals(1, index.getFreeCount("Lot 1", "regular"));
+        Space other = index.claim("Lot 1", "regular");
+        Assertions.assertNotEquals(claimed[0].getNumber(), other.getNumber());
+    }
+
+    @Test
+    void claimBestFit_fallsBackThroughAlternateZonesAndLots() {
+        Map<String, List<String>> alternateZones = new HashMap<>();
+        alternateZones.put("A", Arrays.asList("B"));
+        index = new SpaceAvailabilityIndex(spaceService,
+                new SpaceSearchRules(Arrays.asList("Lot 2", "Lot 1"), alternateZones));
+        stubSpaces(Arrays.asList(
+                new Space(1, "regular", true, "A", "Lot 1"),
+                new Space(2, "regular", true, "A", "Lot 2"),
+                new Space(3, "regular", true, "B", "Lot 1"),
+                new Space(4, "regular", true, "C", "Lot 2")));
+        when(spaceService.updateSpace(any(Space.class), any(Space.class))).thenReturn(true);
+        index.load();
+
+        // Zone A in the priority lot, then zone A elsewhere, then the alternate zone. Zone C is never used for A.
+        Assertions.assertEquals("Lot 2", index.claimBestFit("A", "regular").getLotName());
+        Assertions.assertEquals("Lot 1", index.claimBestFit("A", "regular").getLotName());
+        Assertions.assertEquals(3, index.claimBestFit("A", "regular").getNumber());
+        Assertions.assertNull(index.claimBestFit("A", "regular"));
+        Assertions.assertEquals(4, index.claimBestFit("C", "regular").getNumber());
+    }
+
+    @Test
+    void claimBestFit_noRules_searchesOwnZoneInLotsByName() {
+        stubSpaces(Arrays.asList(
+                new Space(1, "electric", true, "A", "Lot 2"),
+                new Space(2, "electric", true, "A", "Lot 1"),
+                new Space(3, "electric", true, "B", "Lot 1")));
+        when(spaceService.updateSpace(any(Space.class), any(Space.class))).thenReturn(true);
+        index.load();
+
+        Assertions.assertEquals("Lot 1", index.claimBestFit("A", "electric").getLotName());
+        Assertions.assertEquals("Lot 2", index.claimBestFit("A", "electric").getLotName());
+        Assertions.assertNull(index.claimBestFit("A", "electric"));
+        Assertions.assertNull(index.claimBestFit("A", "regular"));
+        Assertions.assertNull(index.claimBestFit("Z", "electric"));
+    }
+
+    @Test
+    void release_makesSpaceFreeAgain() {
+        stubSpaces(Arrays.asList(new Space(5, "handicap", false, "A", "Lot 1")));
+        when(spaceService.updateSpace(any(Space.class), any(Space.class))).thenReturn(true);
+        index.load();
+
+        Assertions.assertTrue(index.release("Lot 1", "A", 5));
+        Assertions.assertFalse(index.release("Lot 1", "A", 5));
+        Assertions.assertEquals(1, index.getFreeCount("Lot 1", "handicap"));
+        Assertions.assertEquals(5, index.claim("Lot 1", "handicap").getNumber());
+    }
+
+    @Test
+    void release_unknownSpace_returnsFalse() {
+        stubSpaces(Arrays.asList(new Space(5, "handicap", false, "A", "Lot 1")));
+        index.load();
+        Assertions.assertFalse(index.release("Lot 1", "A", 6));
+        Assertions.assertFalse(index.release("Lot 1", "B", 5));
+        verify(spaceService, never()).updateSpace(any(Space.class), any(Space.class));
+    }
+
+    @Test
+    void release_failedWrite_keepsSpaceInUse() {
+        stubSpaces(Arrays.asList(new Space(5, "regular", false, "A", "Lot 1")));
+        when(spaceService.updateSpace(any(Space.class), any(Space.class))).thenReturn(false);
+        index.load();
+
+        Assertions.assertTrue(index.release("Lot 1", "A", 5));
+        index.flush();
+        Assertions.assertEquals(0, index.getFreeCount("Lot 1", "regular"));
+        Assertions.assertNull(index.claim("Lot 1", "regular"));
+    }
+}
@@ -0,0 +1,38 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+class SpaceSearchRulesTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void load_readsLotPriorityAndAlternateZones() throws IOException {
+        Path file = directory.resolve("space-search.properties");
+        Files.write(file, Arrays.asList("lots=Lot 3, Lot 1", "zone.A=B,C", "zone.V= A ,,D"), StandardCharsets.UTF_8);
+
+        SpaceSearchRules rules = SpaceSearchRules.load(file);
+        Assertions.assertEquals(Arrays.asList("A", "B", "C"), rules.zoneOrder("A"));
+        Assertions.assertEquals(Arrays.asList("V", "A", "D"), rules.zoneOrder("V"));
+        Assertions.assertEquals(Arrays.asList("B"), rules.zoneOrder("B"));
+        Assertions.assertEquals(Arrays.asList("Lot 3", "Lot 1", "Lot 2", "Lot 4"),
+                rules.lotOrder(Arrays.asList("Lot 4", "Lot 1", "Lot 2", "Lot 3")));
+    }
+
+    @Test
+    void none_keepsOwnZoneAndOrdersLotsByName() {
+        SpaceSearchRules rules = SpaceSearchRules.none();
+        Assertions.assertEquals(Arrays.asList("A"), rules.zoneOrder("A"));
+        Assertions.assertEquals(Arrays.asList("Lot 1", "Lot 2"), rules.lotOrder(Arrays.asList("Lot 2", "Lot 1")));
+        Assertions.assertTrue(rules.getZonesWithAlternates().isEmpty());
+    }
+}
@@ -4,15 +4,23 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import org.parking.model.Space;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -36,6 +44,9 @@ public class SpaceServiceImplTest {
     @Mock
     private ResultSet results;
 
+    @Mock
+    private SpaceStatusListener listener;
+
     @BeforeEach
     void init() {
         spaceService = new SpaceServiceImpl(dbService);
@@ -45,7 +56,7 @@ public class SpaceServiceImplTest {
     @Test
     void testGetAll_NoConnection() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenThrow(new SQLException());
-        assertEquals(0, spaceService.getAll().size());
+        assertNull(spaceService.getAll());
         verify(dbService, times(0)).close(connection, statement, results);
     }
 
@@ -185,7 +196,7 @@ public class SpaceServiceImplTest {
                         "status=?, " +
                         "zoneID=?, " +
                         "lotName=? " +
-                        "WHERE number=? AND zoneID=? AND lotName=?"))
+                        "WHERE number=? AND zoneID=? AND lotName=? AND status=?"))
                 .thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(1);
 
@@ -206,7 +217,7 @@ public class SpaceServiceImplTest {
                         "status=?, " +
                         "zoneID=?, " +
                         "lotName=? " +
-                        "WHERE number=? AND zoneID=? AND lotName=?"))
+                        "WHERE number=? AND zoneID=? AND lotName=? AND status=?"))
                 .thenReturn(statement);
         when(statement.executeUpdate()).thenReturn(0);
 
@@ -214,6 +225,88 @@ public class SpaceServiceImplTest {
         verify(dbService, times(1)).close(connection, statement, null);
     }
 
+    @Test
+    void testUpdateSpace_statusChanged() throws SQLException {
+        Space original = new Space(1, "electric", true, "A", "testLotName");
+        Space updated = new Space(1, "electric", false, "A", "testLotName");
+
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(
+                "UPDATE Spaces SET " +
+                        "number=?, " +
+                        "type=?, " +
+                        "status=?, " +
+                        "zoneID=?, " +
+                        "lotName=? " +
+                        "WHERE number=? AND zoneID=? AND lotName=? AND status=?"))
+                .thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(0);
+
+        assertFalse(spaceService.updateSpace(original, updated));
+        verify(statement, times(1)).setBoolean(3, false);
+        verify(statement, times(1)).setBoolean(9, true);
+    }
+
+    /* Test Reserve Space function */
+    @Test
+    void testReserveSpace_success() throws SQLException {
+        PreparedStatement update = mock(PreparedStatement.class);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Spaces WHERE lotName=? AND type=? AND status=TRUE " +
+                "LIMIT 1 FOR UPDATE SKIP LOCKED")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true);
+        when(results.getInt("number")).thenReturn(7);
+        when(results.getString("type")).thenReturn("electric");
+        when(results.getString("zoneID")).thenReturn("A");
+        when(results.getString("lotName")).thenReturn("testLotName");
+        when(connection.prepareStatement("UPDATE Spaces SET status=FALSE " +
+                "WHERE number=? AND zoneID=? AND lotName=? AND status=TRUE")).thenReturn(update);
+        when(update.executeUpdate()).thenReturn(1);
+
+        Space reserved = spaceService.reserveSpace("testLotName", "electric");
+        assertEquals(7, reserved.getNumber());
+        assertEquals("A", reserved.getZoneID());
+        assertFalse(reserved.getStatus());
+        verify(connection, times(1)).setAutoCommit(false);
+        verify(connection, times(1)).commit();
+        verify(dbService, times(1)).close(null, statement, results);
+        verify(dbService, times(1)).close(connection, update, null);
+    }
+
+    @Test
+    void testReserveSpace_noneFree() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Spaces WHERE lotName=? AND type=? AND status=TRUE " +
+                "LIMIT 1 FOR UPDATE SKIP LOCKED")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(false);
+
+        assertNull(spaceService.reserveSpace("testLotName", "electric"));
+        verify(connection, times(1)).commit();
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void testReserveSpace_sqlException() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Spaces WHERE lotName=? AND type=? AND status=TRUE " +
+                "LIMIT 1 FOR UPDATE SKIP LOCKED")).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLException());
+
+        assertNull(spaceService.reserveSpace("testLotName", "electric"));
+        verify(connection, times(1)).rollback();
+        verify(connection, times(0)).commit();
+        verify(dbService, times(1)).close(connection, statement, null);
+    }
+
+    @Test
+    void testReserveSpace_noConnection() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenThrow(new SQLException());
+        assertNull(spaceService.reserveSpace("testLotName", "electric"));
+        verify(dbService, times(0)).close(connection, statement, results);
+    }
+
     /* Test Delete Space function */
     @Test
     void testDeleteSpace_noConn() throws SQLException {
@@ -293,4 +386,154 @@ public class SpaceServiceImplTest {
                 testType));
         verify(dbService, times(1)).close(connection, statement, null);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetPage_firstPage() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Spaces ORDER BY number, zoneID, lotName LIMIT ?")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true).thenReturn(false);
+        when(results.getInt("number")).thenReturn(1);
+        when(results.getString("type")).thenReturn("electric");
+        when(results.getString("zoneID")).thenReturn("A");
+        when(results.getString("lotName")).thenReturn("testLotName");
+
+        List<Space> page = spaceService.getPage(null, 100);
+
+        assertEquals(1, page.size());
+        assertEquals(1, page.get(0).getNumber());
+        verify(statement, times(1)).setInt(1, 100);
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void testGetPage_seeksPastLastSpace() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Spaces WHERE number > ? OR (number = ? AND (zoneID > ? OR (zoneID = ? AND lotName > ?))) ORDER BY number, zoneID, lotName LIMIT ?")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(false);
+
+        assertTrue(spaceService.getPage(new Space(7, "electric", true, "B", "testLotName"), 100).isEmpty());
+        verify(statement, times(1)).setInt(1, 7);
+        verify(statement, times(1)).setInt(2, 7);
+        verify(statement, times(1)).setString(3, "B");
+        verify(statement, times(1)).setString(4, "B");
+        verify(statement, times(1)).setString(5, "testLotName");
+        verify(statement, times(1)).setInt(6, 100);
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    @Test
+    void testGetPage_failure() throws SQLException {
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Spaces ORDER BY number, zoneID, lotName LIMIT ?")).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLException());
+
+        assertTrue(spaceService.getPage(null, 100).isEmpty());
+        verify(dbService, times(1)).close(connection, statement, null);
+    }
+
+    @Test
+    void testForEach_success() throws SQLException {
+        List<Integer> seen = new ArrayList<>();
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Spaces ORDER BY number, zoneID, lotName")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+        when(results.getInt("number")).thenReturn(1).thenReturn(2);
+
+        assertEquals(2, spaceService.forEach(space -> seen.add(space.getNumber())));
+        assertEquals(Arrays.asList(1, 2), seen);
+        verify(statement, times(1)).setFetchSize(DBService.STREAM_FETCH_SIZE);
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+
+    /* Test status change listeners */
+    @Test
+    void testCreateSpace_notifiesListeners() throws SQLException {
+        Space test = new Space(1, "electric", true, "A", "testLotName");
+        SpaceService publishing = new SpaceServiceImpl(dbService, listener);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("INSERT INTO Spaces VALUES (?, ?, ?, ?, ?)")).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+
+        assertTrue(publishing.createSpace(test));
+        verify(listener, times(1)).spaceChanged(null, test);
+    }
+
+    @Test
+    void testUpdateSpace_statusChanged_doesNotNotifyListeners() throws SQLException {
+        Space original = new Space(1, "electric", true, "A", "testLotName");
+        Space updated = new Space(1, "electric", false, "A", "testLotName");
+        SpaceService publishing = new SpaceServiceImpl(dbService, listener);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement(
+                "UPDATE Spaces SET " +
+                        "number=?, " +
+                        "type=?, " +
+                        "status=?, " +
+                        "zoneID=?, " +
+                        "lotName=? " +
+                        "WHERE number=? AND zoneID=? AND lotName=? AND status=?"))
+                .thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(0);
+
+        assertFalse(publishing.updateSpace(original, updated));
+        verify(listener, never()).spaceChanged(any(), any());
+    }
+
+    @Test
+    void testDeleteSpace_listenerFails_stillSucceeds() throws SQLException {
+        Space test = new Space(1, "electric", true, "A", "testLotName");
+        SpaceStatusListener second = mock(SpaceStatusListener.class);
+        SpaceService publishing = new SpaceServiceImpl(dbService, listener, second);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("DELETE FROM Spaces WHERE number=? AND zoneID=? AND lotName=?"))
+                .thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+        doThrow(new IllegalStateException("sign offline")).when(listener).spaceChanged(test, null);
+
+        assertTrue(publishing.deleteSpace(test));
+        verify(second, times(1)).spaceChanged(test, null);
+    }
+
+    @Test
+    void testAssignTypeOfASpace_notifiesListenersWithPreviousType() throws SQLException {
+        PreparedStatement update = mock(PreparedStatement.class);
+        SpaceService publishing = new SpaceServiceImpl(dbService, listener);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Spaces WHERE number=? AND zoneID=? AND lotName=? FOR UPDATE"))
+                .thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(true);
+        when(results.getInt("number")).thenReturn(1);
+        when(results.getString("type")).thenReturn("electric");
+        when(results.getBoolean("status")).thenReturn(true);
+        when(results.getString("zoneID")).thenReturn("A");
+        when(results.getString("lotName")).thenReturn("testLotName");
+        when(connection.prepareStatement("UPDATE Spaces SET type=? WHERE number=? AND zoneID=? AND lotName=?"))
+                .thenReturn(update);
+        when(update.executeUpdate()).thenReturn(1);
+
+        assertTrue(publishing.assignTypeOfASpace("testLotName", "A", 1, "regular"));
+        verify(connection, times(1)).commit();
+        verify(listener, times(1)).spaceChanged(
+                argThat(space -> space.getType().equals("electric") && space.getStatus()),
+                argThat(space -> space.getType().equals("regular") && space.getStatus()));
+        verify(dbService, times(1)).close(connection, update, null);
+    }
+
+    @Test
+    void testAssignTypeOfASpace_withListeners_spaceMissing() throws SQLException {
+        SpaceService publishing = new SpaceServiceImpl(dbService, listener);
+        when(dbService.connectAndReturnConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT * FROM Spaces WHERE number=? AND zoneID=? AND lotName=? FOR UPDATE"))
+                .thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(results);
+        when(results.next()).thenReturn(false);
+
+        assertFalse(publishing.assignTypeOfASpace("testLotName", "A", 1, "regular"));
+        verify(listener, never()).spaceChanged(any(), any());
+        verify(dbService, times(1)).close(connection, statement, results);
+    }
+}
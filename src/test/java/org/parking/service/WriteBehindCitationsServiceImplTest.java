@@ -0,0 +1,144 @@
+package org.parking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.parking.model.Citation;
+import org.parking.model.Vehicle;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindCitationsServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private CitationsService delegate;
+
+    @Mock
+    private CitationNumberAllocator numberAllocator;
+
+    private CitationWriteBehindLog log;
+    private WriteBehindCitationsServiceImpl writeBehind;
+
+    @BeforeEach
+    void init() throws IOException, SQLException {
+        lenient().when(numberAllocator.next()).thenReturn(501, 502, 503);
+        log = new CitationWriteBehindLog(directory.resolve("citations.log"), 4096);
+        writeBehind = new WriteBehindCitationsServiceImpl(delegate, numberAllocator, log, directory.resolve("citations.log.rejected"), 10, 0);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        log.close();
+    }
+
+    private static Citation citation(String license) {
+        return new Citation(0, new Vehicle(license, "Civic", "Blue", "Honda", 2020), "Lot 9", "No permits", 40.0, "DUE",
+                Date.valueOf("2026-03-02"), Time.valueOf("08:15:30"));
+    }
+
+    @Test
+    void createCitation_isNumberedAndLoggedWithoutTheDatabase() throws SQLException {
+        Assertions.assertEquals(501, writeBehind.createCitation(citation("VAN9910"), true));
+
+        Assertions.assertEquals(1, writeBehind.getPending());
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void createCitation_repeatedRequestKeyIsLoggedOnce() throws SQLException {
+        Assertions.assertEquals(501, writeBehind.createCitation(citation("VAN9910"), true, "request-1"));
+        Citation retry = citation("VAN9910");
+        Assertions.assertEquals(501, writeBehind.createCitation(retry, true, "request-1"));
+
+        Assertions.assertEquals(501, retry.getNumber());
+        Assertions.assertEquals(1, writeBehind.getPending());
+        verifyNoInteractions(delegate);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void drain_writesLoggedCitationsWithTheirRequestKeys() throws SQLException {
+        when(delegate.createCitations(any(), anyList())).thenReturn(new int[]{1, 1});
+        writeBehind.createCitations(Arrays.asList(citation("VAN9910"), citation("TRK1122")), Arrays.asList("key-1", "key-2"));
+
+        Assertions.assertEquals(2, writeBehind.drain());
+
+        ArgumentCaptor<List<Citation>> citations = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(delegate).createCitations(citations.capture(), keys.capture());
+        Assertions.assertEquals(Arrays.asList("key-1", "key-2"), keys.getValue());
+        Assertions.assertEquals(501, citations.getValue().get(0).getNumber());
+        Assertions.assertEquals(502, citations.getValue().get(1).getNumber());
+        Assertions.assertEquals(0, writeBehind.getPending());
+        Assertions.assertEquals(0, writeBehind.drain());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void drain_failedBatchIsRetriedWithTheSameKeys() throws SQLException {
+        when(delegate.createCitations(any(), anyList())).thenThrow(new SQLException("Connection refused")).thenReturn(new int[]{1});
+        writeBehind.createCitation(citation("VAN9910"), false);
+
+        Assertions.assertEquals(0, writeBehind.drain());
+        Assertions.assertEquals(1, writeBehind.getPending());
+        Assertions.assertEquals(1, writeBehind.drain());
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(delegate, times(2)).createCitations(any(), keys.capture());
+        Assertions.assertEquals(keys.getAllValues().get(0), keys.getAllValues().get(1));
+        Assertions.assertEquals(0, writeBehind.getPending());
+    }
+
+    @Test
+    void drain_refusedCitationsGoToTheRejectedFile() throws SQLException, IOException {
+        when(delegate.createCitations(any(), anyList())).thenReturn(new int[]{1, Statement.EXECUTE_FAILED});
+        writeBehind.createCitations(Arrays.asList(citation("VAN9910"), citation("TRK1122")), Arrays.asList("key-1", "key-2"));
+
+        Assertions.assertEquals(1, writeBehind.drain());
+
+        List<String> rejected = Files.readAllLines(directory.resolve("citations.log.rejected"), StandardCharsets.UTF_8);
+        Assertions.assertEquals(Arrays.asList("key-2,502,TRK1122,Lot 9,No permits,40.0,DUE,2026-03-02,08:15:30"), rejected);
+        Assertions.assertEquals(1, writeBehind.getRejected());
+        Assertions.assertEquals(0, writeBehind.getPending());
+    }
+
+    @Test
+    void fullLog_writesThrough() throws SQLException, IOException {
+        log.close();
+        log = new CitationWriteBehindLog(directory.resolve("small.log"), 200);
+        writeBehind = new WriteBehindCitationsServiceImpl(delegate, numberAllocator, log, directory.resolve("small.log.rejected"), 10, 0);
+        when(delegate.createCitations(any(), anyList())).thenReturn(new int[]{Statement.EXECUTE_FAILED});
+
+        int[] outcomes = writeBehind.createCitations(Arrays.asList(citation("VAN9910"), citation("TRK1122")),
+                Arrays.asList("key-1", "key-2"));
+        writeBehind.createCitation(citation("CAR3344"), true);
+
+        Assertions.assertArrayEquals(new int[]{1, Statement.EXECUTE_FAILED}, outcomes);
+        verify(delegate).createCitations(anyList(), eq(Arrays.asList("key-2")));
+        verify(delegate).createCitation(any(), eq(true));
+    }
+}
@@ -48,7 +48,7 @@ public class ZoneServiceImplTest {
     @Test
     void testGetAll_NoConnection() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenThrow(new SQLException());
-        assertEquals(0, zoneService.getAll().size());
+        assertNull(zoneService.getAll());
         verify(dbService, times(0)).close(connection, statement, results);
     }
 
@@ -124,7 +124,7 @@ public class ZoneServiceImplTest {
     @Test
     void testGetZoneById_NoConnection() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenThrow(new SQLException());
-        assertEquals(0, zoneService.getZonesById("A").size());
+        assertNull(zoneService.getZonesById("A"));
         verify(dbService, times(0)).close(connection, statement, results);
     }
 
@@ -159,7 +159,7 @@ public class ZoneServiceImplTest {
     @Test
     void testGetZoneByLotName_NoConnection() throws SQLException {
         when(dbService.connectAndReturnConnection()).thenThrow(new SQLException());
-        assertEquals(0, zoneService.getZonesByLotName("testLotName").size());
+        assertNull(zoneService.getZonesByLotName("testLotName"));
         verify(dbService, times(0)).close(connection, statement, results);
     }
 